@@ -29,6 +29,14 @@ public interface Database {
 
     DataSource createDataSource();
 
+    /**
+     * @return a data source for a read only replica of the database, or null when there is none. Queries that can
+     * tolerate the replica lagging behind are sent to it instead of the data source from {@link #createDataSource()}
+     */
+    default DataSource createReadReplicaDataSource() {
+        return null;
+    }
+
     void upgrade() throws SQLException;
 
     void shutdown() throws SQLException;
@@ -40,23 +40,28 @@ public class AgentStatusHttpd extends NanoHTTPD {
 
     private final Map<String, HttpHandler> routes = new ConcurrentHashMap<>();
     private final HttpHandler isConnectedToServer;
+    private final HttpHandler fetchArtifactCacheMetrics;
     private final SystemEnvironment environment;
     private final int port;
     private final Set<Method> allowedMethods = new HashSet<>(Arrays.asList(Method.GET, Method.PUT));
 
     @Autowired
     public AgentStatusHttpd(SystemEnvironment environment,
-                            IsConnectedToServerV1 isConnectedToServerV1) {
+                            IsConnectedToServerV1 isConnectedToServerV1,
+                            FetchArtifactCacheMetricsV1 fetchArtifactCacheMetricsV1) {
         super(environment.getAgentStatusHostname(), environment.getAgentStatusPort());
         this.port = environment.getAgentStatusPort();
         this.environment = environment;
         this.isConnectedToServer = isConnectedToServerV1;
+        this.fetchArtifactCacheMetrics = fetchArtifactCacheMetricsV1;
         setupRoutes();
     }
 
     private void setupRoutes() {
         routes.put("/health/v1/isConnectedToServer", isConnectedToServer);
         routes.put("/health/latest/isConnectedToServer", isConnectedToServer);
+        routes.put("/metrics/v1/fetchArtifactCache", fetchArtifactCacheMetrics);
+        routes.put("/metrics/latest/fetchArtifactCache", fetchArtifactCacheMetrics);
     }
 
     @Override
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.agent.statusapi;
+
+import com.thoughtworks.go.domain.FetchArtifactCache;
+import fi.iki.elonen.NanoHTTPD;
+import fi.iki.elonen.NanoHTTPD.Response.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FetchArtifactCacheMetricsV1 extends HttpHandler {
+
+    private final FetchArtifactCache fetchArtifactCache;
+
+    @Autowired
+    public FetchArtifactCacheMetricsV1(FetchArtifactCache fetchArtifactCache) {
+        this.fetchArtifactCache = fetchArtifactCache;
+    }
+
+    @Override
+    NanoHTTPD.Response process() {
+        StringBuilder metrics = new StringBuilder();
+        fetchArtifactCache.stats().forEach((name, value) -> metrics.append(name).append(": ").append(value).append('\n'));
+        return NanoHTTPD.newFixedLengthResponse(Status.OK, "text/plain; charset=utf-8", metrics.toString());
+    }
+
+    @Override
+    protected boolean isPassed() {
+        return true;
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.thoughtworks.go.agent.statusapi;
 
+import com.thoughtworks.go.domain.FetchArtifactCache;
 import com.thoughtworks.go.util.SystemEnvironment;
 import fi.iki.elonen.NanoHTTPD;
 import org.apache.commons.io.IOUtils;
@@ -24,6 +25,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
@@ -37,13 +39,15 @@ class AgentStatusHttpdTest {
     @Mock
     private SystemEnvironment systemEnvironment;
     @Mock
+    private FetchArtifactCache fetchArtifactCache;
+    @Mock
     private NanoHTTPD.IHTTPSession session;
     private AgentStatusHttpd agentStatusHttpd;
 
     @BeforeEach
     void setUp() {
         initMocks(this);
-        this.agentStatusHttpd = new AgentStatusHttpd(systemEnvironment, new IsConnectedToServerV1(agentHealthHolder));
+        this.agentStatusHttpd = new AgentStatusHttpd(systemEnvironment, new IsConnectedToServerV1(agentHealthHolder), new FetchArtifactCacheMetricsV1(fetchArtifactCache));
     }
 
     @Test
@@ -90,6 +94,17 @@ class AgentStatusHttpdTest {
         assertThat(IOUtils.toString(response.getData(), StandardCharsets.UTF_8)).isEqualTo("OK!");
     }
 
+    @Test
+    void shouldRouteToFetchArtifactCacheMetricsHandler() throws Exception {
+        when(session.getMethod()).thenReturn(NanoHTTPD.Method.GET);
+        when(session.getUri()).thenReturn("/metrics/latest/fetchArtifactCache");
+        when(fetchArtifactCache.stats()).thenReturn(Collections.singletonMap("Hit rate percentage", 75));
+
+        NanoHTTPD.Response response = this.agentStatusHttpd.serve(session);
+        assertThat(response.getStatus()).isEqualTo(NanoHTTPD.Response.Status.OK);
+        assertThat(IOUtils.toString(response.getData(), StandardCharsets.UTF_8)).isEqualTo("Hit rate percentage: 75\n");
+    }
+
     @Test
     void shouldNotInitializeServerIfSettingIsTurnedOff() throws Exception {
         when(systemEnvironment.getAgentStatusEnabled()).thenReturn(true);
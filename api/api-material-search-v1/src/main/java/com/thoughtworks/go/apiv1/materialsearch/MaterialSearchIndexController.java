@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.apiv1.materialsearch;
+
+import com.thoughtworks.go.api.ApiController;
+import com.thoughtworks.go.api.ApiVersion;
+import com.thoughtworks.go.api.spring.ApiAuthenticationHelper;
+import com.thoughtworks.go.server.service.MaterialService;
+import com.thoughtworks.go.server.service.result.HttpLocalizedOperationResult;
+import com.thoughtworks.go.spark.Routes;
+import com.thoughtworks.go.spark.spring.SparkSpringController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import spark.Request;
+import spark.Response;
+
+import java.io.IOException;
+
+import static spark.Spark.*;
+
+@Component
+public class MaterialSearchIndexController extends ApiController implements SparkSpringController {
+
+    private final MaterialService materialService;
+    private final ApiAuthenticationHelper apiAuthenticationHelper;
+
+    @Autowired
+    public MaterialSearchIndexController(MaterialService materialService, ApiAuthenticationHelper apiAuthenticationHelper) {
+        super(ApiVersion.v1);
+        this.materialService = materialService;
+        this.apiAuthenticationHelper = apiAuthenticationHelper;
+    }
+
+    @Override
+    public String controllerBasePath() {
+        return Routes.MaterialSearch.INDEX_BASE;
+    }
+
+    @Override
+    public void setupRoutes() {
+        path(controllerBasePath(), () -> {
+            before("", mimeType, this::setContentType);
+            before("", mimeType, this::verifyContentType);
+
+            before("", mimeType, apiAuthenticationHelper::checkAdminUserAnd403);
+
+            post("", mimeType, this::rebuild);
+        });
+    }
+
+    public String rebuild(Request request, Response response) throws IOException {
+        HttpLocalizedOperationResult result = new HttpLocalizedOperationResult();
+        materialService.rebuildSearchIndex(result);
+        return renderHTTPOperationResult(result, request, response);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.apiv1.materialsearch
+
+import com.thoughtworks.go.api.SecurityTestTrait
+import com.thoughtworks.go.api.spring.ApiAuthenticationHelper
+import com.thoughtworks.go.server.service.MaterialService
+import com.thoughtworks.go.server.service.result.HttpLocalizedOperationResult
+import com.thoughtworks.go.server.service.result.LocalizedOperationResult
+import com.thoughtworks.go.spark.AdminUserSecurity
+import com.thoughtworks.go.spark.ControllerTrait
+import com.thoughtworks.go.spark.SecurityServiceTrait
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import org.mockito.Mock
+import org.mockito.invocation.InvocationOnMock
+
+import static org.mockito.ArgumentMatchers.any
+import static org.mockito.Mockito.doAnswer
+import static org.mockito.MockitoAnnotations.initMocks
+
+class MaterialSearchIndexControllerTest implements ControllerTrait<MaterialSearchIndexController>, SecurityServiceTrait {
+
+  @Mock
+  MaterialService materialService
+
+  @BeforeEach
+  void setup() {
+    initMocks(this)
+  }
+
+  @Override
+  MaterialSearchIndexController createControllerInstance() {
+    return new MaterialSearchIndexController(materialService, new ApiAuthenticationHelper(securityService, goConfigService))
+  }
+
+  @Nested
+  class Security implements SecurityTestTrait, AdminUserSecurity {
+
+    @Override
+    String getControllerMethodUnderTest() {
+      return "rebuild"
+    }
+
+    @Override
+    void makeHttpCall() {
+      postWithApiHeader(controller.controllerBasePath(), [:])
+    }
+  }
+
+  @Nested
+  class AsAdminUser {
+    @BeforeEach
+    void setUp() {
+      enableSecurity()
+      loginAsAdmin()
+    }
+
+    @Test
+    void 'should accept a request to rebuild the search index'() {
+      doAnswer({ InvocationOnMock invocation ->
+        def result = invocation.getArgument(0) as HttpLocalizedOperationResult
+        result.accepted("Rebuilding the modification search index.")
+      }).when(materialService).rebuildSearchIndex(any() as LocalizedOperationResult)
+
+      postWithApiHeader(controller.controllerBasePath(), [:])
+
+      assertThatResponse()
+        .isAccepted()
+        .hasContentType(controller.mimeType)
+        .hasJsonMessage("Rebuilding the modification search index.")
+    }
+
+    @Test
+    void 'should render 422 when the search index is turned off'() {
+      doAnswer({ InvocationOnMock invocation ->
+        def result = invocation.getArgument(0) as HttpLocalizedOperationResult
+        result.unprocessableEntity("The modification search index is turned off.")
+      }).when(materialService).rebuildSearchIndex(any() as LocalizedOperationResult)
+
+      postWithApiHeader(controller.controllerBasePath(), [:])
+
+      assertThatResponse()
+        .isUnprocessableEntity()
+        .hasContentType(controller.mimeType)
+        .hasJsonMessage("The modification search index is turned off.")
+    }
+  }
+}
@@ -70,6 +70,12 @@ public class GoConstants {
     public static final String REGULAR_MULTIPART_FILENAME = "file";
     public static final String CHECKSUM_MULTIPART_FILENAME = "file_checksum";
     public static final String ZIP_MULTIPART_FILENAME = "zipfile";
+    public static final String STREAMED_ZIP_CONTENT_TYPE = "application/zip";
+    public static final String STREAMED_ZIP_CHECKSUM_ENTRY = ".go-artifact-checksums";
+    public static final String ARTIFACT_HASHES_CONTENT_TYPE = "application/vnd.go.artifact-hashes";
+    public static final String ARTIFACT_BLOB_CONTENT_TYPE = "application/vnd.go.artifact-blob";
+    public static final String ARTIFACT_MANIFEST_CONTENT_TYPE = "application/vnd.go.artifact-manifest";
+    public static final String ARTIFACT_BLOB_HASH_HEADER = "X-GO-ARTIFACT-BLOB-SHA256";
     public static final String AGENT_JAR_MD5 = "agent.binary.md5";
     public static final String AGENT_PLUGINS_MD5 = "agent.plugins.md5";
     public static final String TFS_IMPL_MD5 = "agent.tfs.md5";
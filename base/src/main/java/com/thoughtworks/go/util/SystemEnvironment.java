@@ -147,6 +147,9 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static final GoSystemProperty<Boolean> GO_SERVER_SESSION_COOKIE_SECURE = new GoBooleanSystemProperty("go.sessioncookie.secure", false);
     public static final GoSystemProperty<String> AGENT_EXTRA_PROPERTIES = new GoStringSystemProperty("gocd.agent.extra.properties", "");
     public static final GoSystemProperty<Integer> JMS_LISTENER_BACKOFF_TIME = new GoIntSystemProperty("go.jms.listener.backoff.time.in.milliseconds", 5000);
+    public static final GoSystemProperty<Boolean> GO_SERVER_IN_MEMORY_MESSAGING = new GoBooleanSystemProperty("go.server.messaging.inMemory", false);
+    public static final GoSystemProperty<Integer> GO_SERVER_IN_MEMORY_MESSAGING_CAPACITY = new GoIntSystemProperty("go.server.messaging.inMemory.capacity", 10000);
+    public static final GoSystemProperty<Integer> GO_SCHEDULED_JOB_QUEUE_RECONCILE_INTERVAL_MILLIS = new GoIntSystemProperty("go.scheduled.job.queue.reconcile.interval.millis", 60 * 1000);
 
     public static final GoSystemProperty<Integer> GO_SERVER_AUTHORIZATION_EXTENSION_CALLS_CACHE_TIMEOUT_IN_SECONDS = new GoIntSystemProperty("go.server.authorization.extension.calls.cache.timeout.in.secs", 60 * 30);
 
@@ -158,6 +161,7 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static GoSystemProperty<String> GO_DATABASE_PASSWORD = new GoStringSystemProperty("db.password", "");
     public static GoIntSystemProperty GO_DATABASE_MAX_ACTIVE = new GoIntSystemProperty("db.maxActive", 32);
     public static GoIntSystemProperty GO_DATABASE_MAX_IDLE = new GoIntSystemProperty("db.maxIdle", 32);
+    public static GoStringSystemProperty GO_DATABASE_READ_REPLICA_URL = new GoStringSystemProperty("go.database.read.replica.url", "");
     public static final String H2_DATABASE = "com.thoughtworks.go.server.database.H2Database";
     public static GoStringSystemProperty GO_DATABASE_PROVIDER = new GoStringSystemProperty("go.database.provider", H2_DATABASE);
     public static GoSystemProperty<String> JETTY_XML_FILE_NAME = new GoStringSystemProperty("jetty.xml.file.name", JETTY_XML);
@@ -208,10 +212,28 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static GoSystemProperty<Boolean> GO_API_WITH_SAFE_MODE = new GoBooleanSystemProperty("go.api.with.safe.mode", true);
     public static GoSystemProperty<Integer> MAX_PENDING_AGENTS_ALLOWED = new GoIntSystemProperty("max.pending.agents.allowed", 100);
     public static GoSystemProperty<Boolean> CHECK_AND_REMOVE_DUPLICATE_MODIFICATIONS = new GoBooleanSystemProperty("go.modifications.removeDuplicates", true);
+    public static GoSystemProperty<Integer> GO_MODIFICATIONS_BATCH_SIZE = new GoIntSystemProperty("go.modifications.batch.size", 1000);
+    public static GoSystemProperty<Boolean> GO_MODIFICATIONS_SEARCH_INDEX = new GoBooleanSystemProperty("go.modifications.search.index", false);
+    public static GoSystemProperty<Integer> GO_MODIFICATIONS_SEARCH_INDEX_MAX_CANDIDATES = new GoIntSystemProperty("go.modifications.search.index.max.candidates", 1000);
+    public static GoSystemProperty<Integer> GO_MODIFICATIONS_SEARCH_INDEX_MAX_ENTRIES = new GoIntSystemProperty("go.modifications.search.index.max.entries", 20 * 1000 * 1000);
+    public static GoSystemProperty<String> GO_CACHE_REGIONS = new GoStringSystemProperty("go.cache.regions", "StageSqlMapDao.stageHistories=64:0;StageSqlMapDao.detailedStageHistories=64:0");
     public static GoSystemProperty<String> GO_AGENT_KEYSTORE_PASSWORD = new GoStringSystemProperty("go.agent.keystore.password", "agent5s0repa55w0rd");
     public static GoSystemProperty<String> GO_SERVER_KEYSTORE_PASSWORD = new GoStringSystemProperty("go.server.keystore.password", "serverKeystorepa55w0rd");
     private static final GoSystemProperty<Boolean> GO_AGENT_USE_SSL_CONTEXT = new GoBooleanSystemProperty("go.agent.reuse.ssl.context", true);
     public static final GoSystemProperty<Boolean> ENABLE_BUILD_COMMAND_PROTOCOL = new GoBooleanSystemProperty("go.agent.enableBuildCommandProtocol", false);
+    public static final GoSystemProperty<Boolean> GO_AGENT_STREAMING_ARTIFACT_UPLOAD = new GoBooleanSystemProperty("go.agent.artifact.upload.streaming", false);
+    public static final GoSystemProperty<Boolean> GO_AGENT_DEDUPLICATED_ARTIFACT_UPLOAD = new GoBooleanSystemProperty("go.agent.artifact.upload.deduplicated", false);
+    public static final GoSystemProperty<Long> GO_AGENT_FETCH_ARTIFACT_CACHE_SIZE_MB = new GoLongSystemProperty("go.agent.fetch.artifact.cache.size.mb", 0L);
+    public static final GoSystemProperty<String> GO_AGENT_FETCH_ARTIFACT_CACHE_DIR = new GoStringSystemProperty("go.agent.fetch.artifact.cache.dir", "fetch_artifact_cache");
+    public static final GoSystemProperty<Integer> GO_AGENT_ARTIFACT_DOWNLOAD_SEGMENTS = new GoIntSystemProperty("go.agent.artifact.download.segments", 1);
+    public static final GoSystemProperty<Integer> GO_AGENT_ARTIFACT_CHECKSUM_THREADS = new GoIntSystemProperty("go.agent.artifact.checksum.threads", 0);
+    public static final GoSystemProperty<Boolean> GO_AGENT_ARTIFACT_FAST_CHECKSUMS = new GoBooleanSystemProperty("go.agent.artifact.checksums.fast", false);
+    public static final GoSystemProperty<Boolean> GO_ARTIFACTS_CONTENT_ADDRESSED_STORAGE = new GoBooleanSystemProperty("go.artifacts.content.addressed.storage", false);
+    public static final GoSystemProperty<Long> GO_ARTIFACTS_BLOB_LINK_GRACE_PERIOD_MILLIS = new GoLongSystemProperty("go.artifacts.blob.link.grace.period.millis", 60 * 60 * 1000L);
+    public static final GoSystemProperty<Integer> GO_ARTIFACTS_ZIP_CACHE_CREATORS = new GoIntSystemProperty("go.artifacts.zip.cache.creators", 2);
+    public static final GoSystemProperty<Integer> GO_ARTIFACTS_ZIP_CACHE_QUEUE_SIZE = new GoIntSystemProperty("go.artifacts.zip.cache.queue.size", 100);
+    public static final GoSystemProperty<Boolean> GO_ARTIFACTS_ZIP_STREAMING = new GoBooleanSystemProperty("go.artifacts.zip.streaming", false);
+    public static final GoSystemProperty<Integer> GO_ARTIFACTS_PURGE_THREADS = new GoIntSystemProperty("go.artifacts.purge.threads", 4);
     public static final GoSystemProperty<Boolean> GO_DIAGNOSTICS_MODE = new GoBooleanSystemProperty("go.diagnostics.mode", false);
 
     public static GoIntSystemProperty DEPENDENCY_MATERIAL_UPDATE_LISTENERS = new GoIntSystemProperty("dependency.material.check.threads", 3);
@@ -236,6 +258,14 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     private static GoSystemProperty<Boolean> GO_PLUGIN_CLASSLOADER_OLD = new GoBooleanSystemProperty("gocd.plugins.classloader.old", false);
     public static final GoSystemProperty<String> LOADING_PAGE = new GoStringSystemProperty("loading.page.resource.path", "/loading_pages/default.loading.page.html");
     public static GoSystemProperty<Long> NOTIFICATION_PLUGIN_MESSAGES_TTL = new GoLongSystemProperty("plugins.notification.message.ttl.millis", 2 * 60 * 1000L);
+    public static GoSystemProperty<Long> NOTIFICATION_PLUGIN_COALESCE_WINDOW_MILLIS = new GoLongSystemProperty("plugins.notification.coalesce.window.millis", 0L);
+    public static GoSystemProperty<Integer> NOTIFICATION_PLUGIN_MAX_PENDING_MESSAGES = new GoIntSystemProperty("plugins.notification.max.pending.messages", 0);
+
+    public static GoSystemProperty<Boolean> GO_VSM_ITERATIVE_LAYOUT = new GoBooleanSystemProperty("go.vsm.layout.iterative", false);
+    public static GoSystemProperty<Integer> GO_VSM_LAYOUT_MAX_SWEEPS = new GoIntSystemProperty("go.vsm.layout.max.sweeps", 24);
+    public static GoSystemProperty<Long> GO_VSM_LAYOUT_TIME_BUDGET_MILLIS = new GoLongSystemProperty("go.vsm.layout.time.budget.millis", 0L);
+    public static GoSystemProperty<Long> GO_SECRETS_CACHE_TTL_MILLIS = new GoLongSystemProperty("go.secrets.cache.ttl.millis", 0L);
+    public static GoSystemProperty<Integer> GO_SECRETS_LOOKUP_THREADS = new GoIntSystemProperty("go.secrets.lookup.threads", 4);
 
     public static GoSystemProperty<Boolean> ENABLE_HSTS_HEADER = new GoBooleanSystemProperty("gocd.enable.hsts.header", false);
     public static GoSystemProperty<Long> HSTS_HEADER_MAX_AGE = new GoLongSystemProperty("gocd.hsts.header.max.age", ONE_YEAR);
@@ -894,6 +924,14 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
         return Integer.parseInt(getPropertyImpl("plugin." + pluginId + ".notifications.listener.count", "1"));
     }
 
+    public Integer getCreateAgentThreadsForPlugin(String pluginId) {
+        return Integer.parseInt(getPropertyImpl("plugin." + pluginId + ".createagent.threads", String.valueOf(get(GO_ELASTIC_PLUGIN_CREATE_AGENT_THREADS))));
+    }
+
+    public Integer getServerPingThreadsForPlugin(String pluginId) {
+        return Integer.parseInt(getPropertyImpl("plugin." + pluginId + ".serverping.threads", String.valueOf(get(GO_ELASTIC_PLUGIN_SERVER_PING_THREADS))));
+    }
+
     public boolean enableAnalyticsOnlyForAdmins() {
         return ENABLE_ANALYTICS_ONLY_FOR_ADMINS.getValue();
     }
@@ -47,6 +47,10 @@ public class ZipBuilder {
     }
 
     public void done() throws IOException {
+        done(null);
+    }
+
+    void done(ZipUtil.ZipEntryChecksumListener checksumListener) throws IOException {
         ZipOutputStream zip = null;
         try {
             zip = new ZipOutputStream(new BufferedOutputStream(destinationStream));
@@ -54,7 +58,10 @@ public class ZipBuilder {
             for (Map.Entry<String, File> zipDirToSourceFileEntry : toAdd.entrySet()) {
                 File sourceFileToZip = zipDirToSourceFileEntry.getValue();
                 String destinationFolder = zipDirToSourceFileEntry.getKey();
-                zipUtil.addToZip(new ZipPath(destinationFolder), sourceFileToZip, zip, excludeRootDir);
+                zipUtil.addToZip(new ZipPath(destinationFolder), sourceFileToZip, zip, excludeRootDir, checksumListener);
+            }
+            if (checksumListener != null) {
+                checksumListener.allEntriesZipped(zip);
             }
             zip.flush();
         } finally {
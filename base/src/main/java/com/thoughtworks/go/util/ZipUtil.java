@@ -16,10 +16,14 @@
 
 package com.thoughtworks.go.util;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -60,41 +64,55 @@ public class ZipUtil {
         zipContents(file, output, level, false);
     }
 
+    /**
+     * Zips the file into the stream in a single pass, computing the MD5 checksum of every file as it is written
+     * and letting the listener add its own entries before the zip is finished.
+     */
+    public void zip(File file, OutputStream output, int level, ZipEntryChecksumListener checksumListener) throws IOException {
+        new ZipBuilder(this, level, output, false).add("", file).done(checksumListener);
+    }
+
     private void zipContents(File file, OutputStream output, int level, boolean excludeRootDir) throws IOException {
         new ZipBuilder(this, level, output, excludeRootDir).add("", file).done();
     }
 
-    private void addFolderToZip(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    private void addFolderToZip(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir, ZipEntryChecksumListener checksumListener) throws IOException {
         ZipPath newPath = path.with(source);
         if (source.isFile()) {
-            addToZip(newPath, source, zip, false);
+            addToZip(newPath, source, zip, false, checksumListener);
         } else {
-            addDirectory(path, source, zip, excludeRootDir);
+            addDirectory(path, source, zip, excludeRootDir, checksumListener);
         }
     }
 
-    private void addDirectory(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    private void addDirectory(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir, ZipEntryChecksumListener checksumListener) throws IOException {
         if (excludeRootDir) {
-            addDirContents(path, source, zip);
+            addDirContents(path, source, zip, checksumListener);
             return;
         }
         ZipPath newPath = path.with(source);
         zip.putNextEntry(newPath.asZipEntryDirectory());
-        addDirContents(newPath, source, zip);
+        addDirContents(newPath, source, zip, checksumListener);
     }
 
-    private void addDirContents(ZipPath path, File source, ZipOutputStream zip) throws IOException {
+    private void addDirContents(ZipPath path, File source, ZipOutputStream zip, ZipEntryChecksumListener checksumListener) throws IOException {
         for (File file : source.listFiles()) {
-            addToZip(path, file, zip, false);
+            addToZip(path, file, zip, false, checksumListener);
         }
     }
 
     void addToZip(ZipPath path, File srcFile, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+        addToZip(path, srcFile, zip, excludeRootDir, null);
+    }
+
+    void addToZip(ZipPath path, File srcFile, ZipOutputStream zip, boolean excludeRootDir, ZipEntryChecksumListener checksumListener) throws IOException {
         if (srcFile.isDirectory()) {
-            addFolderToZip(path, srcFile, zip, excludeRootDir);
+            addFolderToZip(path, srcFile, zip, excludeRootDir, checksumListener);
         } else {
             byte[] buff = new byte[4096];
-            try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(srcFile))) {
+            DigestInputStream digestStream = new DigestInputStream(new FileInputStream(srcFile), DigestUtils.getMd5Digest());
+            digestStream.on(checksumListener != null);
+            try (BufferedInputStream inputStream = new BufferedInputStream(digestStream)) {
                 ZipEntry zipEntry = path.with(srcFile).asZipEntry();
                 zipEntry.setTime(srcFile.lastModified());
                 zip.putNextEntry(zipEntry);
@@ -102,6 +120,9 @@ public class ZipUtil {
                 while ((len = inputStream.read(buff)) > 0) {
                     zip.write(buff, 0, len);
                 }
+                if (checksumListener != null) {
+                    checksumListener.entryZipped(zipEntry.getName(), Hex.encodeHexString(digestStream.getMessageDigest().digest()));
+                }
             }
         }
     }
@@ -113,11 +134,22 @@ public class ZipUtil {
     }
 
     public void unzip(ZipInputStream zipInputStream, File destDir) throws IOException {
+        unzip(zipInputStream, destDir, null, null);
+    }
+
+    /**
+     * Unzips the stream as it is read, handing the entry with the given name to the handler instead of extracting it.
+     */
+    public void unzip(ZipInputStream zipInputStream, File destDir, String reservedEntryName, ZipEntryHandler reservedEntryHandler) throws IOException {
         try(ZipInputStream zis = zipInputStream) {
             destDir.mkdirs();
             ZipEntry zipEntry = zis.getNextEntry();
             while (zipEntry != null) {
-                extractTo(zipEntry, zis, destDir);
+                if (reservedEntryHandler != null && zipEntry.getName().equals(reservedEntryName)) {
+                    reservedEntryHandler.handleEntry(zipEntry, zis);
+                } else {
+                    extractTo(zipEntry, zis, destDir);
+                }
                 zipEntry = zis.getNextEntry();
             }
         }
@@ -138,6 +170,9 @@ public class ZipUtil {
         }
         try {
             outputFile.getParentFile().mkdirs();
+            // an existing file can share its content with other files through hard links, so it is replaced rather
+            // than written over
+            Files.deleteIfExists(outputFile.toPath());
             try (FileOutputStream os = new FileOutputStream(outputFile)) {
                 IOUtils.copyLarge(entryInputStream, os);
                 if (zipEntryHandler != null) {
@@ -189,4 +224,10 @@ public class ZipUtil {
         void handleEntry(ZipEntry entry, InputStream stream) throws IOException;
     }
 
+    public interface ZipEntryChecksumListener {
+        void entryZipped(String entryName, String md5);
+
+        void allEntriesZipped(ZipOutputStream zip) throws IOException;
+    }
+
 }
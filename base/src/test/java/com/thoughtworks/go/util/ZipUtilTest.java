@@ -16,6 +16,7 @@
 
 package com.thoughtworks.go.util;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
@@ -27,14 +28,21 @@ import org.junit.jupiter.api.condition.OS;
 import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -99,6 +107,36 @@ public class ZipUtilTest {
         assertThat(fileContent(actual2)).isEqualTo(fileContent(file2));
     }
 
+    @Test
+    void shouldComputeChecksumsWhileZippingIntoAStreamAndHandOverTheReservedEntryWhileUnzipping() throws IOException {
+        Map<String, String> checksums = new HashMap<>();
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+        zipUtil.zip(srcDir, zipped, Deflater.BEST_SPEED, new ZipUtil.ZipEntryChecksumListener() {
+            @Override
+            public void entryZipped(String entryName, String md5) {
+                checksums.put(entryName, md5);
+            }
+
+            @Override
+            public void allEntriesZipped(ZipOutputStream zip) throws IOException {
+                zip.putNextEntry(new ZipEntry("reserved"));
+                zip.write("reserved-content".getBytes(UTF_8));
+            }
+        });
+
+        assertThat(checksums)
+                .containsEntry(srcDir.getName() + "/_file1", DigestUtils.md5Hex("_file1"))
+                .containsEntry(srcDir.getName() + "/_child1/_file2", DigestUtils.md5Hex("_file2"));
+
+        List<String> reservedContent = new ArrayList<>();
+        zipUtil.unzip(new ZipInputStream(new ByteArrayInputStream(zipped.toByteArray())), destDir, "reserved",
+                (entry, stream) -> reservedContent.add(IOUtils.toString(stream, UTF_8)));
+
+        assertThat(reservedContent).containsExactly("reserved-content");
+        assertThat(new File(destDir, "reserved")).doesNotExist();
+        assertThat(fileContent(new File(destDir, srcDir.getName() + File.separator + file1.getName()))).isEqualTo("_file1");
+    }
+
     @Test
     void shouldZipFileContentsAndUnzipIt() throws IOException {
         zipFile = zipUtil.zip(srcDir, temporaryFolder.newFile(), Deflater.NO_COMPRESSION);
@@ -20,9 +20,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 
 public class ArtifactMd5Checksums implements Serializable {
+    /**
+     * Agents which compute the faster xxHash64 checksum upload it under this prefix alongside the MD5. Agents which
+     * only understand MD5 never look these entries up, so both kinds of agent can share the same checksum file.
+     */
+    public static final String FAST_CHECKSUM_PREFIX = "xxh64:";
 
     private final Properties checksumProperties;
 
@@ -87,4 +94,23 @@ public class ArtifactMd5Checksums implements Serializable {
     public String md5For(String artifactPath) {
         return checksumProperties.getProperty(artifactPath);
     }
+
+    public String fastChecksumFor(String artifactPath) {
+        return checksumProperties.getProperty(fastChecksumKey(artifactPath));
+    }
+
+    public static String fastChecksumKey(String artifactPath) {
+        return FAST_CHECKSUM_PREFIX + artifactPath;
+    }
+
+    public Map<String, String> md5sUnder(String directoryPath) {
+        String prefix = directoryPath.endsWith("/") ? directoryPath : directoryPath + "/";
+        Map<String, String> md5s = new TreeMap<>();
+        for (String artifactPath : checksumProperties.stringPropertyNames()) {
+            if (artifactPath.startsWith(prefix)) {
+                md5s.put(artifactPath.substring(prefix.length()), checksumProperties.getProperty(artifactPath));
+            }
+        }
+        return md5s;
+    }
 }
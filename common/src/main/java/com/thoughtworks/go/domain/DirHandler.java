@@ -16,10 +16,13 @@
 
 package com.thoughtworks.go.domain;
 
+import com.thoughtworks.go.util.ParallelFileHasher;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.validation.ChecksumValidator;
 import com.thoughtworks.go.work.GoPublisher;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,14 +30,16 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
-import static com.thoughtworks.go.util.CachedDigestUtils.md5Hex;
 import static com.thoughtworks.go.util.MapBuilder.map;
 import static java.lang.String.format;
+import static org.apache.commons.codec.digest.DigestUtils.sha256Hex;
 
-public class DirHandler implements FetchHandler {
+public class DirHandler implements CacheableFetchHandler {
     private final String srcFile;
     private final File destOnAgent;
     private static final Logger LOG = LoggerFactory.getLogger(DirHandler.class);
@@ -53,14 +58,19 @@ public class DirHandler implements FetchHandler {
 
     public void handle(InputStream stream) throws IOException {
         ZipInputStream zipInputStream = new ZipInputStream(stream);
-        LOG.info("[Agent Fetch Artifact] Downloading from '{}' to '{}'. Will read from Socket stream to compute MD5 and write to file", srcFile, destOnAgent.getAbsolutePath());
+        LOG.info("[Agent Fetch Artifact] Downloading from '{}' to '{}'. Will unzip from Socket stream and then verify the checksums of the unzipped files", srcFile, destOnAgent.getAbsolutePath());
 
         long before = System.currentTimeMillis();
+        Map<String, File> unzippedFiles = new LinkedHashMap<>();
         new ZipUtil((entry, stream1) -> {
             LOG.info("[Agent Fetch Artifact] Downloading a directory from '{}' to '{}'. Handling the entry: '{}'", srcFile, destOnAgent.getAbsolutePath(), entry.getName());
-            new ChecksumValidator(artifactMd5Checksums).validate(getSrcFilePath(entry), md5Hex(stream1), checksumValidationPublisher);
+            unzippedFiles.put(getSrcFilePath(entry), new File(destOnAgent, StringUtils.removeStart(entry.getName(), "/")));
         }).unzip(zipInputStream, destOnAgent);
         LOG.info("[Agent Fetch Artifact] Downloading a directory from '{}' to '{}'. Took: {}ms", srcFile, destOnAgent.getAbsolutePath(), System.currentTimeMillis() - before);
+
+        before = System.currentTimeMillis();
+        new ChecksumValidator(artifactMd5Checksums).validate(unzippedFiles, new ParallelFileHasher(new SystemEnvironment()), checksumValidationPublisher);
+        LOG.info("[Agent Fetch Artifact] Verified checksums of {} files under '{}'. Took: {}ms", unzippedFiles.size(), destOnAgent.getAbsolutePath(), System.currentTimeMillis() - before);
     }
 
     private String getSrcFilePath(ZipEntry entry) {
@@ -77,6 +87,25 @@ public class DirHandler implements FetchHandler {
         this.artifactMd5Checksums = artifactMd5Checksums;
     }
 
+    @Override
+    public String cacheKey(ArtifactMd5Checksums artifactMd5Checksums) {
+        if (artifactMd5Checksums == null) {
+            return null;
+        }
+        Map<String, String> md5s = artifactMd5Checksums.md5sUnder(srcFile);
+        if (md5s.isEmpty()) {
+            return null;
+        }
+        StringBuilder content = new StringBuilder("dir:");
+        md5s.forEach((path, md5) -> content.append(path).append('=').append(md5).append('\n'));
+        return sha256Hex(content.toString());
+    }
+
+    @Override
+    public File fetchedArtifact() {
+        return new File(destOnAgent, new File(srcFile).getName());
+    }
+
     @Override
     public BuildCommand toDownloadCommand(String locator, String checksumUrl, File checksumPath) {
         return BuildCommand.downloadDir(map(
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain;
+
+import com.thoughtworks.go.util.GoConstants;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @understands keeping copies of artifacts fetched by an agent on its disk, keyed by their checksums on the server,
+ * so that fetching the same artifact again does not download it
+ * <p>
+ * The cache is bounded by its size on disk and evicts the least recently used artifacts first. Fetched artifacts are
+ * copied in and out of the cache so that jobs changing their fetched files do not change the cached copies.
+ * <p>
+ * Copies happen outside the lock of the cache, so that a large artifact does not hold up every other fetch. An entry
+ * being restored is pinned and is not evicted until the copy is done, and a new entry is copied to its own
+ * in-progress directory and only moved into place under the lock.
+ */
+public class FetchArtifactCache {
+    public enum Lookup {
+        HIT, MISS, NOT_CACHEABLE
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(FetchArtifactCache.class);
+    private static final String CONTENT = "content";
+    private static final String IN_PROGRESS_SUFFIX = ".tmp";
+
+    private final File cacheDir;
+    private final long maxSizeInBytes;
+    private final LinkedHashMap<String, Long> sizeByKey = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> restoresInProgress = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long totalSize;
+    private boolean loaded;
+
+    @Autowired
+    public FetchArtifactCache(SystemEnvironment systemEnvironment) {
+        this(new File(systemEnvironment.get(SystemEnvironment.GO_AGENT_FETCH_ARTIFACT_CACHE_DIR)),
+                systemEnvironment.get(SystemEnvironment.GO_AGENT_FETCH_ARTIFACT_CACHE_SIZE_MB) * GoConstants.MEGA_BYTE);
+    }
+
+    FetchArtifactCache(File cacheDir, long maxSizeInBytes) {
+        this.cacheDir = cacheDir;
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    public boolean isEnabled() {
+        return maxSizeInBytes > 0;
+    }
+
+    public boolean restore(String key, File destination) {
+        if (!isEnabled()) {
+            return false;
+        }
+        synchronized (this) {
+            loadIfRequired();
+            if (sizeByKey.get(key) == null) {
+                misses.incrementAndGet();
+                return false;
+            }
+            restoresInProgress.merge(key, 1, Integer::sum);
+        }
+        File entry = new File(cacheDir, key);
+        try {
+            copy(new File(entry, CONTENT), destination);
+            entry.setLastModified(System.currentTimeMillis());
+            hits.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            LOG.warn("[Agent Fetch Artifact Cache] Could not restore cached artifact '{}' to '{}', it will be fetched from the server", key, destination, e);
+            synchronized (this) {
+                remove(key);
+            }
+            misses.incrementAndGet();
+            return false;
+        } finally {
+            synchronized (this) {
+                restoresInProgress.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+                evictLeastRecentlyUsed();
+            }
+        }
+    }
+
+    public void store(String key, File fetchedArtifact) {
+        if (!isEnabled() || !fetchedArtifact.exists()) {
+            return;
+        }
+        synchronized (this) {
+            loadIfRequired();
+            if (sizeByKey.containsKey(key)) {
+                return;
+            }
+        }
+        long size = FileUtils.sizeOf(fetchedArtifact);
+        if (size > maxSizeInBytes) {
+            LOG.debug("[Agent Fetch Artifact Cache] Not caching '{}' as it is larger than the cache", fetchedArtifact);
+            return;
+        }
+
+        File inProgress = new File(cacheDir, key + "." + UUID.randomUUID() + IN_PROGRESS_SUFFIX);
+        try {
+            copy(fetchedArtifact, new File(inProgress, CONTENT));
+        } catch (IOException e) {
+            LOG.warn("[Agent Fetch Artifact Cache] Could not cache '{}'", fetchedArtifact, e);
+            FileUtils.deleteQuietly(inProgress);
+            return;
+        }
+        synchronized (this) {
+            if (sizeByKey.containsKey(key)) {
+                FileUtils.deleteQuietly(inProgress);
+                return;
+            }
+            File entry = new File(cacheDir, key);
+            FileUtils.deleteQuietly(entry);
+            if (!inProgress.renameTo(entry)) {
+                LOG.warn("[Agent Fetch Artifact Cache] Could not move '{}' into the cache", inProgress);
+                FileUtils.deleteQuietly(inProgress);
+                return;
+            }
+            sizeByKey.put(key, size);
+            totalSize += size;
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public int hitRatePercentage() {
+        long lookups = hits() + misses();
+        return lookups == 0 ? 0 : (int) (hits() * 100 / lookups);
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("Enabled", isEnabled());
+        stats.put("Hits", hits());
+        stats.put("Misses", misses());
+        stats.put("Hit rate percentage", hitRatePercentage());
+        stats.put("Cached artifacts", sizeByKey.size());
+        stats.put("Size in bytes", totalSize);
+        stats.put("Maximum size in bytes", maxSizeInBytes);
+        return stats;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Iterator<Map.Entry<String, Long>> leastRecentlyUsedFirst = sizeByKey.entrySet().iterator();
+        while (totalSize > maxSizeInBytes && leastRecentlyUsedFirst.hasNext()) {
+            Map.Entry<String, Long> entry = leastRecentlyUsedFirst.next();
+            if (restoresInProgress.containsKey(entry.getKey())) {
+                continue;
+            }
+            leastRecentlyUsedFirst.remove();
+            totalSize -= entry.getValue();
+            FileUtils.deleteQuietly(new File(cacheDir, entry.getKey()));
+            LOG.debug("[Agent Fetch Artifact Cache] Evicted '{}'", entry.getKey());
+        }
+    }
+
+    private void remove(String key) {
+        Long size = sizeByKey.remove(key);
+        if (size != null) {
+            totalSize -= size;
+        }
+        FileUtils.deleteQuietly(new File(cacheDir, key));
+    }
+
+    private void loadIfRequired() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        cacheDir.mkdirs();
+        File[] entries = cacheDir.listFiles();
+        if (entries == null) {
+            return;
+        }
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+        for (File entry : entries) {
+            if (entry.getName().endsWith(IN_PROGRESS_SUFFIX) || !new File(entry, CONTENT).exists()) {
+                FileUtils.deleteQuietly(entry);
+                continue;
+            }
+            long size = FileUtils.sizeOf(entry);
+            sizeByKey.put(entry.getName(), size);
+            totalSize += size;
+        }
+        evictLeastRecentlyUsed();
+    }
+
+    private static void copy(File source, File destination) throws IOException {
+        if (source.isDirectory()) {
+            FileUtils.copyDirectory(source, destination);
+        } else {
+            FileUtils.copyFile(source, destination);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package com.thoughtworks.go.domain;
 
 import com.thoughtworks.go.util.FileUtil;
+import com.thoughtworks.go.util.ParallelFileHasher;
 import com.thoughtworks.go.validation.ChecksumValidator;
 import com.thoughtworks.go.work.GoPublisher;
 import org.apache.commons.io.FileUtils;
@@ -27,14 +28,18 @@ import org.slf4j.LoggerFactory;
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
 import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
 import java.util.Date;
 
-import static com.thoughtworks.go.util.CachedDigestUtils.md5Hex;
 import static com.thoughtworks.go.util.MapBuilder.map;
 import static java.lang.String.format;
+import static org.apache.commons.codec.digest.DigestUtils.sha256Hex;
 
-public class FileHandler implements FetchHandler {
+public class FileHandler implements CacheableFetchHandler, ResumableFetchHandler {
 
+    private static final String PARTIAL_DOWNLOAD_SUFFIX = ".partial";
     private final File artifact;
     private final String srcFile;
     private static final Logger LOG = LoggerFactory.getLogger(FileHandler.class);
@@ -60,25 +65,25 @@ public class FileHandler implements FetchHandler {
     }
 
     public void handle(InputStream stream) throws IOException {
-        FileOutputStream fileOutputStream = null;
-        try {
-            fileOutputStream = FileUtils.openOutputStream(artifact);
+        try (FileOutputStream fileOutputStream = FileUtils.openOutputStream(partialDownload())) {
             LOG.info("[Artifact File Download] [{}] Download of artifact {} started", new Date(), artifact.getName());
             IOUtils.copyLarge(stream, fileOutputStream);
             LOG.info("[Artifact File Download] [{}] Download of artifact {} ended", new Date(), artifact.getName());
-        } finally {
-            IOUtils.closeQuietly(fileOutputStream);
-        }
-        FileInputStream inputStream = null;
-        try {
-            inputStream = new FileInputStream(artifact);
-            LOG.info("[Artifact File Download] [{}] Checksum computation of artifact {} started", new Date(), artifact.getName());
-            String artifactMD5 = md5Hex(inputStream);
-            new ChecksumValidator(artifactMd5Checksums).validate(srcFile, artifactMD5, checksumValidationPublisher);
-            LOG.info("[Artifact File Download] [{}] Checksum computation of artifact {} ended", new Date(), artifact.getName());
-        } finally {
-            IOUtils.closeQuietly(inputStream);
         }
+        partialDownloadCompleted();
+    }
+
+    @Override
+    public File partialDownload() {
+        return new File(artifact.getPath() + PARTIAL_DOWNLOAD_SUFFIX);
+    }
+
+    @Override
+    public void partialDownloadCompleted() throws IOException {
+        Files.move(partialDownload().toPath(), artifact.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        LOG.info("[Artifact File Download] [{}] Checksum computation of artifact {} started", new Date(), artifact.getName());
+        new ChecksumValidator(artifactMd5Checksums).validate(Collections.singletonMap(srcFile, artifact), new ParallelFileHasher(1), checksumValidationPublisher);
+        LOG.info("[Artifact File Download] [{}] Checksum computation of artifact {} ended", new Date(), artifact.getName());
     }
 
     public boolean handleResult(int httpCode, GoPublisher goPublisher) {
@@ -91,6 +96,17 @@ public class FileHandler implements FetchHandler {
         this.artifactMd5Checksums = artifactMd5Checksums;
     }
 
+    @Override
+    public String cacheKey(ArtifactMd5Checksums artifactMd5Checksums) {
+        String md5 = artifactMd5Checksums == null ? null : artifactMd5Checksums.md5For(srcFile);
+        return md5 == null ? null : sha256Hex("file:" + md5);
+    }
+
+    @Override
+    public File fetchedArtifact() {
+        return artifact;
+    }
+
     @Override
     public BuildCommand toDownloadCommand(String locator, String checksumUrl, File checksumPath) {
         return BuildCommand.downloadFile(map(
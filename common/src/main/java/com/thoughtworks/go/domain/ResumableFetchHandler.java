@@ -0,0 +1,33 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * @understands downloading an artifact into a file that outlives failed attempts, so that a retry only downloads
+ * the bytes which are still missing
+ */
+public interface ResumableFetchHandler extends FetchHandler {
+    File partialDownload();
+
+    /**
+     * Called once the partial download holds the whole artifact.
+     */
+    void partialDownloadCompleted() throws IOException;
+}
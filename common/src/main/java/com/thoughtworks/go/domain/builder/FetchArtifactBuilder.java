@@ -26,6 +26,8 @@ import com.thoughtworks.go.util.command.CruiseControlException;
 import com.thoughtworks.go.util.command.EnvironmentVariableContext;
 import com.thoughtworks.go.work.DefaultGoPublisher;
 
+import java.io.File;
+
 public class FetchArtifactBuilder extends Builder {
     private final JobIdentifier jobIdentifier;
     private String srcdir;
@@ -49,13 +51,38 @@ public class FetchArtifactBuilder extends Builder {
     }
 
     public void fetch(DownloadAction downloadAction, URLService urlService) throws Exception {
+        fetch(downloadAction, urlService, null);
+    }
+
+    public FetchArtifactCache.Lookup fetch(DownloadAction downloadAction, URLService urlService, FetchArtifactCache cache) throws Exception {
         downloadChecksumFile(downloadAction, urlService.baseRemoteURL());
-        downloadArtifact(downloadAction, urlService.baseRemoteURL());
+        return downloadArtifact(downloadAction, urlService.baseRemoteURL(), cache);
     }
 
-    private void downloadArtifact(DownloadAction downloadAction, String baseRemoteUrl) throws Exception {
-        handler.useArtifactMd5Checksums(checksumFileHandler.getArtifactMd5Checksums());
+    private FetchArtifactCache.Lookup downloadArtifact(DownloadAction downloadAction, String baseRemoteUrl, FetchArtifactCache cache) throws Exception {
+        ArtifactMd5Checksums artifactMd5Checksums = checksumFileHandler.getArtifactMd5Checksums();
+        handler.useArtifactMd5Checksums(artifactMd5Checksums);
+
+        String cacheKey = cacheKey(cache, artifactMd5Checksums);
+        if (cacheKey == null) {
+            pullArtifact(downloadAction, handler.url(baseRemoteUrl, artifactLocator()), handler);
+            return FetchArtifactCache.Lookup.NOT_CACHEABLE;
+        }
+
+        File fetchedArtifact = ((CacheableFetchHandler) handler).fetchedArtifact();
+        if (cache.restore(cacheKey, fetchedArtifact)) {
+            return FetchArtifactCache.Lookup.HIT;
+        }
         pullArtifact(downloadAction, handler.url(baseRemoteUrl, artifactLocator()), handler);
+        cache.store(cacheKey, fetchedArtifact);
+        return FetchArtifactCache.Lookup.MISS;
+    }
+
+    private String cacheKey(FetchArtifactCache cache, ArtifactMd5Checksums artifactMd5Checksums) {
+        if (cache == null || !cache.isEnabled() || !(handler instanceof CacheableFetchHandler)) {
+            return null;
+        }
+        return ((CacheableFetchHandler) handler).cacheKey(artifactMd5Checksums);
     }
 
     private void downloadChecksumFile(DownloadAction downloadAction, String baseRemoteUrl) throws Exception {
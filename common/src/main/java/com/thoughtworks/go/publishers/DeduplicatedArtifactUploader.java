@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.publishers;
+
+import com.thoughtworks.go.util.HttpService;
+import com.thoughtworks.go.util.ParallelFileHasher;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.StringEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.util.*;
+
+import static com.thoughtworks.go.util.GoConstants.*;
+import static com.thoughtworks.go.util.ParallelFileHasher.MD5;
+import static com.thoughtworks.go.util.ParallelFileHasher.SHA256;
+import static com.thoughtworks.go.util.ParallelFileHasher.XXH64;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * @understands uploading only those artifact files whose content the server does not already have
+ */
+class DeduplicatedArtifactUploader {
+    static final int NOT_SUPPORTED = -1;
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeduplicatedArtifactUploader.class);
+    private final HttpService httpService;
+    private final ParallelFileHasher hasher;
+    private final boolean fastChecksums;
+
+    DeduplicatedArtifactUploader(HttpService httpService) {
+        this(httpService, new ParallelFileHasher(1), false);
+    }
+
+    DeduplicatedArtifactUploader(HttpService httpService, SystemEnvironment systemEnvironment) {
+        this(httpService, new ParallelFileHasher(systemEnvironment), systemEnvironment.get(SystemEnvironment.GO_AGENT_ARTIFACT_FAST_CHECKSUMS));
+    }
+
+    DeduplicatedArtifactUploader(HttpService httpService, ParallelFileHasher hasher, boolean fastChecksums) {
+        this.httpService = httpService;
+        this.hasher = hasher;
+        this.fastChecksums = fastChecksums;
+    }
+
+    /**
+     * @param files artifact files keyed by their path under the job's artifacts
+     * @return the status of the final request, or {@link #NOT_SUPPORTED} when the server does not store artifacts by content
+     */
+    int upload(String url, Map<String, File> files) throws IOException {
+        String[] algorithms = fastChecksums ? new String[]{SHA256, MD5, XXH64} : new String[]{SHA256, MD5};
+        Map<String, FileHashes> hashesByPath = new LinkedHashMap<>();
+        hasher.hash(files, algorithms).forEach((path, checksums) ->
+                hashesByPath.put(path, new FileHashes(files.get(path), checksums.get(SHA256), checksums.get(MD5), checksums.get(XXH64))));
+
+        Set<String> contentHashes = new LinkedHashSet<>();
+        hashesByPath.values().forEach(hashes -> contentHashes.add(hashes.sha256));
+        String response = httpService.postAndReadResponse(url, new StringEntity(String.join("\n", contentHashes), ContentType.create(ARTIFACT_HASHES_CONTENT_TYPE, UTF_8)));
+        if (response == null) {
+            return NOT_SUPPORTED;
+        }
+        Set<String> missing = new HashSet<>(IOUtils.readLines(new StringReader(response)));
+        LOGGER.debug("[Artifact Upload] Server already has {} of {} files", contentHashes.size() - missing.size(), contentHashes.size());
+
+        for (FileHashes hashes : hashesByPath.values()) {
+            if (!missing.remove(hashes.sha256)) {
+                continue;
+            }
+            Map<String, String> headers = new HashMap<>();
+            headers.put(HttpService.GO_ARTIFACT_PAYLOAD_SIZE, String.valueOf(hashes.file.length()));
+            headers.put(ARTIFACT_BLOB_HASH_HEADER, hashes.sha256);
+            int status = httpService.post(url, new FileEntity(hashes.file, ContentType.create(ARTIFACT_BLOB_CONTENT_TYPE)), headers);
+            if (status < HttpServletResponse.SC_OK || status >= HttpServletResponse.SC_MULTIPLE_CHOICES) {
+                return status;
+            }
+        }
+
+        Properties manifest = new Properties();
+        hashesByPath.forEach((path, hashes) -> manifest.setProperty(path, hashes.manifestEntry()));
+        ByteArrayOutputStream manifestStream = new ByteArrayOutputStream();
+        manifest.store(manifestStream, "");
+        return httpService.post(url, new ByteArrayEntity(manifestStream.toByteArray(), ContentType.create(ARTIFACT_MANIFEST_CONTENT_TYPE)), Collections.emptyMap());
+    }
+
+    private static class FileHashes {
+        private final File file;
+        private final String sha256;
+        private final String md5;
+        private final String xxh64;
+
+        FileHashes(File file, String sha256, String md5, String xxh64) {
+            this.file = file;
+            this.sha256 = sha256;
+            this.md5 = md5;
+            this.xxh64 = xxh64;
+        }
+
+        /**
+         * The server links the content by its SHA-256 and records the MD5, and the fast checksum when there is one,
+         * as the artifact's checksums.
+         */
+        String manifestEntry() {
+            return xxh64 == null ? sha256 + "," + md5 : sha256 + "," + md5 + "," + xxh64;
+        }
+    }
+}
@@ -16,7 +16,9 @@
 
 package com.thoughtworks.go.publishers;
 
+import com.thoughtworks.go.domain.ArtifactMd5Checksums;
 import com.thoughtworks.go.domain.DownloadAction;
+import com.thoughtworks.go.domain.FetchArtifactCache;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.Property;
 import com.thoughtworks.go.domain.builder.FetchArtifactBuilder;
@@ -36,16 +38,19 @@ import org.springframework.stereotype.Component;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Collection;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static com.thoughtworks.go.util.ArtifactLogUtil.getConsoleOutputFolderAndFileNameUrl;
-import static com.thoughtworks.go.util.CachedDigestUtils.md5Hex;
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 import static com.thoughtworks.go.util.GoConstants.PUBLISH_MAX_RETRIES;
+import static com.thoughtworks.go.util.GoConstants.STREAMED_ZIP_CHECKSUM_ENTRY;
 import static com.thoughtworks.go.util.command.TaggedStreamConsumer.PUBLISH;
 import static com.thoughtworks.go.util.command.TaggedStreamConsumer.PUBLISH_ERR;
 import static java.lang.String.format;
@@ -56,13 +61,25 @@ public class GoArtifactsManipulator {
     private final HttpService httpService;
     private final URLService urlService;
     private final ZipUtil zipUtil;
+    private final SystemEnvironment systemEnvironment;
+    private final FetchArtifactCache fetchArtifactCache;
     private static final Logger LOGGER = LoggerFactory.getLogger(GoArtifactsManipulator.class);
 
-    @Autowired
     public GoArtifactsManipulator(HttpService httpService, URLService urlService, ZipUtil zipUtil) {
+        this(httpService, urlService, zipUtil, new SystemEnvironment());
+    }
+
+    public GoArtifactsManipulator(HttpService httpService, URLService urlService, ZipUtil zipUtil, SystemEnvironment systemEnvironment) {
+        this(httpService, urlService, zipUtil, systemEnvironment, null);
+    }
+
+    @Autowired
+    public GoArtifactsManipulator(HttpService httpService, URLService urlService, ZipUtil zipUtil, SystemEnvironment systemEnvironment, FetchArtifactCache fetchArtifactCache) {
         this.httpService = httpService;
         this.urlService = urlService;
         this.zipUtil = zipUtil;
+        this.systemEnvironment = systemEnvironment;
+        this.fetchArtifactCache = fetchArtifactCache;
     }
 
     public void publish(DefaultGoPublisher goPublisher, String destPath, File source, JobIdentifier jobIdentifier) {
@@ -79,10 +96,6 @@ public class GoArtifactsManipulator {
             try {
                 publishingAttempts++;
 
-                tmpDir = FileUtil.createTempFolder();
-                File dataToUpload = new File(tmpDir, source.getName() + ".zip");
-                zipUtil.zip(source, dataToUpload, Deflater.BEST_SPEED);
-
                 long size = 0;
                 if (source.isDirectory()) {
                     size = FileUtils.sizeOfDirectory(source);
@@ -95,7 +108,20 @@ public class GoArtifactsManipulator {
                 String normalizedDestPath = FilenameUtils.separatorsToUnix(destPath);
                 String url = urlService.getUploadUrlOfAgent(jobIdentifier, normalizedDestPath, publishingAttempts);
 
-                int statusCode = httpService.upload(url, size, dataToUpload, artifactChecksums(source, normalizedDestPath));
+                int statusCode = DeduplicatedArtifactUploader.NOT_SUPPORTED;
+                if (systemEnvironment.get(SystemEnvironment.GO_AGENT_DEDUPLICATED_ARTIFACT_UPLOAD)) {
+                    statusCode = new DeduplicatedArtifactUploader(httpService, systemEnvironment).upload(url, artifactFiles(source, normalizedDestPath));
+                }
+                if (statusCode != DeduplicatedArtifactUploader.NOT_SUPPORTED) {
+                    LOGGER.debug("[Artifact Upload] Uploaded {} by content", source.getAbsolutePath());
+                } else if (systemEnvironment.get(SystemEnvironment.GO_AGENT_STREAMING_ARTIFACT_UPLOAD)) {
+                    statusCode = httpService.uploadStreaming(url, size, source, output -> zipWithChecksums(source, normalizedDestPath, output));
+                } else {
+                    tmpDir = FileUtil.createTempFolder();
+                    File dataToUpload = new File(tmpDir, source.getName() + ".zip");
+                    zipUtil.zip(source, dataToUpload, Deflater.BEST_SPEED);
+                    statusCode = httpService.upload(url, size, dataToUpload, artifactChecksums(source, normalizedDestPath));
+                }
 
                 if (statusCode == HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE) {
                     String message = String.format("Artifact upload for file %s (Size: %s) was denied by the server. This usually happens when server runs out of disk space.",
@@ -123,35 +149,51 @@ public class GoArtifactsManipulator {
         }
     }
 
-    private Properties artifactChecksums(File source, String destPath) throws IOException {
-        if (source.isDirectory()) {
-            return computeChecksumForContentsOfDirectory(source, destPath);
-        }
+    /*
+     * Zips the source straight into the request body, computing checksums as each file is zipped. The checksums
+     * are only known once every file has been written, so they travel as the last entry of the zip.
+     */
+    private void zipWithChecksums(File source, String destPath, OutputStream output) throws IOException {
+        Properties checksums = new Properties();
+        zipUtil.zip(source, output, Deflater.BEST_SPEED, new ZipUtil.ZipEntryChecksumListener() {
+            @Override
+            public void entryZipped(String entryName, String md5) {
+                checksums.setProperty(getEffectiveFileName(destPath, entryName), md5);
+            }
 
-        Properties properties = null;
-        try (FileInputStream inputStream = new FileInputStream(source)) {
-            properties = computeChecksumForFile(source.getName(), md5Hex(inputStream), destPath);
-        }
-        return properties;
+            @Override
+            public void allEntriesZipped(ZipOutputStream zip) throws IOException {
+                zip.putNextEntry(new ZipEntry(STREAMED_ZIP_CHECKSUM_ENTRY));
+                checksums.store(zip, "");
+                zip.closeEntry();
+            }
+        });
     }
 
-    private Properties computeChecksumForContentsOfDirectory(File directory, String destPath) throws IOException {
-        Collection<File> fileStructure = FileUtils.listFiles(directory, null, true);
+    private Properties artifactChecksums(File source, String destPath) throws IOException {
+        boolean fastChecksums = systemEnvironment.get(SystemEnvironment.GO_AGENT_ARTIFACT_FAST_CHECKSUMS);
+        String[] algorithms = fastChecksums ? new String[]{ParallelFileHasher.MD5, ParallelFileHasher.XXH64} : new String[]{ParallelFileHasher.MD5};
         Properties checksumProperties = new Properties();
-        for (File file : fileStructure) {
-            String filePath = removeStart(file.getAbsolutePath(), directory.getParentFile().getAbsolutePath());
-            try (FileInputStream inputStream = new FileInputStream(file)) {
-                checksumProperties.setProperty(getEffectiveFileName(destPath, FilenameUtils.separatorsToUnix(filePath)), md5Hex(inputStream));
+        new ParallelFileHasher(systemEnvironment).hash(artifactFiles(source, destPath), algorithms).forEach((path, checksums) -> {
+            checksumProperties.setProperty(path, checksums.get(ParallelFileHasher.MD5));
+            if (fastChecksums) {
+                checksumProperties.setProperty(ArtifactMd5Checksums.fastChecksumKey(path), checksums.get(ParallelFileHasher.XXH64));
             }
-        }
+        });
         return checksumProperties;
     }
 
-    private Properties computeChecksumForFile(String sourceName, String md5, String destPath) {
-        String effectiveFileName = getEffectiveFileName(destPath, sourceName);
-        Properties properties = new Properties();
-        properties.setProperty(effectiveFileName, md5);
-        return properties;
+    private Map<String, File> artifactFiles(File source, String destPath) {
+        Map<String, File> artifactFiles = new LinkedHashMap<>();
+        if (!source.isDirectory()) {
+            artifactFiles.put(getEffectiveFileName(destPath, source.getName()), source);
+            return artifactFiles;
+        }
+        for (File file : FileUtils.listFiles(source, null, true)) {
+            String filePath = removeStart(file.getAbsolutePath(), source.getParentFile().getAbsolutePath());
+            artifactFiles.put(getEffectiveFileName(destPath, FilenameUtils.separatorsToUnix(filePath)), file);
+        }
+        return artifactFiles;
     }
 
     private String getEffectiveFileName(String computedDestPath, String filePath) {
@@ -169,7 +211,8 @@ public class GoArtifactsManipulator {
             String fetchMsg = String.format("Fetching artifact [%s] from [%s]", fetchArtifactBuilder.getSrc(),
                     fetchArtifactBuilder.jobLocatorForDisplay());
             goPublisher.taggedConsumeLineWithPrefix(DefaultGoPublisher.OUT, fetchMsg);
-            fetchArtifactBuilder.fetch(new DownloadAction(httpService, goPublisher, new SystemTimeClock()), urlService);
+            FetchArtifactCache.Lookup lookup = fetchArtifactBuilder.fetch(new DownloadAction(httpService, goPublisher, new SystemTimeClock()), urlService, fetchArtifactCache);
+            publishCacheLookup(goPublisher, lookup);
         } catch (Exception e) {
             String fetchMsg = String.format("Failed to save artifact [%s] to [%s]",
                     fetchArtifactBuilder.getSrc(), fetchArtifactBuilder.getDest());
@@ -179,6 +222,14 @@ public class GoArtifactsManipulator {
         }
     }
 
+    private void publishCacheLookup(DefaultGoPublisher goPublisher, FetchArtifactCache.Lookup lookup) {
+        if (lookup == FetchArtifactCache.Lookup.NOT_CACHEABLE) {
+            return;
+        }
+        String source = lookup == FetchArtifactCache.Lookup.HIT ? "Restored artifact from the agent's fetch artifact cache" : "Artifact was not in the agent's fetch artifact cache";
+        goPublisher.taggedConsumeLineWithPrefix(DefaultGoPublisher.OUT, format("%s (cache hit rate: %s%%)", source, fetchArtifactCache.hitRatePercentage()));
+    }
+
     private String getDestPath(String file) {
         if (StringUtils.isEmpty(file)) {
             return "[defaultRoot]";
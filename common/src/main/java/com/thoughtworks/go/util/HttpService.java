@@ -19,17 +19,26 @@ package com.thoughtworks.go.util;
 import com.thoughtworks.go.agent.common.ssl.GoAgentServerHttpClient;
 import com.thoughtworks.go.agent.common.ssl.GoAgentServerHttpClientBuilder;
 import com.thoughtworks.go.domain.FetchHandler;
+import com.thoughtworks.go.domain.ResumableFetchHandler;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentProducer;
+import org.apache.http.entity.EntityTemplate;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.entity.mime.content.ByteArrayBody;
 import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,12 +46,24 @@ import org.springframework.stereotype.Component;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class HttpService {
+    private static final long MIN_DOWNLOAD_SEGMENT_SIZE = 8 * 1024 * 1024;
     private HttpClientFactory httpClientFactory;
+    private final int downloadSegments;
+    private final long minDownloadSegmentSize;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpService.class);
 
@@ -58,7 +79,17 @@ public class HttpService {
     }
 
     HttpService(HttpClientFactory httpClientFactory) {
+        this(httpClientFactory, new SystemEnvironment().get(SystemEnvironment.GO_AGENT_ARTIFACT_DOWNLOAD_SEGMENTS));
+    }
+
+    HttpService(HttpClientFactory httpClientFactory, int downloadSegments) {
+        this(httpClientFactory, downloadSegments, MIN_DOWNLOAD_SEGMENT_SIZE);
+    }
+
+    HttpService(HttpClientFactory httpClientFactory, int downloadSegments, long minDownloadSegmentSize) {
         this.httpClientFactory = httpClientFactory;
+        this.downloadSegments = downloadSegments;
+        this.minDownloadSegmentSize = minDownloadSegmentSize;
     }
 
     public int upload(String url, long size, File artifactFile, Properties artifactChecksums) throws IOException {
@@ -81,6 +112,56 @@ public class HttpService {
         }
     }
 
+    /**
+     * Uploads a zip written by the producer while the request is being sent, using chunked transfer encoding so
+     * that the zip never needs to be written to disk or held in memory.
+     */
+    public int uploadStreaming(String url, long size, File source, ContentProducer zipProducer) throws IOException {
+        LOGGER.info("Streaming [{}] to url [{}]", source.getAbsolutePath(), url);
+
+        HttpPost filePost = httpClientFactory.createPost(url);
+        setSizeHeader(filePost, size);
+        filePost.setHeader("Confirm", "true");
+        filePost.setEntity(httpClientFactory.createStreamingRequestEntity(zipProducer));
+        try (CloseableHttpResponse response = execute(filePost)) {
+            return response.getStatusLine().getStatusCode();
+        } catch (IOException e) {
+            LOGGER.error("Error while streaming [{}]", source.getAbsolutePath(), e);
+            throw e;
+        } finally {
+            filePost.releaseConnection();
+        }
+    }
+
+    /**
+     * Posts the entity and returns the body of the response, or null when the server did not accept the request.
+     */
+    public String postAndReadResponse(String url, HttpEntity entity) throws IOException {
+        HttpPost post = httpClientFactory.createPost(url);
+        post.setHeader("Confirm", "true");
+        post.setEntity(entity);
+        try (CloseableHttpResponse response = execute(post)) {
+            if (response.getStatusLine().getStatusCode() != HttpServletResponse.SC_OK) {
+                return null;
+            }
+            return response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        } finally {
+            post.releaseConnection();
+        }
+    }
+
+    public int post(String url, HttpEntity entity, Map<String, String> headers) throws IOException {
+        HttpPost post = httpClientFactory.createPost(url);
+        post.setHeader("Confirm", "true");
+        headers.forEach(post::setHeader);
+        post.setEntity(entity);
+        try (CloseableHttpResponse response = execute(post)) {
+            return response.getStatusLine().getStatusCode();
+        } finally {
+            post.releaseConnection();
+        }
+    }
+
     private HttpPost createHttpPostForUpload(String url, long size, File artifactFile, Properties artifactChecksums) throws IOException {
         HttpPost filePost = httpClientFactory.createPost(url);
         setSizeHeader(filePost, size);
@@ -90,6 +171,9 @@ public class HttpService {
     }
 
     public int download(String url, FetchHandler handler) throws IOException {
+        if (handler instanceof ResumableFetchHandler) {
+            return downloadResumable(url, (ResumableFetchHandler) handler);
+        }
         HttpGet toGet = null;
         InputStream is = null;
         try {
@@ -118,6 +202,189 @@ public class HttpService {
         }
     }
 
+    /*
+     * The partial download and the ETag it was started from are kept on disk until the download completes, so a
+     * failed attempt is resumed with a range request. The server sends the whole file again if it has changed.
+     */
+    private int downloadResumable(String url, ResumableFetchHandler handler) throws IOException {
+        File partial = handler.partialDownload();
+        File validatorFile = validatorFile(partial);
+        String validator = partial.exists() && validatorFile.exists() ? FileUtils.readFileToString(validatorFile, StandardCharsets.UTF_8) : null;
+        if (validator == null) {
+            FileUtils.deleteQuietly(partial);
+            FileUtils.deleteQuietly(validatorFile);
+            if (downloadSegments > 1) {
+                Integer status = downloadInSegments(url, handler, partial);
+                if (status != null) {
+                    return status;
+                }
+            }
+        }
+
+        long offset = validator == null ? 0 : partial.length();
+        HttpGet toGet = httpClientFactory.createGet(url);
+        if (offset > 0) {
+            LOGGER.info("Resuming download of [{}] from byte {}", url, offset);
+            toGet.setHeader(HttpHeaders.RANGE, "bytes=" + offset + "-");
+            toGet.setHeader(HttpHeaders.IF_RANGE, validator);
+        }
+        try (CloseableHttpResponse response = execute(toGet)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode == HttpServletResponse.SC_OK) {
+                String etag = strongETag(response);
+                if (etag != null) {
+                    FileUtils.writeStringToFile(validatorFile, etag, StandardCharsets.UTF_8);
+                }
+                writeTo(partial, response.getEntity(), false);
+            } else if (statusCode == HttpServletResponse.SC_PARTIAL_CONTENT) {
+                if (offset == 0 || rangeStart(response) != offset) {
+                    FileUtils.deleteQuietly(validatorFile);
+                    throw new IOException(String.format("Server sent an unexpected range while resuming download of [%s] from byte %d", url, offset));
+                }
+                writeTo(partial, response.getEntity(), true);
+            } else {
+                if (statusCode == HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                    FileUtils.deleteQuietly(partial);
+                    FileUtils.deleteQuietly(validatorFile);
+                }
+                return statusCode;
+            }
+            handler.partialDownloadCompleted();
+            FileUtils.deleteQuietly(validatorFile);
+            return HttpServletResponse.SC_OK;
+        } catch (IOException e) {
+            LOGGER.error("Error while downloading [{}]", url, e);
+            throw e;
+        } finally {
+            toGet.releaseConnection();
+        }
+    }
+
+    /**
+     * @return the status of the download, or null when the artifact should be downloaded in a single request
+     */
+    private Integer downloadInSegments(String url, ResumableFetchHandler handler, File partial) throws IOException {
+        HttpHead head = httpClientFactory.createHead(url);
+        long length;
+        String etag;
+        try (CloseableHttpResponse response = execute(head)) {
+            Header acceptRanges = response.getFirstHeader(HttpHeaders.ACCEPT_RANGES);
+            Header contentLength = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+            etag = strongETag(response);
+            if (response.getStatusLine().getStatusCode() != HttpServletResponse.SC_OK || acceptRanges == null || !"bytes".equals(acceptRanges.getValue())
+                    || contentLength == null || etag == null) {
+                return null;
+            }
+            length = Long.parseLong(contentLength.getValue());
+        } catch (NumberFormatException e) {
+            return null;
+        } finally {
+            head.releaseConnection();
+        }
+        if (length < downloadSegments * minDownloadSegmentSize) {
+            return null;
+        }
+
+        LOGGER.info("Downloading [{}] in {} segments", url, downloadSegments);
+        partial.getParentFile().mkdirs();
+        try (RandomAccessFile file = new RandomAccessFile(partial, "rw")) {
+            file.setLength(length);
+        }
+        AtomicInteger segmentThreadCount = new AtomicInteger();
+        ExecutorService segmentDownloaders = Executors.newFixedThreadPool(downloadSegments, runnable -> {
+            Thread thread = new Thread(runnable, "artifact-download-segment-" + segmentThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long segmentSize = (length + downloadSegments - 1) / downloadSegments;
+            List<Future<?>> segments = new ArrayList<>();
+            for (long first = 0; first < length; first += segmentSize) {
+                long segmentFirst = first;
+                long segmentLast = Math.min(length, first + segmentSize) - 1;
+                segments.add(segmentDownloaders.submit(() -> {
+                    downloadSegment(url, etag, partial, segmentFirst, segmentLast);
+                    return null;
+                }));
+            }
+            for (Future<?> segment : segments) {
+                segment.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            FileUtils.deleteQuietly(partial);
+            throw new IOException("Interrupted while downloading " + url, e);
+        } catch (ExecutionException e) {
+            FileUtils.deleteQuietly(partial);
+            LOGGER.error("Error while downloading [{}]", url, e.getCause());
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            segmentDownloaders.shutdownNow();
+        }
+        handler.partialDownloadCompleted();
+        return HttpServletResponse.SC_OK;
+    }
+
+    private void downloadSegment(String url, String etag, File partial, long first, long last) throws IOException {
+        HttpGet toGet = httpClientFactory.createGet(url);
+        toGet.setHeader(HttpHeaders.RANGE, "bytes=" + first + "-" + last);
+        toGet.setHeader(HttpHeaders.IF_RANGE, etag);
+        try (CloseableHttpResponse response = execute(toGet);
+             RandomAccessFile file = new RandomAccessFile(partial, "rw")) {
+            if (response.getStatusLine().getStatusCode() != HttpServletResponse.SC_PARTIAL_CONTENT || rangeStart(response) != first) {
+                throw new IOException(String.format("Could not download bytes %d-%d of [%s], the server responded with %s", first, last, url, response.getStatusLine()));
+            }
+            file.seek(first);
+            long expected = last - first + 1;
+            long copied = 0;
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream is = response.getEntity().getContent()) {
+                int read;
+                while (copied < expected && (read = is.read(buffer, 0, (int) Math.min(buffer.length, expected - copied))) != -1) {
+                    file.write(buffer, 0, read);
+                    copied += read;
+                }
+            }
+            if (copied != expected) {
+                throw new IOException(String.format("Download of bytes %d-%d of [%s] ended after %d bytes", first, last, url, copied));
+            }
+        } finally {
+            toGet.releaseConnection();
+        }
+    }
+
+    private static void writeTo(File partial, HttpEntity entity, boolean append) throws IOException {
+        try (OutputStream output = FileUtils.openOutputStream(partial, append)) {
+            if (entity != null) {
+                try (InputStream is = entity.getContent()) {
+                    IOUtils.copyLarge(is, output);
+                }
+            }
+        }
+    }
+
+    private static long rangeStart(HttpResponse response) {
+        Header contentRange = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+        if (contentRange == null || !contentRange.getValue().startsWith("bytes ")) {
+            return -1;
+        }
+        try {
+            String range = contentRange.getValue().substring("bytes ".length());
+            return Long.parseLong(range.substring(0, range.indexOf('-')).trim());
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static String strongETag(HttpResponse response) {
+        Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+        return etag == null || etag.getValue().startsWith("W/") ? null : etag.getValue();
+    }
+
+    private static File validatorFile(File partial) {
+        return new File(partial.getPath() + ".etag");
+    }
+
     public void postProperty(String url, String value) throws IOException {
         LOGGER.info("Posting property to the URL {}Property Value ={}", url, value);
         HttpPost post = httpClientFactory.createPost(url);
@@ -165,6 +432,10 @@ public class HttpService {
             return new HttpGet(url);
         }
 
+        public HttpHead createHead(String url) {
+            return new HttpHead(url);
+        }
+
         public HttpEntity createMultipartRequestEntity(File artifact, Properties artifactChecksums) throws IOException {
             MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
             entityBuilder.addPart(GoConstants.ZIP_MULTIPART_FILENAME, new FileBody(artifact));
@@ -175,5 +446,12 @@ public class HttpService {
             }
             return entityBuilder.build();
         }
+
+        public HttpEntity createStreamingRequestEntity(ContentProducer zipProducer) {
+            EntityTemplate entity = new EntityTemplate(zipProducer);
+            entity.setContentType(GoConstants.STREAMED_ZIP_CONTENT_TYPE);
+            entity.setChunked(true);
+            return entity;
+        }
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.util;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * @understands computing checksums of many files at once, reading every file only once however many checksums
+ * are needed and hashing several files in parallel
+ */
+public class ParallelFileHasher {
+    public static final String MD5 = "MD5";
+    public static final String SHA256 = "SHA-256";
+    public static final String XXH64 = "XXH64";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final int threads;
+
+    public ParallelFileHasher(SystemEnvironment systemEnvironment) {
+        this(systemEnvironment.get(SystemEnvironment.GO_AGENT_ARTIFACT_CHECKSUM_THREADS));
+    }
+
+    /**
+     * @param threads the number of files to hash at once, or 0 to hash as many files at once as there are processors
+     */
+    public ParallelFileHasher(int threads) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public <K> Map<K, Map<String, String>> hash(Map<K, File> files, String... algorithms) throws IOException {
+        List<String> algorithmList = Arrays.asList(algorithms);
+        return hash(files, key -> algorithmList);
+    }
+
+    /**
+     * @return the hex encoded checksums of every file keyed by algorithm, in the iteration order of the files
+     */
+    public <K> Map<K, Map<String, String>> hash(Map<K, File> files, Function<? super K, ? extends Collection<String>> algorithmsFor) throws IOException {
+        Map<K, Map<String, String>> checksums = new LinkedHashMap<>();
+        int poolSize = Math.min(threads, files.size());
+        if (poolSize <= 1) {
+            for (Map.Entry<K, File> file : files.entrySet()) {
+                checksums.put(file.getKey(), hash(file.getValue(), algorithmsFor.apply(file.getKey())));
+            }
+            return checksums;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "checksum-thread-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<K, Future<Map<String, String>>> futures = new LinkedHashMap<>();
+            for (Map.Entry<K, File> file : files.entrySet()) {
+                Collection<String> algorithms = algorithmsFor.apply(file.getKey());
+                futures.put(file.getKey(), executor.submit(() -> hash(file.getValue(), algorithms)));
+            }
+            for (Map.Entry<K, Future<Map<String, String>>> future : futures.entrySet()) {
+                checksums.put(future.getKey(), future.getValue().get());
+            }
+            return checksums;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while computing checksums");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, String> hash(File file, Collection<String> algorithms) throws IOException {
+        Map<String, MessageDigest> digests = new LinkedHashMap<>();
+        XXHash64 xxHash = null;
+        for (String algorithm : algorithms) {
+            if (XXH64.equals(algorithm)) {
+                xxHash = new XXHash64();
+            } else {
+                digests.put(algorithm, DigestUtils.getDigest(algorithm));
+            }
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream stream = new FileInputStream(file)) {
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                for (MessageDigest digest : digests.values()) {
+                    digest.update(buffer, 0, read);
+                }
+                if (xxHash != null) {
+                    xxHash.update(buffer, 0, read);
+                }
+            }
+        }
+
+        Map<String, String> checksums = new LinkedHashMap<>();
+        digests.forEach((algorithm, digest) -> checksums.put(algorithm, Hex.encodeHexString(digest.digest())));
+        if (xxHash != null) {
+            checksums.put(XXH64, xxHash.getHexValue());
+        }
+        return checksums;
+    }
+}
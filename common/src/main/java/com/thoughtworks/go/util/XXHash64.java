@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.util;
+
+import java.util.zip.Checksum;
+
+import static java.lang.Long.rotateLeft;
+
+/**
+ * @understands the 64 bit xxHash of a stream of bytes, a non-cryptographic hash which is much faster to compute
+ * than MD5 and is used to verify the integrity of artifacts
+ */
+public class XXHash64 implements Checksum {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE_LENGTH = 32;
+
+    private final byte[] stripe = new byte[STRIPE_LENGTH];
+    private int stripeLength;
+    private long totalLength;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+    public XXHash64() {
+        reset();
+    }
+
+    @Override
+    public void update(int b) {
+        update(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) {
+        totalLength += length;
+        int end = offset + length;
+        if (stripeLength > 0) {
+            int copied = Math.min(STRIPE_LENGTH - stripeLength, length);
+            System.arraycopy(bytes, offset, stripe, stripeLength, copied);
+            stripeLength += copied;
+            offset += copied;
+            if (stripeLength < STRIPE_LENGTH) {
+                return;
+            }
+            processStripe(stripe, 0);
+            stripeLength = 0;
+        }
+        for (; offset + STRIPE_LENGTH <= end; offset += STRIPE_LENGTH) {
+            processStripe(bytes, offset);
+        }
+        stripeLength = end - offset;
+        System.arraycopy(bytes, offset, stripe, 0, stripeLength);
+    }
+
+    @Override
+    public long getValue() {
+        long hash;
+        if (totalLength >= STRIPE_LENGTH) {
+            hash = rotateLeft(v1, 1) + rotateLeft(v2, 7) + rotateLeft(v3, 12) + rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash += totalLength;
+
+        int offset = 0;
+        for (; offset + 8 <= stripeLength; offset += 8) {
+            hash ^= round(0, readLong(stripe, offset));
+            hash = rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (offset + 4 <= stripeLength) {
+            hash ^= (readInt(stripe, offset) & 0xFFFFFFFFL) * PRIME1;
+            hash = rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            offset += 4;
+        }
+        for (; offset < stripeLength; offset++) {
+            hash ^= (stripe[offset] & 0xFF) * PRIME5;
+            hash = rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    public String getHexValue() {
+        return String.format("%016x", getValue());
+    }
+
+    @Override
+    public void reset() {
+        v1 = PRIME1 + PRIME2;
+        v2 = PRIME2;
+        v3 = 0;
+        v4 = -PRIME1;
+        stripeLength = 0;
+        totalLength = 0;
+    }
+
+    private void processStripe(byte[] bytes, int offset) {
+        v1 = round(v1, readLong(bytes, offset));
+        v2 = round(v2, readLong(bytes, offset + 8));
+        v3 = round(v3, readLong(bytes, offset + 16));
+        v4 = round(v4, readLong(bytes, offset + 24));
+    }
+
+    private static long round(long accumulator, long input) {
+        return rotateLeft(accumulator + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        return (accumulator ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        return (readInt(bytes, offset) & 0xFFFFFFFFL) | ((long) readInt(bytes, offset + 4) << 32);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16 | (bytes[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -16,12 +16,19 @@
 
 package com.thoughtworks.go.validation;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 
 import com.thoughtworks.go.agent.ChecksumValidationPublisher;
 import com.thoughtworks.go.domain.ArtifactMd5Checksums;
+import com.thoughtworks.go.util.ParallelFileHasher;
 import org.apache.commons.lang3.StringUtils;
 
+import static com.thoughtworks.go.util.ParallelFileHasher.MD5;
+import static com.thoughtworks.go.util.ParallelFileHasher.XXH64;
+
 public class ChecksumValidator {
 
     private final ArtifactMd5Checksums artifactMd5Checksums;
@@ -46,4 +53,38 @@ public class ChecksumValidator {
             checksumValidationPublisher.md5Mismatch(effectivePath);
         }
     }
+
+    public void validateFastChecksum(String effectivePath, String artifactFastChecksum, ChecksumValidationPublisher checksumValidationPublisher) {
+        if (artifactMd5Checksums == null) {
+            checksumValidationPublisher.md5ChecksumFileNotFound();
+            return;
+        }
+        if (artifactMd5Checksums.fastChecksumFor(effectivePath).equals(artifactFastChecksum)) {
+            checksumValidationPublisher.md5Match(effectivePath);
+        } else {
+            checksumValidationPublisher.md5Mismatch(effectivePath);
+        }
+    }
+
+    /**
+     * Hashes the files in parallel, verifying each against its fast checksum when the uploading agent recorded one
+     * and against its MD5 otherwise.
+     *
+     * @param files the fetched files keyed by their path on the server
+     */
+    public void validate(Map<String, File> files, ParallelFileHasher hasher, ChecksumValidationPublisher checksumValidationPublisher) throws IOException {
+        if (artifactMd5Checksums == null) {
+            checksumValidationPublisher.md5ChecksumFileNotFound();
+            return;
+        }
+        Map<String, Map<String, String>> checksums = hasher.hash(files, path ->
+                Collections.singletonList(StringUtils.isBlank(artifactMd5Checksums.fastChecksumFor(path)) ? MD5 : XXH64));
+        checksums.forEach((path, checksum) -> {
+            if (checksum.containsKey(XXH64)) {
+                validateFastChecksum(path, checksum.get(XXH64), checksumValidationPublisher);
+            } else {
+                validate(path, checksum.get(MD5), checksumValidationPublisher);
+            }
+        });
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnableRuleMigrationSupport
+class FetchArtifactCacheTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File cacheDir;
+    private File workspace;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        temporaryFolder.create();
+        cacheDir = temporaryFolder.newFolder("cache");
+        workspace = temporaryFolder.newFolder("workspace");
+    }
+
+    @Test
+    void shouldRestoreCachedFilesAndDirectories() throws IOException {
+        FetchArtifactCache cache = new FetchArtifactCache(cacheDir, 1024);
+        File file = file("a.jar", "jar");
+        File dir = new File(workspace, "dist");
+        FileUtils.writeStringToFile(new File(dir, "lib/b.jar"), "lib", UTF_8);
+        cache.store("file-key", file);
+        cache.store("dir-key", dir);
+
+        File restoredFile = new File(workspace, "other/a.jar");
+        File restoredDir = new File(workspace, "other/dist");
+        assertThat(cache.restore("file-key", restoredFile)).isTrue();
+        assertThat(cache.restore("dir-key", restoredDir)).isTrue();
+
+        assertThat(FileUtils.readFileToString(restoredFile, UTF_8)).isEqualTo("jar");
+        assertThat(FileUtils.readFileToString(new File(restoredDir, "lib/b.jar"), UTF_8)).isEqualTo("lib");
+    }
+
+    @Test
+    void shouldNotChangeTheCachedCopyWhenTheFetchedArtifactChanges() throws IOException {
+        FetchArtifactCache cache = new FetchArtifactCache(cacheDir, 1024);
+        File file = file("a.jar", "jar");
+        cache.store("key", file);
+        FileUtils.writeStringToFile(file, "changed by the job", UTF_8);
+
+        File restored = new File(workspace, "restored.jar");
+        cache.restore("key", restored);
+
+        assertThat(FileUtils.readFileToString(restored, UTF_8)).isEqualTo("jar");
+    }
+
+    @Test
+    void shouldEvictTheLeastRecentlyUsedArtifactsWhenFull() throws IOException {
+        FetchArtifactCache cache = new FetchArtifactCache(cacheDir, 10);
+        cache.store("first", file("first", "1111"));
+        cache.store("second", file("second", "2222"));
+        cache.restore("first", new File(workspace, "restored"));
+
+        cache.store("third", file("third", "3333"));
+
+        assertThat(cache.restore("first", new File(workspace, "restored"))).isTrue();
+        assertThat(cache.restore("second", new File(workspace, "restored"))).isFalse();
+        assertThat(cache.restore("third", new File(workspace, "restored"))).isTrue();
+        assertThat(new File(cacheDir, "second")).doesNotExist();
+    }
+
+    @Test
+    void shouldLoadArtifactsCachedByAPreviousRun() throws IOException {
+        new FetchArtifactCache(cacheDir, 1024).store("key", file("a.jar", "jar"));
+        new File(cacheDir, "interrupted.tmp").mkdirs();
+
+        FetchArtifactCache cache = new FetchArtifactCache(cacheDir, 1024);
+
+        assertThat(cache.restore("key", new File(workspace, "restored"))).isTrue();
+        assertThat(new File(cacheDir, "interrupted.tmp")).doesNotExist();
+    }
+
+    @Test
+    void shouldReportHitRate() throws IOException {
+        FetchArtifactCache cache = new FetchArtifactCache(cacheDir, 1024);
+        cache.store("key", file("a.jar", "jar"));
+
+        cache.restore("key", new File(workspace, "restored"));
+        cache.restore("key", new File(workspace, "restored"));
+        cache.restore("key", new File(workspace, "restored"));
+        cache.restore("unknown", new File(workspace, "restored"));
+
+        assertThat(cache.hits()).isEqualTo(3);
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.hitRatePercentage()).isEqualTo(75);
+    }
+
+    @Test
+    void shouldDoNothingWhenDisabled() throws IOException {
+        FetchArtifactCache cache = new FetchArtifactCache(cacheDir, 0);
+        cache.store("key", file("a.jar", "jar"));
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.restore("key", new File(workspace, "restored"))).isFalse();
+        assertThat(cacheDir.list()).isEmpty();
+    }
+
+    private File file(String name, String content) throws IOException {
+        File file = new File(workspace, name);
+        FileUtils.writeStringToFile(file, content, UTF_8);
+        return file;
+    }
+}
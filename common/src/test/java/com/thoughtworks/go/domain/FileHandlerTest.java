@@ -17,6 +17,7 @@
 package com.thoughtworks.go.domain;
 
 import com.thoughtworks.go.util.CachedDigestUtils;
+import com.thoughtworks.go.util.XXHash64;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
@@ -64,10 +65,25 @@ public class FileHandlerTest {
 
         assertThat(FileUtils.readFileToString(artifact, UTF_8), is("Hello world"));
         assertThat(goPublisher.getMessage(), containsString("Saved artifact to [foo] after verifying the integrity of its contents."));
+        verify(checksums).fastChecksumFor("src/file/path");
         verify(checksums).md5For("src/file/path");
         verifyNoMoreInteractions(checksums);
     }
 
+    @Test
+    public void shouldCheckTheFastChecksumOfTheFileWhenTheUploadingAgentRecordedOne() throws IOException {
+        XXHash64 xxHash = new XXHash64();
+        xxHash.update("Hello world".getBytes(), 0, "Hello world".length());
+        when(checksums.fastChecksumFor("src/file/path")).thenReturn(xxHash.getHexValue());
+        fileHandler.useArtifactMd5Checksums(checksums);
+
+        fileHandler.handle(new ByteArrayInputStream("Hello world".getBytes()));
+        fileHandler.handleResult(200, goPublisher);
+
+        assertThat(goPublisher.getMessage(), containsString("Saved artifact to [foo] after verifying the integrity of its contents."));
+        verify(checksums, never()).md5For("src/file/path");
+    }
+
     @Test
     public void shouldWarnWhenChecksumsFileIsNotPresent() throws IOException {
         fileHandler.handle(new ByteArrayInputStream("Hello world".getBytes()));
@@ -221,6 +221,54 @@ public class FetchArtifactBuilderTest {
         verify(fetchHandler).useArtifactMd5Checksums(artifactMd5Checksums);
     }
 
+    @Test
+    public void shouldRestoreArtifactFromTheCacheInsteadOfDownloadingIt() throws Exception {
+        File artifactOnAgent = new File(dest, "a.jar");
+        java.util.Properties properties = new java.util.Properties();
+        properties.setProperty("dist/a.jar", "some-md5");
+        when(checksumFileHandler.getArtifactMd5Checksums()).thenReturn(new ArtifactMd5Checksums(properties));
+        FileHandler handler = new FileHandler(artifactOnAgent, "dist/a.jar");
+        FetchArtifactCache cache = mock(FetchArtifactCache.class);
+        when(cache.isEnabled()).thenReturn(true);
+        when(cache.restore(handler.cacheKey(new ArtifactMd5Checksums(properties)), artifactOnAgent)).thenReturn(true);
+
+        FetchArtifactBuilder builder = getBuilder(new JobIdentifier("cruise", 10, "1", "dev", "1", "windows", 1L), "dist/a.jar", dest.getPath(), handler, checksumFileHandler);
+
+        assertThat(builder.fetch(downloadAction, new StubURLService(), cache), is(FetchArtifactCache.Lookup.HIT));
+        verify(downloadAction).perform(any(), eq(checksumFileHandler));
+        verifyNoMoreInteractions(downloadAction);
+        verify(cache, never()).store(any(), any());
+    }
+
+    @Test
+    public void shouldCacheArtifactDownloadedAfterACacheMiss() throws Exception {
+        File artifactOnAgent = new File(dest, "a.jar");
+        java.util.Properties properties = new java.util.Properties();
+        properties.setProperty("dist/a.jar", "some-md5");
+        when(checksumFileHandler.getArtifactMd5Checksums()).thenReturn(new ArtifactMd5Checksums(properties));
+        FileHandler handler = new FileHandler(artifactOnAgent, "dist/a.jar");
+        String cacheKey = handler.cacheKey(new ArtifactMd5Checksums(properties));
+        FetchArtifactCache cache = mock(FetchArtifactCache.class);
+        when(cache.isEnabled()).thenReturn(true);
+
+        FetchArtifactBuilder builder = getBuilder(new JobIdentifier("cruise", 10, "1", "dev", "1", "windows", 1L), "dist/a.jar", dest.getPath(), handler, checksumFileHandler);
+
+        assertThat(builder.fetch(downloadAction, new StubURLService(), cache), is(FetchArtifactCache.Lookup.MISS));
+        verify(downloadAction).perform(any(), eq(handler));
+        verify(cache).store(cacheKey, artifactOnAgent);
+    }
+
+    @Test
+    public void shouldNotUseTheCacheWhenTheArtifactHasNoChecksum() throws Exception {
+        FetchArtifactCache cache = mock(FetchArtifactCache.class);
+        when(cache.isEnabled()).thenReturn(true);
+        FetchArtifactBuilder builder = getBuilder(new JobIdentifier("cruise", 10, "1", "dev", "1", "windows", 1L), "dist/a.jar", dest.getPath(), new FileHandler(new File(dest, "a.jar"), "dist/a.jar"), checksumFileHandler);
+
+        assertThat(builder.fetch(downloadAction, new StubURLService(), cache), is(FetchArtifactCache.Lookup.NOT_CACHEABLE));
+        verify(cache, never()).restore(any(), any());
+        verify(cache, never()).store(any(), any());
+    }
+
     private FetchArtifactBuilder getBuilder(JobIdentifier jobLocator, String srcdir, String dest, FetchHandler handler, final ChecksumFileHandler checksumFileHandler) {
         return new FetchArtifactBuilder(new RunIfConfigs(), new NullBuilder(), "", jobLocator, srcdir, dest, handler, checksumFileHandler);
     }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.publishers;
+
+import com.thoughtworks.go.util.GoConstants;
+import com.thoughtworks.go.util.HttpService;
+import com.thoughtworks.go.util.ParallelFileHasher;
+import com.thoughtworks.go.util.XXHash64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.HttpEntity;
+import org.junit.Rule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@EnableRuleMigrationSupport
+class DeduplicatedArtifactUploaderTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpService httpService;
+    private Map<String, File> files;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        temporaryFolder.create();
+        httpService = mock(HttpService.class);
+        files = new LinkedHashMap<>();
+        files.put("dist/app.jar", file("app.jar", "application"));
+        files.put("dist/lib.jar", file("lib.jar", "library"));
+    }
+
+    @Test
+    void shouldUploadOnlyTheFilesTheServerDoesNotHaveAndThenTheManifest() throws IOException {
+        when(httpService.postAndReadResponse(eq("url"), any(HttpEntity.class))).thenReturn(DigestUtils.sha256Hex("library"));
+        when(httpService.post(eq("url"), any(HttpEntity.class), anyMap())).thenReturn(201);
+
+        int status = new DeduplicatedArtifactUploader(httpService).upload("url", files);
+
+        assertThat(status).isEqualTo(201);
+        ArgumentCaptor<HttpEntity> entities = ArgumentCaptor.forClass(HttpEntity.class);
+        ArgumentCaptor<Map<String, String>> headers = ArgumentCaptor.forClass(Map.class);
+        verify(httpService, times(2)).post(eq("url"), entities.capture(), headers.capture());
+
+        List<HttpEntity> posted = entities.getAllValues();
+        assertThat(posted.get(0).getContentType().getValue()).isEqualTo(GoConstants.ARTIFACT_BLOB_CONTENT_TYPE);
+        assertThat(headers.getAllValues().get(0)).containsEntry(GoConstants.ARTIFACT_BLOB_HASH_HEADER, DigestUtils.sha256Hex("library"));
+
+        assertThat(posted.get(1).getContentType().getValue()).isEqualTo(GoConstants.ARTIFACT_MANIFEST_CONTENT_TYPE);
+        Properties manifest = new Properties();
+        manifest.load(posted.get(1).getContent());
+        assertThat(manifest)
+                .containsEntry("dist/app.jar", DigestUtils.sha256Hex("application") + "," + DigestUtils.md5Hex("application"))
+                .containsEntry("dist/lib.jar", DigestUtils.sha256Hex("library") + "," + DigestUtils.md5Hex("library"));
+    }
+
+    @Test
+    void shouldAddTheFastChecksumToTheManifestWhenEnabled() throws IOException {
+        when(httpService.postAndReadResponse(eq("url"), any(HttpEntity.class))).thenReturn("");
+        when(httpService.post(eq("url"), any(HttpEntity.class), anyMap())).thenReturn(201);
+
+        new DeduplicatedArtifactUploader(httpService, new ParallelFileHasher(2), true).upload("url", files);
+
+        ArgumentCaptor<HttpEntity> manifestEntity = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(httpService).post(eq("url"), manifestEntity.capture(), anyMap());
+        Properties manifest = new Properties();
+        manifest.load(manifestEntity.getValue().getContent());
+        assertThat(manifest)
+                .containsEntry("dist/app.jar", DigestUtils.sha256Hex("application") + "," + DigestUtils.md5Hex("application") + "," + xxh64("application"))
+                .containsEntry("dist/lib.jar", DigestUtils.sha256Hex("library") + "," + DigestUtils.md5Hex("library") + "," + xxh64("library"));
+    }
+
+    @Test
+    void shouldStopWhenTheServerDoesNotStoreArtifactsByContent() throws IOException {
+        when(httpService.postAndReadResponse(eq("url"), any(HttpEntity.class))).thenReturn(null);
+
+        int status = new DeduplicatedArtifactUploader(httpService).upload("url", files);
+
+        assertThat(status).isEqualTo(DeduplicatedArtifactUploader.NOT_SUPPORTED);
+        verify(httpService, never()).post(any(), any(), anyMap());
+    }
+
+    @Test
+    void shouldNotUploadTheManifestWhenABlobIsRejected() throws IOException {
+        when(httpService.postAndReadResponse(eq("url"), any(HttpEntity.class))).thenReturn(DigestUtils.sha256Hex("application"));
+        when(httpService.post(eq("url"), any(HttpEntity.class), anyMap())).thenReturn(413);
+
+        int status = new DeduplicatedArtifactUploader(httpService).upload("url", files);
+
+        assertThat(status).isEqualTo(413);
+        verify(httpService, times(1)).post(any(), any(), anyMap());
+    }
+
+    private static String xxh64(String content) {
+        XXHash64 xxHash = new XXHash64();
+        xxHash.update(content.getBytes(UTF_8), 0, content.length());
+        return xxHash.getHexValue();
+    }
+
+    private File file(String name, String content) throws IOException {
+        File file = temporaryFolder.newFile(name);
+        FileUtils.writeStringToFile(file, content, UTF_8);
+        return file;
+    }
+}
@@ -23,13 +23,12 @@ import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.remote.work.BuildRepositoryRemoteStub;
 import com.thoughtworks.go.remote.work.GoArtifactsManipulatorStub;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
-import com.thoughtworks.go.util.CachedDigestUtils;
-import com.thoughtworks.go.util.HttpService;
-import com.thoughtworks.go.util.ReflectionUtil;
+import com.thoughtworks.go.util.*;
 import com.thoughtworks.go.work.DefaultGoPublisher;
 import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.apache.commons.io.FileUtils;
 import org.hamcrest.BaseMatcher;
+import org.apache.http.entity.ContentProducer;
 import org.hamcrest.Description;
 import org.junit.Before;
 import org.junit.Rule;
@@ -37,9 +36,15 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static com.thoughtworks.go.util.SystemUtil.currentWorkingDirectory;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -142,6 +147,40 @@ public class GoArtifactsManipulatorTest {
         goArtifactsManipulatorStub.publish(goPublisher, "dest", artifactFolder, jobIdentifier);
     }
 
+    @Test
+    public void shouldStreamZipOfDirectoryWithChecksumsAsLastEntryWhenStreamingUploadIsEnabled() throws IOException {
+        String data = "Some text whose checksum can be asserted";
+        String secondData = "some more";
+        FileUtils.writeStringToFile(tempFile, data, UTF_8);
+        FileUtils.writeStringToFile(new File(artifactFolder, "bond/james_bond/another_file"), secondData, UTF_8);
+
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SystemEnvironment.GO_AGENT_DEDUPLICATED_ARTIFACT_UPLOAD)).thenReturn(false);
+        when(systemEnvironment.get(SystemEnvironment.GO_AGENT_STREAMING_ARTIFACT_UPLOAD)).thenReturn(true);
+        ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+        when(httpService.uploadStreaming(any(String.class), eq(FileUtils.sizeOfDirectory(artifactFolder)), eq(artifactFolder), any(ContentProducer.class))).thenAnswer(invocation -> {
+            invocation.<ContentProducer>getArgument(3).writeTo(uploaded);
+            return HttpServletResponse.SC_OK;
+        });
+
+        new GoArtifactsManipulator(httpService, new URLService(), new ZipUtil(), systemEnvironment).publish(goPublisher, "dest", artifactFolder, jobIdentifier);
+
+        verify(httpService, never()).upload(any(String.class), anyLong(), any(File.class), any(Properties.class));
+        List<String> entries = new ArrayList<>();
+        Properties checksums = new Properties();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(uploaded.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.add(entry.getName());
+                if (entry.getName().equals(GoConstants.STREAMED_ZIP_CHECKSUM_ENTRY)) {
+                    checksums.load(zip);
+                }
+            }
+        }
+        assertThat(entries.contains("artifact_folder/bond/james_bond/another_file"), is(true));
+        assertThat(entries.get(entries.size() - 1), is(GoConstants.STREAMED_ZIP_CHECKSUM_ENTRY));
+        assertThat(checksums, is(expectedProperties(data, secondData)));
+    }
+
     private Properties expectedProperties(String data, String secondData) {
         Properties properties = new Properties();
         properties.setProperty("dest/artifact_folder/file.txt", CachedDigestUtils.md5Hex(data));
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.util;
+
+import com.thoughtworks.go.agent.common.ssl.GoAgentServerHttpClient;
+import com.thoughtworks.go.domain.FileHandler;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
+import org.junit.rules.TemporaryFolder;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@EnableRuleMigrationSupport
+class HttpServiceResumableDownloadTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Server server;
+    private RangeServlet servlet;
+    private CloseableHttpClient client;
+    private String url;
+    private File artifact;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        temporaryFolder.create();
+        artifact = new File(temporaryFolder.getRoot(), "dest/artifact.bin");
+        servlet = new RangeServlet(content(100 * 1024, 1));
+
+        server = new Server(0);
+        ServletContextHandler context = new ServletContextHandler();
+        context.addServlet(new ServletHolder(servlet), "/artifact.bin");
+        server.setHandler(context);
+        server.start();
+        url = "http://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort() + "/artifact.bin";
+        client = HttpClients.createDefault();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+        server.stop();
+    }
+
+    @Test
+    void shouldResumeAnInterruptedDownloadFromWhereItStopped() throws IOException {
+        HttpService httpService = httpService(1);
+        FileHandler handler = new FileHandler(artifact, "artifact.bin");
+        servlet.failAfter = 40 * 1024;
+
+        assertThatThrownBy(() -> httpService.download(url, handler)).isInstanceOf(IOException.class);
+        long downloaded = handler.partialDownload().length();
+        assertThat(downloaded).isGreaterThan(0);
+
+        servlet.failAfter = -1;
+        assertThat(httpService.download(url, handler)).isEqualTo(HttpServletResponse.SC_OK);
+
+        assertThat(servlet.ranges).containsExactly(null, "bytes=" + downloaded + "-");
+        assertThat(FileUtils.readFileToByteArray(artifact)).isEqualTo(servlet.content);
+        assertThat(handler.partialDownload()).doesNotExist();
+        assertThat(new File(handler.partialDownload().getPath() + ".etag")).doesNotExist();
+    }
+
+    @Test
+    void shouldDownloadTheWholeArtifactAgainWhenItChangedOnTheServer() throws IOException {
+        HttpService httpService = httpService(1);
+        FileHandler handler = new FileHandler(artifact, "artifact.bin");
+        servlet.failAfter = 40 * 1024;
+        assertThatThrownBy(() -> httpService.download(url, handler)).isInstanceOf(IOException.class);
+
+        servlet.failAfter = -1;
+        servlet.content = content(80 * 1024, 2);
+        assertThat(httpService.download(url, handler)).isEqualTo(HttpServletResponse.SC_OK);
+
+        assertThat(FileUtils.readFileToByteArray(artifact)).isEqualTo(servlet.content);
+    }
+
+    @Test
+    void shouldDownloadInParallelSegments() throws IOException {
+        HttpService httpService = httpService(4);
+
+        assertThat(httpService.download(url, new FileHandler(artifact, "artifact.bin"))).isEqualTo(HttpServletResponse.SC_OK);
+
+        assertThat(servlet.ranges).hasSize(4).doesNotContainNull();
+        assertThat(FileUtils.readFileToByteArray(artifact)).isEqualTo(servlet.content);
+    }
+
+    private HttpService httpService(int segments) {
+        GoAgentServerHttpClient httpClient = new GoAgentServerHttpClient(null) {
+            @Override
+            public CloseableHttpResponse execute(HttpRequestBase request) throws IOException {
+                return client.execute(request);
+            }
+        };
+        return new HttpService(new HttpService.HttpClientFactory(httpClient), segments, 1024);
+    }
+
+    private static byte[] content(int size, long seed) {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+
+    private static class RangeServlet extends HttpServlet {
+        private volatile byte[] content;
+        private volatile int failAfter = -1;
+        private final List<String> ranges = new CopyOnWriteArrayList<>();
+
+        RangeServlet(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        protected void doHead(HttpServletRequest req, HttpServletResponse resp) {
+            setValidatorHeaders(resp);
+            resp.setContentLengthLong(content.length);
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            String range = req.getHeader("Range");
+            ranges.add(range);
+            setValidatorHeaders(resp);
+            int first = 0;
+            int last = content.length - 1;
+            if (range != null && etag().equals(req.getHeader("If-Range"))) {
+                String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                first = Integer.parseInt(bounds[0]);
+                last = bounds[1].isEmpty() ? last : Integer.parseInt(bounds[1]);
+                resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                resp.setHeader("Content-Range", String.format("bytes %d-%d/%d", first, last, content.length));
+            }
+            int length = last - first + 1;
+            resp.setContentLength(length);
+            if (failAfter >= 0 && failAfter < length) {
+                resp.getOutputStream().write(content, first, failAfter);
+                resp.getOutputStream().flush();
+                throw new IOException("Simulating a broken connection");
+            }
+            resp.getOutputStream().write(content, first, length);
+        }
+
+        private void setValidatorHeaders(HttpServletResponse resp) {
+            resp.setHeader("Accept-Ranges", "bytes");
+            resp.setHeader("ETag", etag());
+        }
+
+        private String etag() {
+            return "\"" + content.length + "\"";
+        }
+    }
+}
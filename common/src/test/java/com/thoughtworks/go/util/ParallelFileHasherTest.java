@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@EnableRuleMigrationSupport
+class ParallelFileHasherTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Map<String, File> files;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        temporaryFolder.create();
+        files = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            File file = temporaryFolder.newFile("file" + i);
+            FileUtils.writeStringToFile(file, "content " + i, UTF_8);
+            files.put("path" + i, file);
+        }
+    }
+
+    @Test
+    void shouldComputeEveryRequestedChecksumOfEveryFileInOrder() throws IOException {
+        Map<String, Map<String, String>> checksums = new ParallelFileHasher(4).hash(files, ParallelFileHasher.MD5, ParallelFileHasher.SHA256, ParallelFileHasher.XXH64);
+
+        assertThat(checksums.keySet()).containsExactlyElementsOf(files.keySet());
+        for (int i = 0; i < 10; i++) {
+            assertThat(checksums.get("path" + i))
+                    .containsEntry(ParallelFileHasher.MD5, DigestUtils.md5Hex("content " + i))
+                    .containsEntry(ParallelFileHasher.SHA256, DigestUtils.sha256Hex("content " + i))
+                    .containsKey(ParallelFileHasher.XXH64);
+        }
+        assertThat(new ParallelFileHasher(1).hash(files, ParallelFileHasher.MD5, ParallelFileHasher.SHA256, ParallelFileHasher.XXH64)).isEqualTo(checksums);
+    }
+
+    @Test
+    void shouldComputeOnlyTheChecksumsRequestedForEachFile() throws IOException {
+        Map<String, Map<String, String>> checksums = new ParallelFileHasher(4).hash(files,
+                path -> Collections.singletonList(path.equals("path0") ? ParallelFileHasher.XXH64 : ParallelFileHasher.MD5));
+
+        assertThat(checksums.get("path0")).containsOnlyKeys(ParallelFileHasher.XXH64);
+        assertThat(checksums.get("path1")).containsOnlyKeys(ParallelFileHasher.MD5);
+    }
+
+    @Test
+    void shouldFailWhenAFileCanNotBeRead() {
+        files.put("missing", new File(temporaryFolder.getRoot(), "missing"));
+
+        assertThatThrownBy(() -> new ParallelFileHasher(4).hash(files, ParallelFileHasher.MD5)).isInstanceOf(IOException.class);
+    }
+}
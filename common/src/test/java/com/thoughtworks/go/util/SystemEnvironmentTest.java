@@ -512,4 +512,13 @@ class SystemEnvironmentTest {
 
         assertThat(new SystemEnvironment().isServerInStandbyMode()).isTrue();
     }
+
+    @Test
+    void shouldAllowElasticAgentPluginQueueThreadsToBeOverriddenPerPlugin() {
+        System.setProperty("plugin.cd.go.contrib.elastic-agent.docker.createagent.threads", "10");
+
+        assertThat(systemEnvironment.getCreateAgentThreadsForPlugin("cd.go.contrib.elastic-agent.docker")).isEqualTo(10);
+        assertThat(systemEnvironment.getCreateAgentThreadsForPlugin("cd.go.contrib.elastic-agent.ecs")).isEqualTo(5);
+        assertThat(systemEnvironment.getServerPingThreadsForPlugin("cd.go.contrib.elastic-agent.docker")).isEqualTo(1);
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.util;
+
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XXHash64Test {
+    @Test
+    void shouldComputeTheReferenceHashes() {
+        assertThat(hash("")).isEqualTo("ef46db3751d8e999");
+        assertThat(hash("a")).isEqualTo("d24ec4f1a98c6e5b");
+        assertThat(hash("abc")).isEqualTo("44bc2cf5ad770999");
+        assertThat(hash("Nobody inspects the spammish repetition")).isEqualTo("fbcea83c8a378bf1");
+    }
+
+    @Test
+    void shouldComputeTheSameHashHoweverTheInputIsSplit() {
+        byte[] content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        XXHash64 whole = new XXHash64();
+        whole.update(content, 0, content.length);
+
+        XXHash64 pieces = new XXHash64();
+        pieces.update(content, 0, 7);
+        pieces.update(content, 7, 500);
+        pieces.update(content[507]);
+        pieces.update(content, 508, 492);
+
+        assertThat(pieces.getValue()).isEqualTo(whole.getValue());
+    }
+
+    @Test
+    void shouldStartOverWhenReset() {
+        XXHash64 xxHash = new XXHash64();
+        xxHash.update("something else".getBytes(UTF_8), 0, 14);
+        xxHash.reset();
+        xxHash.update("abc".getBytes(UTF_8), 0, 3);
+
+        assertThat(xxHash.getHexValue()).isEqualTo("44bc2cf5ad770999");
+    }
+
+    private static String hash(String content) {
+        XXHash64 xxHash = new XXHash64();
+        byte[] bytes = content.getBytes(UTF_8);
+        xxHash.update(bytes, 0, bytes.length);
+        return xxHash.getHexValue();
+    }
+}
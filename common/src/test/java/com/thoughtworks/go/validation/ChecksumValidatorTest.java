@@ -17,21 +17,33 @@
 package com.thoughtworks.go.validation;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.thoughtworks.go.agent.ChecksumValidationPublisher;
 import com.thoughtworks.go.domain.ArtifactMd5Checksums;
 import com.thoughtworks.go.util.CachedDigestUtils;
+import com.thoughtworks.go.util.ParallelFileHasher;
+import com.thoughtworks.go.util.XXHash64;
+import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 public class ChecksumValidatorTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     private ArtifactMd5Checksums checksums;
     private ChecksumValidationPublisher checksumValidationPublisher;
@@ -76,6 +88,36 @@ public class ChecksumValidatorTest {
         verify(checksumValidationPublisher).md5NotFoundFor("path");
     }
 
+    @Test
+    public void shouldVerifyFilesByTheirFastChecksumWhenOneWasRecordedAndByMd5Otherwise() throws IOException {
+        File fast = temporaryFolder.newFile("fast");
+        File slow = temporaryFolder.newFile("slow");
+        FileUtils.writeStringToFile(fast, "fast", UTF_8);
+        FileUtils.writeStringToFile(slow, "slow", UTF_8);
+        XXHash64 xxHash = new XXHash64();
+        xxHash.update("fast".getBytes(UTF_8), 0, 4);
+        when(checksums.fastChecksumFor("fast")).thenReturn(xxHash.getHexValue());
+        when(checksums.md5For("slow")).thenReturn(CachedDigestUtils.md5Hex("slow"));
+        Map<String, File> files = new LinkedHashMap<>();
+        files.put("fast", fast);
+        files.put("slow", slow);
+
+        new ChecksumValidator(checksums).validate(files, new ParallelFileHasher(2), checksumValidationPublisher);
+
+        verify(checksumValidationPublisher).md5Match("fast");
+        verify(checksumValidationPublisher).md5Match("slow");
+        verify(checksums, never()).md5For("fast");
+    }
+
+    @Test
+    public void shouldCallbackWhenFastChecksumMismatch() {
+        when(checksums.fastChecksumFor("path")).thenReturn("0123456789abcdef");
+
+        new ChecksumValidator(checksums).validateFastChecksum("path", "fedcba9876543210", checksumValidationPublisher);
+
+        verify(checksumValidationPublisher).md5Mismatch("path");
+    }
+
     @Test
     public void shouldNotifyPublisherWhenArtifactChecksumFileIsMissing() throws IOException {
         new ChecksumValidator(null).validate(null,null,checksumValidationPublisher);
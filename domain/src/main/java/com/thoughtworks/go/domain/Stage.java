@@ -49,6 +49,7 @@ public class Stage extends PersistentObject {
     private boolean cleanWorkingDir = StageConfig.DEFAULT_CLEAN_WORKING_DIR;
     private Integer rerunOfCounter;
     private boolean artifactsDeleted;
+    private long artifactsSize;
 
     private static final StageResult DEFAULT_RESULT = StageResult.Unknown;
     private static final Cloner CLONER = new Cloner();
@@ -510,6 +511,17 @@ public class Stage extends PersistentObject {
         this.artifactsDeleted = artifactsDeleted;
     }
 
+    /**
+     * @return the bytes of artifacts uploaded by the jobs of this stage, or 0 when they were uploaded before sizes were recorded
+     */
+    public long getArtifactsSize() {
+        return artifactsSize;
+    }
+
+    public void setArtifactsSize(long artifactsSize) {
+        this.artifactsSize = artifactsSize;
+    }
+
     public String getConfigVersion() {
         return this.configVersion;
     }
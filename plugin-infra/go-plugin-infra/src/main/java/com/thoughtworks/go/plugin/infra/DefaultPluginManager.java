@@ -38,6 +38,8 @@ import org.springframework.stereotype.Service;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.thoughtworks.go.util.SystemEnvironment.PLUGIN_BUNDLE_PATH;
 import static java.lang.Double.parseDouble;
@@ -53,7 +55,8 @@ public class DefaultPluginManager implements PluginManager {
     private GoPluginOSGiFramework goPluginOSGiFramework;
     private PluginWriter pluginWriter;
     private PluginValidator pluginValidator;
-    private final Map<PluginDescriptor, Set<String>> initializedPluginsWithTheirExtensionTypes = new HashMap<>();
+    private final ConcurrentMap<PluginDescriptor, Set<String>> initializedPluginsWithTheirExtensionTypes = new ConcurrentHashMap<>();
+    private final PluginRequestMetrics requestMetrics = new PluginRequestMetrics();
     private PluginRequestProcessorRegistry requestProcessRegistry;
 
     @Autowired
@@ -112,6 +115,7 @@ public class DefaultPluginManager implements PluginManager {
                 synchronized (initializedPluginsWithTheirExtensionTypes) {
                     initializedPluginsWithTheirExtensionTypes.remove(pluginDescriptor);
                 }
+                requestMetrics.remove(pluginDescriptor.id());
             }
         });
 
@@ -149,30 +153,43 @@ public class DefaultPluginManager implements PluginManager {
     public GoPluginApiResponse submitTo(final String pluginId, String extensionType, final GoPluginApiRequest apiRequest) {
         return goPluginOSGiFramework.doOn(GoPlugin.class, pluginId, extensionType, (plugin, pluginDescriptor) -> {
             ensureInitializerInvoked(pluginDescriptor, plugin, extensionType);
+            long start = System.nanoTime();
+            boolean failed = true;
             try {
-                return plugin.handle(apiRequest);
+                GoPluginApiResponse response = plugin.handle(apiRequest);
+                failed = false;
+                return response;
             } catch (UnhandledRequestTypeException e) {
                 LOGGER.error(e.getMessage());
                 LOGGER.debug(e.getMessage(), e);
                 throw new RuntimeException(e);
+            } finally {
+                requestMetrics.record(pluginId, extensionType, System.nanoTime() - start, failed);
             }
         });
     }
 
+    @Override
+    public PluginRequestMetrics requestMetrics() {
+        return requestMetrics;
+    }
+
     private void ensureInitializerInvoked(GoPluginDescriptor pluginDescriptor, GoPlugin plugin, String extensionType) {
-        synchronized (initializedPluginsWithTheirExtensionTypes) {
-            if (initializedPluginsWithTheirExtensionTypes.get(pluginDescriptor) == null) {
-                initializedPluginsWithTheirExtensionTypes.put(pluginDescriptor, new HashSet<>());
-            }
+        Set<String> initializedExtensions = initializedPluginsWithTheirExtensionTypes.get(pluginDescriptor);
+        if (initializedExtensions != null && initializedExtensions.contains(extensionType)) {
+            return;
+        }
 
-            Set<String> initializedExtensions = initializedPluginsWithTheirExtensionTypes.get(pluginDescriptor);
-            if (initializedExtensions == null || initializedExtensions.contains(extensionType)) {
+        synchronized (initializedPluginsWithTheirExtensionTypes) {
+            initializedExtensions = initializedPluginsWithTheirExtensionTypes.computeIfAbsent(pluginDescriptor, descriptor -> ConcurrentHashMap.newKeySet());
+            if (initializedExtensions.contains(extensionType)) {
                 return;
             }
-            initializedPluginsWithTheirExtensionTypes.get(pluginDescriptor).add(extensionType);
 
             PluginAwareDefaultGoApplicationAccessor accessor = new PluginAwareDefaultGoApplicationAccessor(pluginDescriptor, requestProcessRegistry);
             plugin.initializeGoApplicationAccessor(accessor);
+            // marked only after the accessor is set, since other threads skip the lock once the extension shows up here
+            initializedExtensions.add(extensionType);
         }
     }
 
@@ -39,6 +39,8 @@ public interface PluginManager {
 
     GoPluginApiResponse submitTo(String pluginId, String extensionType, GoPluginApiRequest apiRequest);
 
+    PluginRequestMetrics requestMetrics();
+
     boolean isPluginOfType(String extension, String pluginId);
 
     String resolveExtensionVersion(String pluginId, String extensionType, List<String> goSupportedExtensionVersions);
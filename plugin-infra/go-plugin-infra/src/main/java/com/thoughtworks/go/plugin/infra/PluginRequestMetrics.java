@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.plugin.infra;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @understands latency and throughput of the requests handled by each plugin, per extension type
+ */
+public class PluginRequestMetrics {
+    private final ConcurrentMap<String, ConcurrentMap<String, Stats>> statsByPlugin = new ConcurrentHashMap<>();
+
+    public void record(String pluginId, String extensionType, long elapsedNanos, boolean failed) {
+        statsByPlugin.computeIfAbsent(pluginId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(extensionType, type -> new Stats())
+                .record(elapsedNanos, failed);
+    }
+
+    public void remove(String pluginId) {
+        statsByPlugin.remove(pluginId);
+    }
+
+    public Map<String, Map<String, Object>> asJson() {
+        Map<String, Map<String, Object>> json = new TreeMap<>();
+        statsByPlugin.forEach((pluginId, statsByExtension) -> {
+            Map<String, Object> pluginJson = new TreeMap<>();
+            statsByExtension.forEach((extensionType, stats) -> pluginJson.put(extensionType, stats.asJson()));
+            json.put(pluginId, pluginJson);
+        });
+        return json;
+    }
+
+    private static class Stats {
+        private final long createdAt = System.nanoTime();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long elapsedNanos, boolean failed) {
+            requests.increment();
+            totalNanos.add(elapsedNanos);
+            if (failed) {
+                failures.increment();
+            }
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        }
+
+        Map<String, Object> asJson() {
+            long count = requests.sum();
+            long elapsedSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - createdAt));
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("Requests", count);
+            json.put("Failures", failures.sum());
+            json.put("Requests per minute", count * 60 / elapsedSeconds);
+            json.put("Average time in milliseconds", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / count));
+            json.put("Maximum time in milliseconds", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+            return json;
+        }
+    }
+}
@@ -231,6 +231,31 @@ public class DefaultPluginManagerTest {
         assertThat(accessor.pluginDescriptor(), is(descriptor));
     }
 
+    @Test
+    public void shouldInitializeApplicationAccessorOnlyOnceForAPluginAndExtensionAndRecordRequestMetrics() throws Exception {
+        String extensionType = "sample-extension";
+        GoPluginApiRequest request = mock(GoPluginApiRequest.class);
+        GoPluginApiResponse expectedResponse = mock(GoPluginApiResponse.class);
+        final GoPlugin goPlugin = mock(GoPlugin.class);
+        final GoPluginDescriptor descriptor = mock(GoPluginDescriptor.class);
+
+        when(goPlugin.handle(request)).thenReturn(expectedResponse);
+        doAnswer(invocationOnMock -> {
+            ActionWithReturn<GoPlugin, GoPluginApiResponse> action = (ActionWithReturn<GoPlugin, GoPluginApiResponse>) invocationOnMock.getArguments()[3];
+            return action.execute(goPlugin, descriptor);
+        }).when(goPluginOSGiFramework).doOn(eq(GoPlugin.class), eq("plugin-id"), eq(extensionType), any(ActionWithReturn.class));
+
+        DefaultPluginManager pluginManager = new DefaultPluginManager(monitor, registry, goPluginOSGiFramework, jarChangeListener, pluginRequestProcessorRegistry, pluginWriter, pluginValidator, systemEnvironment);
+        pluginManager.submitTo("plugin-id", extensionType, request);
+        pluginManager.submitTo("plugin-id", extensionType, request);
+
+        verify(goPlugin, times(1)).initializeGoApplicationAccessor(any(PluginAwareDefaultGoApplicationAccessor.class));
+        verify(goPlugin, times(2)).handle(request);
+        Map<String, Object> metrics = (Map<String, Object>) pluginManager.requestMetrics().asJson().get("plugin-id").get(extensionType);
+        assertThat(metrics.get("Requests"), is(2L));
+        assertThat(metrics.get("Failures"), is(0L));
+    }
+
     @Test
     public void shouldSayPluginIsOfGivenExtensionTypeWhenReferenceIsFound() throws Exception {
         String pluginId = "plugin-id";
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.plugin.infra;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class PluginRequestMetricsTest {
+
+    @Test
+    public void shouldTrackRequestsPerPluginAndExtensionType() {
+        PluginRequestMetrics metrics = new PluginRequestMetrics();
+
+        metrics.record("plugin-1", "notification", TimeUnit.MILLISECONDS.toNanos(10), false);
+        metrics.record("plugin-1", "notification", TimeUnit.MILLISECONDS.toNanos(30), true);
+        metrics.record("plugin-1", "elastic-agent", TimeUnit.MILLISECONDS.toNanos(5), false);
+
+        Map<String, Object> notification = (Map<String, Object>) metrics.asJson().get("plugin-1").get("notification");
+        assertThat(notification.get("Requests"), is(2L));
+        assertThat(notification.get("Failures"), is(1L));
+        assertThat(notification.get("Average time in milliseconds"), is(20L));
+        assertThat(notification.get("Maximum time in milliseconds"), is(30L));
+
+        Map<String, Object> elasticAgent = (Map<String, Object>) metrics.asJson().get("plugin-1").get("elastic-agent");
+        assertThat(elasticAgent.get("Requests"), is(1L));
+        assertThat(elasticAgent.get("Failures"), is(0L));
+    }
+
+    @Test
+    public void shouldForgetMetricsOfRemovedPlugins() {
+        PluginRequestMetrics metrics = new PluginRequestMetrics();
+        metrics.record("plugin-1", "notification", 1, false);
+
+        metrics.remove("plugin-1");
+
+        assertThat(metrics.asJson(), not(hasKey("plugin-1")));
+    }
+}
@@ -0,0 +1,23 @@
+--
+-- Copyright 2019 ThoughtWorks, Inc.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--    http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+ALTER TABLE stages ADD COLUMN artifactsSize BIGINT DEFAULT 0 NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_stages_artifactsDeleted_id ON stages(artifactsDeleted, id);
+
+--//@UNDO
+
+DROP INDEX idx_stages_artifactsDeleted_id IF EXISTS;
+ALTER TABLE stages DROP COLUMN artifactsSize;
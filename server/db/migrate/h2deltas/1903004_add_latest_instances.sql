@@ -0,0 +1,43 @@
+--
+-- Copyright 2019 ThoughtWorks, Inc.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--    http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+CREATE TABLE latestPipelineInstances (
+  pipelineName VARCHAR_IGNORECASE(255) NOT NULL PRIMARY KEY,
+  pipelineId BIGINT NOT NULL
+);
+
+INSERT INTO latestPipelineInstances (pipelineName, pipelineId)
+  SELECT p.name, p.id
+  FROM pipelines p
+  INNER JOIN (SELECT MAX(id) AS id FROM pipelines GROUP BY name) latest ON latest.id = p.id;
+
+CREATE TABLE latestStageInstances (
+  pipelineName VARCHAR_IGNORECASE(255) NOT NULL,
+  stageName VARCHAR_IGNORECASE(255) NOT NULL,
+  stageId BIGINT NOT NULL,
+  PRIMARY KEY (pipelineName, stageName)
+);
+
+INSERT INTO latestStageInstances (pipelineName, stageName, stageId)
+  SELECT p.name, s.name, s.id
+  FROM stages s
+  INNER JOIN pipelines p ON p.id = s.pipelineId
+  INNER JOIN (SELECT MAX(s.id) AS id FROM stages s INNER JOIN pipelines p ON p.id = s.pipelineId GROUP BY p.name, s.name) latest ON latest.id = s.id;
+
+--//@UNDO
+
+DROP TABLE IF EXISTS latestStageInstances;
+DROP TABLE IF EXISTS latestPipelineInstances;
@@ -45,6 +45,7 @@ public class CcTrayActivityListener implements Initializer, JobStatusListener, S
     private final CcTrayStageStatusChangeHandler stageStatusChangeHandler;
     private final CcTrayConfigChangeHandler configChangeHandler;
 
+    private static final String ALL_PIPELINES = "all pipelines";
     private final MultiplexingQueueProcessor processor;
 
     @Autowired
@@ -85,12 +86,26 @@ public class CcTrayActivityListener implements Initializer, JobStatusListener, S
                     public String description() {
                         return "security_config changed";
                     }
+
+                    @Override
+                    public Object coalescingKey() {
+                        return ALL_PIPELINES;
+                    }
+
+                    @Override
+                    public boolean supersedesQueuedActions() {
+                        return true;
+                    }
                 });
             }
         };
 
     }
 
+    public MultiplexingQueueProcessor processor() {
+        return processor;
+    }
+
     @Override
     public void jobStatusChanged(final JobInstance job) {
         LOGGER.debug("Adding CCTray activity for job into queue: {}", job);
@@ -139,6 +154,16 @@ public class CcTrayActivityListener implements Initializer, JobStatusListener, S
             public String description() {
                 return "config change";
             }
+
+            @Override
+            public Object coalescingKey() {
+                return ALL_PIPELINES;
+            }
+
+            @Override
+            public boolean supersedesQueuedActions() {
+                return true;
+            }
         });
     }
 
@@ -156,6 +181,11 @@ public class CcTrayActivityListener implements Initializer, JobStatusListener, S
                     public String description() {
                         return "pipeline config: " + pipelineConfig;
                     }
+
+                    @Override
+                    public Object coalescingKey() {
+                        return "pipeline:" + pipelineConfig.name().toLower();
+                    }
                 });
             }
         };
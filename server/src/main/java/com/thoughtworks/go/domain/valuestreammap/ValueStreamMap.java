@@ -24,7 +24,9 @@ import com.thoughtworks.go.domain.materials.Modification;
 import com.thoughtworks.go.server.presentation.models.ValueStreamMapPresentationModel;
 import com.thoughtworks.go.server.valuestreammap.CrossingMinimization;
 import com.thoughtworks.go.server.valuestreammap.DummyNodeCreation;
+import com.thoughtworks.go.server.valuestreammap.IterativeCrossingMinimization;
 import com.thoughtworks.go.server.valuestreammap.LevelAssignment;
+import com.thoughtworks.go.util.SystemEnvironment;
 
 import java.util.*;
 
@@ -37,7 +39,7 @@ public class ValueStreamMap {
 
 	private LevelAssignment levelAssignment = new LevelAssignment();
     private DummyNodeCreation dummyNodeCreation = new DummyNodeCreation();
-    private CrossingMinimization crossingMinimization = new CrossingMinimization();
+    private CrossingMinimization crossingMinimization = crossingMinimization(new SystemEnvironment());
 
     public ValueStreamMap(CaseInsensitiveString pipeline, PipelineRevision pipelineRevision) {
         currentPipeline = new PipelineDependencyNode(pipeline, pipeline.toString());
@@ -131,6 +133,14 @@ public class ValueStreamMap {
         return nodeIdToNodeMap.containsKey(nodeId);
     }
 
+    private static CrossingMinimization crossingMinimization(SystemEnvironment systemEnvironment) {
+        if (systemEnvironment.get(SystemEnvironment.GO_VSM_ITERATIVE_LAYOUT)) {
+            return new IterativeCrossingMinimization(systemEnvironment.get(SystemEnvironment.GO_VSM_LAYOUT_MAX_SWEEPS),
+                    systemEnvironment.get(SystemEnvironment.GO_VSM_LAYOUT_TIME_BUDGET_MILLIS));
+        }
+        return new CrossingMinimization();
+    }
+
     public ValueStreamMapPresentationModel presentationModel() {
         NodeLevelMap nodeLevelMap = levelAssignment.apply(this);
         dummyNodeCreation.apply(this, nodeLevelMap);
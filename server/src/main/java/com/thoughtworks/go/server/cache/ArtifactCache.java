@@ -18,24 +18,41 @@ package com.thoughtworks.go.server.cache;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * @understands serving prepared artifacts and preparing artifact offline
  */
 public abstract class ArtifactCache<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactCache.class);
+    private static final AtomicInteger CACHE_CREATOR_COUNT = new AtomicInteger();
     protected final ArtifactsDirHolder artifactsDirHolder;
     protected ConcurrentSkipListSet<T> pendingCacheFiles = new ConcurrentSkipListSet<>();
     protected ConcurrentMap<T, Exception> pendingExceptions = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor cacheCreators;
     public static final String CACHE_ARTIFACTS_FOLDER = "cache/artifacts/";
 
     public ArtifactCache(ArtifactsDirHolder artifactsDirHolder) {
+        this(artifactsDirHolder, 2, 100);
+    }
+
+    /**
+     * @param maxCacheCreators the number of caches created at the same time
+     * @param maxQueuedCacheCreations the number of caches waiting to be created; requests beyond it are retried by the client
+     */
+    public ArtifactCache(ArtifactsDirHolder artifactsDirHolder, int maxCacheCreators, int maxQueuedCacheCreations) {
         this.artifactsDirHolder = artifactsDirHolder;
+        this.cacheCreators = new ThreadPoolExecutor(maxCacheCreators, maxCacheCreators, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(maxQueuedCacheCreations), runnable -> {
+            Thread thread = new Thread(runnable, "cache-creator-thread-" + CACHE_CREATOR_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cacheCreators.allowCoreThreadTimeOut(true);
     }
 
     public boolean cacheCreated(T artifactLocation) throws Exception {
@@ -69,8 +86,8 @@ public abstract class ArtifactCache<T> {
     protected void startCacheCreationThread(final T artifactLocation) {
         boolean inserted = pendingCacheFiles.add(artifactLocation);
         if (inserted) {
-            Thread cacheCreatorThread = new Thread("cache-creator-thread-" + UUID.randomUUID().toString()) {
-                public void run() {
+            try {
+                cacheCreators.execute(() -> {
                     try {
                         createCachedFile(artifactLocation);
                     } catch (Exception e) {
@@ -78,9 +95,11 @@ public abstract class ArtifactCache<T> {
                     } finally {
                         pendingCacheFiles.remove(artifactLocation);
                     }
-                }
-            };
-            cacheCreatorThread.start();
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("[Artifact Cache] Too many caches are waiting to be created, not creating cache for {} now", artifactLocation);
+                pendingCacheFiles.remove(artifactLocation);
+            }
         }
     }
 
@@ -23,27 +23,42 @@ import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.event.CacheEventListener;
+import net.sf.ehcache.pool.SizeOfEngine;
+import net.sf.ehcache.pool.impl.DefaultSizeOfEngine;
 import net.sf.ehcache.statistics.StatisticsGateway;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 
 /**
  * @understands storing and retrieving objects from an underlying LRU cache
+ * <p>
+ * Keys are grouped into families by the class and identifier they were generated from (see {@link CacheKeyGenerator}).
+ * A family can be given a region of its own, with its own size limit and time to live, so that it cannot evict the
+ * entries of other families; every other family shares the default cache. Hits and misses are counted per family.
  */
 public class GoCache {
     private final ThreadLocal<Boolean> doNotServeForTransaction = new ThreadLocal<>();
 
     public static final String SUB_KEY_DELIMITER = "!_#$#_!";
+    public static final String DEFAULT_REGION = "default";
+    static final String OTHER_KEY_FAMILY = "other";
+    private static final String KEY_PART_DELIMITER = ".$";
+    private static final int SAMPLES_PER_KEY_FAMILY = 20;
+    private static final int SAMPLE_SIZE_OF_MAX_DEPTH = 100_000;
 
     private Ehcache ehCache;
+    private final Map<String, Ehcache> regions;
+    private final ConcurrentMap<String, KeyFamilyCounters> keyFamilyCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> keyFamiliesOfCachedKeys = new ConcurrentHashMap<>();
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GoCache.class);
     private TransactionSynchronizationManager transactionSynchronizationManager;
@@ -57,11 +72,19 @@ public class GoCache {
      * @deprecated only for tests
      */
     public GoCache(GoCache goCache) {
-        this(goCache.ehCache, goCache.transactionSynchronizationManager);
+        this(goCache.ehCache, goCache.regions, goCache.transactionSynchronizationManager);
     }
 
     public GoCache(Ehcache cache, TransactionSynchronizationManager transactionSynchronizationManager) {
+        this(cache, Collections.emptyMap(), transactionSynchronizationManager);
+    }
+
+    /**
+     * @param regions the caches for the key families that should not share the default cache, by key family
+     */
+    public GoCache(Ehcache cache, Map<String, Ehcache> regions, TransactionSynchronizationManager transactionSynchronizationManager) {
         this.ehCache = cache;
+        this.regions = regions;
         this.transactionSynchronizationManager = transactionSynchronizationManager;
         this.nullObjectClasses = new HashSet<>();
         nullObjectClasses.add(NullUser.class);
@@ -69,15 +92,22 @@ public class GoCache {
     }
 
     public void removeListener(CacheEventListener cacheEventListener) {
-        ehCache.getCacheEventNotificationService().unregisterListener(cacheEventListener);
+        for (Ehcache cache : allCaches()) {
+            cache.getCacheEventNotificationService().unregisterListener(cacheEventListener);
+        }
     }
 
     public void addListener(CacheEventListener listener) {
-        ehCache.getCacheEventNotificationService().registerListener(listener);
+        for (Ehcache cache : allCaches()) {
+            cache.getCacheEventNotificationService().registerListener(listener);
+        }
     }
 
     protected void registerAsCacheEvictionListener() {
-        ehCache.getCacheEventNotificationService().registerListener(new CacheEvictionListener(this));
+        CacheEvictionListener listener = new CacheEvictionListener(this);
+        for (Ehcache cache : allCaches()) {
+            cache.getCacheEventNotificationService().registerListener(listener);
+        }
     }
 
     public void stopServingForTransaction() {
@@ -102,11 +132,20 @@ public class GoCache {
             LOGGER.debug("transaction active during cache put for {} = {}", key, value, new IllegalStateException());
             return;
         }
-        ehCache.put(new Element(key, value));
+        String family = keyFamiliesOfCachedKeys.computeIfAbsent(key, GoCache::keyFamily);
+        cacheForFamily(family).put(new Element(key, value));
     }
 
+    @SuppressWarnings("unchecked")
     public List<String> getKeys() {
-        return ehCache.getKeys();
+        if (regions.isEmpty()) {
+            return ehCache.getKeys();
+        }
+        List<String> keys = new ArrayList<>();
+        for (Ehcache cache : allCaches()) {
+            keys.addAll(cache.getKeys());
+        }
+        return keys;
     }
 
     /**
@@ -139,18 +178,27 @@ public class GoCache {
     }
 
     public void flush() {
-        ehCache.flush();
+        for (Ehcache cache : allCaches()) {
+            cache.flush();
+        }
     }
 
     public Object get(String key) {
         if (doNotServeForTransaction()) {
             return null;
         }
-        return getWithoutTransactionCheck(key);
+        String family = keyFamilyOf(key);
+        Object value = getWithoutTransactionCheck(key, cacheForFamily(family));
+        keyFamilyCounters.computeIfAbsent(family, f -> new KeyFamilyCounters()).record(value != null);
+        return value;
     }
 
     private Object getWithoutTransactionCheck(String key) {
-        Element element = ehCache.get(key);
+        return getWithoutTransactionCheck(key, cacheFor(key));
+    }
+
+    private Object getWithoutTransactionCheck(String key, Ehcache cache) {
+        Element element = cache.get(key);
         if (element == null) {
             return null;
         }
@@ -164,7 +212,10 @@ public class GoCache {
     }
 
     public void clear() {
-        ehCache.removeAll();
+        for (Ehcache cache : allCaches()) {
+            cache.removeAll();
+        }
+        keyFamiliesOfCachedKeys.clear();
     }
 
     public boolean remove(String key) {
@@ -172,10 +223,14 @@ public class GoCache {
             Object value = getWithoutTransactionCheck(key);
             if (value instanceof KeyList) {
                 for (String subKey : (KeyList) value) {
-                    ehCache.remove(compositeKey(key, subKey));
+                    String compositeKey = compositeKey(key, subKey);
+                    cacheFor(key).remove(compositeKey);
+                    keyFamiliesOfCachedKeys.remove(compositeKey);
                 }
             }
-            return ehCache.remove(key);
+            boolean removed = cacheFor(key).remove(key);
+            keyFamiliesOfCachedKeys.remove(key);
+            return removed;
         }
     }
 
@@ -203,6 +258,7 @@ public class GoCache {
     }
 
     public void removeAssociations(String key, Element element) {
+        keyFamiliesOfCachedKeys.remove(key);
         if (element.getObjectValue() instanceof KeyList) {
             synchronized (key.intern()) {
                 for (String subkey : (KeyList) element.getObjectValue()) {
@@ -214,7 +270,7 @@ public class GoCache {
             String parentKey = parts[0];
             String childKey = parts[1];
             synchronized (parentKey.intern()) {
-                Element parent = ehCache.get(parentKey);
+                Element parent = cacheFor(parentKey).get(parentKey);
                 if (parent == null) {
                     return;
                 }
@@ -225,7 +281,7 @@ public class GoCache {
     }
 
     public boolean isKeyInCache(Object key) {
-        return ehCache.isKeyInCache(key);
+        return key instanceof String ? cacheFor((String) key).isKeyInCache(key) : ehCache.isKeyInCache(key);
     }
 
     private KeyList subKeyFamily(String parentKey) {
@@ -259,6 +315,106 @@ public class GoCache {
         return ehCache.getCacheConfiguration();
     }
 
+    /**
+     * @return the entries, size, hits and misses of each key family, largest first. A family with a region of its own
+     * reports the heap size of its region. The size of any other family is estimated from a sample of its entries, so
+     * this is cheap enough for a support page but not for every request
+     */
+    public List<KeyFamilyUsage> keyFamilyUsage() {
+        Map<String, Integer> entries = new HashMap<>();
+        Map<String, List<Element>> samples = new HashMap<>();
+        for (Ehcache cache : allCaches()) {
+            for (Object key : cache.getKeys()) {
+                String family = keyFamilyOf((String) key);
+                entries.merge(family, 1, Integer::sum);
+                List<Element> sample = samples.computeIfAbsent(family, f -> new ArrayList<>());
+                Element element = cache == ehCache && sample.size() < SAMPLES_PER_KEY_FAMILY ? cache.getQuiet(key) : null;
+                if (element != null) {
+                    sample.add(element);
+                }
+            }
+        }
+
+        SizeOfEngine sizeOfEngine = new DefaultSizeOfEngine(SAMPLE_SIZE_OF_MAX_DEPTH, false);
+
+        Set<String> families = new HashSet<>(entries.keySet());
+        families.addAll(keyFamilyCounters.keySet());
+        List<KeyFamilyUsage> usages = new ArrayList<>();
+        for (String family : families) {
+            int count = entries.getOrDefault(family, 0);
+            long estimatedBytes = regions.containsKey(family)
+                    ? regions.get(family).getStatistics().getLocalHeapSizeInBytes()
+                    : estimateBytes(sizeOfEngine, samples.getOrDefault(family, Collections.emptyList()), count);
+            KeyFamilyCounters counters = keyFamilyCounters.getOrDefault(family, new KeyFamilyCounters());
+            String region = regions.containsKey(family) ? family : DEFAULT_REGION;
+            usages.add(new KeyFamilyUsage(family, region, count, estimatedBytes, counters.hits.sum(), counters.misses.sum()));
+        }
+        usages.sort(Comparator.comparingLong(KeyFamilyUsage::getEstimatedBytes).reversed().thenComparing(KeyFamilyUsage::getFamily));
+        return usages;
+    }
+
+    private static long estimateBytes(SizeOfEngine sizeOfEngine, List<Element> sample, int count) {
+        if (sample.isEmpty()) {
+            return 0;
+        }
+        long sampleBytes = 0;
+        for (Element element : sample) {
+            sampleBytes += sizeOfEngine.sizeOf(element.getObjectKey(), element.getObjectValue(), element).getCalculated();
+        }
+        return sampleBytes * count / sample.size();
+    }
+
+    /**
+     * @return the key family of a key that is in the cache without working it out again, or works it out for any
+     * other key
+     */
+    private String keyFamilyOf(String key) {
+        String family = keyFamiliesOfCachedKeys.get(key);
+        return family == null ? keyFamily(key) : family;
+    }
+
+    /**
+     * @return the class and identifier a key was generated from, like StageSqlMapDao.stageHistories, which is shared
+     * by sub keys and their parent key
+     */
+    static String keyFamily(String key) {
+        int subKeyAt = key.indexOf(SUB_KEY_DELIMITER);
+        String parentKey = subKeyAt < 0 ? key : key.substring(0, subKeyAt);
+        int classEnd = parentKey.indexOf(KEY_PART_DELIMITER);
+        if (classEnd < 0) {
+            return OTHER_KEY_FAMILY;
+        }
+        int identifierStart = classEnd + KEY_PART_DELIMITER.length();
+        int identifierEnd = parentKey.indexOf(KEY_PART_DELIMITER, identifierStart);
+        String className = parentKey.substring(parentKey.lastIndexOf('.', classEnd - 1) + 1, classEnd);
+        String identifier = identifierEnd < 0 ? parentKey.substring(identifierStart) : parentKey.substring(identifierStart, identifierEnd);
+        return className + "." + identifier;
+    }
+
+    private Ehcache cacheFor(String key) {
+        return regions.isEmpty() ? ehCache : cacheForFamily(keyFamilyOf(key));
+    }
+
+    private Ehcache cacheForFamily(String family) {
+        return regions.getOrDefault(family, ehCache);
+    }
+
+    private List<Ehcache> allCaches() {
+        List<Ehcache> caches = new ArrayList<>();
+        caches.add(ehCache);
+        caches.addAll(regions.values());
+        return caches;
+    }
+
+    private static class KeyFamilyCounters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        private void record(boolean hit) {
+            (hit ? hits : misses).increment();
+        }
+    }
+
     private interface Predicate {
         boolean isTrue();
     }
@@ -17,20 +17,32 @@
 package com.thoughtworks.go.server.cache;
 
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
+import com.thoughtworks.go.util.SystemEnvironment;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.MemoryUnit;
 import net.sf.ehcache.config.PersistenceConfiguration;
+import net.sf.ehcache.config.SizeOfPolicyConfiguration;
 import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Component
 public class GoCacheFactory {
 
+    // history pages are large object graphs, do not give up on sizing them half way through
+    private static final int REGION_SIZE_OF_MAX_DEPTH = 100_000;
+
     private final CacheConfiguration cacheConfiguration;
+    private final Map<String, CacheConfiguration> regionConfigurations;
     private TransactionSynchronizationManager transactionSynchronizationManager;
 
     static {
@@ -38,6 +50,7 @@ public class GoCacheFactory {
     }
 
     public GoCacheFactory(TransactionSynchronizationManager transactionSynchronizationManager,
+                          SystemEnvironment systemEnvironment,
                           @Value("${cruise.cache.elements.limit}") int maxElementsInMemory,
                           @Value("${cruise.cache.is.eternal}") boolean eternal) {
         this.transactionSynchronizationManager = transactionSynchronizationManager;
@@ -45,6 +58,7 @@ public class GoCacheFactory {
                 .persistence(new PersistenceConfiguration().strategy(PersistenceConfiguration.Strategy.NONE))
                 .eternal(eternal)
                 .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU);
+        regionConfigurations = regionConfigurations(systemEnvironment.get(SystemEnvironment.GO_CACHE_REGIONS));
     }
 
     @Bean(name = "goCache")
@@ -52,7 +66,49 @@ public class GoCacheFactory {
         CacheManager cacheManager = CacheManager.newInstance(new Configuration().name(getClass().getName()));
         Cache cache = new Cache(cacheConfiguration);
         cacheManager.addCache(cache);
-        return new GoCache(cache, transactionSynchronizationManager);
+        Map<String, Ehcache> regions = new LinkedHashMap<>();
+        for (Map.Entry<String, CacheConfiguration> region : regionConfigurations.entrySet()) {
+            Cache regionCache = new Cache(region.getValue());
+            cacheManager.addCache(regionCache);
+            regions.put(region.getKey(), regionCache);
+        }
+        return new GoCache(cache, regions, transactionSynchronizationManager);
+    }
+
+    /**
+     * Regions are configured as key family=maximum size in megabytes:time to live in seconds, separated by semicolons,
+     * for example StageSqlMapDao.stageHistories=64:0. A time to live of 0 keeps entries until they are evicted.
+     */
+    static Map<String, CacheConfiguration> regionConfigurations(String regions) {
+        Map<String, CacheConfiguration> configurations = new LinkedHashMap<>();
+        for (String region : StringUtils.split(StringUtils.defaultString(regions), ';')) {
+            String family = StringUtils.substringBefore(region, "=").trim();
+            String[] limits = StringUtils.split(StringUtils.substringAfter(region, "="), ':');
+            if (family.isEmpty() || limits.length != 2) {
+                throw invalidRegion(region, null);
+            }
+            long maxMegabytes;
+            long timeToLiveSeconds;
+            try {
+                maxMegabytes = Long.parseLong(limits[0].trim());
+                timeToLiveSeconds = Long.parseLong(limits[1].trim());
+            } catch (NumberFormatException e) {
+                throw invalidRegion(region, e);
+            }
+            configurations.put(family, new CacheConfiguration()
+                    .name("goCache." + family)
+                    .maxBytesLocalHeap(maxMegabytes, MemoryUnit.MEGABYTES)
+                    .sizeOfPolicy(new SizeOfPolicyConfiguration().maxDepth(REGION_SIZE_OF_MAX_DEPTH))
+                    .persistence(new PersistenceConfiguration().strategy(PersistenceConfiguration.Strategy.NONE))
+                    .eternal(timeToLiveSeconds == 0)
+                    .timeToLiveSeconds(timeToLiveSeconds)
+                    .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU));
+        }
+        return configurations;
+    }
+
+    private static IllegalArgumentException invalidRegion(String region, Exception cause) {
+        return new IllegalArgumentException(String.format("Invalid cache region '%s', expected <key family>=<maximum size in MB>:<time to live in seconds>", region), cause);
     }
 
 }
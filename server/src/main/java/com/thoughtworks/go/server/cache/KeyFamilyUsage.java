@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.cache;
+
+/**
+ * @understands how much of the cache a family of keys takes up and how useful it is
+ */
+public class KeyFamilyUsage {
+    private final String family;
+    private final String region;
+    private final int entries;
+    private final long estimatedBytes;
+    private final long hits;
+    private final long misses;
+
+    public KeyFamilyUsage(String family, String region, int entries, long estimatedBytes, long hits, long misses) {
+        this.family = family;
+        this.region = region;
+        this.entries = entries;
+        this.estimatedBytes = estimatedBytes;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    public String getFamily() {
+        return family;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -17,13 +17,17 @@
 package com.thoughtworks.go.server.cache;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.zip.Deflater;
 
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 import com.thoughtworks.go.server.web.ArtifactFolder;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.ZipUtil;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.io.FilenameUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -33,11 +37,46 @@ import static com.thoughtworks.go.util.StringUtil.removeTrailingSlash;
 @Component
 public class ZipArtifactCache extends ArtifactCache<ArtifactFolder> {
     private final ZipUtil zipUtil;
+    private final SystemEnvironment systemEnvironment;
 
-    @Autowired
     public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil) {
-        super(artifactsDirHolder);
+        this(artifactsDirHolder, zipUtil, new SystemEnvironment());
+    }
+
+    @Autowired
+    public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemEnvironment systemEnvironment) {
+        super(artifactsDirHolder, systemEnvironment.get(SystemEnvironment.GO_ARTIFACTS_ZIP_CACHE_CREATORS), systemEnvironment.get(SystemEnvironment.GO_ARTIFACTS_ZIP_CACHE_QUEUE_SIZE));
         this.zipUtil = zipUtil;
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    public boolean shouldStream(ArtifactFolder artifactFolder) {
+        return systemEnvironment.get(SystemEnvironment.GO_ARTIFACTS_ZIP_STREAMING) && !cachedFile(artifactFolder).exists();
+    }
+
+    /**
+     * Writes the zip of the folder straight to the output. Unless its cache is already being created, the same zip
+     * is written to the cache so that later downloads are served from it.
+     */
+    public void streamZip(ArtifactFolder artifactFolder, OutputStream output) throws IOException {
+        if (!pendingCacheFiles.add(artifactFolder)) {
+            zipUtil.zip(artifactFolder.getRootFolder(), output, Deflater.DEFAULT_COMPRESSION);
+            return;
+        }
+        File cachedZip = cachedFile(artifactFolder);
+        File cachedTempZip = zipToTempFile(cachedZip);
+        try {
+            cachedTempZip.getParentFile().mkdirs();
+            try (OutputStream cacheOutput = new FileOutputStream(cachedTempZip)) {
+                zipUtil.zip(artifactFolder.getRootFolder(), new TeeOutputStream(output, cacheOutput), Deflater.DEFAULT_COMPRESSION);
+            }
+            if (!cachedZip.exists()) {
+                FileUtils.moveFile(cachedTempZip, cachedZip);
+            }
+        } finally {
+            FileUtils.deleteQuietly(cachedTempZip);
+            pendingCacheFiles.remove(artifactFolder);
+        }
     }
 
     @Override void createCachedFile(ArtifactFolder artifactFolder) throws IOException {
@@ -16,12 +16,14 @@
 
 package com.thoughtworks.go.server.controller;
 
+import com.thoughtworks.go.domain.ArtifactMd5Checksums;
 import com.thoughtworks.go.domain.ConsoleConsumer;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
 import com.thoughtworks.go.server.security.HeaderConstraint;
+import com.thoughtworks.go.server.service.ArtifactBlobStore;
 import com.thoughtworks.go.server.service.ArtifactsService;
 import com.thoughtworks.go.server.service.ConsoleActivityMonitor;
 import com.thoughtworks.go.server.service.ConsoleService;
@@ -33,8 +35,10 @@ import com.thoughtworks.go.server.web.ArtifactFolderViewFactory;
 import com.thoughtworks.go.server.web.FileModelAndView;
 import com.thoughtworks.go.server.web.ResponseCodeView;
 import com.thoughtworks.go.util.ArtifactLogUtil;
+import com.thoughtworks.go.util.HttpService;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,16 +52,21 @@ import org.springframework.web.servlet.ModelAndView;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import static com.thoughtworks.go.server.web.ZipArtifactFolderViewFactory.zipViewFactory;
 import static com.thoughtworks.go.util.ArtifactLogUtil.isConsoleOutput;
 import static com.thoughtworks.go.util.GoConstants.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
 
 @Controller
@@ -71,14 +80,16 @@ public class ArtifactsController {
     private final ArtifactFolderViewFactory zipViewFactory;
     private final Charset consoleLogCharset;
     private ArtifactsService artifactsService;
+    private ArtifactBlobStore artifactBlobStore;
     private RestfulService restfulService;
     private ConsoleService consoleService;
     private HeaderConstraint headerConstraint;
 
     @Autowired
-    ArtifactsController(ArtifactsService artifactsService, RestfulService restfulService, ZipArtifactCache zipArtifactCache, JobInstanceDao jobInstanceDao,
+    ArtifactsController(ArtifactsService artifactsService, ArtifactBlobStore artifactBlobStore, RestfulService restfulService, ZipArtifactCache zipArtifactCache, JobInstanceDao jobInstanceDao,
                         ConsoleActivityMonitor consoleActivityMonitor, ConsoleService consoleService, SystemEnvironment systemEnvironment) {
         this.artifactsService = artifactsService;
+        this.artifactBlobStore = artifactBlobStore;
         this.restfulService = restfulService;
         this.jobInstanceDao = jobInstanceDao;
         this.consoleActivityMonitor = consoleActivityMonitor;
@@ -147,6 +158,61 @@ public class ArtifactsController {
                                      @RequestParam("filePath") String filePath,
                                      @RequestParam(value = "attempt", required = false) Integer attempt,
                                      MultipartHttpServletRequest request) throws Exception {
+        return uploadArtifact(pipelineName, pipelineCounter, stageName, stageCounter, buildName, buildId, filePath, attempt, request, (jobIdentifier, artifact, convertedAttempt) -> {
+            MultipartFile multipartFile = multipartFile(request);
+            if (multipartFile == null) {
+                return FileModelAndView.invalidUploadRequest();
+            }
+
+            boolean success = saveFile(convertedAttempt, artifact, multipartFile, shouldUnzipStream(multipartFile));
+
+            if (!success) {
+                return FileModelAndView.errorSavingFile(filePath);
+            }
+            artifactsService.recordArtifactsSize(jobIdentifier, uploadedSize(request));
+
+            success = updateChecksumFile(request, jobIdentifier, filePath);
+
+            if (!success) {
+                return FileModelAndView.errorSavingChecksumFile(filePath);
+            }
+
+            return FileModelAndView.fileCreated(filePath);
+        });
+    }
+
+    @RequestMapping(value = "/repository/restful/artifact/POST/*", method = RequestMethod.POST, consumes = STREAMED_ZIP_CONTENT_TYPE)
+    public ModelAndView postStreamedArtifact(@RequestParam("pipelineName") String pipelineName,
+                                             @RequestParam("pipelineCounter") String pipelineCounter,
+                                             @RequestParam("stageName") String stageName,
+                                             @RequestParam(value = "stageCounter", required = false) String stageCounter,
+                                             @RequestParam("buildName") String buildName,
+                                             @RequestParam(value = "buildId", required = false) Long buildId,
+                                             @RequestParam("filePath") String filePath,
+                                             @RequestParam(value = "attempt", required = false) Integer attempt,
+                                             HttpServletRequest request) throws Exception {
+        return uploadArtifact(pipelineName, pipelineCounter, stageName, stageCounter, buildName, buildId, filePath, attempt, request, (jobIdentifier, artifact, convertedAttempt) -> {
+            ByteArrayOutputStream checksums = new ByteArrayOutputStream();
+            boolean success = artifactsService.saveStreamedZip(artifact, request.getInputStream(), convertedAttempt,
+                    (entry, stream) -> IOUtils.copy(stream, checksums));
+
+            if (!success) {
+                return FileModelAndView.errorSavingFile(filePath);
+            }
+            artifactsService.recordArtifactsSize(jobIdentifier, uploadedSize(request));
+
+            if (checksums.size() == 0) {
+                LOGGER.warn("[Artifacts Upload] Checksum file not uploaded for artifact at path '{}'", filePath);
+            } else if (!appendChecksums(jobIdentifier, new ByteArrayInputStream(checksums.toByteArray()))) {
+                return FileModelAndView.errorSavingChecksumFile(filePath);
+            }
+
+            return FileModelAndView.fileCreated(filePath);
+        });
+    }
+
+    private ModelAndView uploadArtifact(String pipelineName, String pipelineCounter, String stageName, String stageCounter, String buildName, Long buildId,
+                                        String filePath, Integer attempt, HttpServletRequest request, ArtifactUpload upload) throws Exception {
         JobIdentifier jobIdentifier;
         if (!headerConstraint.isSatisfied(request)) {
             return ResponseCodeView.create(HttpServletResponse.SC_BAD_REQUEST, "Missing required header 'Confirm'");
@@ -167,44 +233,126 @@ public class ArtifactsController {
                 return FileModelAndView.fileAlreadyExists(filePath);
             }
 
-            MultipartFile multipartFile = multipartFile(request);
-            if (multipartFile == null) {
-                return FileModelAndView.invalidUploadRequest();
-            }
+            return upload.save(jobIdentifier, artifact, convertedAttempt);
+        } catch (IllegalArtifactLocationException e) {
+            return FileModelAndView.forbiddenUrl(filePath);
+        }
+    }
 
-            boolean success = saveFile(convertedAttempt, artifact, multipartFile, shouldUnzipStream(multipartFile));
+    private interface ArtifactUpload {
+        ModelAndView save(JobIdentifier jobIdentifier, File artifact, int attempt) throws IOException, IllegalArtifactLocationException;
+    }
 
-            if (!success) {
-                return FileModelAndView.errorSavingFile(filePath);
+    /*
+     * Deduplicated uploads happen in three steps against the upload url of the artifact: the agent asks which of its
+     * file hashes are missing, uploads the missing blobs, and then posts a manifest of its files which are linked
+     * from the blob store into the job's artifacts.
+     */
+    @RequestMapping(value = "/repository/restful/artifact/POST/*", method = RequestMethod.POST,
+            consumes = {ARTIFACT_HASHES_CONTENT_TYPE, ARTIFACT_BLOB_CONTENT_TYPE, ARTIFACT_MANIFEST_CONTENT_TYPE})
+    public ModelAndView postDeduplicatedArtifact(@RequestParam("pipelineName") String pipelineName,
+                                                 @RequestParam("pipelineCounter") String pipelineCounter,
+                                                 @RequestParam("stageName") String stageName,
+                                                 @RequestParam(value = "stageCounter", required = false) String stageCounter,
+                                                 @RequestParam("buildName") String buildName,
+                                                 @RequestParam(value = "buildId", required = false) Long buildId,
+                                                 @RequestParam("filePath") String filePath,
+                                                 HttpServletRequest request) throws Exception {
+        if (!artifactBlobStore.isEnabled()) {
+            return ResponseCodeView.create(HttpServletResponse.SC_NOT_IMPLEMENTED, "Content addressed artifact storage is not enabled");
+        }
+        if (!headerConstraint.isSatisfied(request)) {
+            return ResponseCodeView.create(HttpServletResponse.SC_BAD_REQUEST, "Missing required header 'Confirm'");
+        }
+        JobIdentifier jobIdentifier;
+        try {
+            jobIdentifier = restfulService.findJob(pipelineName, pipelineCounter, stageName, stageCounter, buildName, buildId);
+        } catch (Exception e) {
+            return buildNotFound(pipelineName, pipelineCounter, stageName, stageCounter, buildName);
+        }
+
+        String contentType = request.getContentType();
+        if (contentType.startsWith(ARTIFACT_HASHES_CONTENT_TYPE)) {
+            List<String> hashes = IOUtils.readLines(request.getInputStream(), UTF_8);
+            return ResponseCodeView.create(HttpServletResponse.SC_OK, String.join("\n", artifactBlobStore.missing(hashes)));
+        }
+        if (contentType.startsWith(ARTIFACT_BLOB_CONTENT_TYPE)) {
+            if (!artifactBlobStore.store(request.getHeader(ARTIFACT_BLOB_HASH_HEADER), request.getInputStream())) {
+                return ResponseCodeView.create(HttpServletResponse.SC_BAD_REQUEST, "Artifact content does not match its hash");
             }
+            return ResponseCodeView.create(HttpServletResponse.SC_CREATED, "");
+        }
+        return linkArtifacts(jobIdentifier, filePath, request.getInputStream());
+    }
 
-            success = updateChecksumFile(request, jobIdentifier, filePath);
+    private ModelAndView linkArtifacts(JobIdentifier jobIdentifier, String filePath, InputStream manifestStream) throws IOException {
+        Properties manifest = new Properties();
+        manifest.load(manifestStream);
+        for (String path : manifest.stringPropertyNames()) {
+            if (!isValidManifestEntry(manifest.getProperty(path))) {
+                return ResponseCodeView.create(HttpServletResponse.SC_BAD_REQUEST, "Invalid manifest entry for '" + path + "'");
+            }
+        }
+        Properties checksums = new Properties();
+        try {
+            for (String path : manifest.stringPropertyNames()) {
+                String[] hashes = manifest.getProperty(path).split(",");
+                artifactBlobStore.link(hashes[0], artifactsService.findArtifact(jobIdentifier, path));
+                checksums.setProperty(path, hashes[1]);
+                if (hashes.length > 2) {
+                    checksums.setProperty(ArtifactMd5Checksums.fastChecksumKey(path), hashes[2]);
+                }
+            }
 
-            if (!success) {
+            ByteArrayOutputStream checksumsStream = new ByteArrayOutputStream();
+            checksums.store(checksumsStream, "");
+            if (!appendChecksums(jobIdentifier, new ByteArrayInputStream(checksumsStream.toByteArray()))) {
                 return FileModelAndView.errorSavingChecksumFile(filePath);
             }
-
             return FileModelAndView.fileCreated(filePath);
-
         } catch (IllegalArtifactLocationException e) {
             return FileModelAndView.forbiddenUrl(filePath);
+        } catch (IOException e) {
+            LOGGER.warn("[Artifacts Upload] Failed to link artifacts at path '{}' from the blob store", filePath, e);
+            return FileModelAndView.errorSavingFile(filePath);
         }
     }
 
+    /*
+     * Each manifest entry is the blob hash and the md5 checksum of the artifact, optionally followed by its fast
+     * checksum.
+     */
+    private boolean isValidManifestEntry(String entry) {
+        String[] hashes = entry.split(",", -1);
+        return (hashes.length == 2 || hashes.length == 3) && ArtifactBlobStore.isValidHash(hashes[0]);
+    }
+
+    /*
+     * Agents send the size of the artifact on their disk, which is what purging it frees up again. Uploads from
+     * older agents do not have it and are left untracked.
+     */
+    private long uploadedSize(HttpServletRequest request) {
+        return NumberUtils.toLong(request.getHeader(HttpService.GO_ARTIFACT_PAYLOAD_SIZE), 0);
+    }
+
     private boolean updateChecksumFile(MultipartHttpServletRequest request, JobIdentifier jobIdentifier, String filePath) throws IOException, IllegalArtifactLocationException {
         MultipartFile checksumMultipartFile = getChecksumFile(request);
         if (checksumMultipartFile != null) {
-            String checksumFilePath = String.format("%s/%s/%s", artifactsService.findArtifactRoot(jobIdentifier), ArtifactLogUtil.CRUISE_OUTPUT_FOLDER, ArtifactLogUtil.MD5_CHECKSUM_FILENAME);
-            File checksumFile = artifactsService.getArtifactLocation(checksumFilePath);
-            synchronized (checksumFilePath.intern()) {
-                return artifactsService.saveOrAppendFile(checksumFile, checksumMultipartFile.getInputStream());
-            }
+            return appendChecksums(jobIdentifier, checksumMultipartFile.getInputStream());
         } else {
             LOGGER.warn("[Artifacts Upload] Checksum file not uploaded for artifact at path '{}'", filePath);
         }
         return true;
     }
 
+    private boolean appendChecksums(JobIdentifier jobIdentifier, InputStream checksums) throws IllegalArtifactLocationException {
+        String checksumFilePath = String.format("%s/%s/%s", artifactsService.findArtifactRoot(jobIdentifier), ArtifactLogUtil.CRUISE_OUTPUT_FOLDER, ArtifactLogUtil.MD5_CHECKSUM_FILENAME);
+        File checksumFile = artifactsService.getArtifactLocation(checksumFilePath);
+        synchronized (checksumFilePath.intern()) {
+            return artifactsService.saveOrAppendFile(checksumFile, checksums);
+        }
+    }
+
     private boolean saveFile(int convertedAttempt, File artifact, MultipartFile multipartFile, boolean shouldUnzip) throws IOException {
         InputStream inputStream = null;
         boolean success;
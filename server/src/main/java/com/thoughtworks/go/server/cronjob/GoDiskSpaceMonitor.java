@@ -35,6 +35,7 @@ public class GoDiskSpaceMonitor {
     private EmailSender emailSender;
     private SystemDiskSpaceChecker systemDiskSpaceChecker;
     private ArtifactsService artifactsService;
+    private ArtifactBlobStore artifactBlobStore;
     private StageService stageService;
     private ConfigDbStateRepository configDbStateRepository;
     private DiskSpaceChecker[] checkers;
@@ -48,19 +49,22 @@ public class GoDiskSpaceMonitor {
                               ServerHealthService serverHealthService,
                               EmailSender emailSender,
                               ArtifactsService artifactsService,
+                              ArtifactBlobStore artifactBlobStore,
                               StageService stageService,
                               ConfigDbStateRepository configDbStateRepository) {
-        this(goConfigService, systemEnvironment, serverHealthService, emailSender, new SystemDiskSpaceChecker(), artifactsService, stageService, configDbStateRepository);
+        this(goConfigService, systemEnvironment, serverHealthService, emailSender, new SystemDiskSpaceChecker(), artifactsService, artifactBlobStore, stageService, configDbStateRepository);
     }
 
     public GoDiskSpaceMonitor(GoConfigService goConfigService, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService, EmailSender emailSender,
-                              SystemDiskSpaceChecker systemDiskSpaceChecker, ArtifactsService artifactsService, StageService stageService, ConfigDbStateRepository configDbStateRepository) {
+                              SystemDiskSpaceChecker systemDiskSpaceChecker, ArtifactsService artifactsService, ArtifactBlobStore artifactBlobStore,
+                              StageService stageService, ConfigDbStateRepository configDbStateRepository) {
         this.goConfigService = goConfigService;
         this.systemEnvironment = systemEnvironment;
         this.serverHealthService = serverHealthService;
         this.emailSender = emailSender;
         this.systemDiskSpaceChecker = systemDiskSpaceChecker;
         this.artifactsService = artifactsService;
+        this.artifactBlobStore = artifactBlobStore;
         this.stageService = stageService;
         this.configDbStateRepository = configDbStateRepository;
     }
@@ -74,7 +78,7 @@ public class GoDiskSpaceMonitor {
                 new ArtifactsDiskSpaceWarningChecker(systemEnvironment, emailSender, goConfigService, systemDiskSpaceChecker, serverHealthService),
                 databaseDiskSpaceFullChecker,
                 new DatabaseDiskSpaceWarningChecker(emailSender, systemEnvironment, goConfigService, systemDiskSpaceChecker, serverHealthService),
-                new ArtifactsDiskCleaner(systemEnvironment, goConfigService, systemDiskSpaceChecker, artifactsService, stageService, configDbStateRepository)};
+                new ArtifactsDiskCleaner(systemEnvironment, goConfigService, systemDiskSpaceChecker, artifactsService, artifactBlobStore, stageService, configDbStateRepository)};
     }
 
     //Note: This method is called from a Spring timer task
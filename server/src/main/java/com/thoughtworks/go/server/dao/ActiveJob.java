@@ -18,6 +18,10 @@ package com.thoughtworks.go.server.dao;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
+/**
+ * @understands a job that is yet to complete. Instances are never changed once loaded, so the cache hands out the same
+ * instance to every caller instead of a copy
+ */
 public class ActiveJob {
     private long id;
     private String pipelineName;
@@ -26,7 +30,8 @@ public class ActiveJob {
     private Integer pipelineCounter;
     private String pipelineLabel;
 
-    public ActiveJob() {
+    // -- Only for IBatis
+    private ActiveJob() {
     }
 
     public ActiveJob(long id, String pipelineName, Integer pipelineCounter, String pipelineLabel, String stageName, String buildName) {
@@ -47,7 +52,7 @@ public class ActiveJob {
         return pipelineName;
     }
 
-    public void setPipelineName(String pipelineName) {
+    private void setPipelineName(String pipelineName) {
         this.pipelineName = pipelineName;
     }
 
@@ -55,7 +60,7 @@ public class ActiveJob {
         return buildName;
     }
 
-    public void setBuildName(String buildName) {
+    private void setBuildName(String buildName) {
         this.buildName = buildName;
     }
 
@@ -63,7 +68,7 @@ public class ActiveJob {
         return stageName;
     }
 
-    public void setStageName(String stageName) {
+    private void setStageName(String stageName) {
         this.stageName = stageName;
     }
 
@@ -71,7 +76,7 @@ public class ActiveJob {
         return pipelineLabel;
     }
 
-    public void setPipelineLabel(String pipelineLabel) {
+    private void setPipelineLabel(String pipelineLabel) {
         this.pipelineLabel = pipelineLabel;
     }
 
@@ -83,7 +88,7 @@ public class ActiveJob {
         return pipelineCounter;
     }
 
-    public void setPipelineCounter(Integer pipelineCounter) {
+    private void setPipelineCounter(Integer pipelineCounter) {
         this.pipelineCounter = pipelineCounter;
     }
 
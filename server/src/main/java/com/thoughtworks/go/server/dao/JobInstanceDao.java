@@ -29,12 +29,20 @@ public interface JobInstanceDao {
 
     List<JobPlan> orderedScheduledBuilds();
 
+    /**
+     * @return the same jobs as {@link #orderedScheduledBuilds()}, served from a queue that is updated as job state
+     * changes are committed and only reconciled against the database periodically
+     */
+    List<JobPlan> queuedScheduledBuilds();
+
     JobInstances latestCompletedJobs(String pipelineName, String stageName, String jobConfigName, int count);
 
 	int getJobHistoryCount(String pipelineName, String stageName, String jobName);
 
 	JobInstances findJobHistoryPage(String pipelineName, String stageName, String jobConfigName, int count, int offset);
 
+	JobInstances findJobHistoryPageBeforeId(String pipelineName, String stageName, String jobConfigName, Long beforeJobId, int count);
+
     JobInstance save(long stageId, JobInstance jobInstance);
 
     JobInstance updateAssignedInfo(JobInstance jobInstance);
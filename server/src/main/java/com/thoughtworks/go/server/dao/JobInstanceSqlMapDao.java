@@ -37,6 +37,7 @@ import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.server.ui.SortOrder;
 import com.thoughtworks.go.server.util.SqlUtil;
 import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.SystemTimeClock;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.config.CacheConfiguration;
@@ -53,6 +54,7 @@ import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -76,6 +78,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
     private ArtifactPlanRepository artifactPlanRepository;
     private final ClusterProfilesService clusterProfilesService;
     private ArtifactPropertiesGeneratorRepository artifactPropertiesGeneratorRepository;
+    private final ScheduledJobQueue scheduledJobQueue;
 
     @Autowired
     public JobInstanceSqlMapDao(EnvironmentVariableDao environmentVariableDao,
@@ -103,6 +106,8 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
         this.jobAgentMetadataDao = jobAgentMetadataDao;
         this.cacheKeyGenerator = new CacheKeyGenerator(getClass());
         this.latestCompletedCache = new LazyCache(createCacheIfRequired(getClass().getName()), transactionSynchronizationManager);
+        this.scheduledJobQueue = new ScheduledJobQueue(this::orderedScheduledBuilds, this::scheduledPlan, goCache, cacheKeyForScheduledJobQueue(), new SystemTimeClock(),
+                () -> systemEnvironment.get(SystemEnvironment.GO_SCHEDULED_JOB_QUEUE_RECONCILE_INTERVAL_MILLIS));
     }
 
     private static Ehcache createCacheIfRequired(String cacheName) {
@@ -183,7 +188,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
                 }
             }
         }
-        return activeJob;//TODO: clone it, caller may mutate
+        return activeJob;
     }
 
     private List<Long> getActiveJobIds() {
@@ -192,7 +197,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
 
         synchronized (idsCacheKey) {
             if (activeJobIds == null) {
-                activeJobIds = getSqlMapClientTemplate().queryForList("getActiveJobIds");
+                activeJobIds = Collections.unmodifiableList(getSqlMapClientTemplate().queryForList("getActiveJobIds"));
                 goCache.put(idsCacheKey, activeJobIds);
             }
         }
@@ -204,7 +209,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
     }
 
     private void cacheActiveJob(ActiveJob activeJob) {
-        goCache.put(cacheKeyForActiveJob(activeJob.getId()), cloner.deepClone(activeJob));//TODO: we should clone while serving the object out, and not while adding it to cache
+        goCache.put(cacheKeyForActiveJob(activeJob.getId()), activeJob);
     }
 
     public JobInstance mostRecentJobWithTransitions(JobIdentifier job) {
@@ -380,6 +385,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
                         goCache.remove(activeJobKey);
                     }
                     removeCachedJobInstance(jobInstance);
+                    scheduledJobQueue.jobStateChanged(jobInstance.getId(), jobInstance.getState());
                 }
             });
             logIfJobIsCompleted(jobInstance);
@@ -501,6 +507,26 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
         });
     }
 
+    public JobInstances findJobHistoryPageBeforeId(String pipelineName,
+                                                   String stageName,
+                                                   String jobConfigName,
+                                                   Long beforeJobId,
+                                                   int count) {
+        String cacheKey = cacheKeyGenerator.generate("findJobHistoryPageBeforeId", pipelineName.toLowerCase(), stageName.toLowerCase(), jobConfigName.toLowerCase(), beforeJobId, count);
+        return latestCompletedCache.get(cacheKey, () -> {
+            Map params = new HashMap();
+            params.put("pipelineName", pipelineName);
+            params.put("stageName", stageName);
+            params.put("jobConfigName", jobConfigName);
+            params.put("beforeJobId", beforeJobId);
+            params.put("count", count);
+
+            List<JobInstance> results = (List<JobInstance>) getSqlMapClientTemplate().queryForList("findJobHistoryPageBeforeId", params);
+
+            return new JobInstances(results);
+        });
+    }
+
     String cacheKeyForFindJobHistoryPage(String pipelineName,
                                          String stageName,
                                          String jobConfigName,
@@ -514,22 +540,38 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
 
         List<JobPlan> plans = new ArrayList<>();
         for (Long jobId : jobIds) {
-            String cacheKey = cacheKeyForJobPlan(jobId);
-            synchronized (cacheKey) {
-                JobPlan jobPlan = (JobPlan) goCache.get(cacheKey);
-                if (jobPlan == null) {
-                    jobPlan = _loadJobPlan(jobId);
-                }
-                if (jobPlan != null) {
-                    jobPlan = cloner.deepClone(jobPlan);
-                    goCache.put(cacheKey, jobPlan);
-                    plans.add(jobPlan);
-                }
+            JobPlan jobPlan = scheduledPlan(jobId);
+            if (jobPlan != null) {
+                plans.add(jobPlan);
             }
         }
         return plans;
     }
 
+    @Override
+    public List<JobPlan> queuedScheduledBuilds() {
+        return scheduledJobQueue.jobPlans();
+    }
+
+    public void addScheduledJobListener(ScheduledJobListener listener) {
+        scheduledJobQueue.addListener(listener);
+    }
+
+    private JobPlan scheduledPlan(Long jobId) {
+        String cacheKey = cacheKeyForJobPlan(jobId);
+        synchronized (cacheKey) {
+            JobPlan jobPlan = (JobPlan) goCache.get(cacheKey);
+            if (jobPlan == null) {
+                jobPlan = _loadJobPlan(jobId);
+            }
+            if (jobPlan != null) {
+                jobPlan = cloner.deepClone(jobPlan);
+                goCache.put(cacheKey, jobPlan);
+            }
+            return jobPlan;
+        }
+    }
+
     private JobPlan _loadJobPlan(Long jobId) {
         DefaultJobPlan jobPlan = (DefaultJobPlan) getSqlMapClientTemplate().queryForObject("scheduledPlan", arguments("id", jobId).asMap());
         if (jobPlan == null) {
@@ -547,6 +589,10 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
         return cacheKeyGenerator.generate("activeJob", jobId);
     }
 
+    String cacheKeyForScheduledJobQueue() {
+        return cacheKeyGenerator.generate("scheduledJobQueue");
+    }
+
     String cacheKeyForActiveJobIds() {
         return cacheKeyGenerator.generate("activeJobIds");
     }
@@ -37,6 +37,14 @@ public interface PipelineDao {
 
     PipelineInstanceModels loadHistory(String pipelineName, int resultsPerPage, int start);
 
+    /**
+     * Keyset pagination over the history of a pipeline, which unlike {@link #loadHistory(String, int, int)} does not
+     * get slower for older pages.
+     *
+     * @param beforeCounter only instances with a lower counter are loaded, or null to load the latest instances
+     */
+    PipelineInstanceModels loadHistoryBeforeCounter(String pipelineName, Integer beforeCounter, int resultsPerPage);
+
     int count(String pipelineName);
 
     Pipeline pipelineByIdWithMods(long pipelineId);
@@ -82,6 +90,8 @@ public interface PipelineDao {
 
     BuildCause findBuildCauseOfPipelineByNameAndCounter(String name, int counter);
 
+    void cacheBuildCausesOfPipelines(List<PipelineIdentifier> pipelines);
+
     StageIdentifier latestPassedStageIdentifier(long pipelineId, String stage);
 
     List<PipelineIdentifier> getPipelineInstancesTriggeredWithDependencyMaterial(String pipelineName, PipelineIdentifier revision);
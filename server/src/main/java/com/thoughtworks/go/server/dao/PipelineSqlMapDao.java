@@ -167,6 +167,7 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
 
                 pipelineByBuildIdCache.flushOnCommit();
                 getSqlMapClientTemplate().insert("insertPipeline", pipeline);
+                markAsLatestPipelineInstance(pipeline);
                 savePipelineMaterialRevisions(pipeline, pipeline.getId());
                 environmentVariableDao.save(pipeline.getId(), EnvironmentVariableType.Trigger, pipeline.scheduleTimeVariables());
                 return pipeline;
@@ -174,6 +175,12 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
         });
     }
 
+    private void markAsLatestPipelineInstance(Pipeline pipeline) {
+        Map<String, Object> latest = arguments("pipelineName", pipeline.getName()).and("pipelineId", pipeline.getId()).asMap();
+        if (getSqlMapClientTemplate().update("updateLatestPipelineInstance", latest) == 0) {
+            getSqlMapClientTemplate().insert("insertLatestPipelineInstance", latest);
+        }
+    }
 
     public Integer getCounterForPipeline(String name) {
         Integer counter = (Integer) getSqlMapClientTemplate().queryForObject("getCounterForPipeline", name);
@@ -241,6 +248,35 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
         return buildCause;
     }
 
+    public void cacheBuildCausesOfPipelines(List<PipelineIdentifier> pipelines) {
+        List<PipelineIdentifier> uncachedPipelines = new ArrayList<>();
+        for (PipelineIdentifier pipeline : pipelines) {
+            if (goCache.get(cacheKeyForBuildCauseByNameAndCounter(pipeline.getName(), pipeline.getCounter())) == null) {
+                uncachedPipelines.add(pipeline);
+            }
+        }
+        if (uncachedPipelines.isEmpty()) {
+            return;
+        }
+
+        List<Pipeline> loadedPipelines = (List<Pipeline>) getSqlMapClientTemplate().queryForList("findPipelinesByNamesAndCounters", arguments("pipelines", uncachedPipelines).asMap());
+        Set<Long> pipelineIds = new HashSet<>();
+        for (Pipeline pipeline : loadedPipelines) {
+            pipelineIds.add(pipeline.getId());
+        }
+        materialRepository.cacheMaterialRevisionsForPipelines(pipelineIds);
+
+        for (Pipeline pipeline : loadedPipelines) {
+            String cacheKey = cacheKeyForBuildCauseByNameAndCounter(pipeline.getName(), pipeline.getCounter());
+            synchronized (cacheKey) {
+                if (goCache.get(cacheKey) == null) {
+                    loadMaterialRevisions(pipeline);
+                    goCache.put(cacheKey, pipeline.getBuildCause());
+                }
+            }
+        }
+    }
+
     String cacheKeyForBuildCauseByNameAndCounter(String name, int counter) {
         return cacheKeyGenerator.generate("buildCauseByNameAndCounter", name.toLowerCase(), counter);
     }
@@ -668,6 +704,17 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
         return loadHistory(pipelineName, ids);
     }
 
+    public PipelineInstanceModels loadHistoryBeforeCounter(String pipelineName, Integer beforeCounter, int limit) {
+        Map<String, Object> toGet = arguments("pipelineName", pipelineName)
+                .and("beforeCounter", beforeCounter)
+                .and("limit", limit).asMap();
+        List<Long> ids = readFromReplica(() -> getSqlMapClientTemplate().queryForList("getPipelineRangeBeforeCounter", toGet));
+        if (ids.size() == 1) {
+            return PipelineInstanceModels.createPipelineInstanceModels(loadHistoryByIdWithBuildCause(ids.get(0)));
+        }
+        return loadHistory(pipelineName, ids);
+    }
+
     public int getPageNumberForCounter(String pipelineName, int pipelineCounter, int limit) {
         Integer maxCounter = getCounterForPipeline(pipelineName);
         Pagination pagination = Pagination.pageStartingAt((maxCounter - pipelineCounter), maxCounter, limit);
@@ -675,12 +722,15 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
     }
 
     public PipelineInstanceModels findMatchingPipelineInstances(String pipelineName, String pattern, int limit) {
+        List<Long> modificationIds = materialRepository.findModificationIdsPossiblyMatching(pattern);
         Map<String, Object> args = arguments("pipelineName", pipelineName).
                 and("pattern", "%" + pattern.toLowerCase() + "%").
                 and("rawPattern", pattern.toLowerCase()).
+                and("modificationIds", modificationIds).
                 and("limit", limit).asMap();
         long begin = System.currentTimeMillis();
-        List<PipelineInstanceModel> matchingPIMs = (List<PipelineInstanceModel>) getSqlMapClientTemplate().queryForList("findMatchingPipelineInstances", args);
+        String statement = modificationIds == null ? "findMatchingPipelineInstances" : "findMatchingPipelineInstancesAmongModifications";
+        List<PipelineInstanceModel> matchingPIMs = (List<PipelineInstanceModel>) getSqlMapClientTemplate().queryForList(statement, args);
         List<PipelineInstanceModel> exactMatchingPims = (List<PipelineInstanceModel>) getSqlMapClientTemplate().queryForList("findExactMatchingPipelineInstances", args);
         LOGGER.debug("[Compare Pipelines] Query initiated for pipeline {} with pattern {}. Query execution took {} milliseconds", pipelineName, pattern, System.currentTimeMillis() - begin);
         exactMatchingPims.addAll(matchingPIMs);
@@ -703,7 +753,7 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
             }
             return ids;
         } //dont bother caching if looking for more than the latest, because limit and offset may changed
-        return fetchPipelineIds(pipelineName, limit, offset);
+        return readFromReplica(() -> fetchPipelineIds(pipelineName, limit, offset));
     }
 
     private boolean wantLatestIdOnly(int limit, int offset) {
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.dao;
+
+import com.thoughtworks.go.domain.JobPlan;
+import com.thoughtworks.go.domain.JobState;
+import com.thoughtworks.go.server.cache.GoCache;
+import com.thoughtworks.go.util.Clock;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * @understands the jobs waiting for an agent, kept up to date from committed job state changes instead of querying for
+ * them every time they are needed
+ * <p>
+ * Jobs are kept in the order their scheduling was committed, which is the order of their scheduled dates for all but
+ * jobs scheduled in concurrent transactions. The queue is replaced with the ordered list from the database every
+ * reconcile interval, which also picks up anything that was changed without going through the commit hooks. It is
+ * reconciled early whenever its marker goes missing from the cache, so clearing the cache resets it too. Listeners are
+ * told about every job that joins or leaves the queue, including those found while reconciling.
+ */
+class ScheduledJobQueue {
+    private final Supplier<List<JobPlan>> orderedScheduledPlans;
+    private final Function<Long, JobPlan> scheduledPlan;
+    private final GoCache goCache;
+    private final String loadedCacheKey;
+    private final Clock clock;
+    private final LongSupplier reconcileIntervalMillis;
+
+    private final Queue<StateChange> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final Map<Long, JobPlan> plans = new LinkedHashMap<>();
+    private final List<ScheduledJobListener> listeners = new CopyOnWriteArrayList<>();
+    private long lastReconciledAt;
+
+    ScheduledJobQueue(Supplier<List<JobPlan>> orderedScheduledPlans, Function<Long, JobPlan> scheduledPlan, GoCache goCache, String loadedCacheKey,
+                      Clock clock, LongSupplier reconcileIntervalMillis) {
+        this.orderedScheduledPlans = orderedScheduledPlans;
+        this.scheduledPlan = scheduledPlan;
+        this.goCache = goCache;
+        this.loadedCacheKey = loadedCacheKey;
+        this.clock = clock;
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+    }
+
+    /**
+     * Called once the transaction changing the state of a job has committed
+     */
+    void jobStateChanged(long jobId, JobState state) {
+        pendingChanges.add(new StateChange(jobId, state == JobState.Scheduled));
+    }
+
+    void addListener(ScheduledJobListener listener) {
+        listeners.add(listener);
+    }
+
+    synchronized List<JobPlan> jobPlans() {
+        if (shouldReconcile()) {
+            reconcile();
+        } else {
+            applyPendingChanges();
+        }
+        return new ArrayList<>(plans.values());
+    }
+
+    private boolean shouldReconcile() {
+        long interval = reconcileIntervalMillis.getAsLong();
+        return interval <= 0 || goCache.get(loadedCacheKey) == null || clock.currentTimeMillis() - lastReconciledAt >= interval;
+    }
+
+    private void reconcile() {
+        // changes committed while reloading stay queued and are applied again on the next access, which is harmless
+        // because a job never returns to the scheduled state once it has left it
+        pendingChanges.clear();
+        lastReconciledAt = clock.currentTimeMillis();
+        Set<Long> unscheduledJobIds = new HashSet<>(plans.keySet());
+        plans.clear();
+        for (JobPlan plan : orderedScheduledPlans.get()) {
+            plans.put(plan.getJobId(), plan);
+            if (!unscheduledJobIds.remove(plan.getJobId())) {
+                listeners.forEach(listener -> listener.jobScheduled(plan));
+            }
+        }
+        for (Long jobId : unscheduledJobIds) {
+            listeners.forEach(listener -> listener.jobUnscheduled(jobId));
+        }
+        goCache.put(loadedCacheKey, Boolean.TRUE);
+    }
+
+    private void applyPendingChanges() {
+        StateChange change;
+        while ((change = pendingChanges.poll()) != null) {
+            long jobId = change.jobId;
+            if (!change.scheduled) {
+                if (plans.remove(jobId) != null) {
+                    listeners.forEach(listener -> listener.jobUnscheduled(jobId));
+                }
+            } else if (!plans.containsKey(jobId)) {
+                JobPlan plan = scheduledPlan.apply(jobId);
+                if (plan != null) {
+                    plans.put(jobId, plan);
+                    listeners.forEach(listener -> listener.jobScheduled(plan));
+                }
+            }
+        }
+    }
+
+    private static class StateChange {
+        private final long jobId;
+        private final boolean scheduled;
+
+        private StateChange(long jobId, boolean scheduled) {
+            this.jobId = jobId;
+            this.scheduled = scheduled;
+        }
+    }
+}
@@ -87,6 +87,8 @@ public interface StageDao extends JobDurationStrategy {
 
 	StageInstanceModels findDetailedStageHistoryByOffset(String pipelineName, String stageName, Pagination pagination);
 
+    StageInstanceModels findDetailedStageHistoryBeforeId(String pipelineName, String stageName, Long beforeStageId, int pageSize);
+
     Long findStageIdByPipelineAndStageNameAndCounter(long pipeline, String name, String counter);
 
     List<StageIdentifier> findFailedStagesBetween(String pipelineName, String stageName, double fromNaturalOrder, double toNaturalOrder);
@@ -99,6 +101,8 @@ public interface StageDao extends JobDurationStrategy {
 
     void markArtifactsDeletedFor(Stage stage);
 
+    void addArtifactsSizeForJob(long jobId, long artifactsSize);
+
     void clearCachedStage(StageIdentifier stageIdentifier);
 
     int getTotalStageCountForChart(String pipelineName, String stageName);
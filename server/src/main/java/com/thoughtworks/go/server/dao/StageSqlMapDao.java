@@ -108,12 +108,20 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
 
             getSqlMapClientTemplate().update("markPreviousStageRunsAsNotLatest", arguments("stageName", stage.getName()).and("pipelineId", pipeline.getId()).asMap());
             getSqlMapClientTemplate().insert("insertStage", stage);
+            markAsLatestStageInstance(pipeline.getName(), stage);
 
             stage.setIdentifier(new StageIdentifier(pipeline, stage));
             return stage;
         });
     }
 
+    private void markAsLatestStageInstance(String pipelineName, Stage stage) {
+        Map<String, Object> latest = arguments("pipelineName", pipelineName).and("stageName", stage.getName()).and("stageId", stage.getId()).asMap();
+        if (getSqlMapClientTemplate().update("updateLatestStageInstance", latest) == 0) {
+            getSqlMapClientTemplate().insert("insertLatestStageInstance", latest);
+        }
+    }
+
     private void clearStageHistoryPageCaches(Stage stage, String pipelineName, boolean clearOnlyHistoryPages) {
         String mutex = mutexForStageHistory(pipelineName, stage.getName());
         readWriteLock.acquireWriteLock(mutex);
@@ -366,7 +374,7 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
                         and("stageName", stageName).
                         and("offset", offset).
                         and("limit", pageSize).asMap();
-        return new Stages((List<Stage>) getSqlMapClientTemplate().queryForList("findStageHistoryForChartPerPipeline", args));
+        return new Stages(readFromReplica(() -> (List<Stage>) getSqlMapClientTemplate().queryForList("findStageHistoryForChartPerPipeline", args)));
     }
 
     public int getTotalStageCountForChart(String pipelineName, String stageName) {
@@ -430,6 +438,31 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
         }
     }
 
+    public StageInstanceModels findDetailedStageHistoryBeforeId(String pipelineName,
+                                                                String stageName,
+                                                                Long beforeStageId,
+                                                                int pageSize) {
+        String mutex = mutexForStageHistory(pipelineName, stageName);
+        readWriteLock.acquireReadLock(mutex);
+        try {
+            String subKey = String.format("before-%s-%s", beforeStageId, pageSize);
+            String key = cacheKeyForDetailedStageHistories(pipelineName, stageName);
+            StageInstanceModels stageInstanceModels = (StageInstanceModels) goCache.get(key, subKey);
+            if (stageInstanceModels == null) {
+                Map<String, Object> args = arguments("pipelineName", pipelineName).
+                        and("stageName", stageName).
+                        and("beforeStageId", beforeStageId).
+                        and("limit", pageSize).asMap();
+                stageInstanceModels = new StageInstanceModels();
+                stageInstanceModels.addAll((List<StageInstanceModel>) getSqlMapClientTemplate().queryForList("getDetailedStageHistoryBeforeId", args));
+                goCache.put(key, subKey, stageInstanceModels);
+            }
+            return cloner.deepClone(stageInstanceModels);
+        } finally {
+            readWriteLock.releaseReadLock(mutex);
+        }
+    }
+
     public StageHistoryPage findStageHistoryPage(final Stage stage, final int pageSize) {
         final StageIdentifier id = stage.getIdentifier();
         return findStageHistoryPage(id.getPipelineName(), id.getStageName(), () -> {
@@ -544,7 +577,7 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
         Map parameters = new HashMap();
         parameters.put("value", transitionId);
         parameters.put("pageLimit", pageSize);
-        return getSqlMapClientTemplate().queryForList(baseQuery + modifier.suffix(), parameters);
+        return readFromReplica(() -> getSqlMapClientTemplate().queryForList(baseQuery + modifier.suffix(), parameters));
     }
 
     public List<StageFeedEntry> findAllCompletedStages(FeedModifier modifier, long id, int pageSize) {
@@ -567,7 +600,7 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
         parameters.put("value", transitionId);
         parameters.put("pageLimit", pageSize);
         parameters.put("pipelineName", pipelineName);
-        return (List<StageFeedEntry>) getSqlMapClientTemplate().queryForList("allCompletedStagesForPipeline" + feedModifier.suffix(), parameters);
+        return readFromReplica(() -> (List<StageFeedEntry>) getSqlMapClientTemplate().queryForList("allCompletedStagesForPipeline" + feedModifier.suffix(), parameters));
     }
 
     public Stage mostRecentWithBuilds(String pipelineName, StageConfig stageConfig) {
@@ -699,6 +732,14 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
         getSqlMapClientTemplate().update("markStageArtifactDeleted", arguments("stageId", stage.getId()).asMap());
     }
 
+    /*
+     * The size is only read when choosing stages to purge, which always queries the database, so cached stages are
+     * left as they are.
+     */
+    public void addArtifactsSizeForJob(long jobId, long artifactsSize) {
+        getSqlMapClientTemplate().update("addArtifactsSizeForJob", arguments("jobId", jobId).and("artifactsSize", artifactsSize).asMap());
+    }
+
     String cacheKeyForPipelineAndCounter(String pipelineName, int counter) {
         return cacheKeyGenerator.generate("allStagesOfPipelineInstance", pipelineName, counter);
     }
@@ -54,6 +54,7 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
     private final GoDashboardPipelineLockStatusChangeHandler lockStatusChangeHandler;
     private final GoDashboardTemplateConfigChangeHandler templateConfigChangeHandler;
 
+    private static final String ALL_PIPELINES = "all pipelines";
     private final MultiplexingQueueProcessor processor;
 
     @Autowired
@@ -108,6 +109,16 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
             public String description() {
                 return "config change";
             }
+
+            @Override
+            public Object coalescingKey() {
+                return ALL_PIPELINES;
+            }
+
+            @Override
+            public boolean supersedesQueuedActions() {
+                return true;
+            }
         });
     }
 
@@ -125,6 +136,11 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
                     public String description() {
                         return "pipeline config: " + pipelineConfig;
                     }
+
+                    @Override
+                    public Object coalescingKey() {
+                        return pipelineKey(pipelineConfig.name().toString());
+                    }
                 });
             }
         };
@@ -144,6 +160,11 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
                     public String description() {
                         return "template config: " + templateConfig;
                     }
+
+                    @Override
+                    public Object coalescingKey() {
+                        return "template:" + templateConfig.name().toLower();
+                    }
                 });
             }
         };
@@ -160,6 +181,11 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
             public String description() {
                 return "stage: " + stage;
             }
+
+            @Override
+            public Object coalescingKey() {
+                return pipelineKey(stage.getIdentifier().getPipelineName());
+            }
         });
     }
 
@@ -177,11 +203,29 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
                     public String description() {
                         return "security_config changed";
                     }
+
+                    @Override
+                    public Object coalescingKey() {
+                        return ALL_PIPELINES;
+                    }
+
+                    @Override
+                    public boolean supersedesQueuedActions() {
+                        return true;
+                    }
                 });
             }
         };
     }
 
+    public MultiplexingQueueProcessor processor() {
+        return processor;
+    }
+
+    private static String pipelineKey(String pipelineName) {
+        return "pipeline:" + pipelineName.toLowerCase();
+    }
+
     @Override
     public void pauseStatusChanged(final PipelinePauseChangeListener.Event event) {
         processor.add(new Action() {
@@ -194,6 +238,11 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
             public String description() {
                 return "pause event: " + event;
             }
+
+            @Override
+            public Object coalescingKey() {
+                return pipelineKey(event.pipelineName());
+            }
         });
     }
 
@@ -209,6 +258,11 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
             public String description() {
                 return "lock event: " + event;
             }
+
+            @Override
+            public Object coalescingKey() {
+                return pipelineKey(event.pipelineName());
+            }
         });
     }
 }
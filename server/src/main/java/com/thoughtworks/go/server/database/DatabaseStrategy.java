@@ -54,6 +54,11 @@ public class DatabaseStrategy implements Database {
         return database.createDataSource();
     }
 
+    @Override
+    public DataSource createReadReplicaDataSource() {
+        return database.createReadReplicaDataSource();
+    }
+
     @Override
     public void upgrade() throws SQLException {
         database.upgrade();
@@ -57,4 +57,8 @@ public class H2Configuration  {
         return systemEnvironment.get(SystemEnvironment.GO_DATABASE_MAX_IDLE);
     }
 
+    public String getReadReplicaUrl() {
+        return systemEnvironment.get(SystemEnvironment.GO_DATABASE_READ_REPLICA_URL);
+    }
+
 }
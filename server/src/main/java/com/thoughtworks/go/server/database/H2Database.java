@@ -47,6 +47,7 @@ public class H2Database implements Database {
     private final H2Configuration configuration;
     private final SystemEnvironment systemEnvironment;
     private BasicDataSource dataSource;
+    private BasicDataSource readReplicaDataSource;
     private Server tcpServer;
 
     public H2Database(SystemEnvironment systemEnvironment) {
@@ -134,6 +135,22 @@ public class H2Database implements Database {
         return createDataSource(Boolean.TRUE);
     }
 
+    @Override
+    public BasicDataSource createReadReplicaDataSource() {
+        String url = configuration.getReadReplicaUrl();
+        if (StringUtils.isNullOrEmpty(url)) {
+            return null;
+        }
+        if (this.readReplicaDataSource == null) {
+            BasicDataSource source = new BasicDataSource();
+            configureDataSource(source, url);
+            source.setDefaultReadOnly(true);
+            LOG.info("Creating read replica data source with url={}", url);
+            this.readReplicaDataSource = source;
+        }
+        return readReplicaDataSource;
+    }
+
     private String dburl(Boolean mvccEnabled) {
         return "jdbc:h2:" + systemEnvironment.getDbPath() + "/" + configuration.getName()
                 + ";DB_CLOSE_DELAY=-1"
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.database;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * @understands which reads on the current thread may be served by the read replica
+ * <p>
+ * Only wrap reads whose results are shown as they are and are fine being slightly behind, such as history pages and
+ * feeds. Results that end up in a cache must not come from the replica, since the commit that invalidates them may
+ * not have reached the replica yet. Reads inside a transaction always stay on the primary so that they see the
+ * transaction's own changes.
+ */
+public final class ReadReplicaRouting {
+    private static final ThreadLocal<Boolean> READ_FROM_REPLICA = ThreadLocal.withInitial(() -> false);
+
+    private ReadReplicaRouting() {
+    }
+
+    public static <T> T readFromReplica(Supplier<T> query) {
+        if (READ_FROM_REPLICA.get() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return query.get();
+        }
+        READ_FROM_REPLICA.set(true);
+        try {
+            return query.get();
+        } finally {
+            READ_FROM_REPLICA.set(false);
+        }
+    }
+
+    static boolean shouldReadFromReplica() {
+        return READ_FROM_REPLICA.get() && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+}
@@ -31,6 +31,7 @@ import com.thoughtworks.go.server.materials.DependencyMaterialUpdateNotifier;
 import com.thoughtworks.go.server.materials.MaterialUpdateService;
 import com.thoughtworks.go.server.materials.SCMMaterialSource;
 import com.thoughtworks.go.server.newsecurity.filters.InvalidateAuthenticationOnSecurityConfigChangeFilter;
+import com.thoughtworks.go.server.persistence.MaterialRepository;
 import com.thoughtworks.go.server.service.*;
 import com.thoughtworks.go.server.service.datasharing.DataSharingSettingsService;
 import com.thoughtworks.go.server.service.datasharing.DataSharingUsageStatisticsReportingService;
@@ -87,6 +88,8 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
     @Autowired private DataSharingSettingsService dataSharingSettingsService;
     @Autowired private DataSharingUsageStatisticsReportingService dataSharingUsageStatisticsReportingService;
     @Autowired private BackupService backupService;
+    @Autowired private SecretParamResolver secretParamResolver;
+    @Autowired private MaterialRepository materialRepository;
     @Value("${cruise.daemons.enabled}")
     private boolean daemonsEnabled;
 
@@ -131,6 +134,7 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
 
             pipelineTimeline.updateTimelineOnInit();
             pipelineSqlMapDao.initialize();
+            materialRepository.initialize();
             commandRepositoryInitializer.initialize();
             consoleActivityMonitor.populateActivityMap();
             timerScheduler.initialize();
@@ -150,6 +154,7 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
             dataSharingSettingsService.initialize();
             dataSharingUsageStatisticsReportingService.initialize();
             backupService.initialize();
+            secretParamResolver.initialize();
         } catch (Throwable throwable) {
             throw new RuntimeException(throwable);
         }
@@ -163,6 +168,7 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
         try {
             dashboardActivityListener.startDaemon();
             ccTrayActivityListener.startDaemon();
+            materialRepository.startDaemon();
         } catch (Throwable throwable) {
             throw new RuntimeException(throwable);
         }
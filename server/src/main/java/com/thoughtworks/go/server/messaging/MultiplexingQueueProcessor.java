@@ -19,8 +19,11 @@ package com.thoughtworks.go.server.messaging;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import static java.text.MessageFormat.format;
 
@@ -29,21 +32,75 @@ import static java.text.MessageFormat.format;
  *
  * Since actions can be added from different threads, line up all of them on to one thread,
  * for processing, and to make sure that the upstream processes are not blocked.
+ *
+ * An action with a coalescing key replaces a queued action with the same key, keeping its place in the queue, and
+ * an action which supersedes queued actions drops every keyed action queued before it.
  */
 public class MultiplexingQueueProcessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexingQueueProcessor.class);
     private Thread processorThread;
-    protected final BlockingQueue<Action> queue;
+    private final LinkedHashMap<Object, Pending> queue = new LinkedHashMap<>();
     private String queueName;
 
+    private final LongAdder added = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder totalLagMillis = new LongAdder();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
     public MultiplexingQueueProcessor(String processorNameForLogging) {
         this.queueName = processorNameForLogging;
-        queue = new LinkedBlockingQueue<>();
     }
 
     public void add(Action action) {
         LOGGER.debug("Adding action into {} queue for {}", queueName, action.description());
-        queue.add(action);
+        added.increment();
+        synchronized (queue) {
+            if (action.supersedesQueuedActions()) {
+                int queued = queue.size();
+                queue.values().removeIf(pending -> pending.action.coalescingKey() != null);
+                superseded.add(queued - queue.size());
+            }
+
+            Object key = action.coalescingKey() == null ? new Object() : action.coalescingKey();
+            Pending pending = queue.get(key);
+            if (pending == null) {
+                queue.put(key, new Pending(action));
+            } else {
+                LOGGER.debug("Coalescing action in {} queue for {} with queued action for {}", queueName, action.description(), pending.action.description());
+                pending.action = action;
+                coalesced.increment();
+            }
+            queue.notifyAll();
+        }
+    }
+
+    public int pendingCount() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        long processedCount = processed.sum();
+        long oldestPendingMillis;
+        int pendingCount;
+        synchronized (queue) {
+            pendingCount = queue.size();
+            oldestPendingMillis = queue.isEmpty() ? 0 : System.currentTimeMillis() - queue.values().iterator().next().addedAt;
+        }
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Added", added.sum());
+        json.put("Coalesced", coalesced.sum());
+        json.put("Superseded", superseded.sum());
+        json.put("Pending", pendingCount);
+        json.put("Processed", processedCount);
+        json.put("Oldest pending in milliseconds", oldestPendingMillis);
+        json.put("Average lag in milliseconds", processedCount == 0 ? 0 : totalLagMillis.sum() / processedCount);
+        json.put("Maximum lag in milliseconds", maxLagMillis.get());
+        return json;
     }
 
     public void start() {
@@ -54,14 +111,18 @@ public class MultiplexingQueueProcessor {
         processorThread = new Thread(() -> {
             while (!Thread.currentThread().isInterrupted()) {
                 try {
-                    Action action = queue.take();
+                    Pending pending = take();
+                    Action action = pending.action;
                     LOGGER.debug("Acting on item in {} queue for {}", queueName, action.description());
 
                     long startTime = System.currentTimeMillis();
+                    recordLag(startTime - pending.addedAt);
                     action.call();
                     long endTime = System.currentTimeMillis();
 
                     LOGGER.debug("Finished acting on item in {} queue for {}. Time taken: {} ms", queueName, action.description(), (endTime - startTime));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 } catch (Exception e) {
                     LOGGER.warn(format("Failed to handle action in {0} queue", queueName), e);
                 }
@@ -72,9 +133,51 @@ public class MultiplexingQueueProcessor {
         processorThread.start();
     }
 
+    private Pending take() throws InterruptedException {
+        synchronized (queue) {
+            while (queue.isEmpty()) {
+                queue.wait();
+            }
+            Iterator<Pending> iterator = queue.values().iterator();
+            Pending next = iterator.next();
+            iterator.remove();
+            return next;
+        }
+    }
+
+    private void recordLag(long lagMillis) {
+        processed.increment();
+        totalLagMillis.add(lagMillis);
+        maxLagMillis.accumulateAndGet(lagMillis, Math::max);
+    }
+
     public interface Action {
         void call();
 
         String description();
+
+        /**
+         * @return what this action refreshes, so that a queued action for the same thing can be replaced by this one,
+         * or null if this action should never be coalesced
+         */
+        default Object coalescingKey() {
+            return null;
+        }
+
+        /**
+         * @return true if this action refreshes everything that the keyed actions queued before it would
+         */
+        default boolean supersedesQueuedActions() {
+            return false;
+        }
+    }
+
+    private static class Pending {
+        private final long addedAt = System.currentTimeMillis();
+        private Action action;
+
+        private Pending(Action action) {
+            this.action = action;
+        }
     }
 }
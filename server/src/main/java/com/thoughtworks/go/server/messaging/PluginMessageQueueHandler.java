@@ -32,13 +32,23 @@ public abstract class PluginMessageQueueHandler<T extends PluginAwareMessage> im
     protected final MessagingService messaging;
     protected final GoPluginExtension extension;
     protected final Map<String, PluginAwareMessageQueue> queues = new ConcurrentHashMap<>();
+    protected final PluginMessageQueueMetrics metrics;
     private QueueFactory queueFactory;
 
     public PluginMessageQueueHandler(GoPluginExtension extension, MessagingService messaging, PluginManager pluginManager, QueueFactory queueFactory) {
+        this(extension, messaging, pluginManager, queueFactory, new PluginMessageQueueMetrics());
+    }
+
+    public PluginMessageQueueHandler(GoPluginExtension extension, MessagingService messaging, PluginManager pluginManager, QueueFactory queueFactory, PluginMessageQueueMetrics metrics) {
         this.extension = extension;
         this.messaging = messaging;
         pluginManager.addPluginChangeListener(this);
         this.queueFactory = queueFactory;
+        this.metrics = metrics;
+    }
+
+    public PluginMessageQueueMetrics metrics() {
+        return metrics;
     }
 
     @Override
@@ -60,6 +70,7 @@ public abstract class PluginMessageQueueHandler<T extends PluginAwareMessage> im
                 bomb(e);
             } finally {
                 this.queues.remove(pluginDescriptor.id());
+                metrics.remove(pluginDescriptor.id());
             }
         }
     }
@@ -71,6 +82,7 @@ public abstract class PluginMessageQueueHandler<T extends PluginAwareMessage> im
                 PluginAwareMessageQueue queue = queues.get(pluginId);
                 LOGGER.debug("Posting message {} to queue {}", message, queue.queueName);
                 queue.post(message, timeToLive);
+                metrics.posted(pluginId);
                 LOGGER.debug("Message {} posted to queue {}", message, queue.queueName);
             } else {
                 LOGGER.error("Could not find a queue for {}", pluginId);
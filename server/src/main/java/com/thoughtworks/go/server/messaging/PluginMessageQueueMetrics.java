@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @understands how many messages were posted, coalesced, dropped and delivered on the queue of each plugin
+ * and how long messages waited on it
+ */
+public class PluginMessageQueueMetrics {
+    private final ConcurrentMap<String, Stats> statsByPlugin = new ConcurrentHashMap<>();
+
+    public void posted(String pluginId) {
+        stats(pluginId).posted.increment();
+    }
+
+    public void coalesced(String pluginId) {
+        stats(pluginId).coalesced.increment();
+    }
+
+    public void dropped(String pluginId) {
+        stats(pluginId).dropped.increment();
+    }
+
+    public void pending(String pluginId, int pending) {
+        stats(pluginId).pending.set(pending);
+    }
+
+    public void delivered(String pluginId, long lagMillis) {
+        Stats stats = stats(pluginId);
+        stats.delivered.increment();
+        stats.totalLagMillis.add(lagMillis);
+        stats.maxLagMillis.accumulateAndGet(lagMillis, Math::max);
+    }
+
+    public void remove(String pluginId) {
+        statsByPlugin.remove(pluginId);
+    }
+
+    public Map<String, Map<String, Object>> asJson() {
+        Map<String, Map<String, Object>> json = new TreeMap<>();
+        statsByPlugin.forEach((pluginId, stats) -> json.put(pluginId, stats.asJson()));
+        return json;
+    }
+
+    private Stats stats(String pluginId) {
+        return statsByPlugin.computeIfAbsent(pluginId, id -> new Stats());
+    }
+
+    private static class Stats {
+        private final LongAdder posted = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder delivered = new LongAdder();
+        private final AtomicLong pending = new AtomicLong();
+        private final LongAdder totalLagMillis = new LongAdder();
+        private final AtomicLong maxLagMillis = new AtomicLong();
+
+        Map<String, Object> asJson() {
+            long deliveredCount = delivered.sum();
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("Posted", posted.sum());
+            json.put("Coalesced", coalesced.sum());
+            json.put("Dropped", dropped.sum());
+            json.put("Pending", pending.get());
+            json.put("Delivered", deliveredCount);
+            json.put("Average lag in milliseconds", deliveredCount == 0 ? 0 : totalLagMillis.sum() / deliveredCount);
+            json.put("Maximum lag in milliseconds", maxLagMillis.get());
+            return json;
+        }
+    }
+}
@@ -46,8 +46,8 @@ public class JMSMessageListenerAdapter implements Runnable {
     private ServerHealthService serverHealthService;
     public Thread thread;
 
-    private JMSMessageListenerAdapter(MessageConsumer consumer, GoMessageListener listener, DaemonThreadStatsCollector daemonThreadStatsCollector,
-                                      SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
+    protected JMSMessageListenerAdapter(MessageConsumer consumer, GoMessageListener listener, DaemonThreadStatsCollector daemonThreadStatsCollector,
+                                        SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
         this.consumer = consumer;
         this.listener = listener;
         this.daemonThreadStatsCollector = daemonThreadStatsCollector;
@@ -58,6 +58,9 @@ public class JMSMessageListenerAdapter implements Runnable {
         String threadNameSuffix = "MessageListener for " + listener.getClass().getSimpleName();
         thread.setName(thread.getId() + "@" + threadNameSuffix);
         thread.setDaemon(true);
+    }
+
+    protected void start() {
         thread.start();
     }
 
@@ -75,15 +78,14 @@ public class JMSMessageListenerAdapter implements Runnable {
 
     protected boolean runImpl() {
         try {
-            Message message = consumer.receive();
+            GoMessage message = receive();
             if (message == null) {
                 LOG.debug("Message consumer was closed.");
                 return true;
             }
 
-            ObjectMessage omessage = (ObjectMessage) message;
             daemonThreadStatsCollector.captureStats(thread.getId());
-            listener.onMessage((GoMessage) omessage.getObject());
+            listener.onMessage(message);
         } catch (JMSException e) {
             slowDownAndWarnAboutPossibleProblems(e);
         } catch (Exception e) {
@@ -94,6 +96,14 @@ public class JMSMessageListenerAdapter implements Runnable {
         return false;
     }
 
+    /**
+     * @return the next message, waiting for one if necessary, or null once the consumer has been closed
+     */
+    protected GoMessage receive() throws JMSException {
+        Message message = consumer.receive();
+        return message == null ? null : (GoMessage) ((ObjectMessage) message).getObject();
+    }
+
     private void slowDownAndWarnAboutPossibleProblems(JMSException e) {
         LOG.warn("Error receiving message. Message receiving will continue despite this error. Backing off for a few seconds. This error is unexpected and should be reported to https://github.com/gocd/gocd/issues", e);
 
@@ -110,7 +120,9 @@ public class JMSMessageListenerAdapter implements Runnable {
 
     public static JMSMessageListenerAdapter startListening(MessageConsumer consumer, GoMessageListener listener, DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService)
             throws JMSException {
-        return new JMSMessageListenerAdapter(consumer, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+        JMSMessageListenerAdapter adapter = new JMSMessageListenerAdapter(consumer, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+        adapter.start();
+        return adapter;
     }
 
 }
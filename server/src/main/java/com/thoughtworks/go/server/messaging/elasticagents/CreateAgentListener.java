@@ -18,17 +18,21 @@ package com.thoughtworks.go.server.messaging.elasticagents;
 
 import com.thoughtworks.go.plugin.access.elastic.ElasticAgentPluginRegistry;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.PluginMessageQueueMetrics;
 
 public class CreateAgentListener implements GoMessageListener<CreateAgentMessage> {
 
     private final ElasticAgentPluginRegistry elasticAgentPluginRegistry;
+    private final PluginMessageQueueMetrics metrics;
 
-    public CreateAgentListener(ElasticAgentPluginRegistry elasticAgentPluginRegistry) {
+    public CreateAgentListener(ElasticAgentPluginRegistry elasticAgentPluginRegistry, PluginMessageQueueMetrics metrics) {
         this.elasticAgentPluginRegistry = elasticAgentPluginRegistry;
+        this.metrics = metrics;
     }
 
     @Override
     public void onMessage(CreateAgentMessage message) {
+        metrics.delivered(message.pluginId(), Math.max(0, System.currentTimeMillis() - message.createdAt()));
         elasticAgentPluginRegistry.createAgent(message.pluginId(), message.autoregisterKey(), message.environment(), message.configuration(), message.getClusterProfileConfiguration(), message.jobIdentifier());
     }
 }
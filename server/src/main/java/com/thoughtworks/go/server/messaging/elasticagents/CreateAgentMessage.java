@@ -31,6 +31,7 @@ public class CreateAgentMessage implements PluginAwareMessage {
     private Map<String, String> clusterProfile;
     private final JobIdentifier jobIdentifier;
     private final String pluginId;
+    private final long createdAt;
 
     public CreateAgentMessage(String autoregisterKey, String environment, ElasticProfile elasticProfile, ClusterProfile clusterProfile, JobIdentifier jobIdentifier) {
         this.autoregisterKey = autoregisterKey;
@@ -39,6 +40,7 @@ public class CreateAgentMessage implements PluginAwareMessage {
         this.configuration = elasticProfile.getConfigurationAsMap(true);
         this.clusterProfile = clusterProfile != null ? clusterProfile.getConfigurationAsMap(true) : Collections.emptyMap();
         this.jobIdentifier = jobIdentifier;
+        this.createdAt = System.currentTimeMillis();
     }
 
     public String autoregisterKey() {
@@ -73,6 +75,10 @@ public class CreateAgentMessage implements PluginAwareMessage {
         return jobIdentifier;
     }
 
+    public long createdAt() {
+        return createdAt;
+    }
+
     public Map<String, String> getClusterProfileConfiguration() {
         return clusterProfile;
     }
@@ -31,16 +31,20 @@ public class CreateAgentQueueHandler extends PluginMessageQueueHandler<CreateAge
 
     @Autowired
     public CreateAgentQueueHandler(final MessagingService messaging, final ElasticAgentPluginRegistry elasticAgentPluginRegistry, ElasticAgentExtension elasticAgentExtension, PluginManager pluginManager, final SystemEnvironment systemEnvironment) {
+        this(messaging, elasticAgentPluginRegistry, elasticAgentExtension, pluginManager, systemEnvironment, new PluginMessageQueueMetrics());
+    }
+
+    private CreateAgentQueueHandler(final MessagingService messaging, final ElasticAgentPluginRegistry elasticAgentPluginRegistry, ElasticAgentExtension elasticAgentExtension, PluginManager pluginManager, final SystemEnvironment systemEnvironment, PluginMessageQueueMetrics metrics) {
         super(elasticAgentExtension, messaging, pluginManager, new QueueFactory() {
             @Override
             public PluginAwareMessageQueue create(GoPluginDescriptor pluginDescriptor) {
-                return new PluginAwareMessageQueue(messaging, pluginDescriptor.id(), QUEUE_NAME_PREFIX + pluginDescriptor.id(), systemEnvironment.get(SystemEnvironment.GO_ELASTIC_PLUGIN_CREATE_AGENT_THREADS), listener());
+                return new PluginAwareMessageQueue(messaging, pluginDescriptor.id(), QUEUE_NAME_PREFIX + pluginDescriptor.id(), systemEnvironment.getCreateAgentThreadsForPlugin(pluginDescriptor.id()), listener());
             }
 
             public ListenerFactory listener() {
-                return () -> new CreateAgentListener(elasticAgentPluginRegistry);
+                return () -> new CreateAgentListener(elasticAgentPluginRegistry, metrics);
             }
-        });
+        }, metrics);
     }
 
 }
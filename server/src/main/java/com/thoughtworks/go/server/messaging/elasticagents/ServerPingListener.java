@@ -18,17 +18,21 @@ package com.thoughtworks.go.server.messaging.elasticagents;
 
 import com.thoughtworks.go.plugin.access.elastic.ElasticAgentPluginRegistry;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.PluginMessageQueueMetrics;
 
 public class ServerPingListener implements GoMessageListener<ServerPingMessage> {
 
     private final ElasticAgentPluginRegistry elasticAgentPluginRegistry;
+    private final PluginMessageQueueMetrics metrics;
 
-    public ServerPingListener(ElasticAgentPluginRegistry elasticAgentPluginRegistry) {
+    public ServerPingListener(ElasticAgentPluginRegistry elasticAgentPluginRegistry, PluginMessageQueueMetrics metrics) {
         this.elasticAgentPluginRegistry = elasticAgentPluginRegistry;
+        this.metrics = metrics;
     }
 
     @Override
     public void onMessage(final ServerPingMessage message) {
+        metrics.delivered(message.pluginId(), Math.max(0, System.currentTimeMillis() - message.createdAt()));
         elasticAgentPluginRegistry.serverPing(message.pluginId(), message.getClusterProfilesAsConfigList());
     }
 
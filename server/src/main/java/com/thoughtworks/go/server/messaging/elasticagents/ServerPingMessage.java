@@ -27,16 +27,22 @@ import java.util.stream.Collectors;
 public class ServerPingMessage implements PluginAwareMessage {
     private final String pluginId;
     private ClusterProfiles clusterProfiles;
+    private final long createdAt;
 
     public ServerPingMessage(String pluginId, ClusterProfiles clusterProfiles) {
         this.pluginId = pluginId;
         this.clusterProfiles = clusterProfiles;
+        this.createdAt = System.currentTimeMillis();
     }
 
     public String pluginId() {
         return pluginId;
     }
 
+    public long createdAt() {
+        return createdAt;
+    }
+
     public List<Map<String, String>> getClusterProfilesAsConfigList() {
         return clusterProfiles.stream().map(profile -> profile.getConfigurationAsMap(true)).collect(Collectors.toList());
     }
@@ -31,15 +31,19 @@ public class ServerPingQueueHandler extends PluginMessageQueueHandler<ServerPing
 
     @Autowired
     public ServerPingQueueHandler(final MessagingService messaging, final ElasticAgentPluginRegistry elasticAgentPluginRegistry, ElasticAgentExtension elasticAgentExtension, PluginManager pluginManager, final SystemEnvironment systemEnvironment) {
+        this(messaging, elasticAgentPluginRegistry, elasticAgentExtension, pluginManager, systemEnvironment, new PluginMessageQueueMetrics());
+    }
+
+    private ServerPingQueueHandler(final MessagingService messaging, final ElasticAgentPluginRegistry elasticAgentPluginRegistry, ElasticAgentExtension elasticAgentExtension, PluginManager pluginManager, final SystemEnvironment systemEnvironment, PluginMessageQueueMetrics metrics) {
         super(elasticAgentExtension, messaging, pluginManager, new QueueFactory() {
             @Override
             public PluginAwareMessageQueue create(GoPluginDescriptor pluginDescriptor) {
-                return new PluginAwareMessageQueue(messaging, pluginDescriptor.id(), QUEUE_NAME_PREFIX + pluginDescriptor.id(), systemEnvironment.get(SystemEnvironment.GO_ELASTIC_PLUGIN_SERVER_PING_THREADS), listener());
+                return new PluginAwareMessageQueue(messaging, pluginDescriptor.id(), QUEUE_NAME_PREFIX + pluginDescriptor.id(), systemEnvironment.getServerPingThreadsForPlugin(pluginDescriptor.id()), listener());
             }
 
             public ListenerFactory listener() {
-                return () -> new ServerPingListener(elasticAgentPluginRegistry);
+                return () -> new ServerPingListener(elasticAgentPluginRegistry, metrics);
             }
-        });
+        }, metrics);
     }
 }
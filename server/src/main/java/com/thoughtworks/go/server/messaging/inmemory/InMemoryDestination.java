@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @understands holding messages for the listeners of a queue, or of one subscription to a topic, until they expire
+ * <p>
+ * Like the flow control of a broker, a destination which is full holds up its senders until its listeners catch up.
+ * A message which still does not fit after a while is dropped, so that a stuck listener cannot hang its senders.
+ */
+class InMemoryDestination {
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryDestination.class);
+    private static final long POLL_INTERVAL_MILLIS = 500;
+    private static final long OFFER_TIMEOUT_MILLIS = 10 * 1000;
+
+    private final BlockingQueue<Envelope> messages;
+    private volatile boolean closed;
+
+    InMemoryDestination(int capacity) {
+        this.messages = new LinkedBlockingQueue<>(capacity > 0 ? capacity : Integer.MAX_VALUE);
+    }
+
+    void offer(GoMessage message, long timeToLive) {
+        if (closed) {
+            return;
+        }
+        try {
+            if (!messages.offer(new Envelope(message, timeToLive > 0 ? System.currentTimeMillis() + timeToLive : 0), OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                LOG.error("Dropping message {} as its destination is still full after {}ms", message, OFFER_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Dropping message {} as its sender was interrupted while waiting for room in its destination", message);
+        }
+    }
+
+    /**
+     * @return the next unexpired message, waiting for one if necessary, or null once this destination or the
+     * listener asking for it has been closed
+     */
+    GoMessage take(InMemoryMessageListenerAdapter listener) throws InterruptedException {
+        while (!closed && !listener.isStopped()) {
+            Envelope envelope = messages.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            if (envelope != null && !envelope.hasExpired()) {
+                return envelope.message;
+            }
+        }
+        return null;
+    }
+
+    void close() {
+        closed = true;
+        messages.clear();
+    }
+
+    private static class Envelope {
+        private final GoMessage message;
+        private final long expiresAt;
+
+        private Envelope(GoMessage message, long expiresAt) {
+            this.message = message;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean hasExpired() {
+            return expiresAt > 0 && System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.SystemEnvironment;
+
+/**
+ * @understands delivering messages from an in memory destination to a listener on its own thread
+ */
+public class InMemoryMessageListenerAdapter extends JMSMessageListenerAdapter {
+    private final InMemoryDestination destination;
+    private final Runnable onStop;
+    private volatile boolean stopped;
+
+    private InMemoryMessageListenerAdapter(InMemoryDestination destination, Runnable onStop, GoMessageListener listener, DaemonThreadStatsCollector daemonThreadStatsCollector,
+                                           SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
+        super(null, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+        this.destination = destination;
+        this.onStop = onStop;
+    }
+
+    @Override
+    protected GoMessage receive() {
+        try {
+            return destination.take(this);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        onStop.run();
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    static InMemoryMessageListenerAdapter startListening(InMemoryDestination destination, Runnable onStop, GoMessageListener listener, DaemonThreadStatsCollector daemonThreadStatsCollector,
+                                                         SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
+        InMemoryMessageListenerAdapter adapter = new InMemoryMessageListenerAdapter(destination, onStop, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+        adapter.start();
+        return adapter;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.MessageSender;
+import com.thoughtworks.go.server.messaging.MessagingService;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.SystemEnvironment;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * @understands passing messages between threads of the server without a broker or serialization. Listeners of a
+ * queue compete for its messages, while every listener of a topic gets a copy of each message sent to it
+ */
+public class InMemoryMessagingService implements MessagingService {
+    private final DaemonThreadStatsCollector daemonThreadStatsCollector;
+    private final SystemEnvironment systemEnvironment;
+    private final ServerHealthService serverHealthService;
+    private final ConcurrentMap<String, InMemoryDestination> queues = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<InMemoryDestination>> topics = new ConcurrentHashMap<>();
+
+    public InMemoryMessagingService(DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
+        this.daemonThreadStatsCollector = daemonThreadStatsCollector;
+        this.systemEnvironment = systemEnvironment;
+        this.serverHealthService = serverHealthService;
+    }
+
+    @Override
+    public MessageSender createSender(String topic) {
+        return new InMemoryMessageSender(() -> subscriptions(topic));
+    }
+
+    @Override
+    public InMemoryMessageListenerAdapter addListener(String topic, GoMessageListener listener) {
+        InMemoryDestination subscription = newDestination();
+        subscriptions(topic).add(subscription);
+        Runnable unsubscribe = () -> {
+            subscriptions(topic).remove(subscription);
+            subscription.close();
+        };
+        return InMemoryMessageListenerAdapter.startListening(subscription, unsubscribe, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+    }
+
+    @Override
+    public MessageSender createQueueSender(String queueName) {
+        return new InMemoryMessageSender(() -> singletonList(queue(queueName)));
+    }
+
+    @Override
+    public InMemoryMessageListenerAdapter addQueueListener(String queueName, GoMessageListener listener) {
+        return InMemoryMessageListenerAdapter.startListening(queue(queueName), () -> {
+        }, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+    }
+
+    @Override
+    public void removeQueue(String queueName) {
+        InMemoryDestination queue = queues.remove(queueName);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @Override
+    public void stop() {
+        queues.values().forEach(InMemoryDestination::close);
+        queues.clear();
+        topics.values().forEach(subscriptions -> subscriptions.forEach(InMemoryDestination::close));
+        topics.clear();
+    }
+
+    private InMemoryDestination queue(String queueName) {
+        return queues.computeIfAbsent(queueName, name -> newDestination());
+    }
+
+    private InMemoryDestination newDestination() {
+        return new InMemoryDestination(systemEnvironment.get(SystemEnvironment.GO_SERVER_IN_MEMORY_MESSAGING_CAPACITY));
+    }
+
+    private List<InMemoryDestination> subscriptions(String topic) {
+        return topics.computeIfAbsent(topic, name -> new CopyOnWriteArrayList<>());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging.notifications;
+
+import com.thoughtworks.go.util.Clock;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @understands how many notifications are sitting on the queue of each plugin, waiting for a listener to take them
+ * <p>
+ * A notification that is never taken off the queue expires after its time to live, so it stops being counted once
+ * that has passed, whether or not it was delivered. Each notification remembers when it stops being counted, so the
+ * one that is taken off the queue is the one that stops being counted.
+ */
+class InFlightNotifications {
+    private final Clock clock;
+    private final Map<String, ExpiryTimes> expiryTimesByPlugin = new ConcurrentHashMap<>();
+
+    InFlightNotifications(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @param maxInFlight the number of notifications the plugin may have on its queue, or 0 if there is no limit
+     * @return false, without counting the notification, if the plugin already has too many on its queue
+     */
+    boolean tryAdd(PluginNotificationMessage message, long timeToLive, int maxInFlight) {
+        ExpiryTimes expiryTimes = expiryTimes(message.pluginId());
+        long now = clock.currentTimeMillis();
+        synchronized (expiryTimes) {
+            expiryTimes.removeUpTo(now);
+            if (maxInFlight > 0 && expiryTimes.size >= maxInFlight) {
+                return false;
+            }
+            message.setInFlightUntil(now + timeToLive);
+            expiryTimes.add(message.getInFlightUntil());
+            return true;
+        }
+    }
+
+    void taken(PluginNotificationMessage message) {
+        ExpiryTimes expiryTimes = expiryTimes(message.pluginId());
+        synchronized (expiryTimes) {
+            expiryTimes.remove(message.getInFlightUntil());
+        }
+    }
+
+    int count(String pluginId) {
+        ExpiryTimes expiryTimes = expiryTimes(pluginId);
+        long now = clock.currentTimeMillis();
+        synchronized (expiryTimes) {
+            expiryTimes.removeUpTo(now);
+            return expiryTimes.size;
+        }
+    }
+
+    void remove(String pluginId) {
+        expiryTimesByPlugin.remove(pluginId);
+    }
+
+    private ExpiryTimes expiryTimes(String pluginId) {
+        return expiryTimesByPlugin.computeIfAbsent(pluginId, id -> new ExpiryTimes());
+    }
+
+    private static class ExpiryTimes {
+        private final TreeMap<Long, Integer> countsByExpiryTime = new TreeMap<>();
+        private int size;
+
+        private void add(long expiryTime) {
+            countsByExpiryTime.merge(expiryTime, 1, Integer::sum);
+            size++;
+        }
+
+        private void remove(long expiryTime) {
+            Integer count = countsByExpiryTime.get(expiryTime);
+            if (count == null) {
+                return;
+            }
+            if (count == 1) {
+                countsByExpiryTime.remove(expiryTime);
+            } else {
+                countsByExpiryTime.put(expiryTime, count - 1);
+            }
+            size--;
+        }
+
+        private void removeUpTo(long now) {
+            Map<Long, Integer> expired = countsByExpiryTime.headMap(now, true);
+            for (int count : expired.values()) {
+                size -= count;
+            }
+            expired.clear();
+        }
+    }
+}
@@ -25,11 +25,14 @@ public class PluginNotificationMessage<T extends Serializable> implements Plugin
     private String pluginId;
     private final String requestName;
     private final T data;
+    private final long createdAt;
+    private long inFlightUntil;
 
     public PluginNotificationMessage(String pluginId, String requestName, T data) {
         this.pluginId = pluginId;
         this.requestName = requestName;
         this.data = data;
+        this.createdAt = System.currentTimeMillis();
     }
 
     public String getRequestName() {
@@ -40,6 +43,18 @@ public class PluginNotificationMessage<T extends Serializable> implements Plugin
         return data;
     }
 
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getInFlightUntil() {
+        return inFlightUntil;
+    }
+
+    void setInFlightUntil(long inFlightUntil) {
+        this.inFlightUntil = inFlightUntil;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -19,6 +19,7 @@ package com.thoughtworks.go.server.messaging.notifications;
 import com.thoughtworks.go.plugin.access.notification.NotificationExtension;
 import com.thoughtworks.go.plugin.api.response.Result;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.PluginMessageQueueMetrics;
 import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.HealthStateType;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
@@ -30,16 +31,33 @@ import org.slf4j.LoggerFactory;
 public class PluginNotificationMessageListener implements GoMessageListener<PluginNotificationMessage> {
     private NotificationExtension notificationExtension;
     private ServerHealthService serverHealthService;
+    private PluginMessageQueueMetrics metrics;
+    private InFlightNotifications inFlight;
     private static final Logger LOGGER = LoggerFactory.getLogger(PluginNotificationMessageListener.class);
 
     public PluginNotificationMessageListener(NotificationExtension notificationExtension, ServerHealthService serverHealthService) {
+        this(notificationExtension, serverHealthService, new PluginMessageQueueMetrics());
+    }
+
+    public PluginNotificationMessageListener(NotificationExtension notificationExtension, ServerHealthService serverHealthService, PluginMessageQueueMetrics metrics) {
+        this(notificationExtension, serverHealthService, metrics, null);
+    }
+
+    PluginNotificationMessageListener(NotificationExtension notificationExtension, ServerHealthService serverHealthService, PluginMessageQueueMetrics metrics,
+                                      InFlightNotifications inFlight) {
         this.notificationExtension = notificationExtension;
         this.serverHealthService = serverHealthService;
+        this.metrics = metrics;
+        this.inFlight = inFlight;
     }
 
     @Override
     public void onMessage(PluginNotificationMessage message) {
         HealthStateScope scope = HealthStateScope.aboutPlugin(message.pluginId());
+        metrics.delivered(message.pluginId(), Math.max(0, System.currentTimeMillis() - message.getCreatedAt()));
+        if (inFlight != null) {
+            inFlight.taken(message);
+        }
         try {
             LOGGER.debug("Sending {} notification message {} for plugin {}", message.getRequestName(), message, message.pluginId());
             Result result = notificationExtension.notify(message.pluginId(), message.getRequestName(), message.getData());
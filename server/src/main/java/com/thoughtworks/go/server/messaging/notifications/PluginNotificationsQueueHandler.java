@@ -16,24 +16,55 @@
 
 package com.thoughtworks.go.server.messaging.notifications;
 
+import com.thoughtworks.go.domain.notificationdata.AgentNotificationData;
 import com.thoughtworks.go.plugin.access.notification.NotificationExtension;
 import com.thoughtworks.go.plugin.infra.PluginManager;
 import com.thoughtworks.go.plugin.infra.plugininfo.GoPluginDescriptor;
 import com.thoughtworks.go.server.messaging.*;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.Clock;
 import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.SystemTimeClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtworks.go.util.SystemEnvironment.NOTIFICATION_PLUGIN_COALESCE_WINDOW_MILLIS;
+import static com.thoughtworks.go.util.SystemEnvironment.NOTIFICATION_PLUGIN_MAX_PENDING_MESSAGES;
 
 @Component
 public class PluginNotificationsQueueHandler extends PluginMessageQueueHandler<PluginNotificationMessage> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PluginNotificationsQueueHandler.class);
     private final static String QUEUE_NAME_PREFIX = PluginNotificationsQueueHandler.class.getSimpleName() + ".";
+    private final long coalesceWindowMillis;
+    private final int maxPendingMessages;
+    private final Map<String, PendingNotifications> pendingNotifications = new ConcurrentHashMap<>();
+    private final InFlightNotifications inFlight;
 
     @Autowired
     public PluginNotificationsQueueHandler(final MessagingService messaging, NotificationExtension notificationExtension,
         PluginManager pluginManager, final SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
+        this(messaging, notificationExtension, pluginManager, systemEnvironment, serverHealthService, new SystemTimeClock());
+    }
+
+    PluginNotificationsQueueHandler(final MessagingService messaging, NotificationExtension notificationExtension,
+        PluginManager pluginManager, final SystemEnvironment systemEnvironment, ServerHealthService serverHealthService, Clock clock) {
+        this(messaging, notificationExtension, pluginManager, systemEnvironment, serverHealthService, new PluginMessageQueueMetrics(), new InFlightNotifications(clock));
+    }
+
+    private PluginNotificationsQueueHandler(final MessagingService messaging, NotificationExtension notificationExtension,
+        PluginManager pluginManager, final SystemEnvironment systemEnvironment, ServerHealthService serverHealthService,
+        PluginMessageQueueMetrics metrics, InFlightNotifications inFlight) {
         super(notificationExtension, messaging, pluginManager, new QueueFactory() {
             @Override
             public PluginAwareMessageQueue create(GoPluginDescriptor pluginDescriptor) {
@@ -43,12 +74,106 @@ public class PluginNotificationsQueueHandler extends PluginMessageQueueHandler<P
             }
 
             public ListenerFactory listener() {
-                return () -> new PluginNotificationMessageListener(notificationExtension, serverHealthService);
+                return () -> new PluginNotificationMessageListener(notificationExtension, serverHealthService, metrics, inFlight);
+            }
+        }, metrics);
+        this.inFlight = inFlight;
+        this.coalesceWindowMillis = systemEnvironment.get(NOTIFICATION_PLUGIN_COALESCE_WINDOW_MILLIS);
+        this.maxPendingMessages = systemEnvironment.get(NOTIFICATION_PLUGIN_MAX_PENDING_MESSAGES);
+        if (coalesceWindowMillis > 0) {
+            ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "plugin-notification-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, coalesceWindowMillis, coalesceWindowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /*
+     * When a coalescing window is configured, notifications are held in a bounded buffer per plugin and handed over
+     * to the plugin's queue once per window. Only the latest status of an agent is kept within a window. Whether or
+     * not they are coalesced, agent status notifications are dropped when a plugin already has too many notifications
+     * waiting, either in the buffer or on its queue. A later status of the same agent supersedes a dropped one, so
+     * nothing else is ever dropped.
+     */
+    @Override
+    public void post(PluginNotificationMessage message, long timeToLive) {
+        if (coalesceWindowMillis <= 0) {
+            postToQueue(message, timeToLive);
+            return;
+        }
+
+        String pluginId = message.pluginId();
+        PendingNotifications pending = pendingNotifications.computeIfAbsent(pluginId, id -> new PendingNotifications());
+        synchronized (pending) {
+            Object key = coalescingKey(message);
+            if (pending.messages.containsKey(key)) {
+                metrics.coalesced(pluginId);
+            } else if (isDroppable(message) && maxPendingMessages > 0 && pending.messages.size() >= maxPendingMessages) {
+                metrics.dropped(pluginId);
+                LOGGER.warn("Dropping {} notification for plugin {} as {} notifications are already waiting to be sent", message.getRequestName(), pluginId, pending.messages.size());
+                return;
+            }
+            pending.messages.put(key, message);
+            pending.timeToLive = timeToLive;
+            metrics.pending(pluginId, pending.messages.size());
+        }
+    }
+
+    @Override
+    public void pluginUnLoaded(GoPluginDescriptor pluginDescriptor) {
+        pendingNotifications.remove(pluginDescriptor.id());
+        inFlight.remove(pluginDescriptor.id());
+        super.pluginUnLoaded(pluginDescriptor);
+    }
+
+    void flush() {
+        pendingNotifications.forEach((pluginId, pending) -> {
+            List<PluginNotificationMessage> messages;
+            long timeToLive;
+            synchronized (pending) {
+                if (pending.messages.isEmpty()) {
+                    return;
+                }
+                messages = new ArrayList<>(pending.messages.values());
+                timeToLive = pending.timeToLive;
+                pending.messages.clear();
+                metrics.pending(pluginId, 0);
+            }
+            for (PluginNotificationMessage message : messages) {
+                postToQueue(message, timeToLive);
             }
         });
     }
 
+    private void postToQueue(PluginNotificationMessage message, long timeToLive) {
+        String pluginId = message.pluginId();
+        if (queues.containsKey(pluginId) && !inFlight.tryAdd(message, timeToLive, isDroppable(message) ? maxPendingMessages : 0)) {
+            metrics.dropped(pluginId);
+            LOGGER.warn("Dropping {} notification for plugin {} as {} notifications are already waiting on its queue", message.getRequestName(), pluginId, inFlight.count(pluginId));
+            return;
+        }
+        super.post(message, timeToLive);
+    }
+
+    private static boolean isDroppable(PluginNotificationMessage message) {
+        return message.getData() instanceof AgentNotificationData;
+    }
+
+    private Object coalescingKey(PluginNotificationMessage message) {
+        if (isDroppable(message)) {
+            return message.getRequestName() + ":" + ((AgentNotificationData) message.getData()).getUuid();
+        }
+        return new Object();
+    }
+
     Map<String, PluginAwareMessageQueue> getQueues() {
         return queues;
     }
+
+    private static class PendingNotifications {
+        private final Map<Object, PluginNotificationMessage> messages = new LinkedHashMap<>();
+        private long timeToLive;
+    }
 }
@@ -27,6 +27,7 @@ import com.thoughtworks.go.domain.materials.*;
 import com.thoughtworks.go.domain.materials.dependency.DependencyMaterialInstance;
 import com.thoughtworks.go.server.cache.CacheKeyGenerator;
 import com.thoughtworks.go.server.cache.GoCache;
+import com.thoughtworks.go.server.initializers.Initializer;
 import com.thoughtworks.go.server.service.MaterialConfigConverter;
 import com.thoughtworks.go.server.service.MaterialExpansionService;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
@@ -36,6 +37,7 @@ import com.thoughtworks.go.server.util.CollectionUtil;
 import com.thoughtworks.go.server.util.Pagination;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.ListUtils;
 import org.hibernate.*;
 import org.hibernate.criterion.*;
 import org.hibernate.type.LongType;
@@ -50,7 +52,11 @@ import java.io.File;
 import java.math.BigInteger;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static com.thoughtworks.go.server.database.ReadReplicaRouting.readFromReplica;
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 import static org.hibernate.criterion.Restrictions.eq;
 import static org.hibernate.criterion.Restrictions.isNull;
@@ -58,8 +64,10 @@ import static org.hibernate.criterion.Restrictions.isNull;
 /**
  * @understands how to store and retrieve Materials from the database
  */
-public class MaterialRepository extends HibernateDaoSupport {
+public class MaterialRepository extends HibernateDaoSupport implements Initializer {
     private static final Logger LOGGER = LoggerFactory.getLogger(MaterialRepository.class.getName());
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+    private static final int SEARCH_INDEX_BATCH_SIZE = 10000;
 
     private final GoCache goCache;
     private final TransactionSynchronizationManager transactionSynchronizationManager;
@@ -68,6 +76,14 @@ public class MaterialRepository extends HibernateDaoSupport {
     private final CacheKeyGenerator cacheKeyGenerator;
     private int latestModificationsCacheLimit;
     private MaterialExpansionService materialExpansionService;
+    private final SystemEnvironment systemEnvironment;
+    private final ModificationSearchIndex searchIndex;
+    private final AtomicBoolean searchIndexBuildStarted = new AtomicBoolean();
+    private final ExecutorService searchIndexBuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "modification-search-index-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public MaterialRepository(SessionFactory sessionFactory,
                               GoCache goCache,
@@ -75,13 +91,17 @@ public class MaterialRepository extends HibernateDaoSupport {
                               TransactionSynchronizationManager transactionSynchronizationManager,
                               MaterialConfigConverter materialConfigConverter,
                               MaterialExpansionService materialExpansionService,
-                              Database databaseStrategy) {
+                              Database databaseStrategy,
+                              SystemEnvironment systemEnvironment) {
         this.goCache = goCache;
         this.latestModificationsCacheLimit = latestModificationsCacheLimit;
         this.transactionSynchronizationManager = transactionSynchronizationManager;
         this.materialConfigConverter = materialConfigConverter;
         this.materialExpansionService = materialExpansionService;
         this.queryExtensions = databaseStrategy.getQueryExtensions();
+        this.systemEnvironment = systemEnvironment;
+        this.searchIndex = new ModificationSearchIndex(systemEnvironment.get(SystemEnvironment.GO_MODIFICATIONS_SEARCH_INDEX_MAX_CANDIDATES),
+                systemEnvironment.get(SystemEnvironment.GO_MODIFICATIONS_SEARCH_INDEX_MAX_ENTRIES));
         setSessionFactory(sessionFactory);
         this.cacheKeyGenerator = new CacheKeyGenerator(getClass());
     }
@@ -221,7 +241,12 @@ public class MaterialRepository extends HibernateDaoSupport {
     }
 
     public void cacheMaterialRevisionsForPipelines(Set<Long> pipelineIds) {
-        List<Long> ids = new ArrayList<>(pipelineIds);
+        List<Long> ids = new ArrayList<>();
+        for (Long pipelineId : pipelineIds) {
+            if (goCache.get(pipelinePmrsKey(pipelineId)) == null) {
+                ids.add(pipelineId);
+            }
+        }
 
         final int batchSize = 500;
         loadPMRsIntoCache(ids, batchSize);
@@ -269,18 +294,21 @@ public class MaterialRepository extends HibernateDaoSupport {
         List<PipelineMaterialRevision> pmrs = (List<PipelineMaterialRevision>) getHibernateTemplate().findByCriteria(buildPMRDetachedQuery(pipelineIds));
         sortPersistentObjectsById(pmrs, true);
         final Set<PipelineMaterialRevision> uniquePmrs = new HashSet<>();
+        final Map<Long, List<PipelineMaterialRevision>> pmrsByPipelineId = new LinkedHashMap<>();
         for (PipelineMaterialRevision pmr : pmrs) {
-            String cacheKey = pipelinePmrsKey(pmr.getPipelineId());
-            List<PipelineMaterialRevision> pmrsForId = (List<PipelineMaterialRevision>) goCache.get(cacheKey);
-            if (pmrsForId == null) {
-                pmrsForId = new ArrayList<>();
-                goCache.put(cacheKey, pmrsForId);
-            }
-            pmrsForId.add(pmr);
+            pmrsByPipelineId.computeIfAbsent(pmr.getPipelineId(), pipelineId -> new ArrayList<>()).add(pmr);
             putMaterialInstanceIntoCache(pmr.getToModification().getMaterialInstance());
             uniquePmrs.add(pmr);
         }
         loadModificationsIntoCache(uniquePmrs);
+        for (Map.Entry<Long, List<PipelineMaterialRevision>> entry : pmrsByPipelineId.entrySet()) {
+            String cacheKey = pipelinePmrsKey(entry.getKey());
+            synchronized (cacheKey) {
+                if (goCache.get(cacheKey) == null) {
+                    goCache.put(cacheKey, entry.getValue());
+                }
+            }
+        }
     }
 
     private void sortPersistentObjectsById(List<? extends PersistentObject> persistentObjects, boolean asc) {
@@ -314,6 +342,7 @@ public class MaterialRepository extends HibernateDaoSupport {
 
     private void loadModificationsForPMR(List<PipelineMaterialRevision> pmrs) {
         List<Criterion> criterions = new ArrayList<>();
+        List<PipelineMaterialRevision> uncachedPmrs = new ArrayList<>();
         for (PipelineMaterialRevision pmr : pmrs) {
             if (goCache.get(pmrModificationsKey(pmr)) != null) {
                 continue;
@@ -321,18 +350,25 @@ public class MaterialRepository extends HibernateDaoSupport {
             final Criterion modificationClause = Restrictions.between("id", pmr.getFromModification().getId(), pmr.getToModification().getId());
             final SimpleExpression idClause = Restrictions.eq("materialInstance", pmr.getMaterialInstance());
             criterions.add(Restrictions.and(idClause, modificationClause));
+            uncachedPmrs.add(pmr);
+        }
+        if (criterions.isEmpty()) {
+            return;
         }
         List<Modification> modifications = (List<Modification>) getHibernateTemplate().findByCriteria(buildModificationDetachedQuery(criterions));
         sortPersistentObjectsById(modifications, false);
+        Map<String, List<Modification>> modificationsByKey = new LinkedHashMap<>();
         for (Modification modification : modifications) {
-            List<String> cacheKeys = pmrModificationsKey(modification, pmrs);
+            List<String> cacheKeys = pmrModificationsKey(modification, uncachedPmrs);
             for (String cacheKey : cacheKeys) {
-                List<Modification> modificationList = (List<Modification>) goCache.get(cacheKey);
-                if (modificationList == null) {
-                    modificationList = new ArrayList<>();
-                    goCache.put(cacheKey, modificationList);
+                modificationsByKey.computeIfAbsent(cacheKey, key -> new ArrayList<>()).add(modification);
+            }
+        }
+        for (Map.Entry<String, List<Modification>> entry : modificationsByKey.entrySet()) {
+            synchronized (entry.getKey()) {
+                if (goCache.get(entry.getKey()) == null) {
+                    goCache.put(entry.getKey(), entry.getValue());
                 }
-                modificationList.add(modification);
             }
         }
     }
@@ -440,6 +476,7 @@ public class MaterialRepository extends HibernateDaoSupport {
         modification.setMaterialInstance(materialInstance);
         try {
             getHibernateTemplate().saveOrUpdate(modification);
+            addToSearchIndex(Collections.singletonList(modification));
             removeLatestCachedModification(materialInstance, modification);
             removeCachedModificationCountFor(materialInstance);
             removeCachedModificationsFor(materialInstance);
@@ -804,14 +841,20 @@ public class MaterialRepository extends HibernateDaoSupport {
 
         try {
             checkAndRemoveDuplicates(materialInstance, newChanges, list);
-            for (Modification modification : list) {
-                getHibernateTemplate().saveOrUpdate(modification);
+            int batchSize = systemEnvironment.get(SystemEnvironment.GO_MODIFICATIONS_BATCH_SIZE);
+            if (batchSize > 0 && list.stream().noneMatch(Modification::hasId)) {
+                batchInsert(materialInstance, list, batchSize);
+            } else {
+                for (Modification modification : list) {
+                    getHibernateTemplate().saveOrUpdate(modification);
+                }
             }
         } catch (Exception e) {
             String message = "Cannot save modification: ";
             LOGGER.error(message, e);
             throw new RuntimeException(message + e.getMessage(), e);
         }
+        addToSearchIndex(list);
         for (Modification modification : list) {
             removeLatestCachedModification(materialInstance, modification);
         }
@@ -819,26 +862,37 @@ public class MaterialRepository extends HibernateDaoSupport {
         removeCachedModificationsFor(materialInstance);
     }
 
+    private void batchInsert(MaterialInstance materialInstance, List<Modification> modifications, int batchSize) {
+        if (modifications.isEmpty()) {
+            return;
+        }
+        getHibernateTemplate().execute((HibernateCallback) session -> {
+            session.flush();
+            session.doWork(connection -> new ModificationBatchInserter(batchSize).insert(connection, materialInstance.getId(), modifications));
+            return null;
+        });
+    }
+
     private void checkAndRemoveDuplicates(MaterialInstance materialInstance,
                                           List<Modification> newChanges,
                                           ArrayList<Modification> list) {
-        if (!new SystemEnvironment().get(SystemEnvironment.CHECK_AND_REMOVE_DUPLICATE_MODIFICATIONS)) {
+        if (!systemEnvironment.get(SystemEnvironment.CHECK_AND_REMOVE_DUPLICATE_MODIFICATIONS)) {
             return;
         }
-        DetachedCriteria criteria = DetachedCriteria.forClass(Modification.class);
-        criteria.setProjection(Projections.projectionList().add(Projections.property("revision")));
-        criteria.add(Restrictions.eq("materialInstance.id", materialInstance.getId()));
         ArrayList<String> revisions = new ArrayList<>();
         for (Modification modification : newChanges) {
             revisions.add(modification.getRevision());
         }
-        criteria.add(Restrictions.in("revision", revisions));
-        List<String> matchingRevisionsFromDb = (List<String>) getHibernateTemplate().findByCriteria(criteria);
+        Set<String> matchingRevisionsFromDb = new HashSet<>();
+        for (List<String> chunk : ListUtils.partition(revisions, MAX_IN_CLAUSE_SIZE)) {
+            DetachedCriteria criteria = DetachedCriteria.forClass(Modification.class);
+            criteria.setProjection(Projections.projectionList().add(Projections.property("revision")));
+            criteria.add(Restrictions.eq("materialInstance.id", materialInstance.getId()));
+            criteria.add(Restrictions.in("revision", chunk));
+            matchingRevisionsFromDb.addAll((List<String>) getHibernateTemplate().findByCriteria(criteria));
+        }
         if (!matchingRevisionsFromDb.isEmpty()) {
-            for (final String revision : matchingRevisionsFromDb) {
-                Modification modification = list.stream().filter(item -> item.getRevision().equals(revision)).findFirst().orElse(null);
-                list.remove(modification);
-            }
+            list.removeIf(modification -> matchingRevisionsFromDb.contains(modification.getRevision()));
         }
         if (!newChanges.isEmpty() && list.isEmpty()) {
             LOGGER.debug("All modifications already exist in db [{}]", revisions);
@@ -935,11 +989,16 @@ public class MaterialRepository extends HibernateDaoSupport {
 
     @SuppressWarnings("unchecked")
     public List<MatchedRevision> findRevisionsMatching(final MaterialConfig materialConfig, final String searchString) {
-        return (List<MatchedRevision>) getHibernateTemplate().execute((HibernateCallback) session -> {
+        final List<Long> candidates = findModificationIdsPossiblyMatching(searchString);
+        if (candidates != null && candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return readFromReplica(() -> (List<MatchedRevision>) getHibernateTemplate().execute((HibernateCallback) session -> {
             String sql = "SELECT m.*"
                     + " FROM modifications AS m"
                     + " INNER JOIN materials mat ON mat.id = m.materialId"
                     + " WHERE mat.fingerprint = :finger_print"
+                    + (candidates == null ? "" : " AND m.id IN (:candidates)")
                     + " AND (m.revision || ' ' || COALESCE(m.username, '') || ' ' || COALESCE(m.comment, '') LIKE :search_string OR m.pipelineLabel LIKE :search_string)"
                     + " ORDER BY m.id DESC"
                     + " LIMIT 5";
@@ -948,11 +1007,105 @@ public class MaterialRepository extends HibernateDaoSupport {
             Material material = materialConfigConverter.toMaterial(materialConfig);
             query.setString("finger_print", material.getFingerprint());
             query.setString("search_string", "%" + searchString + "%");
+            if (candidates != null) {
+                query.setParameterList("candidates", candidates);
+            }
             final List<MatchedRevision> list = new ArrayList<>();
             for (Modification mod : (List<Modification>) query.list()) {
                 list.add(material.createMatchedRevision(mod, searchString));
             }
             return list;
+        }));
+    }
+
+    /**
+     * @return the ids of the modifications whose revision, username, comment or pipeline label could contain the
+     * search string, or null if the search index cannot narrow it down and every modification has to be searched
+     */
+    public List<Long> findModificationIdsPossiblyMatching(String searchString) {
+        if (!systemEnvironment.get(SystemEnvironment.GO_MODIFICATIONS_SEARCH_INDEX)) {
+            return null;
+        }
+        List<Long> candidates = searchIndex.candidatesFor(searchString);
+        return candidates == null || candidates.size() > MAX_IN_CLAUSE_SIZE ? null : candidates;
+    }
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public void startDaemon() {
+        scheduleSearchIndexRebuild();
+    }
+
+    /**
+     * Rebuilds the search index in the background, after any rebuild that is already running.
+     *
+     * @return false if the search index is turned off
+     */
+    public boolean scheduleSearchIndexRebuild() {
+        if (!systemEnvironment.get(SystemEnvironment.GO_MODIFICATIONS_SEARCH_INDEX)) {
+            return false;
+        }
+        searchIndexBuildStarted.set(true);
+        searchIndexBuilder.submit(this::buildSearchIndex);
+        return true;
+    }
+
+    /**
+     * Reloads the search index from every modification in the database. Searches go to the database until it is done.
+     */
+    @SuppressWarnings("unchecked")
+    public void rebuildSearchIndex() {
+        searchIndexBuildStarted.set(true);
+        searchIndex.clear();
+        LOGGER.info("Building modification search index...Started");
+        long lastId = 0;
+        List<Object[]> rows;
+        do {
+            final long after = lastId;
+            rows = (List<Object[]>) getHibernateTemplate().execute((HibernateCallback) session -> {
+                SQLQuery query = session.createSQLQuery("SELECT id, revision, username, comment, pipelineLabel FROM modifications WHERE id > :after ORDER BY id ASC");
+                query.addScalar("id", new LongType());
+                query.addScalar("revision", new StringType());
+                query.addScalar("username", new StringType());
+                query.addScalar("comment", new StringType());
+                query.addScalar("pipelineLabel", new StringType());
+                query.setLong("after", after);
+                query.setMaxResults(SEARCH_INDEX_BATCH_SIZE);
+                return query.list();
+            });
+            for (Object[] row : rows) {
+                lastId = (Long) row[0];
+                searchIndex.add(lastId, (String) row[1], (String) row[2], (String) row[3], (String) row[4]);
+            }
+        } while (rows.size() == SEARCH_INDEX_BATCH_SIZE);
+        searchIndex.markReady();
+        LOGGER.info("Building modification search index...Done");
+    }
+
+    private void buildSearchIndex() {
+        try {
+            rebuildSearchIndex();
+        } catch (Exception e) {
+            LOGGER.error("Could not build the modification search index, searches go to the database until it is rebuilt", e);
+            searchIndexBuildStarted.set(false);
+        }
+    }
+
+    private void addToSearchIndex(final List<Modification> modifications) {
+        transactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                // an index that has not started building yet picks these up from the database when it does
+                if (!searchIndexBuildStarted.get()) {
+                    return;
+                }
+                for (Modification modification : modifications) {
+                    searchIndex.add(modification.getId(), modification.getRevision(), modification.getUserName(), modification.getComment(), modification.getPipelineLabel());
+                }
+            }
         });
     }
 
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.persistence;
+
+import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.domain.materials.ModifiedFile;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static java.lang.String.format;
+import static java.util.Collections.nCopies;
+
+/**
+ * @understands inserting modifications and their modified files using JDBC batches instead of one insert per row.
+ * Ids are generated by identity columns which are not returned for batched inserts, so they are read back afterwards;
+ * this relies on modifications of a material being saved by one thread at a time, as MaterialDatabaseUpdater does.
+ */
+class ModificationBatchInserter {
+    private static final String INSERT_MODIFICATION = "INSERT INTO modifications (revision, comment, emailAddress, modifiedTime, userName, pipelineLabel, pipelineId, additionalData, materialId) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_MODIFIED_FILE = "INSERT INTO modifiedFiles (modificationId, action, fileName, folderName) VALUES (?, ?, ?, ?)";
+
+    private final int batchSize;
+
+    ModificationBatchInserter(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    void insert(Connection connection, long materialId, List<Modification> modifications) throws SQLException {
+        long lastExistingId = lastModificationId(connection, materialId);
+        insertModifications(connection, materialId, modifications);
+        assignModificationIds(connection, materialId, lastExistingId, modifications);
+        insertModifiedFiles(connection, modifications);
+        assignModifiedFileIds(connection, modifications);
+    }
+
+    private long lastModificationId(Connection connection, long materialId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT MAX(id) FROM modifications WHERE materialId = ?")) {
+            statement.setLong(1, materialId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+    }
+
+    private void insertModifications(Connection connection, long materialId, List<Modification> modifications) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_MODIFICATION)) {
+            int pending = 0;
+            for (Modification modification : modifications) {
+                statement.setString(1, modification.getRevision());
+                statement.setString(2, modification.getComment());
+                statement.setString(3, modification.getEmailAddress());
+                statement.setTimestamp(4, modification.getModifiedTime() == null ? null : new Timestamp(modification.getModifiedTime().getTime()));
+                statement.setString(5, modification.getUserName());
+                statement.setString(6, modification.getPipelineLabel());
+                if (modification.getPipelineId() == null) {
+                    statement.setNull(7, Types.BIGINT);
+                } else {
+                    statement.setLong(7, modification.getPipelineId());
+                }
+                statement.setString(8, modification.getAdditionalData());
+                statement.setLong(9, materialId);
+                statement.addBatch();
+                if (++pending == batchSize) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private void assignModificationIds(Connection connection, long materialId, long lastExistingId, List<Modification> modifications) throws SQLException {
+        List<Long> ids = new ArrayList<>(modifications.size());
+        try (PreparedStatement statement = connection.prepareStatement("SELECT id FROM modifications WHERE materialId = ? AND id > ? ORDER BY id")) {
+            statement.setLong(1, materialId);
+            statement.setLong(2, lastExistingId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getLong(1));
+                }
+            }
+        }
+        if (ids.size() != modifications.size()) {
+            throw new IllegalStateException(format("Expected %s new modifications for material [%s] but found %s, were they saved concurrently?", modifications.size(), materialId, ids.size()));
+        }
+        for (int i = 0; i < modifications.size(); i++) {
+            modifications.get(i).setId(ids.get(i));
+        }
+    }
+
+    private void insertModifiedFiles(Connection connection, List<Modification> modifications) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_MODIFIED_FILE)) {
+            int pending = 0;
+            for (Modification modification : modifications) {
+                for (ModifiedFile file : modification.getModifiedFiles()) {
+                    file.setModificationId(modification.getId());
+                    statement.setLong(1, modification.getId());
+                    statement.setString(2, file.getAction().name());
+                    statement.setString(3, file.getFileName());
+                    statement.setString(4, file.getFolderName());
+                    statement.addBatch();
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private void assignModifiedFileIds(Connection connection, List<Modification> modifications) throws SQLException {
+        for (int from = 0; from < modifications.size(); from += batchSize) {
+            List<Modification> chunk = modifications.subList(from, Math.min(from + batchSize, modifications.size()));
+            List<ModifiedFile> files = new ArrayList<>();
+            for (Modification modification : chunk) {
+                files.addAll(modification.getModifiedFiles());
+            }
+            if (files.isEmpty()) {
+                continue;
+            }
+
+            String sql = format("SELECT id FROM modifiedFiles WHERE modificationId IN (%s) ORDER BY modificationId, id", String.join(", ", nCopies(chunk.size(), "?")));
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    statement.setLong(i + 1, chunk.get(i).getId());
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    Iterator<ModifiedFile> iterator = files.iterator();
+                    while (resultSet.next() && iterator.hasNext()) {
+                        iterator.next().setId(resultSet.getLong(1));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * @understands which modifications could contain a search string, without scanning every modification for it
+ * <p>
+ * Revisions, usernames, comments and pipeline labels are split on whitespace into lower cased terms, and every three
+ * character substring of a term maps to the ids of the modifications it appears in. A search string is split the same
+ * way, and also on the LIKE wildcard and escape characters, and a modification is a candidate only if it has every
+ * three character substring of every piece of the search string. Pieces shorter than that cannot narrow anything down
+ * and are left out. Every modification containing the search string is a candidate, but not every candidate contains
+ * it, so callers still match the candidates against the search string themselves.
+ * <p>
+ * The index holds at most maxEntries ids across all substrings. Once it would hold more, it is dropped and stops
+ * narrowing searches down until it is rebuilt, so that a large history cannot take over the heap.
+ */
+class ModificationSearchIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModificationSearchIndex.class);
+    private static final Pattern TERM_SEPARATOR = Pattern.compile("\\s+");
+    private static final Pattern SEARCH_STRING_SEPARATOR = Pattern.compile("[\\s%_\\\\]+");
+    static final int GRAM_LENGTH = 3;
+
+    private final ConcurrentMap<String, Postings> postings = new ConcurrentHashMap<>();
+    private final AtomicLong entries = new AtomicLong();
+    private final int maxCandidates;
+    private final long maxEntries;
+    private volatile boolean ready;
+    private volatile boolean full;
+
+    ModificationSearchIndex(int maxCandidates, long maxEntries) {
+        this.maxCandidates = maxCandidates;
+        this.maxEntries = maxEntries;
+    }
+
+    void add(long modificationId, String... fields) {
+        if (full) {
+            return;
+        }
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            for (String term : TERM_SEPARATOR.split(field.toLowerCase())) {
+                for (String gram : grams(term)) {
+                    if (postings.computeIfAbsent(gram, g -> new Postings()).add(modificationId) && entries.incrementAndGet() > maxEntries) {
+                        drop();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    void clear() {
+        ready = false;
+        full = false;
+        postings.clear();
+        entries.set(0);
+    }
+
+    void markReady() {
+        ready = !full;
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the ids of the modifications that could contain the search string, most recent first, or null if the
+     * index cannot narrow the search down to at most maxCandidates modifications
+     */
+    List<Long> candidatesFor(String searchString) {
+        if (!ready) {
+            return null;
+        }
+        Set<String> grams = new HashSet<>();
+        for (String piece : SEARCH_STRING_SEPARATOR.split(searchString.toLowerCase())) {
+            grams.addAll(grams(piece));
+        }
+        if (grams.isEmpty()) {
+            return null;
+        }
+
+        List<Postings> containingGrams = new ArrayList<>();
+        for (String gram : grams) {
+            Postings containingGram = postings.get(gram);
+            if (containingGram == null) {
+                return new ArrayList<>();
+            }
+            containingGrams.add(containingGram);
+        }
+        containingGrams.sort(Comparator.comparingInt(Postings::size));
+
+        Set<Long> candidates = containingGrams.get(0).toSet();
+        for (int i = 1; i < containingGrams.size() && !candidates.isEmpty(); i++) {
+            candidates = containingGrams.get(i).retainedIn(candidates);
+        }
+        if (candidates.size() > maxCandidates) {
+            return null;
+        }
+
+        List<Long> ids = new ArrayList<>(candidates);
+        ids.sort(Comparator.reverseOrder());
+        return ids;
+    }
+
+    private void drop() {
+        full = true;
+        ready = false;
+        postings.clear();
+        entries.set(0);
+        LOGGER.warn("Dropped the modification search index as it grew past {} entries. Searches go to the database until it is rebuilt.", maxEntries);
+    }
+
+    private static Set<String> grams(String piece) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= piece.length(); i++) {
+            grams.add(piece.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static class Postings {
+        private long[] ids = new long[1];
+        private int size;
+
+        synchronized boolean add(long id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return false;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+            return true;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized Set<Long> toSet() {
+            Set<Long> set = new HashSet<>();
+            for (int i = 0; i < size; i++) {
+                set.add(ids[i]);
+            }
+            return set;
+        }
+
+        synchronized Set<Long> retainedIn(Set<Long> candidates) {
+            Set<Long> retained = new HashSet<>();
+            for (int i = 0; i < size; i++) {
+                if (candidates.contains(ids[i])) {
+                    retained.add(ids[i]);
+                }
+            }
+            return retained;
+        }
+    }
+}
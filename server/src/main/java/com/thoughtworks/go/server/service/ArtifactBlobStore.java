@@ -0,0 +1,276 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.util.Clock;
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.SystemTimeClock;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * @understands storing artifact files once per content hash and sharing them between jobs through hard links
+ * <p>
+ * The link count of a blob is its reference count: a blob that is linked only from the store itself is no longer
+ * used by any job and can be released. A blob the store has just reported as present, or has just stored, is
+ * promised to an agent which is about to link it, so it is kept for a grace period even when nothing links it yet.
+ * <p>
+ * A blob and every artifact linked to it are the same file, so blobs are made read-only and artifacts are only ever
+ * replaced, never written to in place (see {@link #copyIfShared(File)}).
+ */
+@Component
+public class ArtifactBlobStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactBlobStore.class);
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    static final String BLOBS_DIR = "blobs";
+
+    private final ArtifactsDirHolder artifactsDirHolder;
+    private final SystemEnvironment systemEnvironment;
+    private final Clock clock;
+    private final Map<String, Long> pendingLinks = new HashMap<>();
+
+    @Autowired
+    public ArtifactBlobStore(ArtifactsDirHolder artifactsDirHolder, SystemEnvironment systemEnvironment) {
+        this(artifactsDirHolder, systemEnvironment, new SystemTimeClock());
+    }
+
+    ArtifactBlobStore(ArtifactsDirHolder artifactsDirHolder, SystemEnvironment systemEnvironment, Clock clock) {
+        this.artifactsDirHolder = artifactsDirHolder;
+        this.systemEnvironment = systemEnvironment;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return systemEnvironment.get(SystemEnvironment.GO_ARTIFACTS_CONTENT_ADDRESSED_STORAGE);
+    }
+
+    public Set<String> missing(Collection<String> hashes) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (String hash : hashes) {
+            if (!isValidHash(hash)) {
+                missing.add(hash);
+                continue;
+            }
+            synchronized (pendingLinks) {
+                if (blobFile(hash).isFile()) {
+                    pendingLinks.put(hash, clock.currentTimeMillis());
+                } else {
+                    missing.add(hash);
+                }
+            }
+        }
+        return missing;
+    }
+
+    public boolean store(String hash, InputStream stream) throws IOException {
+        if (!isValidHash(hash)) {
+            return false;
+        }
+        File blob = blobFile(hash);
+        synchronized (pendingLinks) {
+            if (blob.isFile()) {
+                pendingLinks.put(hash, clock.currentTimeMillis());
+                return true;
+            }
+        }
+        blob.getParentFile().mkdirs();
+        File tempFile = File.createTempFile(hash, TEMP_FILE_SUFFIX, blob.getParentFile());
+        try {
+            DigestInputStream digestStream = new DigestInputStream(stream, DigestUtils.getSha256Digest());
+            try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+                IOUtils.copyLarge(digestStream, outputStream);
+            }
+            String actualHash = Hex.encodeHexString(digestStream.getMessageDigest().digest());
+            if (!hash.equals(actualHash)) {
+                LOGGER.warn("[Artifact Blob Store] Rejecting blob '{}' as its content hashes to '{}'", hash, actualHash);
+                return false;
+            }
+            makeReadOnly(tempFile);
+            synchronized (pendingLinks) {
+                try {
+                    Files.move(tempFile.toPath(), blob.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    LOGGER.debug("[Artifact Blob Store] Blob '{}' was stored concurrently", hash);
+                }
+                pendingLinks.put(hash, clock.currentTimeMillis());
+            }
+            return true;
+        } finally {
+            FileUtils.deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Links the blob next to the destination and then moves it into place, so that an artifact which is already
+     * there is replaced by the content of the blob rather than left as it was.
+     */
+    public void link(String hash, File destination) throws IOException {
+        if (!isValidHash(hash)) {
+            throw new IllegalArgumentException("Invalid blob hash " + hash);
+        }
+        destination.getParentFile().mkdirs();
+        File blobFile = blobFile(hash);
+        makeReadOnly(blobFile);
+        Path blob = blobFile.toPath();
+        Path link = siblingTempFile(destination);
+        try {
+            try {
+                Files.createLink(link, blob);
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                throw e;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                LOGGER.debug("[Artifact Blob Store] Could not link blob '{}' to '{}', copying it instead", hash, destination, e);
+                Files.copy(blob, link);
+            }
+            Files.move(link, destination.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(link);
+        }
+        synchronized (pendingLinks) {
+            pendingLinks.remove(hash);
+        }
+    }
+
+    /**
+     * Makes sure that writing to an artifact cannot change a blob, or any other artifact linked to it, by replacing
+     * the artifact with a copy of its own if it is linked to anything else. Anything that writes to an existing
+     * artifact in place, like appending to it, should call this first.
+     */
+    public static void copyIfShared(File file) throws IOException {
+        if (!file.isFile() || (file.canWrite() && linkCount(file.toPath()) <= 1)) {
+            return;
+        }
+        Path copy = siblingTempFile(file);
+        try {
+            Files.copy(file.toPath(), copy);
+            copy.toFile().setWritable(true);
+            Files.move(copy, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    /*
+     * Only where the file system reports link counts, as elsewhere a read-only file cannot be deleted, which would
+     * stop artifacts from being purged.
+     */
+    private void makeReadOnly(File blob) {
+        if (blob.canWrite() && supportsLinkCounts(blob)) {
+            blob.setReadOnly();
+        }
+    }
+
+    private static Path siblingTempFile(File file) {
+        return new File(file.getParentFile(), "." + file.getName() + "." + UUID.randomUUID() + TEMP_FILE_SUFFIX).toPath();
+    }
+
+    private static int linkCount(Path file) {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink");
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return 1;
+        }
+    }
+
+    /*
+     * Deleting a blob never deletes artifacts, as every job holds its own link to the content. Where the file system
+     * does not report link counts there is no way to tell a used blob from an unused one, so nothing is released.
+     */
+    public int releaseUnreferenced() {
+        File blobsDir = blobsDir();
+        if (blobsDir == null || !blobsDir.isDirectory()) {
+            return 0;
+        }
+        if (!supportsLinkCounts(blobsDir)) {
+            LOGGER.debug("[Artifact Blob Store] Not releasing blobs as the file system does not report link counts");
+            return 0;
+        }
+        long gracePeriod = systemEnvironment.get(SystemEnvironment.GO_ARTIFACTS_BLOB_LINK_GRACE_PERIOD_MILLIS);
+        synchronized (pendingLinks) {
+            long promisedBefore = clock.currentTimeMillis() - gracePeriod;
+            pendingLinks.values().removeIf(promisedAt -> promisedAt < promisedBefore);
+        }
+        // walking the blobs can take a while, so uploads are only held up while each blob is checked and deleted
+        int released = 0;
+        for (File blob : FileUtils.listFiles(blobsDir, null, true)) {
+            if (blob.getName().endsWith(TEMP_FILE_SUFFIX)) {
+                continue;
+            }
+            synchronized (pendingLinks) {
+                if (!pendingLinks.containsKey(blob.getName()) && referenceCount(blob) <= 1 && blob.delete()) {
+                    released++;
+                }
+            }
+        }
+        if (released > 0) {
+            LOGGER.info("[Artifact Blob Store] Released {} blobs which are no longer used by any job", released);
+        }
+        return released;
+    }
+
+    private boolean supportsLinkCounts(File file) {
+        try {
+            Files.getAttribute(file.toPath(), "unix:nlink");
+            return true;
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return false;
+        }
+    }
+
+    private int referenceCount(File blob) {
+        try {
+            return (Integer) Files.getAttribute(blob.toPath(), "unix:nlink");
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    private File blobFile(String hash) {
+        return new File(new File(blobsDir(), hash.substring(0, 2)), hash);
+    }
+
+    private File blobsDir() {
+        File artifactsDir = artifactsDirHolder.getArtifactsDir();
+        return artifactsDir == null ? null : new File(artifactsDir, BLOBS_DIR);
+    }
+
+    public static boolean isValidHash(String hash) {
+        return hash != null && SHA256.matcher(hash).matches();
+    }
+}
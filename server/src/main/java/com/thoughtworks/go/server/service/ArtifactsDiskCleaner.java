@@ -26,20 +26,29 @@ import com.thoughtworks.go.util.SystemEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ArtifactsDiskCleaner extends DiskSpaceChecker {
     private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactsDiskCleaner.class);
     private final Object triggerCleanup = new Object();
     private final Thread cleaner;
     private final ArtifactsService artifactService;
+    private final ArtifactBlobStore artifactBlobStore;
     private final StageService stageService;
     private final ConfigDbStateRepository configDbStateRepository;
 
     public ArtifactsDiskCleaner(SystemEnvironment systemEnvironment, GoConfigService goConfigService, final SystemDiskSpaceChecker diskSpaceChecker, ArtifactsService artifactService,
-                                StageService stageService, ConfigDbStateRepository configDbStateRepository) {
+                                ArtifactBlobStore artifactBlobStore, StageService stageService, ConfigDbStateRepository configDbStateRepository) {
         super(null, systemEnvironment, goConfigService.artifactsDir(), goConfigService, ArtifactsDiskSpaceFullChecker.ARTIFACTS_DISK_FULL_ID, diskSpaceChecker);
         this.artifactService = artifactService;
+        this.artifactBlobStore = artifactBlobStore;
         this.stageService = stageService;
         this.configDbStateRepository = configDbStateRepository;
         cleaner = new Thread(() -> {
@@ -66,17 +75,20 @@ public class ArtifactsDiskCleaner extends DiskSpaceChecker {
             LOGGER.info("Clearing old artifacts as the disk space is low. Current space: '{}'. Need to clear till we hit: '{}'.", availableSpace(), requiredSpace);
             List<Stage> stages;
             int numberOfStagesPurged = 0;
-            do {
-                configDbStateRepository.flushConfigState();
-                stages = stageService.oldestStagesWithDeletableArtifacts();
-                for (Stage stage : stages) {
-                    if (availableSpace() > requiredSpace) {
-                        break;
+            ExecutorService purgers = purgers();
+            try {
+                do {
+                    configDbStateRepository.flushConfigState();
+                    stages = stageService.oldestStagesWithDeletableArtifacts();
+                    Iterator<Stage> oldestFirst = stages.iterator();
+                    while (oldestFirst.hasNext() && availableSpace() <= requiredSpace) {
+                        numberOfStagesPurged += purge(nextBatch(oldestFirst, requiredSpace), purgers);
                     }
-                    numberOfStagesPurged++;
-                    artifactService.purgeArtifactsForStage(stage);
-                }
-            } while ((availableSpace() < requiredSpace) && !stages.isEmpty());
+                } while ((availableSpace() < requiredSpace) && !stages.isEmpty());
+            } finally {
+                purgers.shutdownNow();
+            }
+            artifactBlobStore.releaseUnreferenced();
             if (availableSpace() < requiredSpace) {
                 LOGGER.warn("Ran out of stages to clear artifacts from but the disk space is still low");
             }
@@ -84,6 +96,60 @@ public class ArtifactsDiskCleaner extends DiskSpaceChecker {
         }
     }
 
+    /*
+     * Takes the oldest stages whose recorded artifact sizes are expected to free up the required space, so that they
+     * can be deleted together without measuring them on disk. Stages whose artifacts were uploaded before sizes were
+     * recorded end the batch, as the space they free is only known once they are deleted.
+     */
+    private List<Stage> nextBatch(Iterator<Stage> oldestFirst, double requiredSpace) {
+        List<Stage> batch = new ArrayList<>();
+        double expectedSpace = availableSpace();
+        while (oldestFirst.hasNext() && batch.size() < purgeThreads() && expectedSpace <= requiredSpace) {
+            Stage stage = oldestFirst.next();
+            batch.add(stage);
+            if (stage.getArtifactsSize() == 0) {
+                break;
+            }
+            expectedSpace += stage.getArtifactsSize();
+        }
+        return batch;
+    }
+
+    private int purge(List<Stage> batch, ExecutorService purgers) {
+        if (batch.size() == 1) {
+            artifactService.purgeArtifactsForStage(batch.get(0));
+            return 1;
+        }
+        List<Future<?>> purges = new ArrayList<>();
+        for (Stage stage : batch) {
+            purges.add(purgers.submit(() -> artifactService.purgeArtifactsForStage(stage)));
+        }
+        for (Future<?> purge : purges) {
+            try {
+                purge.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                LOGGER.error("Error occurred while clearing artifacts", e.getCause());
+            }
+        }
+        return batch.size();
+    }
+
+    private ExecutorService purgers() {
+        AtomicInteger purgerCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(purgeThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "artifacts-purger-thread-" + purgerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private int purgeThreads() {
+        return Math.max(1, systemEnvironment.get(SystemEnvironment.GO_ARTIFACTS_PURGE_THREADS));
+    }
+
     protected void createFailure(OperationResult result, long size, long availableSpace) {
         synchronized (triggerCleanup) {
             triggerCleanup.notify();
@@ -35,6 +35,9 @@ import org.springframework.stereotype.Service;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
 import java.util.zip.ZipInputStream;
 
 import static java.lang.String.format;
@@ -75,12 +78,56 @@ public class ArtifactsService implements ArtifactUrlReader {
     }
 
     public boolean saveFile(File dest, InputStream stream, boolean shouldUnzip, int attempt) {
+        return saveFile(dest, stream, shouldUnzip, attempt, null);
+    }
+
+    /**
+     * Unzips a zip streamed by the agent as it arrives, handing the checksums sent as its last entry to the handler.
+     */
+    public boolean saveStreamedZip(File dest, InputStream stream, int attempt, ZipUtil.ZipEntryHandler checksumHandler) {
+        // the stream can break off at any point, so it is unzipped next to the destination and only moved into it
+        // once complete, leaving no partly extracted files behind in the job's artifacts
+        File staging = new File(dest.getParentFile(), "." + dest.getName() + ".uploading-" + UUID.randomUUID());
+        try {
+            if (!saveFile(staging, stream, true, attempt, checksumHandler)) {
+                return false;
+            }
+            moveInto(staging, dest);
+            return true;
+        } catch (IOException e) {
+            LOGGER.error(format("Failed to move the uploaded files to: [%s]", dest.getAbsolutePath()), e);
+            return false;
+        } finally {
+            FileUtils.deleteQuietly(staging);
+        }
+    }
+
+    private void moveInto(File source, File dest) throws IOException {
+        FileUtils.forceMkdir(dest);
+        File[] children = source.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            File target = new File(dest, child.getName());
+            if (child.isDirectory() && target.isDirectory()) {
+                moveInto(child, target);
+            } else {
+                Files.move(child.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private boolean saveFile(File dest, InputStream stream, boolean shouldUnzip, int attempt, ZipUtil.ZipEntryHandler checksumHandler) {
         String destPath = dest.getAbsolutePath();
         try {
             LOGGER.trace("Saving file [{}]", destPath);
-            if (shouldUnzip) {
+            if (shouldUnzip && checksumHandler != null) {
+                zipUtil.unzip(new ZipInputStream(stream), dest, GoConstants.STREAMED_ZIP_CHECKSUM_ENTRY, checksumHandler);
+            } else if (shouldUnzip) {
                 zipUtil.unzip(new ZipInputStream(stream), dest);
             } else {
+                ArtifactBlobStore.copyIfShared(dest);
                 systemService.streamToFile(stream, dest);
             }
             LOGGER.trace("File [{}] saved.", destPath);
@@ -100,10 +147,21 @@ public class ArtifactsService implements ArtifactUrlReader {
         }
     }
 
+    /**
+     * Records the size of artifacts uploaded by a job against its stage, so that purging can pick stages to free
+     * enough space without measuring their artifacts on disk.
+     */
+    public void recordArtifactsSize(JobIdentifier jobIdentifier, long size) {
+        if (size > 0 && jobIdentifier.getBuildId() != null) {
+            stageDao.addArtifactsSizeForJob(jobIdentifier.getBuildId(), size);
+        }
+    }
+
     public boolean saveOrAppendFile(File dest, InputStream stream) {
         String destPath = dest.getAbsolutePath();
         try {
             LOGGER.trace("Appending file [{}]", destPath);
+            ArtifactBlobStore.copyIfShared(dest);
             systemService.streamToFile(stream, dest);
             LOGGER.trace("File [{}] appended.", destPath);
             return true;
@@ -175,6 +175,8 @@ public class BuildAssignmentService implements ConfigChangedListener {
             return new DeniedAgentWork(agent.getUuid());
         }
 
+        List<JobPlan> elasticJobsAssignableToAgent = agent.isElastic() ? elasticJobsAssignableTo(agent) : null;
+
         synchronized (this) {
 //          check to ensure agent is not disabled after entering the synchronized block
             if (agent.isDisabled()) {
@@ -182,7 +184,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
             }
             //check if agent already has assigned build, if so, reschedule it
             scheduleService.rescheduleAbandonedBuildIfNecessary(agent.getAgentIdentifier());
-            final JobPlan job = findMatchingJob(agent);
+            final JobPlan job = agent.isElastic() ? findMatchingElasticJob(elasticJobsAssignableToAgent) : findMatchingJob(agent);
             if (job != null) {
                 Work buildWork = createWork(agent, job);
                 AgentBuildingInfo buildingInfo = new AgentBuildingInfo(job.getIdentifier().buildLocatorForDisplay(),
@@ -199,23 +201,34 @@ public class BuildAssignmentService implements ConfigChangedListener {
 
     JobPlan findMatchingJob(AgentInstance agent) {
         List<JobPlan> filteredJobPlans = environmentConfigService.filterJobsByAgent(jobPlans, agent.getUuid());
-        JobPlan match = null;
-        if (!agent.isElastic()) {
-            match = agent.firstMatching(filteredJobPlans);
-        } else {
-            for (JobPlan jobPlan : filteredJobPlans) {
-                if (jobPlan.requiresElasticAgent() && elasticAgentPluginService.shouldAssignWork(agent.elasticAgentMetadata(), environmentConfigService.envForPipeline(jobPlan.getPipelineName()), jobPlan.getElasticProfile(), jobPlan.getIdentifier())) {
-                    match = jobPlan;
-                    break;
-                }
-            }
-        }
+        JobPlan match = agent.firstMatching(filteredJobPlans);
         if (match != null) {
             jobPlans.remove(match);
         }
         return match;
     }
 
+    /*
+     * Elastic agent plugins are asked which jobs an agent can take before the assignment lock is taken, so that slow
+     * plugins do not hold up assignment to other agents. Jobs assigned to another agent in the meantime are skipped.
+     */
+    List<JobPlan> elasticJobsAssignableTo(AgentInstance agent) {
+        List<JobPlan> candidates;
+        synchronized (this) {
+            candidates = environmentConfigService.filterJobsByAgent(jobPlans, agent.getUuid());
+        }
+        return elasticAgentPluginService.filterJobsAssignableTo(agent.elasticAgentMetadata(), candidates);
+    }
+
+    JobPlan findMatchingElasticJob(List<JobPlan> assignableJobPlans) {
+        for (JobPlan jobPlan : assignableJobPlans) {
+            if (jobPlans.remove(jobPlan)) {
+                return jobPlan;
+            }
+        }
+        return null;
+    }
+
     public void onTimer() {
         if (maintenanceModeService.isMaintenanceMode()) {
             LOGGER.debug("[Maintenance Mode] GoCD server is in 'maintenance' mode, skip checking build assignments");
@@ -228,15 +241,8 @@ public class BuildAssignmentService implements ConfigChangedListener {
 
     private void reloadJobPlans() {
         synchronized (this) {
-            if (jobPlans == null) {
-                jobPlans = jobInstanceService.orderedScheduledBuilds();
-                elasticAgentPluginService.createAgentsFor(jobPlans, new ArrayList<>());
-            } else {
-                List<JobPlan> old = jobPlans;
-                List<JobPlan> newPlan = jobInstanceService.orderedScheduledBuilds();
-                jobPlans = newPlan;
-                elasticAgentPluginService.createAgentsFor(old, newPlan);
-            }
+            jobPlans = jobInstanceService.queuedScheduledBuilds();
+            elasticAgentPluginService.createAgentsFor();
         }
     }
 
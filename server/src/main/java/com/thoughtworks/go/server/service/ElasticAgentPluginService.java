@@ -16,11 +16,12 @@
 
 package com.thoughtworks.go.server.service;
 
-import com.google.common.collect.Sets;
 import com.thoughtworks.go.config.elastic.ClusterProfile;
 import com.thoughtworks.go.config.elastic.ClusterProfiles;
 import com.thoughtworks.go.config.elastic.ElasticProfile;
 import com.thoughtworks.go.domain.AgentInstance;
+import com.thoughtworks.go.domain.config.Configuration;
+import com.thoughtworks.go.domain.config.ConfigurationProperty;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.JobInstance;
 import com.thoughtworks.go.domain.JobPlan;
@@ -32,6 +33,7 @@ import com.thoughtworks.go.plugin.domain.elastic.ElasticAgentPluginInfo;
 import com.thoughtworks.go.plugin.infra.PluginManager;
 import com.thoughtworks.go.plugin.infra.plugininfo.GoPluginDescriptor;
 import com.thoughtworks.go.server.dao.JobInstanceSqlMapDao;
+import com.thoughtworks.go.server.dao.ScheduledJobListener;
 import com.thoughtworks.go.server.domain.ElasticAgentMetadata;
 import com.thoughtworks.go.server.messaging.elasticagents.CreateAgentMessage;
 import com.thoughtworks.go.server.messaging.elasticagents.CreateAgentQueueHandler;
@@ -52,13 +54,12 @@ import org.springframework.util.LinkedMultiValueMap;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static java.lang.String.format;
 
 @Service
-public class ElasticAgentPluginService {
+public class ElasticAgentPluginService implements ScheduledJobListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(ElasticAgentPluginService.class);
 
     private final PluginManager pluginManager;
@@ -70,11 +71,16 @@ public class ElasticAgentPluginService {
     private final GoConfigService goConfigService;
     private final TimeProvider timeProvider;
     private final ServerHealthService serverHealthService;
-    private final ConcurrentHashMap<Long, Long> jobCreationTimeMap = new ConcurrentHashMap<>();
+    private final Map<Long, JobPlan> newlyScheduledElasticJobs = new LinkedHashMap<>();
+    private final LinkedHashMap<Long, WaitingJob> jobsWaitingForAgents = new LinkedHashMap<>();
     private JobInstanceSqlMapDao jobInstanceSqlMapDao = null;
 
     @Value("${go.elasticplugin.heartbeat.interval}")
     private long elasticPluginHeartBeatInterval;
+    @Value("${go.elasticplugin.assignment.cache.ttl}")
+    private long assignmentDecisionTimeToLive;
+    private final ConcurrentHashMap<AssignmentDecisionKey, AssignmentDecision> assignmentDecisions = new ConcurrentHashMap<>();
+    private volatile long lastAssignmentDecisionsPurgeTime;
     private final ElasticAgentMetadataStore elasticAgentMetadataStore;
     private ClusterProfilesService clusterProfilesService;
 
@@ -83,6 +89,11 @@ public class ElasticAgentPluginService {
         this.elasticPluginHeartBeatInterval = elasticPluginHeartBeatInterval;
     }
 
+    //    for test only
+    public void setAssignmentDecisionTimeToLive(long assignmentDecisionTimeToLive) {
+        this.assignmentDecisionTimeToLive = assignmentDecisionTimeToLive;
+    }
+
     @Autowired
     public ElasticAgentPluginService(
             PluginManager pluginManager, ElasticAgentPluginRegistry elasticAgentPluginRegistry,
@@ -112,6 +123,7 @@ public class ElasticAgentPluginService {
         this.elasticAgentMetadataStore = elasticAgentMetadataStore;
         this.clusterProfilesService = clusterProfilesService;
         this.jobInstanceSqlMapDao = jobInstanceSqlMapDao;
+        jobInstanceSqlMapDao.addScheduledJobListener(this);
     }
 
     public void heartbeat() {
@@ -144,30 +156,57 @@ public class ElasticAgentPluginService {
         return new AgentMetadata(obj.elasticAgentId(), obj.agentState().toString(), obj.buildState().toString(), obj.configStatus().toString());
     }
 
-    public void createAgentsFor(List<JobPlan> old, List<JobPlan> newPlan) {
-        Collection<JobPlan> starvingJobs = new ArrayList<>();
-        for (JobPlan jobPlan : newPlan) {
-            if (jobPlan.requiresElasticAgent()) {
-                if (!jobCreationTimeMap.containsKey(jobPlan.getJobId())) {
-                    continue;
-                }
-                long lastTryTime = jobCreationTimeMap.get(jobPlan.getJobId());
-                if ((timeProvider.currentTimeMillis() - lastTryTime) >= goConfigService.elasticJobStarvationThreshold()) {
-                    starvingJobs.add(jobPlan);
-                }
+    @Override
+    public void jobScheduled(JobPlan jobPlan) {
+        if (jobPlan.requiresElasticAgent()) {
+            synchronized (jobsWaitingForAgents) {
+                newlyScheduledElasticJobs.put(jobPlan.getJobId(), jobPlan);
             }
         }
+    }
+
+    @Override
+    public void jobUnscheduled(long jobId) {
+        synchronized (jobsWaitingForAgents) {
+            newlyScheduledElasticJobs.remove(jobId);
+            jobsWaitingForAgents.remove(jobId);
+        }
+    }
+
+    /*
+     * Elastic jobs join and leave the queue as they are scheduled and leave the scheduled state, so each call only
+     * requests agents for jobs scheduled since the last call, and for the jobs at the head of the queue that have been
+     * waiting for longer than the starvation threshold. The queue is kept in the order in which an agent was last
+     * requested, so finding the starving jobs stops at the first one that is not.
+     */
+    public void createAgentsFor() {
+        long now = timeProvider.currentTimeMillis();
+        long starvationThreshold = goConfigService.elasticJobStarvationThreshold();
+        List<JobPlan> plansThatRequireElasticAgent = new ArrayList<>();
+
+        synchronized (jobsWaitingForAgents) {
+            plansThatRequireElasticAgent.addAll(newlyScheduledElasticJobs.values());
+            newlyScheduledElasticJobs.clear();
+
+            Iterator<WaitingJob> waitingJobs = jobsWaitingForAgents.values().iterator();
+            while (waitingJobs.hasNext()) {
+                WaitingJob waitingJob = waitingJobs.next();
+                if ((now - waitingJob.agentRequestedAt) < starvationThreshold) {
+                    break;
+                }
+                waitingJobs.remove();
+                plansThatRequireElasticAgent.add(waitingJob.plan);
+            }
 
-        ArrayList<JobPlan> jobsThatRequireAgent = new ArrayList<>();
-        jobsThatRequireAgent.addAll(Sets.difference(new HashSet<>(newPlan), new HashSet<>(old)));
-        jobsThatRequireAgent.addAll(starvingJobs);
+            for (JobPlan plan : plansThatRequireElasticAgent) {
+                jobsWaitingForAgents.put(plan.getJobId(), new WaitingJob(plan, now));
+            }
+        }
 
-        List<JobPlan> plansThatRequireElasticAgent = jobsThatRequireAgent.stream().filter(isElasticAgent()).collect(Collectors.toList());
 //      messageTimeToLive is lesser than the starvation threshold to ensure there are no duplicate create agent message
-        long messageTimeToLive = goConfigService.elasticJobStarvationThreshold() - 10000;
+        long messageTimeToLive = starvationThreshold - 10000;
 
         for (JobPlan plan : plansThatRequireElasticAgent) {
-            jobCreationTimeMap.put(plan.getJobId(), timeProvider.currentTimeMillis());
             ElasticProfile elasticProfile = plan.getElasticProfile();
             if (elasticAgentPluginRegistry.has(elasticProfile.getPluginId())) {
                 String environment = environmentConfigService.envForPipeline(plan.getPipelineName());
@@ -186,15 +225,57 @@ public class ElasticAgentPluginService {
         }
     }
 
-    private Predicate<JobPlan> isElasticAgent() {
-        return JobPlan::requiresElasticAgent;
-    }
-
     public boolean shouldAssignWork(ElasticAgentMetadata metadata, String environment, ElasticProfile elasticProfile, JobIdentifier identifier) {
         ClusterProfile clusterProfile = clusterProfilesService.findProfile(elasticProfile.getClusterProfileId());
         Map<String, String> clusterProfileProperties = clusterProfile != null ? clusterProfile.getConfigurationAsMap(true) : Collections.EMPTY_MAP;
-        GoPluginDescriptor pluginDescriptor = pluginManager.getPluginDescriptorFor(metadata.elasticPluginId());
         Map<String, String> configuration = elasticProfile.getConfigurationAsMap(true);
+        return shouldAssignWork(metadata, environment, elasticProfile, configuration, clusterProfileProperties, identifier);
+    }
+
+    /*
+     * Asks the plugin about each candidate job in order, without requiring the caller to hold any lock, and returns
+     * the jobs the elastic agent can take. Asking stops at the first job the agent can take, except for jobs whose
+     * answer is already cached. Answers are cached for go.elasticplugin.assignment.cache.ttl milliseconds, keyed by the
+     * agent and its state, the elastic and cluster profile configurations, the environment and the job, so that a
+     * change to any of those asks the plugin again. Secure configuration values are keyed by their encrypted value, so
+     * no decrypted secret is held on to by the cache.
+     */
+    public List<JobPlan> filterJobsAssignableTo(ElasticAgentMetadata metadata, List<JobPlan> jobPlans) {
+        purgeExpiredAssignmentDecisions();
+        List<JobPlan> assignableJobPlans = new ArrayList<>();
+        for (JobPlan jobPlan : jobPlans) {
+            if (!jobPlan.requiresElasticAgent()) {
+                continue;
+            }
+            ElasticProfile elasticProfile = jobPlan.getElasticProfile();
+            if (!StringUtils.equals(elasticProfile.getPluginId(), metadata.elasticPluginId())) {
+                continue;
+            }
+
+            String environment = environmentConfigService.envForPipeline(jobPlan.getPipelineName());
+            ClusterProfile clusterProfile = clusterProfilesService.findProfile(elasticProfile.getClusterProfileId());
+            AssignmentDecisionKey key = new AssignmentDecisionKey(metadata, environment, elasticProfile.getClusterProfileId(),
+                    withSecureValuesEncrypted(elasticProfile), withSecureValuesEncrypted(clusterProfile), jobPlan.getJobId());
+
+            Boolean canAssign = cachedAssignmentDecision(key);
+            if (canAssign == null) {
+                if (!assignableJobPlans.isEmpty()) {
+                    continue;
+                }
+                Map<String, String> clusterProfileProperties = clusterProfile != null ? clusterProfile.getConfigurationAsMap(true) : Collections.EMPTY_MAP;
+                Map<String, String> configuration = elasticProfile.getConfigurationAsMap(true);
+                canAssign = shouldAssignWork(metadata, environment, elasticProfile, configuration, clusterProfileProperties, jobPlan.getIdentifier());
+                cacheAssignmentDecision(key, canAssign);
+            }
+            if (canAssign) {
+                assignableJobPlans.add(jobPlan);
+            }
+        }
+        return assignableJobPlans;
+    }
+
+    private boolean shouldAssignWork(ElasticAgentMetadata metadata, String environment, ElasticProfile elasticProfile, Map<String, String> configuration, Map<String, String> clusterProfileProperties, JobIdentifier identifier) {
+        GoPluginDescriptor pluginDescriptor = pluginManager.getPluginDescriptorFor(metadata.elasticPluginId());
 
         if (!StringUtils.equals(elasticProfile.getPluginId(), metadata.elasticPluginId())) {
             return false;
@@ -203,6 +284,42 @@ public class ElasticAgentPluginService {
         return elasticAgentPluginRegistry.shouldAssignWork(pluginDescriptor, toAgentMetadata(metadata), environment, configuration, clusterProfileProperties, identifier);
     }
 
+    private static Map<String, String> withSecureValuesEncrypted(Configuration configuration) {
+        Map<String, String> values = new LinkedHashMap<>();
+        if (configuration != null) {
+            for (ConfigurationProperty property : configuration) {
+                values.put(property.getConfigKeyName(), property.isSecure() ? property.getEncryptedValue() : property.getValue());
+            }
+        }
+        return values;
+    }
+
+    private Boolean cachedAssignmentDecision(AssignmentDecisionKey key) {
+        if (assignmentDecisionTimeToLive <= 0) {
+            return null;
+        }
+        AssignmentDecision decision = assignmentDecisions.get(key);
+        if (decision == null || decision.expiresAt <= timeProvider.currentTimeMillis()) {
+            return null;
+        }
+        return decision.canAssign;
+    }
+
+    private void cacheAssignmentDecision(AssignmentDecisionKey key, boolean canAssign) {
+        if (assignmentDecisionTimeToLive > 0) {
+            assignmentDecisions.put(key, new AssignmentDecision(canAssign, timeProvider.currentTimeMillis() + assignmentDecisionTimeToLive));
+        }
+    }
+
+    private void purgeExpiredAssignmentDecisions() {
+        long now = timeProvider.currentTimeMillis();
+        if (assignmentDecisionTimeToLive <= 0 || now - lastAssignmentDecisionsPurgeTime < assignmentDecisionTimeToLive) {
+            return;
+        }
+        lastAssignmentDecisionsPurgeTime = now;
+        assignmentDecisions.values().removeIf(decision -> decision.expiresAt <= now);
+    }
+
     public String getPluginStatusReport(String pluginId) {
         final ElasticAgentPluginInfo pluginInfo = elasticAgentMetadataStore.getPluginInfo(pluginId);
         if (pluginInfo.getCapabilities().supportsPluginStatusReport()) {
@@ -245,10 +362,6 @@ public class ElasticAgentPluginService {
             return;
         }
 
-        if (job.isAssignedToAgent()) {
-            jobCreationTimeMap.remove(job.getId());
-        }
-
         String pluginId = agentInstance.elasticAgentMetadata().elasticPluginId();
         String elasticAgentId = agentInstance.elasticAgentMetadata().elasticAgentId();
 
@@ -259,4 +372,72 @@ public class ElasticAgentPluginService {
 
         elasticAgentPluginRegistry.reportJobCompletion(pluginId, elasticAgentId, job.getIdentifier(), elasticProfileConfiguration, clusterProfileConfiguration);
     }
+
+    private static class WaitingJob {
+        private final JobPlan plan;
+        private final long agentRequestedAt;
+
+        WaitingJob(JobPlan plan, long agentRequestedAt) {
+            this.plan = plan;
+            this.agentRequestedAt = agentRequestedAt;
+        }
+    }
+
+    private static class AssignmentDecision {
+        private final boolean canAssign;
+        private final long expiresAt;
+
+        AssignmentDecision(boolean canAssign, long expiresAt) {
+            this.canAssign = canAssign;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class AssignmentDecisionKey {
+        private final String agentUuid;
+        private final String elasticAgentId;
+        private final String agentState;
+        private final String buildState;
+        private final String configStatus;
+        private final String environment;
+        private final String clusterProfileId;
+        private final Map<String, String> configuration;
+        private final Map<String, String> clusterProfileProperties;
+        private final long jobId;
+
+        AssignmentDecisionKey(ElasticAgentMetadata metadata, String environment, String clusterProfileId, Map<String, String> configuration, Map<String, String> clusterProfileProperties, long jobId) {
+            this.agentUuid = metadata.uuid();
+            this.elasticAgentId = metadata.elasticAgentId();
+            this.agentState = String.valueOf(metadata.agentState());
+            this.buildState = String.valueOf(metadata.buildState());
+            this.configStatus = String.valueOf(metadata.configStatus());
+            this.environment = environment;
+            this.clusterProfileId = clusterProfileId;
+            this.configuration = configuration;
+            this.clusterProfileProperties = clusterProfileProperties;
+            this.jobId = jobId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            AssignmentDecisionKey that = (AssignmentDecisionKey) o;
+            return jobId == that.jobId &&
+                    Objects.equals(agentUuid, that.agentUuid) &&
+                    Objects.equals(elasticAgentId, that.elasticAgentId) &&
+                    Objects.equals(agentState, that.agentState) &&
+                    Objects.equals(buildState, that.buildState) &&
+                    Objects.equals(configStatus, that.configStatus) &&
+                    Objects.equals(environment, that.environment) &&
+                    Objects.equals(clusterProfileId, that.clusterProfileId) &&
+                    Objects.equals(configuration, that.configuration) &&
+                    Objects.equals(clusterProfileProperties, that.clusterProfileProperties);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(agentUuid, elasticAgentId, agentState, buildState, configStatus, environment, clusterProfileId, configuration, clusterProfileProperties, jobId);
+        }
+    }
 }
@@ -109,6 +109,19 @@ public class JobInstanceService implements JobPlanLoader, ConfigChangedListener
         return jobInstanceDao.findJobHistoryPage(pipelineName, stageName, jobConfigName, pagination.getPageSize(), pagination.getOffset());
     }
 
+    public JobInstances findJobHistoryPageBeforeId(String pipelineName, String stageName, String jobConfigName, Long beforeJobId, int pageSize, String username, OperationResult result) {
+        if (!goConfigService.currentCruiseConfig().hasPipelineNamed(new CaseInsensitiveString(pipelineName))) {
+            result.notFound("Not Found", "Pipeline not found", HealthStateType.general(HealthStateScope.GLOBAL));
+            return null;
+        }
+        if (!securityService.hasViewPermissionForPipeline(Username.valueOf(username), pipelineName)) {
+            result.forbidden("Unauthorized", NOT_AUTHORIZED_TO_VIEW_PIPELINE, HealthStateType.general(HealthStateScope.forPipeline(pipelineName)));
+            return null;
+        }
+
+        return jobInstanceDao.findJobHistoryPageBeforeId(pipelineName, stageName, jobConfigName, beforeJobId, pageSize);
+    }
+
     public JobInstance buildByIdWithTransitions(long buildId) {
         return jobInstanceDao.buildByIdWithTransitions(buildId);
     }
@@ -175,6 +188,10 @@ public class JobInstanceService implements JobPlanLoader, ConfigChangedListener
         return jobInstanceDao.orderedScheduledBuilds();
     }
 
+    public List<JobPlan> queuedScheduledBuilds() {
+        return jobInstanceDao.queuedScheduledBuilds();
+    }
+
     public List<WaitingJobPlan> waitingJobPlans() {
         List<JobPlan> jobPlans = orderedScheduledBuilds();
         List<WaitingJobPlan> waitingJobPlans = new ArrayList<>();
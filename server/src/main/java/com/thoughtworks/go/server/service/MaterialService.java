@@ -113,6 +113,14 @@ public class MaterialService {
         }
     }
 
+    public void rebuildSearchIndex(LocalizedOperationResult result) {
+        if (materialRepository.scheduleSearchIndexRebuild()) {
+            result.accepted("Rebuilding the modification search index.");
+        } else {
+            result.unprocessableEntity("The modification search index is turned off. Start the server with 'go.modifications.search.index' set to true to use it.");
+        }
+    }
+
     public List<Modification> latestModification(Material material,
                                                  File baseDir,
                                                  final SubprocessExecutionContext execCtx) {
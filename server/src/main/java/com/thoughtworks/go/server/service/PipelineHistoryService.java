@@ -49,6 +49,7 @@ import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 
 @Service
 public class PipelineHistoryService {
@@ -126,6 +127,17 @@ public class PipelineHistoryService {
      * Populates future stages as empty, Populates can run for pipeline & each stage, Populate stage run permission
      */
     public PipelineInstanceModels loadMinimalData(String pipelineName, Pagination pagination, Username username, OperationResult result) {
+        return loadMinimalData(pipelineName, username, result, () -> pipelineDao.loadHistory(pipelineName, pagination.getPageSize(), pagination.getOffset()));
+    }
+
+    /*
+     * Same as loadMinimalData, but pages by pipeline counter instead of by offset, which stays fast for old pages.
+     */
+    public PipelineInstanceModels loadMinimalDataBeforeCounter(String pipelineName, Integer beforeCounter, int pageSize, Username username, OperationResult result) {
+        return loadMinimalData(pipelineName, username, result, () -> pipelineDao.loadHistoryBeforeCounter(pipelineName, beforeCounter, pageSize));
+    }
+
+    private PipelineInstanceModels loadMinimalData(String pipelineName, Username username, OperationResult result, Supplier<PipelineInstanceModels> historyLoader) {
         if (!goConfigService.currentCruiseConfig().hasPipelineNamed(new CaseInsensitiveString(pipelineName))) {
             result.notFound("Not Found", "Pipeline " + pipelineName + " not found", HealthStateType.general(HealthStateScope.GLOBAL));
             return null;
@@ -135,7 +147,7 @@ public class PipelineHistoryService {
             return null;
         }
 
-        PipelineInstanceModels history = pipelineDao.loadHistory(pipelineName, pagination.getPageSize(), pagination.getOffset());
+        PipelineInstanceModels history = historyLoader.get();
 
         for (PipelineInstanceModel pipelineInstanceModel : history) {
             populateMaterialRevisionsOnBuildCause(pipelineInstanceModel);
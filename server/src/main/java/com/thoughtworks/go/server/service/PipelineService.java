@@ -286,6 +286,10 @@ public class PipelineService implements UpstreamPipelineResolver {
         return pipelineDao.findBuildCauseOfPipelineByNameAndCounter(pipelineName, pipelineCounter);
     }
 
+    public void cacheBuildCausesFor(List<PipelineIdentifier> pipelines) {
+        pipelineDao.cacheBuildCausesOfPipelines(pipelines);
+    }
+
     private MaterialRevisions restoreOriginalMaterialConfigAndMaterialOrderUsingFingerprint(MaterialRevisions actualRevisions, MaterialRevisions computedRevisions) {
         MaterialRevisions orderedComputedRevisions = new MaterialRevisions();
         for (MaterialRevision actualRevision : actualRevisions) {
@@ -16,20 +16,26 @@
 
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.config.SecretConfig;
 import com.thoughtworks.go.config.SecretParam;
 import com.thoughtworks.go.config.SecretParams;
+import com.thoughtworks.go.listener.ConfigChangedListener;
+import com.thoughtworks.go.listener.EntityConfigChangedListener;
+import com.thoughtworks.go.plugin.access.exceptions.SecretResolutionFailureException;
 import com.thoughtworks.go.plugin.access.secrets.SecretsExtension;
 import com.thoughtworks.go.plugin.domain.secrets.Secret;
+import com.thoughtworks.go.security.CryptoException;
+import com.thoughtworks.go.security.GoCipher;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-import java.util.Map;
-import java.util.function.BiConsumer;
-import java.util.function.Consumer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.groupingBy;
@@ -39,11 +45,33 @@ public class SecretParamResolver {
     private static final Logger LOGGER = LoggerFactory.getLogger(SecretParamResolver.class);
     private SecretsExtension secretsExtension;
     private GoConfigService goConfigService;
+    private final long cacheTtlMillis;
+    private final ExecutorService lookupExecutor;
+    private final ConcurrentMap<String, ConcurrentMap<String, CachedSecret>> cachedSecretsBySecretConfigId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<SecretLookup, CompletableFuture<String>> lookupsInProgress = new ConcurrentHashMap<>();
+    private GoCipher goCipher;
 
     @Autowired
-    public SecretParamResolver(SecretsExtension secretsExtension, GoConfigService goConfigService) {
+    public SecretParamResolver(SecretsExtension secretsExtension, GoConfigService goConfigService, SystemEnvironment systemEnvironment) {
         this.secretsExtension = secretsExtension;
         this.goConfigService = goConfigService;
+        this.cacheTtlMillis = systemEnvironment.get(SystemEnvironment.GO_SECRETS_CACHE_TTL_MILLIS);
+        this.lookupExecutor = lookupExecutor(systemEnvironment.get(SystemEnvironment.GO_SECRETS_LOOKUP_THREADS));
+    }
+
+    public void initialize() {
+        goConfigService.register(new ConfigChangedListener() {
+            @Override
+            public void onConfigChange(CruiseConfig newCruiseConfig) {
+                cachedSecretsBySecretConfigId.clear();
+            }
+        });
+        goConfigService.register(new EntityConfigChangedListener<SecretConfig>() {
+            @Override
+            public void onEntityConfigChange(SecretConfig secretConfig) {
+                cachedSecretsBySecretConfigId.remove(secretConfig.getId());
+            }
+        });
     }
 
     public void resolve(SecretParams secretParams) {
@@ -52,25 +80,179 @@ public class SecretParamResolver {
             return;
         }
 
-        secretParams.groupBySecretConfigId().forEach(lookupAndUpdateSecretParamsValue());
+        Map<String, SecretParams> secretParamsBySecretConfigId = secretParams.groupBySecretConfigId();
+        if (secretParamsBySecretConfigId.size() == 1 || lookupExecutor == null) {
+            secretParamsBySecretConfigId.forEach(this::lookupAndUpdateSecretParamsValue);
+            return;
+        }
+
+        List<Future<?>> lookups = new ArrayList<>();
+        secretParamsBySecretConfigId.forEach((secretConfigId, secretParamsToResolve) ->
+                lookups.add(lookupExecutor.submit(() -> lookupAndUpdateSecretParamsValue(secretConfigId, secretParamsToResolve))));
+        for (Future<?> lookup : lookups) {
+            waitFor(lookup);
+        }
     }
 
-    private BiConsumer<String, SecretParams> lookupAndUpdateSecretParamsValue() {
-        return (secretConfigId, secretParamsToResolve) -> {
-            Map<String, List<SecretParam>> secretParamMap = secretParamsToResolve.stream().collect(groupingBy(SecretParam::getKey, Collectors.toList()));
-            final SecretConfig secretConfig = goConfigService.cruiseConfig().getSecretConfigs().find(secretConfigId);
+    private void lookupAndUpdateSecretParamsValue(String secretConfigId, SecretParams secretParamsToResolve) {
+        Map<String, List<SecretParam>> secretParamMap = secretParamsToResolve.stream().collect(groupingBy(SecretParam::getKey, Collectors.toList()));
+        final SecretConfig secretConfig = goConfigService.cruiseConfig().getSecretConfigs().find(secretConfigId);
+        if (secretConfig == null) {
+            throw new SecretResolutionFailureException(String.format("Secret config with id `%s` does not exist.", secretConfigId));
+        }
+
+        Map<String, CompletableFuture<String>> resolvedValues = new HashMap<>();
+        Map<String, CompletableFuture<String>> keysToLookup = new HashMap<>();
+        for (String key : secretParamMap.keySet()) {
+            String cachedValue = cachedValue(secretConfigId, key);
+            if (cachedValue != null) {
+                resolvedValues.put(key, CompletableFuture.completedFuture(cachedValue));
+                continue;
+            }
+            CompletableFuture<String> lookup = new CompletableFuture<>();
+            CompletableFuture<String> lookupInProgress = lookupsInProgress.putIfAbsent(new SecretLookup(secretConfigId, key), lookup);
+            if (lookupInProgress == null) {
+                keysToLookup.put(key, lookup);
+                resolvedValues.put(key, lookup);
+            } else {
+                LOGGER.debug("Waiting for lookup of secret '{}' using secret config '{}' which is already in progress", key, secretConfigId);
+                resolvedValues.put(key, lookupInProgress);
+            }
+        }
 
-            LOGGER.debug("Resolving secret params '{}' using secret config '{}'", secretParamMap.keySet(), secretConfig.getId());
-            List<Secret> resolvedSecrets = secretsExtension.lookupSecrets(secretConfig.getPluginId(), secretConfig, secretParamMap.keySet());
+        if (!keysToLookup.isEmpty()) {
+            lookupSecrets(secretConfigId, secretConfig, keysToLookup);
+        }
+
+        LOGGER.debug("Updating secret params '{}' with values.", secretParamMap.keySet());
+        resolvedValues.forEach((key, value) -> {
+            String secretValue = waitFor(value);
+            if (secretValue != null) {
+                secretParamMap.get(key).forEach(secretParam -> secretParam.setValue(secretValue));
+            }
+        });
+        LOGGER.debug("Secret params '{}' updated with values.", secretParamMap.keySet());
+    }
+
+    private void lookupSecrets(String secretConfigId, SecretConfig secretConfig, Map<String, CompletableFuture<String>> keysToLookup) {
+        try {
+            LOGGER.debug("Resolving secret params '{}' using secret config '{}'", keysToLookup.keySet(), secretConfigId);
+            List<Secret> resolvedSecrets = secretsExtension.lookupSecrets(secretConfig.getPluginId(), secretConfig, new HashSet<>(keysToLookup.keySet()));
             LOGGER.debug("Resolved secret size '{}'", resolvedSecrets.size());
 
-            LOGGER.debug("Updating secret params '{}' with values.", secretParamMap.keySet());
-            resolvedSecrets.forEach(assignValue(secretParamMap));
-            LOGGER.debug("Secret params '{}' updated with values.", secretParamMap.keySet());
-        };
+            for (Secret secret : resolvedSecrets) {
+                CompletableFuture<String> lookup = keysToLookup.get(secret.getKey());
+                if (lookup != null) {
+                    cache(secretConfigId, secret);
+                    lookup.complete(secret.getValue());
+                }
+            }
+            keysToLookup.values().forEach(lookup -> lookup.complete(null));
+        } catch (RuntimeException e) {
+            keysToLookup.values().forEach(lookup -> lookup.completeExceptionally(e));
+            throw e;
+        } finally {
+            keysToLookup.forEach((key, lookup) -> lookupsInProgress.remove(new SecretLookup(secretConfigId, key), lookup));
+        }
     }
 
-    private Consumer<Secret> assignValue(Map<String, List<SecretParam>> secretParamMap) {
-        return secret -> secretParamMap.get(secret.getKey()).forEach(secretParam -> secretParam.setValue(secret.getValue()));
+    private String cachedValue(String secretConfigId, String key) {
+        if (cacheTtlMillis <= 0) {
+            return null;
+        }
+        Map<String, CachedSecret> cachedSecrets = cachedSecretsBySecretConfigId.get(secretConfigId);
+        CachedSecret cachedSecret = cachedSecrets == null ? null : cachedSecrets.get(key);
+        if (cachedSecret == null || cachedSecret.hasExpired()) {
+            return null;
+        }
+        try {
+            return goCipher().decrypt(cachedSecret.encryptedValue);
+        } catch (CryptoException e) {
+            LOGGER.warn("Could not decrypt cached value of secret '{}' of secret config '{}', it will be looked up again.", key, secretConfigId);
+            return null;
+        }
+    }
+
+    private void cache(String secretConfigId, Secret secret) {
+        if (cacheTtlMillis <= 0 || secret.getValue() == null) {
+            return;
+        }
+        try {
+            cachedSecretsBySecretConfigId.computeIfAbsent(secretConfigId, id -> new ConcurrentHashMap<>())
+                    .put(secret.getKey(), new CachedSecret(goCipher().encrypt(secret.getValue()), System.currentTimeMillis() + cacheTtlMillis));
+        } catch (CryptoException e) {
+            LOGGER.warn("Could not encrypt value of secret '{}' of secret config '{}', it will not be cached.", secret.getKey(), secretConfigId);
+        }
+    }
+
+    private synchronized GoCipher goCipher() {
+        if (goCipher == null) {
+            goCipher = new GoCipher();
+        }
+        return goCipher;
+    }
+
+    private static <T> T waitFor(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static ExecutorService lookupExecutor(int threads) {
+        if (threads <= 1) {
+            return null;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "secret-lookup-thread-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static class CachedSecret {
+        private final String encryptedValue;
+        private final long expiresAt;
+
+        CachedSecret(String encryptedValue, long expiresAt) {
+            this.encryptedValue = encryptedValue;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean hasExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    private static class SecretLookup {
+        private final String secretConfigId;
+        private final String key;
+
+        SecretLookup(String secretConfigId, String key) {
+            this.secretConfigId = secretConfigId;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SecretLookup that = (SecretLookup) o;
+            return Objects.equals(secretConfigId, that.secretConfigId) &&
+                    Objects.equals(key, that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(secretConfigId, key);
+        }
     }
 }
@@ -439,6 +439,24 @@ public class StageService implements StageFinder {
         return stageDao.findDetailedStageHistoryByOffset(pipelineName, stageName, pagination);
     }
 
+    public StageInstanceModels findDetailedStageHistoryBeforeId(String pipelineName,
+                                                                String stageName,
+                                                                Long beforeStageId,
+                                                                int pageSize,
+                                                                String username,
+                                                                OperationResult result) {
+        if (!goConfigService.currentCruiseConfig().hasPipelineNamed(new CaseInsensitiveString(pipelineName))) {
+            result.notFound("Not Found", "Pipeline not found", HealthStateType.general(HealthStateScope.GLOBAL));
+            return null;
+        }
+        if (!securityService.hasViewPermissionForPipeline(Username.valueOf(username), pipelineName)) {
+            result.forbidden("Unauthorized", NOT_AUTHORIZED_TO_VIEW_PIPELINE, HealthStateType.general(HealthStateScope.forPipeline(pipelineName)));
+            return null;
+        }
+
+        return stageDao.findDetailedStageHistoryBeforeId(pipelineName, stageName, beforeStageId, pageSize);
+    }
+
     /**
      * @return Listeners
      * @deprecated Used only in tests
@@ -21,6 +21,7 @@ import com.thoughtworks.go.config.exceptions.RecordNotFoundException;
 import com.thoughtworks.go.config.materials.dependency.DependencyMaterial;
 import com.thoughtworks.go.domain.MaterialInstance;
 import com.thoughtworks.go.domain.MaterialRevision;
+import com.thoughtworks.go.domain.PipelineIdentifier;
 import com.thoughtworks.go.domain.buildcause.BuildCause;
 import com.thoughtworks.go.domain.materials.Material;
 import com.thoughtworks.go.domain.materials.MaterialConfig;
@@ -42,9 +43,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 @Service
 public class ValueStreamMapService {
@@ -56,6 +55,8 @@ public class ValueStreamMapService {
     private final RunStagesPopulator runStagesPopulator;
     private final UnrunStagesPopulator unrunStagePopulator;
     private SecurityService securityService;
+    private CruiseConfig configOfDownstreamMap;
+    private Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap;
     private static final Logger LOGGER = LoggerFactory.getLogger(ValueStreamMapService.class);
 
     @Autowired
@@ -100,9 +101,10 @@ public class ValueStreamMapService {
         }
         String label = pipelineService.findPipelineByNameAndCounter(pipelineName.toString(), counter).getLabel();
         ValueStreamMap valueStreamMap = new ValueStreamMap(pipelineName, new PipelineRevision(pipelineName.toString(), counter, label));
-        Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap = cruiseConfig.generatePipelineVsDownstreamMap();
+        Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap = pipelineToDownstreamMap(cruiseConfig);
 
         traverseDownstream(pipelineName, pipelineToDownstreamMap, valueStreamMap, new ArrayList<>());
+        cacheUpstreamBuildCauses(buildCauseForPipeline);
         traverseUpstream(pipelineName, buildCauseForPipeline, valueStreamMap, new ArrayList<>());
 
         if (valueStreamMap.hasCycle()) {
@@ -182,7 +184,7 @@ public class ValueStreamMapService {
     private ValueStreamMap buildValueStreamMap(Material material, MaterialInstance materialInstance, Modification modification, List<PipelineConfig> downstreamPipelines, Username username) {
         CruiseConfig cruiseConfig = goConfigService.currentCruiseConfig();
         ValueStreamMap valueStreamMap = new ValueStreamMap(material, materialInstance, modification);
-        Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap = cruiseConfig.generatePipelineVsDownstreamMap();
+        Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap = pipelineToDownstreamMap(cruiseConfig);
 
         traverseDownstream(new CaseInsensitiveString(material.getFingerprint()), downstreamPipelines, pipelineToDownstreamMap, valueStreamMap, new ArrayList<>());
 
@@ -207,6 +209,51 @@ public class ValueStreamMapService {
         }
     }
 
+    /*
+     * The current config is replaced (never mutated) on every config change, so the downstream map
+     * computed for a config instance can be reused until a different instance is handed out.
+     */
+    private synchronized Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap(CruiseConfig cruiseConfig) {
+        if (configOfDownstreamMap != cruiseConfig) {
+            pipelineToDownstreamMap = cruiseConfig.generatePipelineVsDownstreamMap();
+            configOfDownstreamMap = cruiseConfig;
+        }
+        return pipelineToDownstreamMap;
+    }
+
+    /*
+     * Walks the upstream graph one level at a time and loads the build causes of all the pipeline instances
+     * at a level with a single query, so that the traversal below is served from the cache.
+     */
+    private void cacheUpstreamBuildCauses(BuildCause buildCause) {
+        Set<PipelineIdentifier> visited = new HashSet<>();
+        List<BuildCause> currentLevel = Collections.singletonList(buildCause);
+        while (!currentLevel.isEmpty()) {
+            List<PipelineIdentifier> nextLevel = new ArrayList<>();
+            for (BuildCause cause : currentLevel) {
+                for (MaterialRevision materialRevision : cause.getMaterialRevisions()) {
+                    if (!(materialRevision.getMaterial() instanceof DependencyMaterial)) {
+                        continue;
+                    }
+                    CaseInsensitiveString upstreamPipeline = ((DependencyMaterial) materialRevision.getMaterial()).getPipelineName();
+                    DependencyMaterialRevision revision = cause.getMaterialRevisions().findDependencyMaterialRevision(upstreamPipeline.toString());
+                    PipelineIdentifier identifier = new PipelineIdentifier(revision.getPipelineName(), revision.getPipelineCounter());
+                    if (visited.add(identifier)) {
+                        nextLevel.add(identifier);
+                    }
+                }
+            }
+            if (!nextLevel.isEmpty()) {
+                pipelineService.cacheBuildCausesFor(nextLevel);
+            }
+
+            currentLevel = new ArrayList<>();
+            for (PipelineIdentifier identifier : nextLevel) {
+                currentLevel.add(pipelineService.buildCauseFor(identifier.getName(), identifier.getCounter()));
+            }
+        }
+    }
+
     private void traverseUpstream(CaseInsensitiveString pipelineName, BuildCause buildCause, ValueStreamMap graph, List<MaterialRevision> visitedNodes) {
         for (MaterialRevision materialRevision : buildCause.getMaterialRevisions()) {
             Material material = materialRevision.getMaterial();
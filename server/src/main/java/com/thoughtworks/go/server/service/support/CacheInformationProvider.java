@@ -16,6 +16,8 @@
 
 package com.thoughtworks.go.server.service.support;
 
+import com.thoughtworks.go.server.cache.GoCache;
+import com.thoughtworks.go.server.cache.KeyFamilyUsage;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.config.CacheConfiguration;
@@ -29,9 +31,11 @@ import java.util.Map;
 
 @Component
 public class CacheInformationProvider implements ServerInfoProvider {
+    private final GoCache goCache;
 
     @Autowired
-    public CacheInformationProvider() {
+    public CacheInformationProvider(GoCache goCache) {
+        this.goCache = goCache;
     }
 
     @Override
@@ -57,6 +61,8 @@ public class CacheInformationProvider implements ServerInfoProvider {
             }
         }
 
+        json.put("GoCache key families", getKeyFamilyUsageAsJson());
+
         return json;
     }
 
@@ -74,6 +80,7 @@ public class CacheInformationProvider implements ServerInfoProvider {
         json.put("Remove Time in milliseconds", getStatisticsFrom(statistics.cacheRemoveOperation()));
 
         json.put("Cache Size", statistics.getSize());
+        json.put("Cache Size in Bytes (Heap)", statistics.getLocalHeapSizeInBytes());
 
         LinkedHashMap<String, Long> cacheCount = new LinkedHashMap<>();
         cacheCount.put("Hits", statistics.cacheHitCount());
@@ -90,6 +97,21 @@ public class CacheInformationProvider implements ServerInfoProvider {
         return json;
     }
 
+    public Map<String, Object> getKeyFamilyUsageAsJson() {
+        LinkedHashMap<String, Object> json = new LinkedHashMap<>();
+        for (KeyFamilyUsage usage : goCache.keyFamilyUsage()) {
+            LinkedHashMap<String, Object> familyJson = new LinkedHashMap<>();
+            familyJson.put("Region", usage.getRegion());
+            familyJson.put("Entries", usage.getEntries());
+            familyJson.put("Estimated Bytes", usage.getEstimatedBytes());
+            familyJson.put("Hits", usage.getHits());
+            familyJson.put("Miss", usage.getMisses());
+            familyJson.put("Hit Ratio", String.format("%.2f", usage.getHitRatio()));
+            json.put(usage.getFamily(), familyJson);
+        }
+        return json;
+    }
+
     private LinkedHashMap<String, Object> getStatisticsFrom(ExtendedStatistics.Result result) {
         LinkedHashMap<String, Object> time = new LinkedHashMap<>();
         time.put("Average", String.valueOf(result.latency().average().value()));
@@ -18,10 +18,13 @@ package com.thoughtworks.go.server.transaction;
 
 import com.thoughtworks.go.database.Database;
 import com.thoughtworks.go.server.cache.GoCache;
+import com.thoughtworks.go.server.database.ReadReplicaRouting;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.beans.factory.InitializingBean;
 
+import java.util.function.Supplier;
+
 public abstract class SqlMapClientDaoSupport implements InitializingBean {
     protected final GoCache goCache;
     private final SqlSessionFactory sqlSessionFactory;
@@ -52,4 +55,12 @@ public abstract class SqlMapClientDaoSupport implements InitializingBean {
         this.sqlSession = sqlSession;
     }
 
+    /**
+     * Runs the queries on the read replica, when one is configured. See {@link ReadReplicaRouting} for which queries
+     * can be sent there.
+     */
+    protected <T> T readFromReplica(Supplier<T> query) {
+        return ReadReplicaRouting.readFromReplica(query);
+    }
+
 }
@@ -17,6 +17,7 @@
 package com.thoughtworks.go.server.util;
 
 import com.thoughtworks.go.database.Database;
+import com.thoughtworks.go.server.database.ReadReplicaRoutingDataSource;
 import com.thoughtworks.go.server.datamigration.DataMigrationRunner;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -41,7 +42,9 @@ public class DatabaseUpgraderDataSourceFactory {
 
     public DataSource dataSource() {
         if (dataSource == null) {
-            this.dataSource = database.createDataSource();
+            DataSource primary = database.createDataSource();
+            DataSource readReplica = database.createReadReplicaDataSource();
+            this.dataSource = readReplica == null ? primary : new ReadReplicaRoutingDataSource(primary, readReplica);
         }
         return dataSource;
     }
@@ -41,11 +41,11 @@ public class CrossingMinimization {
         normalizeDownstream(levelToNodesMap);
     }
 
-    private void normalizeUpstream(NodeLevelMap nodeLevelMap) {
+    void normalizeUpstream(NodeLevelMap nodeLevelMap) {
         reorderByMinDepth(new RightToLeft(nodeLevelMap, LEVEL_OF_CURRENT_PIPELINE - 2));
     }
 
-    private void normalizeDownstream(NodeLevelMap nodeLevelMap) {
+    void normalizeDownstream(NodeLevelMap nodeLevelMap) {
         reorderByMinDepth(new LeftToRight(nodeLevelMap, LEVEL_OF_CURRENT_PIPELINE + 2));
     }
 
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.valuestreammap;
+
+import com.thoughtworks.go.domain.valuestreammap.Node;
+import com.thoughtworks.go.domain.valuestreammap.NodeLevelMap;
+
+import java.util.*;
+
+/**
+ * @understands how to reorder the nodes at each level of a value stream map using repeated barycenter sweeps
+ * over array based layers, keeping the ordering with the fewest edge crossings seen
+ */
+public class IterativeCrossingMinimization extends CrossingMinimization {
+
+    private final int maxSweeps;
+    private final long timeBudgetMillis;
+
+    public IterativeCrossingMinimization(int maxSweeps, long timeBudgetMillis) {
+        this.maxSweeps = maxSweeps;
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    @Override
+    public void apply(NodeLevelMap levelToNodesMap) {
+        long deadline = timeBudgetMillis > 0 ? System.nanoTime() + timeBudgetMillis * 1_000_000L : Long.MAX_VALUE;
+        initializeNodeDepths(levelToNodesMap);
+
+        Layers layers = new Layers(levelToNodesMap);
+        int[][] bestOrder = layers.snapshot();
+        long leastCrossings = layers.crossings();
+
+        for (int sweep = 0; sweep < maxSweeps && leastCrossings > 0 && System.nanoTime() < deadline; sweep++) {
+            layers.sweepLeftToRight();
+            layers.sweepRightToLeft();
+            long crossings = layers.crossings();
+            if (crossings >= leastCrossings) {
+                break;
+            }
+            leastCrossings = crossings;
+            bestOrder = layers.snapshot();
+        }
+
+        layers.applyTo(levelToNodesMap, bestOrder);
+        normalizeUpstream(levelToNodesMap);
+        normalizeDownstream(levelToNodesMap);
+    }
+
+    long crossings(NodeLevelMap levelToNodesMap) {
+        return new Layers(levelToNodesMap).crossings();
+    }
+
+    private static class Layers {
+        private final int lowestLevel;
+        private final Node[] nodes;
+        private final int[][] order;
+        private final int[] position;
+        private final int[][] parents;
+        private final int[][] children;
+        private final double[] baryCentre;
+
+        Layers(NodeLevelMap levelToNodesMap) {
+            lowestLevel = levelToNodesMap.lowestLevel();
+            int numberOfLevels = levelToNodesMap.highestLevel() - lowestLevel + 1;
+            List<Node> allNodes = new ArrayList<>();
+            Map<Node, Integer> indexOf = new IdentityHashMap<>();
+            order = new int[numberOfLevels][];
+
+            for (int level = 0; level < numberOfLevels; level++) {
+                List<Node> nodesAtLevel = levelToNodesMap.get(level + lowestLevel);
+                if (nodesAtLevel == null) {
+                    order[level] = new int[0];
+                    continue;
+                }
+                List<Node> byDepth = new ArrayList<>(nodesAtLevel);
+                Collections.sort(byDepth);
+                order[level] = new int[byDepth.size()];
+                for (int i = 0; i < byDepth.size(); i++) {
+                    indexOf.put(byDepth.get(i), allNodes.size());
+                    order[level][i] = allNodes.size();
+                    allNodes.add(byDepth.get(i));
+                }
+            }
+
+            nodes = allNodes.toArray(new Node[0]);
+            position = new int[nodes.length];
+            parents = new int[nodes.length][];
+            children = new int[nodes.length][];
+            baryCentre = new double[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                parents[i] = indicesOf(nodes[i].getParents(), indexOf);
+                children[i] = indicesOf(nodes[i].getChildren(), indexOf);
+            }
+            updatePositions();
+        }
+
+        void sweepLeftToRight() {
+            for (int level = 1; level < order.length; level++) {
+                reorderByBaryCentre(order[level], parents);
+            }
+        }
+
+        void sweepRightToLeft() {
+            for (int level = order.length - 2; level >= 0; level--) {
+                reorderByBaryCentre(order[level], children);
+            }
+        }
+
+        long crossings() {
+            long crossings = 0;
+            for (int level = 0; level < order.length - 1; level++) {
+                crossings += crossingsBetween(level, level + 1);
+            }
+            return crossings;
+        }
+
+        int[][] snapshot() {
+            int[][] copy = new int[order.length][];
+            for (int level = 0; level < order.length; level++) {
+                copy[level] = order[level].clone();
+            }
+            return copy;
+        }
+
+        void applyTo(NodeLevelMap levelToNodesMap, int[][] bestOrder) {
+            for (int level = 0; level < bestOrder.length; level++) {
+                List<Node> nodesAtLevel = levelToNodesMap.get(level + lowestLevel);
+                if (nodesAtLevel == null) {
+                    continue;
+                }
+                nodesAtLevel.clear();
+                for (int i = 0; i < bestOrder[level].length; i++) {
+                    Node node = nodes[bestOrder[level][i]];
+                    node.setDepth(i + 1);
+                    nodesAtLevel.add(node);
+                }
+            }
+        }
+
+        private void reorderByBaryCentre(int[] nodesAtLevel, int[][] relatedNodesAtPreviousLevel) {
+            for (int node : nodesAtLevel) {
+                int[] related = relatedNodesAtPreviousLevel[node];
+                if (related.length == 0) {
+                    baryCentre[node] = position[node];
+                    continue;
+                }
+                double sum = 0;
+                for (int relatedNode : related) {
+                    sum += position[relatedNode];
+                }
+                baryCentre[node] = sum / related.length;
+            }
+
+            Integer[] sorted = new Integer[nodesAtLevel.length];
+            for (int i = 0; i < nodesAtLevel.length; i++) {
+                sorted[i] = nodesAtLevel[i];
+            }
+            Arrays.sort(sorted, Comparator.comparingDouble(node -> baryCentre[node]));
+            for (int i = 0; i < sorted.length; i++) {
+                nodesAtLevel[i] = sorted[i];
+                position[sorted[i]] = i + 1;
+            }
+        }
+
+        /*
+         * Counts inversions of the edges between two adjacent levels with a Fenwick tree, after ordering
+         * the edges by the position of their source and then of their target.
+         */
+        private long crossingsBetween(int level, int nextLevel) {
+            int targets = order[nextLevel].length;
+            List<long[]> edges = new ArrayList<>();
+            for (int source : order[level]) {
+                for (int target : children[source]) {
+                    if (isAt(target, nextLevel)) {
+                        edges.add(new long[]{position[source], position[target]});
+                    }
+                }
+            }
+            edges.sort((first, second) -> first[0] != second[0] ? Long.compare(first[0], second[0]) : Long.compare(first[1], second[1]));
+
+            long[] tree = new long[targets + 1];
+            long crossings = 0;
+            long seen = 0;
+            for (long[] edge : edges) {
+                int target = (int) edge[1];
+                long atOrBefore = 0;
+                for (int i = target; i > 0; i -= i & -i) {
+                    atOrBefore += tree[i];
+                }
+                crossings += seen - atOrBefore;
+                for (int i = target; i <= targets; i += i & -i) {
+                    tree[i]++;
+                }
+                seen++;
+            }
+            return crossings;
+        }
+
+        private boolean isAt(int node, int level) {
+            int index = position[node] - 1;
+            return index >= 0 && index < order[level].length && order[level][index] == node;
+        }
+
+        private void updatePositions() {
+            for (int[] nodesAtLevel : order) {
+                for (int i = 0; i < nodesAtLevel.length; i++) {
+                    position[nodesAtLevel[i]] = i + 1;
+                }
+            }
+        }
+
+        private static int[] indicesOf(List<Node> relatedNodes, Map<Node, Integer> indexOf) {
+            int[] indices = new int[relatedNodes.size()];
+            int count = 0;
+            for (Node relatedNode : relatedNodes) {
+                Integer index = indexOf.get(relatedNode);
+                if (index != null) {
+                    indices[count++] = index;
+                }
+            }
+            return count == indices.length ? indices : Arrays.copyOf(indices, count);
+        }
+    }
+}
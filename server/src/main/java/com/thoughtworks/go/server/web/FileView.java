@@ -40,6 +40,8 @@ public class FileView implements View, ServletContextAware {
 
     private ServletContext servletContext;
     public static final String NEED_TO_ZIP = "need_to_zip";
+    private static final String BYTES_UNIT = "bytes=";
+    private static final long[] UNSATISFIABLE_RANGE = new long[0];
 
     private ServletContext getServletContext() {
         return this.servletContext;
@@ -53,14 +55,101 @@ public class FileView implements View, ServletContextAware {
         return "application/octet-stream";
     }
 
-    private void handleFile(File file, boolean needToZip, HttpServletResponse response) throws Exception {
+    private void handleFile(File file, boolean needToZip, HttpServletRequest request, HttpServletResponse response) throws Exception {
         String filename = file.getName();
         seContentType(needToZip, response, filename);
         setHeaders(response, filename);
+        if (!needToZip) {
+            setValidatorHeaders(file, response);
+            long[] range = requestedRange(file, request);
+            if (range == UNSATISFIABLE_RANGE) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader("Content-Range", "bytes */" + file.length());
+                return;
+            }
+            if (range != null) {
+                setPartialOutput(file, range[0], range[1], response);
+                return;
+            }
+        }
         setContentLength(needToZip, file, response);
         setOutput(needToZip, file, response);
     }
 
+    private void setValidatorHeaders(File file, HttpServletResponse response) {
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", etag(file));
+        response.setDateHeader("Last-Modified", file.lastModified());
+    }
+
+    static String etag(File file) {
+        return "\"" + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()) + "\"";
+    }
+
+    /**
+     * @return the first and last byte of a single satisfiable range, {@link #UNSATISFIABLE_RANGE}, or null when the
+     * whole file should be sent
+     */
+    private long[] requestedRange(File file, HttpServletRequest request) {
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader == null || !rangeHeader.startsWith(BYTES_UNIT) || rangeHeader.contains(",") || !isUnchangedSince(file, request)) {
+            return null;
+        }
+        String[] bounds = rangeHeader.substring(BYTES_UNIT.length()).trim().split("-", -1);
+        if (bounds.length != 2) {
+            return null;
+        }
+        long length = file.length();
+        try {
+            long first;
+            long last;
+            if (bounds[0].isEmpty()) {
+                long suffixLength = Long.parseLong(bounds[1]);
+                if (suffixLength == 0) {
+                    return UNSATISFIABLE_RANGE;
+                }
+                first = Math.max(0, length - suffixLength);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(bounds[0]);
+                last = bounds[1].isEmpty() ? length - 1 : Math.min(Long.parseLong(bounds[1]), length - 1);
+            }
+            if (first >= length || first > last) {
+                return UNSATISFIABLE_RANGE;
+            }
+            return new long[]{first, last};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private boolean isUnchangedSince(File file, HttpServletRequest request) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag(file));
+        }
+        try {
+            return request.getDateHeader("If-Range") / 1000 == file.lastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void setPartialOutput(File file, long first, long last, HttpServletResponse response) throws IOException {
+        long length = last - first + 1;
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader("Content-Range", String.format("bytes %d-%d/%d", first, last, file.length()));
+        response.addHeader("Content-Length", Long.toString(length));
+        ServletOutputStream out = response.getOutputStream();
+        try (FileInputStream input = new FileInputStream(file)) {
+            IOUtils.copyLarge(input, out, first, length);
+        }
+        out.flush();
+    }
+
     private void setOutput(boolean needToZip, File file, HttpServletResponse response) throws IOException {
         ServletOutputStream out = response.getOutputStream();
         if (needToZip) {
@@ -104,14 +193,14 @@ public class FileView implements View, ServletContextAware {
     public void render(Map map, HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse) throws Exception {
         File file = (File) map.get("targetFile");
         boolean needToZip = map.containsKey(NEED_TO_ZIP);
-        handleFileWithLogging(httpServletResponse, file, needToZip);
+        handleFileWithLogging(httpServletRequest, httpServletResponse, file, needToZip);
     }
 
-    private void handleFileWithLogging(HttpServletResponse httpServletResponse, File file, boolean needToZip) throws Exception {
+    private void handleFileWithLogging(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse, File file, boolean needToZip) throws Exception {
         LOGGER.info("[Artifact Download] About to download: {}. ShouldZip? = {}", file.getAbsolutePath(), needToZip);
         long before = System.currentTimeMillis();
 
-        handleFile(file, needToZip, httpServletResponse);
+        handleFile(file, needToZip, httpServletRequest, httpServletResponse);
 
         long timeTaken = System.currentTimeMillis() - before;
         LOGGER.info("[Artifact Download] Finished downloading: {}. ShouldZip? = {}. The time taken is: {}ms", file.getAbsolutePath(), needToZip, timeTaken);
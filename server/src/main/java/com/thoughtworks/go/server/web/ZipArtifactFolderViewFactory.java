@@ -20,6 +20,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.thoughtworks.go.server.view.artifacts.PreparingArtifactFile;
+import com.thoughtworks.go.server.view.artifacts.StreamedArtifactZip;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
 import org.springframework.web.servlet.ModelAndView;
 import com.thoughtworks.go.domain.JobIdentifier;
@@ -32,6 +33,9 @@ public class ZipArtifactFolderViewFactory implements ArtifactFolderViewFactory {
     }
 
     public ModelAndView createView(JobIdentifier identifier, ArtifactFolder artifactFolder) throws Exception {
+        if (zipArtifactCache.shouldStream(artifactFolder)) {
+            return new ModelAndView(new StreamedArtifactZip(zipArtifactCache, artifactFolder));
+        }
         if (zipArtifactCache.cacheCreated(artifactFolder)) {
             Map<String, Object> data = new HashMap<>();
             data.put("targetFile", zipArtifactCache.cachedFile(artifactFolder));
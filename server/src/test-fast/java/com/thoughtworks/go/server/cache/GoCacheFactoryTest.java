@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.cache;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import net.sf.ehcache.config.CacheConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GoCacheFactoryTest {
+
+    @Test
+    void shouldConfigureARegionForEachKeyFamily() {
+        Map<String, CacheConfiguration> regions = GoCacheFactory.regionConfigurations(" StageSqlMapDao.stageHistories = 64 : 0 ;JobInstanceSqlMapDao.findJobHistoryPage=32:300");
+
+        assertThat(regions.keySet()).containsExactly("StageSqlMapDao.stageHistories", "JobInstanceSqlMapDao.findJobHistoryPage");
+
+        CacheConfiguration stageHistories = regions.get("StageSqlMapDao.stageHistories");
+        assertThat(stageHistories.getName()).isEqualTo("goCache.StageSqlMapDao.stageHistories");
+        assertThat(stageHistories.getMaxBytesLocalHeap()).isEqualTo(64L * 1024 * 1024);
+        assertThat(stageHistories.isEternal()).isTrue();
+
+        CacheConfiguration jobHistory = regions.get("JobInstanceSqlMapDao.findJobHistoryPage");
+        assertThat(jobHistory.getMaxBytesLocalHeap()).isEqualTo(32L * 1024 * 1024);
+        assertThat(jobHistory.isEternal()).isFalse();
+        assertThat(jobHistory.getTimeToLiveSeconds()).isEqualTo(300L);
+    }
+
+    @Test
+    void shouldConfigureNoRegionsWhenThereAreNone() {
+        assertThat(GoCacheFactory.regionConfigurations("")).isEmpty();
+        assertThat(GoCacheFactory.regionConfigurations(null)).isEmpty();
+    }
+
+    @Test
+    void shouldParseTheDefaultRegions() {
+        assertThat(GoCacheFactory.regionConfigurations(new SystemEnvironment().get(SystemEnvironment.GO_CACHE_REGIONS))).containsOnlyKeys("StageSqlMapDao.stageHistories", "StageSqlMapDao.detailedStageHistories");
+    }
+
+    @Test
+    void shouldRejectARegionWithoutBothLimits() {
+        assertThatThrownBy(() -> GoCacheFactory.regionConfigurations("StageSqlMapDao.stageHistories=64"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid cache region 'StageSqlMapDao.stageHistories=64'");
+    }
+
+    @Test
+    void shouldRejectARegionWithoutAKeyFamily() {
+        assertThatThrownBy(() -> GoCacheFactory.regionConfigurations("=64:0"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid cache region '=64:0'");
+    }
+
+    @Test
+    void shouldRejectARegionWhoseLimitsAreNotNumbers() {
+        assertThatThrownBy(() -> GoCacheFactory.regionConfigurations("StageSqlMapDao.stageHistories=64MB:0"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .isNotInstanceOf(NumberFormatException.class)
+                .hasMessageContaining("Invalid cache region 'StageSqlMapDao.stageHistories=64MB:0'")
+                .hasCauseInstanceOf(NumberFormatException.class);
+    }
+}
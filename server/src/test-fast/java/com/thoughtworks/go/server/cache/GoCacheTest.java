@@ -23,6 +23,7 @@ import com.thoughtworks.go.domain.NullUser;
 import com.thoughtworks.go.helper.MaterialsMother;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
 import com.thoughtworks.go.util.LogFixture;
+import com.thoughtworks.go.util.ReflectionUtil;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.config.CacheConfiguration;
@@ -33,9 +34,13 @@ import org.junit.*;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static com.thoughtworks.go.util.LogFixture.logFixtureFor;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
@@ -299,6 +304,76 @@ public class GoCacheTest {
         assertThat(goCache.get(key), is(nullValue()));
     }
 
+    @Test
+    public void shouldGroupKeysIntoFamiliesByTheClassAndIdentifierTheyWereGeneratedFrom() {
+        String key = new CacheKeyGenerator(GoCacheTest.class).generate("history", "pipeline", 1);
+
+        assertThat(GoCache.keyFamily(key), is("GoCacheTest.history"));
+        assertThat(GoCache.keyFamily(key + GoCache.SUB_KEY_DELIMITER + "page-1"), is("GoCacheTest.history"));
+        assertThat(GoCache.keyFamily(new CacheKeyGenerator(GoCacheTest.class).generate("latest")), is("GoCacheTest.latest"));
+        assertThat(GoCache.keyFamily("someKey"), is(GoCache.OTHER_KEY_FAMILY));
+    }
+
+    @Test
+    public void shouldKeepKeyFamiliesWithARegionOfTheirOwnOutOfTheDefaultCache() {
+        Cache region = new Cache(new CacheConfiguration(getClass().getName() + ".history", 1).memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU));
+        cacheManager.addCache(region);
+        Cache defaultCache = cacheManager.getCache(getClass().getName());
+        goCache = new GoCache(defaultCache, Collections.singletonMap("GoCacheTest.history", region), mock(TransactionSynchronizationManager.class));
+        CacheKeyGenerator keys = new CacheKeyGenerator(GoCacheTest.class);
+
+        goCache.put("someKey", "small");
+        goCache.put(keys.generate("history", 1), "large");
+        goCache.put(keys.generate("history", 2), "larger");
+
+        assertThat(goCache.get("someKey"), is("small"));
+        assertThat(goCache.get(keys.generate("history", 1)), is(nullValue()));
+        assertThat(goCache.get(keys.generate("history", 2)), is("larger"));
+        assertThat(region.isKeyInCache(keys.generate("history", 2)), is(true));
+        assertThat(defaultCache.isKeyInCache(keys.generate("history", 2)), is(false));
+        assertThat(goCache.getKeys().size(), is(2));
+
+        goCache.clear();
+        assertThat(goCache.getKeys().size(), is(0));
+    }
+
+    @Test
+    public void shouldForgetTheKeyFamiliesOfKeysOnceTheyAreRemoved() {
+        CacheKeyGenerator keys = new CacheKeyGenerator(GoCacheTest.class);
+        String parentKey = keys.generate("history", 1);
+        goCache.put(parentKey, "page-1", "first page");
+        goCache.put(parentKey, "page-2", "second page");
+        goCache.put(keys.generate("latest"), "latest");
+
+        goCache.remove(parentKey, "page-1");
+        goCache.remove(parentKey);
+        goCache.remove(keys.generate("latest"));
+
+        Map<String, String> keyFamiliesOfCachedKeys = (Map<String, String>) ReflectionUtil.getField(goCache, "keyFamiliesOfCachedKeys");
+        assertThat(keyFamiliesOfCachedKeys.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldReportEntriesSizeAndHitsOfEachKeyFamily() {
+        CacheKeyGenerator keys = new CacheKeyGenerator(GoCacheTest.class);
+        goCache.put(keys.generate("history", 1), largeObject());
+        goCache.put(keys.generate("latest"), "small");
+        goCache.get(keys.generate("history", 1));
+        goCache.get(keys.generate("history", 2));
+
+        List<KeyFamilyUsage> usages = goCache.keyFamilyUsage();
+
+        assertThat(usages.size(), is(2));
+        KeyFamilyUsage history = usages.get(0);
+        assertThat(history.getFamily(), is("GoCacheTest.history"));
+        assertThat(history.getRegion(), is(GoCache.DEFAULT_REGION));
+        assertThat(history.getEntries(), is(1));
+        assertThat(history.getHits(), is(1L));
+        assertThat(history.getMisses(), is(1L));
+        assertThat(history.getHitRatio(), is(0.5));
+        assertThat(history.getEstimatedBytes(), is(greaterThan(usages.get(1).getEstimatedBytes())));
+        assertThat(usages.get(1).getFamily(), is("GoCacheTest.latest"));
+    }
 
     private class NonSerializableClass {
     }
@@ -28,6 +28,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.ArrayList;
 
@@ -106,6 +107,27 @@ public class ZipArtifactCacheTest {
         assertThat(new File(cacheDir, "dir/file1"), exists());
     }
 
+    @Test public void shouldFillTheCacheWhileStreamingTheZip() throws Exception {
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+
+        zipArtifactCache.streamZip(artifactFolder, streamed);
+
+        File zipFile = zipArtifactCache.cachedFile(artifactFolder);
+        assertThat(zipArtifactCache, cacheCreated(artifactFolder));
+        assertThat(FileUtils.readFileToByteArray(zipFile), is(streamed.toByteArray()));
+        assertThat(new File(zipFile.getParentFile(), "dir.zip.tmp"), not(exists()));
+    }
+
+    @Test public void shouldOnlyStreamTheZipWhenTheCacheIsAlreadyBeingCreated() throws Exception {
+        zipArtifactCache.pendingCacheFiles.add(artifactFolder);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+
+        zipArtifactCache.streamZip(artifactFolder, streamed);
+
+        assertThat(streamed.size() > 0, is(true));
+        assertThat(zipArtifactCache.cachedFile(artifactFolder), not(exists()));
+    }
+
     private void waitForCacheCreated() throws Exception {
         int timesTried = 10;
         while (timesTried > 0 && !zipArtifactCache.cacheCreated(artifactFolder)) {
@@ -19,13 +19,16 @@ package com.thoughtworks.go.server.controller;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.service.ArtifactBlobStore;
 import com.thoughtworks.go.server.service.ArtifactsService;
 import com.thoughtworks.go.server.service.ConsoleActivityMonitor;
 import com.thoughtworks.go.server.service.ConsoleService;
 import com.thoughtworks.go.server.service.RestfulService;
 import com.thoughtworks.go.server.web.ArtifactFolderViewFactory;
 import com.thoughtworks.go.server.web.ResponseCodeView;
+import com.thoughtworks.go.util.HttpService;
 import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -68,7 +71,7 @@ public class ArtifactsControllerTest {
         consoleService = mock(ConsoleService.class);
         jobInstanceDao = mock(JobInstanceDao.class);
         systemEnvironment = mock(SystemEnvironment.class);
-        artifactsController = new ArtifactsController(artifactService, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment);
+        artifactsController = new ArtifactsController(artifactService, mock(ArtifactBlobStore.class), restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment);
 
         request = new MockHttpServletRequest();
     }
@@ -123,10 +126,65 @@ public class ArtifactsControllerTest {
         assertThat(view.getContent(), is("Error saving checksum file for the artifact at path 'some-path'"));
     }
 
+    @Test
+    public void shouldRecordTheSizeOfTheUploadedArtifactAgainstItsStage() throws Exception {
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122l);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122l)).thenReturn(jobIdentifier);
+        when(artifactService.findArtifact(any(JobIdentifier.class), eq("some-path"))).thenReturn(new File("junk"));
+        when(artifactService.saveFile(any(File.class), any(InputStream.class), eq(false), eq(1))).thenReturn(true);
+        when(artifactService.saveOrAppendFile(any(File.class), any(InputStream.class))).thenReturn(true);
+
+        MockMultipartHttpServletRequest mockMultipartHttpServletRequest = new MockMultipartHttpServletRequest();
+        mockMultipartHttpServletRequest.addHeader(HttpService.GO_ARTIFACT_PAYLOAD_SIZE, "2048");
+        mockMultipartHttpServletRequest.addFile(new MockMultipartFile(REGULAR_MULTIPART_FILENAME, "content".getBytes()));
+        mockMultipartHttpServletRequest.addFile(new MockMultipartFile(CHECKSUM_MULTIPART_FILENAME, "checksum-content".getBytes()));
+
+        artifactsController.postArtifact("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", 1, mockMultipartHttpServletRequest);
+
+        verify(artifactService).recordArtifactsSize(jobIdentifier, 2048L);
+    }
+
+    @Test
+    public void shouldRejectAManifestWithMalformedEntriesBeforeLinkingAnything() throws Exception {
+        ArtifactBlobStore blobStore = mock(ArtifactBlobStore.class);
+        when(blobStore.isEnabled()).thenReturn(true);
+        ArtifactsController controller = new ArtifactsController(artifactService, blobStore, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment);
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122l);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122l)).thenReturn(jobIdentifier);
+        request.addHeader("Confirm", "true");
+        request.setContentType(ARTIFACT_MANIFEST_CONTENT_TYPE);
+        request.setContent("dist/app.jar=not-a-hash\n".getBytes());
+
+        ModelAndView modelAndView = controller.postDeduplicatedArtifact("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "dist", request);
+
+        assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode(), is(HttpServletResponse.SC_BAD_REQUEST));
+        verify(blobStore, never()).link(anyString(), any(File.class));
+    }
+
+    @Test
+    public void shouldLinkEveryArtifactInTheManifestEvenIfItIsAlreadyThere() throws Exception {
+        ArtifactBlobStore blobStore = mock(ArtifactBlobStore.class);
+        when(blobStore.isEnabled()).thenReturn(true);
+        ArtifactsController controller = new ArtifactsController(artifactService, blobStore, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment);
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122l);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122l)).thenReturn(jobIdentifier);
+        File existingArtifact = File.createTempFile("app", ".jar");
+        existingArtifact.deleteOnExit();
+        when(artifactService.findArtifact(jobIdentifier, "dist/app.jar")).thenReturn(existingArtifact);
+        String hash = DigestUtils.sha256Hex("content");
+        request.addHeader("Confirm", "true");
+        request.setContentType(ARTIFACT_MANIFEST_CONTENT_TYPE);
+        request.setContent(("dist/app.jar=" + hash + "," + DigestUtils.md5Hex("content") + "\n").getBytes());
+
+        controller.postDeduplicatedArtifact("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "dist", request);
+
+        verify(blobStore).link(hash, existingArtifact);
+    }
+
     @Test
     public void shouldFunnelAll_GET_calls() throws Exception {
         final ModelAndView returnVal = new ModelAndView();
-        ArtifactsController controller = new ArtifactsController(artifactService, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment) {
+        ArtifactsController controller = new ArtifactsController(artifactService, mock(ArtifactBlobStore.class), restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment) {
             @Override
             ModelAndView getArtifact(String filePath, ArtifactFolderViewFactory folderViewFactory, String pipelineName, String counterOrLabel, String stageName, String stageCounter,
                                      String buildName, String sha, String serverAlias) throws Exception {
@@ -36,9 +36,15 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Map;
 
 import static com.thoughtworks.go.util.DataStructureUtils.m;
+import static com.thoughtworks.go.util.IBatisUtil.arguments;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.is;
@@ -221,4 +227,30 @@ class JobInstanceSqlMapDaoTest {
                     .isEqualTo("com.thoughtworks.go.server.dao.JobInstanceSqlMapDao.$activeJobIds");
         }
     }
+
+    @Nested
+    class ActiveJobs {
+        @Test
+        void shouldHandOutCachedActiveJobsWithoutCopyingThem() {
+            ActiveJob job = new ActiveJob(1L, "pipeline", 1, "label", "stage", "job");
+            when(template.queryForList("getActiveJobIds")).thenReturn(new ArrayList<>(singletonList(1L)));
+            when(template.queryForObject("getActiveJobById", arguments("id", 1L).asMap())).thenReturn(job);
+
+            assertThat(jobInstanceSqlMapDao.activeJobs().get(0)).isSameAs(job);
+            assertThat(jobInstanceSqlMapDao.activeJobs().get(0)).isSameAs(job);
+            verify(template, times(1)).queryForObject("getActiveJobById", arguments("id", 1L).asMap());
+        }
+
+        @Test
+        void shouldNotLetCallersChangeTheSharedActiveJobs() {
+            for (Field field : ActiveJob.class.getDeclaredFields()) {
+                assertThat(Modifier.isPublic(field.getModifiers())).as(field.getName()).isFalse();
+            }
+            for (Method method : ActiveJob.class.getDeclaredMethods()) {
+                if (Modifier.isPublic(method.getModifiers())) {
+                    assertThat(method.getName()).matches("get.*|equals|hashCode|toString");
+                }
+            }
+        }
+    }
 }
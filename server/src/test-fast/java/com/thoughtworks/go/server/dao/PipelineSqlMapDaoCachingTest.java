@@ -116,6 +116,33 @@ public class PipelineSqlMapDaoCachingTest {
         verifyNoMoreInteractions(mockTemplate, repository);
     }
 
+    @Test
+    public void cacheBuildCausesOfPipelines_shouldLoadOnlyUncachedPipelinesWithASingleQuery() {
+        Pipeline cached = PipelineMother.pipeline("cached");
+        cached.setId(3);
+        cached.setCounter(1);
+        Pipeline uncached = PipelineMother.pipeline("uncached");
+        uncached.setId(4);
+        uncached.setCounter(2);
+
+        MaterialRevisions cachedRevisions = ModificationsMother.createHgMaterialRevisions();
+        MaterialRevisions uncachedRevisions = ModificationsMother.createSvnMaterialRevisions(ModificationsMother.oneModifiedFile("rev-1"));
+        when(repository.findMaterialRevisionsForPipeline(3)).thenReturn(cachedRevisions);
+        when(repository.findMaterialRevisionsForPipeline(4)).thenReturn(uncachedRevisions);
+        when(mockTemplate.queryForObject("findPipelineByNameAndCounter", m("name", "cached", "counter", 1))).thenReturn(cached);
+        List<PipelineIdentifier> uncachedIdentifiers = Collections.singletonList(new PipelineIdentifier("uncached", 2));
+        when(mockTemplate.queryForList("findPipelinesByNamesAndCounters", arguments("pipelines", uncachedIdentifiers).asMap())).thenReturn((List) Collections.singletonList(uncached));
+
+        pipelineDao.findBuildCauseOfPipelineByNameAndCounter("cached", 1);
+        pipelineDao.cacheBuildCausesOfPipelines(Arrays.asList(new PipelineIdentifier("cached", 1), new PipelineIdentifier("uncached", 2)));
+
+        verify(mockTemplate).queryForList("findPipelinesByNamesAndCounters", arguments("pipelines", uncachedIdentifiers).asMap());
+        verify(repository).cacheMaterialRevisionsForPipelines(Collections.singleton(4L));
+
+        assertThat(pipelineDao.findBuildCauseOfPipelineByNameAndCounter("uncached", 2).getMaterialRevisions(), is(uncachedRevisions));
+        verify(mockTemplate, never()).queryForObject("findPipelineByNameAndCounter", m("name", "uncached", "counter", 2));
+    }
+
     @Test
     public void findPipelineIds_shouldCacheResultWhenOnlyLatestPipelineIdIsRequested() {
         List<Long> expectedIds = new ArrayList<>();
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.dao;
+
+import com.thoughtworks.go.domain.JobPlan;
+import com.thoughtworks.go.domain.JobState;
+import com.thoughtworks.go.server.cache.GoCache;
+import com.thoughtworks.go.server.service.StubGoCache;
+import com.thoughtworks.go.server.transaction.TestTransactionSynchronizationManager;
+import com.thoughtworks.go.util.TestingClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ScheduledJobQueueTest {
+    private static final int RECONCILE_INTERVAL = 60 * 1000;
+
+    private List<JobPlan> scheduledInDatabase;
+    private Map<Long, JobPlan> plansInDatabase;
+    private int reloads;
+    private GoCache goCache;
+    private TestingClock clock;
+    private ScheduledJobQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        scheduledInDatabase = new ArrayList<>();
+        plansInDatabase = new HashMap<>();
+        reloads = 0;
+        goCache = new StubGoCache(new TestTransactionSynchronizationManager());
+        clock = new TestingClock();
+        queue = new ScheduledJobQueue(() -> {
+            reloads++;
+            return new ArrayList<>(scheduledInDatabase);
+        }, plansInDatabase::get, goCache, "scheduledJobQueue", clock, () -> RECONCILE_INTERVAL);
+    }
+
+    @Test
+    void shouldLoadScheduledJobsFromTheDatabaseOnFirstAccess() {
+        JobPlan first = scheduled(1L);
+        JobPlan second = scheduled(2L);
+
+        assertThat(queue.jobPlans()).containsExactly(first, second);
+        assertThat(reloads).isEqualTo(1);
+    }
+
+    @Test
+    void shouldApplyCommittedStateChangesWithoutReloadingEveryJob() {
+        scheduled(1L);
+        queue.jobPlans();
+
+        JobPlan second = scheduled(2L);
+        queue.jobStateChanged(2L, JobState.Scheduled);
+        queue.jobStateChanged(1L, JobState.Assigned);
+
+        assertThat(queue.jobPlans()).containsExactly(second);
+        assertThat(reloads).isEqualTo(1);
+    }
+
+    @Test
+    void shouldSkipJobsThatAreNoLongerScheduledByTheTimeTheirPlanIsLoaded() {
+        queue.jobPlans();
+
+        queue.jobStateChanged(3L, JobState.Scheduled);
+
+        assertThat(queue.jobPlans()).isEmpty();
+    }
+
+    @Test
+    void shouldReconcileWithTheDatabaseOnceTheIntervalHasPassed() {
+        scheduled(1L);
+        queue.jobPlans();
+
+        scheduledInDatabase.clear();
+        assertThat(queue.jobPlans()).hasSize(1);
+
+        clock.addMillis(RECONCILE_INTERVAL);
+        assertThat(queue.jobPlans()).isEmpty();
+        assertThat(reloads).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReconcileWithTheDatabaseWhenTheCacheIsCleared() {
+        scheduled(1L);
+        queue.jobPlans();
+
+        scheduledInDatabase.clear();
+        goCache.clear();
+
+        assertThat(queue.jobPlans()).isEmpty();
+        assertThat(reloads).isEqualTo(2);
+    }
+
+    @Test
+    void shouldTellListenersAboutJobsJoiningAndLeavingTheQueue() {
+        ScheduledJobListener listener = mock(ScheduledJobListener.class);
+        queue.addListener(listener);
+        JobPlan first = scheduled(1L);
+        queue.jobPlans();
+        verify(listener).jobScheduled(first);
+
+        JobPlan second = scheduled(2L);
+        queue.jobStateChanged(2L, JobState.Scheduled);
+        queue.jobStateChanged(1L, JobState.Assigned);
+        queue.jobStateChanged(1L, JobState.Building);
+        queue.jobPlans();
+
+        verify(listener).jobScheduled(second);
+        verify(listener, times(1)).jobUnscheduled(1L);
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    void shouldTellListenersAboutJobsFoundToHaveJoinedOrLeftTheQueueWhenReconciling() {
+        ScheduledJobListener listener = mock(ScheduledJobListener.class);
+        queue.addListener(listener);
+        JobPlan first = scheduled(1L);
+        queue.jobPlans();
+
+        scheduledInDatabase.clear();
+        JobPlan second = scheduled(2L);
+        clock.addMillis(RECONCILE_INTERVAL);
+        queue.jobPlans();
+
+        verify(listener).jobScheduled(first);
+        verify(listener).jobScheduled(second);
+        verify(listener).jobUnscheduled(1L);
+        verifyNoMoreInteractions(listener);
+    }
+
+    private JobPlan scheduled(long jobId) {
+        JobPlan plan = mock(JobPlan.class);
+        when(plan.getJobId()).thenReturn(jobId);
+        scheduledInDatabase.add(plan);
+        plansInDatabase.put(jobId, plan);
+        return plan;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.database;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadReplicaRoutingDataSourceTest {
+    private BasicDataSource primary;
+    private BasicDataSource readReplica;
+    private ReadReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = inMemoryDatabaseNamed("primary");
+        readReplica = inMemoryDatabaseNamed("replica");
+        dataSource = new ReadReplicaRoutingDataSource(primary, readReplica);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        primary.close();
+        readReplica.close();
+    }
+
+    @Test
+    void shouldUseThePrimaryByDefault() {
+        assertThat(databaseName(dataSource)).isEqualTo("primary");
+    }
+
+    @Test
+    void shouldUseTheReadReplicaForReadsThatAskForIt() {
+        assertThat(ReadReplicaRouting.readFromReplica(() -> databaseName(dataSource))).isEqualTo("replica");
+        assertThat(databaseName(dataSource)).isEqualTo("primary");
+    }
+
+    @Test
+    void shouldStayOnThePrimaryInsideATransaction() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        String name = transactionTemplate.execute(status -> ReadReplicaRouting.readFromReplica(() -> databaseName(dataSource)));
+
+        assertThat(name).isEqualTo("primary");
+    }
+
+    private BasicDataSource inMemoryDatabaseNamed(String name) throws SQLException {
+        BasicDataSource source = new BasicDataSource();
+        source.setDriverClassName("org.h2.Driver");
+        source.setUrl("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        try (Connection connection = source.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE whoami (name VARCHAR(32))");
+            statement.execute("INSERT INTO whoami VALUES ('" + name + "')");
+        }
+        return source;
+    }
+
+    private static String databaseName(DataSource dataSource) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("SELECT name FROM whoami")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+}
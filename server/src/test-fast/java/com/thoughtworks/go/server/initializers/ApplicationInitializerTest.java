@@ -32,6 +32,7 @@ import com.thoughtworks.go.server.materials.DependencyMaterialUpdateNotifier;
 import com.thoughtworks.go.server.materials.MaterialUpdateService;
 import com.thoughtworks.go.server.materials.SCMMaterialSource;
 import com.thoughtworks.go.server.newsecurity.filters.InvalidateAuthenticationOnSecurityConfigChangeFilter;
+import com.thoughtworks.go.server.persistence.MaterialRepository;
 import com.thoughtworks.go.server.service.*;
 import com.thoughtworks.go.server.service.datasharing.DataSharingSettingsService;
 import com.thoughtworks.go.server.service.datasharing.DataSharingUsageStatisticsReportingService;
@@ -140,6 +141,10 @@ public class ApplicationInitializerTest {
     private DataSharingSettingsService dataSharingSettingsService;
     @Mock
     private DataSharingUsageStatisticsReportingService dataSharingUsageStatisticsReportingService;
+    @Mock
+    private SecretParamResolver secretParamResolver;
+    @Mock
+    private MaterialRepository materialRepository;
     @InjectMocks
     ApplicationInitializer initializer = new ApplicationInitializer();
 
@@ -166,6 +171,16 @@ public class ApplicationInitializerTest {
         verify(backupService).initialize();
     }
 
+    @Test
+    public void shouldInitializeSecretParamResolver() {
+        verify(secretParamResolver).initialize();
+    }
+
+    @Test
+    public void shouldInitializeMaterialRepository() {
+        verify(materialRepository).initialize();
+    }
+
     @Test
     public void shouldRunConfigCipherUpdaterBeforeInitializationOfOtherConfigRelatedServicesAndDatastores() throws Exception {
         InOrder inOrder = inOrder(configCipherUpdater, configElementImplementationRegistrar, configRepository, goFileConfigDataSource, cachedGoConfig, goConfigService);
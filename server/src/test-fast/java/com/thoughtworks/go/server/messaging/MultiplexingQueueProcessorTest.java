@@ -23,7 +23,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InOrder;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import static com.thoughtworks.go.util.LogFixture.logFixtureFor;
+import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
@@ -91,7 +95,7 @@ public class MultiplexingQueueProcessorTest {
             queueProcessor.add(failingAction);
             queueProcessor.add(successfulAction2);
             queueProcessor.start();
-            while (!queueProcessor.queue.isEmpty()) {
+            while (queueProcessor.pendingCount() != 0) {
                 waitForProcessingToHappen(100);
             }
 
@@ -124,6 +128,41 @@ public class MultiplexingQueueProcessorTest {
         inOrder.verify(action3).call();
     }
 
+    @Test
+    public void shouldReplaceAQueuedActionWithTheLatestActionWithTheSameKeyWithoutLosingItsPlaceInTheQueue() throws Exception {
+        List<String> calls = new CopyOnWriteArrayList<>();
+        queueProcessor.add(new RecordingAction(calls, "first for pipeline1", "pipeline1", false));
+        queueProcessor.add(new RecordingAction(calls, "unkeyed", null, false));
+        queueProcessor.add(new RecordingAction(calls, "second for pipeline1", "pipeline1", false));
+        queueProcessor.add(new RecordingAction(calls, "for pipeline2", "pipeline2", false));
+
+        assertThat(queueProcessor.pendingCount(), is(3));
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        assertThat(calls, is(asList("second for pipeline1", "unkeyed", "for pipeline2")));
+        assertThat(queueProcessor.metrics().get("Coalesced"), is(1L));
+        assertThat(queueProcessor.metrics().get("Processed"), is(3L));
+    }
+
+    @Test
+    public void shouldDropKeyedActionsQueuedBeforeAnActionWhichSupersedesThem() throws Exception {
+        List<String> calls = new CopyOnWriteArrayList<>();
+        queueProcessor.add(new RecordingAction(calls, "for pipeline1", "pipeline1", false));
+        queueProcessor.add(new RecordingAction(calls, "unkeyed", null, false));
+        queueProcessor.add(new RecordingAction(calls, "first full reload", "all", true));
+        queueProcessor.add(new RecordingAction(calls, "for pipeline2", "pipeline2", false));
+        queueProcessor.add(new RecordingAction(calls, "second full reload", "all", true));
+        queueProcessor.add(new RecordingAction(calls, "for pipeline3", "pipeline3", false));
+
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        assertThat(calls, is(asList("unkeyed", "second full reload", "for pipeline3")));
+        assertThat(queueProcessor.metrics().get("Superseded"), is(3L));
+        assertThat(queueProcessor.metrics().get("Pending"), is(0));
+    }
+
     private Thread setupNewThreadToAddActionIn(final ThreadNameAccumulator threadNameAccumulator) {
         return new Thread() {
             @Override
@@ -157,4 +196,38 @@ public class MultiplexingQueueProcessorTest {
         String threadOfCall;
         String threadOfQueueAdd;
     }
+
+    private static class RecordingAction implements Action {
+        private final List<String> calls;
+        private final String description;
+        private final String key;
+        private final boolean supersedes;
+
+        RecordingAction(List<String> calls, String description, String key, boolean supersedes) {
+            this.calls = calls;
+            this.description = description;
+            this.key = key;
+            this.supersedes = supersedes;
+        }
+
+        @Override
+        public void call() {
+            calls.add(description);
+        }
+
+        @Override
+        public String description() {
+            return description;
+        }
+
+        @Override
+        public Object coalescingKey() {
+            return key;
+        }
+
+        @Override
+        public boolean supersedesQueuedActions() {
+            return supersedes;
+        }
+    }
 }
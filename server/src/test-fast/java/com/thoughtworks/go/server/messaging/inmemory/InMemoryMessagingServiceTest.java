@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.*;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InMemoryMessagingServiceTest {
+    private InMemoryMessagingService messaging;
+
+    @BeforeEach
+    void setUp() {
+        messaging = messagingWithCapacity(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messaging.stop();
+    }
+
+    @Test
+    void shouldDeliverEveryTopicMessageToEveryListener() throws Exception {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        CollectingListener first = new CollectingListener(2);
+        CollectingListener second = new CollectingListener(2);
+        topic.addListener(first);
+        topic.addListener(second);
+
+        topic.post(new GoTextMessage("one"));
+        topic.post(new GoTextMessage("two"));
+
+        assertThat(first.await()).containsExactly("one", "two");
+        assertThat(second.await()).containsExactly("one", "two");
+    }
+
+    @Test
+    void shouldDeliverEachQueueMessageToOnlyOneOfTheCompetingListeners() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        queue.addListener(message -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        queue.post(new GoTextMessage("hang"));
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CollectingListener fast = new CollectingListener(3);
+        queue.addListener(fast);
+        queue.post(new GoTextMessage("one"));
+        queue.post(new GoTextMessage("two"));
+        queue.post(new GoTextMessage("three"));
+
+        assertThat(fast.await()).containsExactly("one", "two", "three");
+        release.countDown();
+    }
+
+    @Test
+    void shouldKeepDeliveringAfterAListenerThrows() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        CollectingListener listener = new CollectingListener(2) {
+            @Override
+            public void onMessage(GoTextMessage message) {
+                super.onMessage(message);
+                throw new RuntimeException("boom");
+            }
+        };
+        queue.addListener(listener);
+
+        queue.post(new GoTextMessage("one"));
+        queue.post(new GoTextMessage("two"));
+
+        assertThat(listener.await()).containsExactly("one", "two");
+    }
+
+    @Test
+    void shouldDropMessagesWhoseTimeToLiveHasPassed() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.post(new GoTextMessage("expired"), 1);
+        Thread.sleep(10);
+        queue.post(new GoTextMessage("fresh"), 60000);
+
+        CollectingListener listener = new CollectingListener(1);
+        queue.addListener(listener);
+
+        assertThat(listener.await()).containsExactly("fresh");
+    }
+
+    @Test
+    void shouldStopListenersWhenTheirQueueIsRemoved() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        InMemoryMessageListenerAdapter adapter = (InMemoryMessageListenerAdapter) queue.addListener(new CollectingListener(0));
+
+        queue.stop();
+
+        adapter.thread.join(5000);
+        assertThat(adapter.thread.isAlive()).isFalse();
+    }
+
+    @Test
+    void shouldStopDeliveringToATopicListenerOnceItIsStopped() throws Exception {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        CollectingListener stopped = new CollectingListener(1);
+        CollectingListener running = new CollectingListener(1);
+        topic.addListener(stopped).stop();
+        topic.addListener(running);
+
+        topic.post(new GoTextMessage("one"));
+
+        assertThat(running.await()).containsExactly("one");
+        assertThat(stopped.received).isEmpty();
+    }
+
+    @Test
+    void shouldHoldUpSendersOfAFullQueueUntilItsListenersCatchUp() throws Exception {
+        messaging.stop();
+        messaging = messagingWithCapacity(1);
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingListener listener = new CollectingListener(3) {
+            @Override
+            public void onMessage(GoTextMessage message) {
+                super.onMessage(message);
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        };
+        queue.addListener(listener);
+        queue.post(new GoTextMessage("hang"));
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        queue.post(new GoTextMessage("one"));
+
+        Thread sender = new Thread(() -> queue.post(new GoTextMessage("two")));
+        sender.start();
+        sender.join(200);
+        assertThat(sender.isAlive()).isTrue();
+
+        release.countDown();
+        sender.join(5000);
+        assertThat(sender.isAlive()).isFalse();
+        assertThat(listener.await()).containsExactly("hang", "one", "two");
+    }
+
+    private InMemoryMessagingService messagingWithCapacity(int capacity) {
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SystemEnvironment.GO_SERVER_IN_MEMORY_MESSAGING_CAPACITY)).thenReturn(capacity);
+        return new InMemoryMessagingService(new DaemonThreadStatsCollector(), systemEnvironment, mock(ServerHealthService.class));
+    }
+
+    private static class CollectingListener implements GoMessageListener<GoTextMessage> {
+        private final List<String> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch latch;
+
+        CollectingListener(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onMessage(GoTextMessage message) {
+            received.add(message.getText());
+            latch.countDown();
+        }
+
+        List<String> await() throws InterruptedException {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            return received;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.thoughtworks.go.server.messaging.notifications;
 
 import com.thoughtworks.go.plugin.access.notification.NotificationExtension;
 import com.thoughtworks.go.plugin.api.response.Result;
+import com.thoughtworks.go.server.messaging.PluginMessageQueueMetrics;
 import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.serverhealth.ServerHealthState;
@@ -84,4 +85,17 @@ public class PluginNotificationMessageListenerTest {
         verify(notificationExtension).notify("pid", "request-name", message.getData());
     }
 
+    @Test
+    public void shouldRecordDeliveryOfMessageInMetrics() {
+        NotificationExtension notificationExtension = mock(NotificationExtension.class);
+        ServerHealthService serverHealthService = mock(ServerHealthService.class);
+        PluginMessageQueueMetrics metrics = new PluginMessageQueueMetrics();
+        PluginNotificationMessageListener listener = new PluginNotificationMessageListener(notificationExtension, serverHealthService, metrics);
+
+        PluginNotificationMessage message = new PluginNotificationMessage("pid", "request-name", "data");
+        when(notificationExtension.notify(message.pluginId(), message.getRequestName(), message.getData())).thenReturn(new Result());
+        listener.onMessage(message);
+
+        assertThat(metrics.asJson().get("pid").get("Delivered"), is(1L));
+    }
 }
@@ -16,26 +16,39 @@
 
 package com.thoughtworks.go.server.messaging.notifications;
 
+import com.thoughtworks.go.domain.notificationdata.AgentNotificationData;
 import com.thoughtworks.go.plugin.access.notification.NotificationExtension;
+import com.thoughtworks.go.plugin.api.response.Result;
 import com.thoughtworks.go.plugin.infra.PluginManager;
 import com.thoughtworks.go.plugin.infra.plugininfo.GoPluginDescriptor;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.MessageSender;
 import com.thoughtworks.go.server.messaging.MessagingService;
 import com.thoughtworks.go.server.messaging.PluginAwareMessageQueue;
 import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.util.ReflectionUtil;
 import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.TestingClock;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
 
+import static com.thoughtworks.go.util.SystemEnvironment.NOTIFICATION_PLUGIN_COALESCE_WINDOW_MILLIS;
+import static com.thoughtworks.go.util.SystemEnvironment.NOTIFICATION_PLUGIN_MAX_PENDING_MESSAGES;
 import static org.junit.Assert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertFalse;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 public class PluginNotificationsQueueHandlerTest {
@@ -49,12 +62,19 @@ public class PluginNotificationsQueueHandlerTest {
     private SystemEnvironment systemEnvironment;
     @Mock
     private ServerHealthService serverHealthService;
+    @Mock
+    private MessageSender messageSender;
+    private TestingClock clock;
     private PluginNotificationsQueueHandler handler;
 
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        handler = new PluginNotificationsQueueHandler(messagingService, notificationExtension, pluginManager, systemEnvironment, serverHealthService);
+        when(systemEnvironment.get(NOTIFICATION_PLUGIN_COALESCE_WINDOW_MILLIS)).thenReturn(0L);
+        when(systemEnvironment.get(NOTIFICATION_PLUGIN_MAX_PENDING_MESSAGES)).thenReturn(2);
+        when(messagingService.createQueueSender(anyString())).thenReturn(messageSender);
+        clock = new TestingClock();
+        handler = new PluginNotificationsQueueHandler(messagingService, notificationExtension, pluginManager, systemEnvironment, serverHealthService, clock);
     }
 
     @Test
@@ -79,4 +99,144 @@ public class PluginNotificationsQueueHandlerTest {
         HashMap<String, ArrayList<JMSMessageListenerAdapter>> listenersForPlugin3 = (HashMap<String, ArrayList<JMSMessageListenerAdapter>>) ReflectionUtil.getField(queueForPlugin3, "listeners");
         assertThat(listenersForPlugin3.get(pluginId3).size(), is(2) );
     }
+
+    @Test
+    public void shouldPostNotificationsStraightToThePluginQueueWhenCoalescingIsDisabled() {
+        loadPlugin("plugin-1");
+        PluginNotificationMessage message = agentStatus("plugin-1", "agent-1", "Idle");
+
+        handler.post(message, 1000L);
+
+        verify(messageSender).sendMessage(message, 1000L);
+        assertThat(handler.metrics().asJson().get("plugin-1").get("Posted"), is(1L));
+    }
+
+    @Test
+    public void shouldSendOnlyTheLatestStatusOfAnAgentWithinACoalescingWindow() {
+        when(systemEnvironment.get(NOTIFICATION_PLUGIN_COALESCE_WINDOW_MILLIS)).thenReturn(60_000L);
+        handler = new PluginNotificationsQueueHandler(messagingService, notificationExtension, pluginManager, systemEnvironment, serverHealthService, clock);
+        loadPlugin("plugin-1");
+        PluginNotificationMessage building = agentStatus("plugin-1", "agent-1", "Building");
+        PluginNotificationMessage idle = agentStatus("plugin-1", "agent-1", "Idle");
+        PluginNotificationMessage otherAgent = agentStatus("plugin-1", "agent-2", "Idle");
+
+        handler.post(building, 1000L);
+        handler.post(otherAgent, 1000L);
+        handler.post(idle, 1000L);
+        verifyZeroInteractions(messageSender);
+
+        handler.flush();
+
+        verify(messageSender).sendMessage(idle, 1000L);
+        verify(messageSender).sendMessage(otherAgent, 1000L);
+        verify(messageSender, never()).sendMessage(building, 1000L);
+        Map<String, Object> metrics = handler.metrics().asJson().get("plugin-1");
+        assertThat(metrics.get("Posted"), is(2L));
+        assertThat(metrics.get("Coalesced"), is(1L));
+        assertThat(metrics.get("Pending"), is(0L));
+    }
+
+    @Test
+    public void shouldDropAgentStatusNotificationsWhenTooManyAreWaitingForAPlugin() {
+        when(systemEnvironment.get(NOTIFICATION_PLUGIN_COALESCE_WINDOW_MILLIS)).thenReturn(60_000L);
+        handler = new PluginNotificationsQueueHandler(messagingService, notificationExtension, pluginManager, systemEnvironment, serverHealthService, clock);
+        loadPlugin("plugin-1");
+
+        handler.post(agentStatus("plugin-1", "agent-1", "Idle"), 1000L);
+        handler.post(agentStatus("plugin-1", "agent-2", "Idle"), 1000L);
+        handler.post(agentStatus("plugin-1", "agent-3", "Idle"), 1000L);
+        handler.flush();
+
+        verify(messageSender, times(2)).sendMessage(any(), anyLong());
+        assertThat(handler.metrics().asJson().get("plugin-1").get("Dropped"), is(1L));
+    }
+
+    @Test
+    public void shouldDropAgentStatusNotificationsWhenTooManyAreWaitingOnThePluginQueueEvenWithoutCoalescing() {
+        loadPlugin("plugin-1");
+
+        handler.post(agentStatus("plugin-1", "agent-1", "Idle"), 1000L);
+        handler.post(agentStatus("plugin-1", "agent-2", "Idle"), 1000L);
+        handler.post(agentStatus("plugin-1", "agent-3", "Idle"), 1000L);
+
+        verify(messageSender, times(2)).sendMessage(any(), anyLong());
+        assertThat(handler.metrics().asJson().get("plugin-1").get("Dropped"), is(1L));
+    }
+
+    @Test
+    public void shouldNeverDropStageStatusNotifications() {
+        loadPlugin("plugin-1");
+
+        handler.post(new PluginNotificationMessage<>("plugin-1", NotificationExtension.STAGE_STATUS_CHANGE_NOTIFICATION, "stage-1"), 1000L);
+        handler.post(new PluginNotificationMessage<>("plugin-1", NotificationExtension.STAGE_STATUS_CHANGE_NOTIFICATION, "stage-2"), 1000L);
+        handler.post(new PluginNotificationMessage<>("plugin-1", NotificationExtension.STAGE_STATUS_CHANGE_NOTIFICATION, "stage-3"), 1000L);
+        handler.post(agentStatus("plugin-1", "agent-1", "Idle"), 1000L);
+
+        verify(messageSender, times(3)).sendMessage(any(), anyLong());
+        assertThat(handler.metrics().asJson().get("plugin-1").get("Dropped"), is(1L));
+    }
+
+    @Test
+    public void shouldNotBoundNotificationsByDefault() {
+        when(systemEnvironment.get(NOTIFICATION_PLUGIN_MAX_PENDING_MESSAGES)).thenReturn(new SystemEnvironment().get(NOTIFICATION_PLUGIN_MAX_PENDING_MESSAGES));
+        handler = new PluginNotificationsQueueHandler(messagingService, notificationExtension, pluginManager, systemEnvironment, serverHealthService, clock);
+        loadPlugin("plugin-1");
+
+        for (int i = 0; i < 100; i++) {
+            handler.post(agentStatus("plugin-1", "agent-" + i, "Idle"), 1000L);
+        }
+
+        verify(messageSender, times(100)).sendMessage(any(), anyLong());
+        assertThat(handler.metrics().asJson().get("plugin-1").get("Dropped"), is(0L));
+    }
+
+    @Test
+    public void shouldMakeRoomOnThePluginQueueAsNotificationsAreDeliveredOrExpire() {
+        loadPlugin("plugin-1");
+        ArgumentCaptor<GoMessageListener> listener = ArgumentCaptor.forClass(GoMessageListener.class);
+        verify(messagingService).addQueueListener(anyString(), listener.capture());
+        when(notificationExtension.notify(anyString(), anyString(), any())).thenReturn(new Result());
+
+        PluginNotificationMessage first = agentStatus("plugin-1", "agent-1", "Idle");
+        handler.post(first, 1000L);
+        handler.post(agentStatus("plugin-1", "agent-2", "Idle"), 1000L);
+        listener.getValue().onMessage(first);
+        handler.post(agentStatus("plugin-1", "agent-3", "Idle"), 1000L);
+        clock.addMillis(1001);
+        handler.post(agentStatus("plugin-1", "agent-4", "Idle"), 1000L);
+
+        verify(messageSender, times(4)).sendMessage(any(), anyLong());
+        assertThat(handler.metrics().asJson().get("plugin-1").get("Dropped"), is(0L));
+    }
+
+    @Test
+    public void shouldStopCountingTheNotificationThatWasTakenWhenTheyHaveDifferentTimesToLive() {
+        loadPlugin("plugin-1");
+        ArgumentCaptor<GoMessageListener> listener = ArgumentCaptor.forClass(GoMessageListener.class);
+        verify(messagingService).addQueueListener(anyString(), listener.capture());
+        when(notificationExtension.notify(anyString(), anyString(), any())).thenReturn(new Result());
+
+        handler.post(agentStatus("plugin-1", "agent-1", "Idle"), 1000L);
+        PluginNotificationMessage longLived = agentStatus("plugin-1", "agent-2", "Idle");
+        handler.post(longLived, 60_000L);
+        listener.getValue().onMessage(longLived);
+        clock.addMillis(1001);
+        handler.post(agentStatus("plugin-1", "agent-3", "Idle"), 1000L);
+        handler.post(agentStatus("plugin-1", "agent-4", "Idle"), 1000L);
+        handler.post(agentStatus("plugin-1", "agent-5", "Idle"), 1000L);
+
+        verify(messageSender, times(4)).sendMessage(any(), anyLong());
+        assertThat(handler.metrics().asJson().get("plugin-1").get("Dropped"), is(1L));
+    }
+
+    private void loadPlugin(String pluginId) {
+        when(notificationExtension.canHandlePlugin(pluginId)).thenReturn(true);
+        when(systemEnvironment.getNotificationListenerCountForPlugin(pluginId)).thenReturn(1);
+        handler.pluginLoaded(new GoPluginDescriptor(pluginId, "1.0", null, null, null, false));
+    }
+
+    private PluginNotificationMessage agentStatus(String pluginId, String uuid, String agentState) {
+        AgentNotificationData data = new AgentNotificationData(uuid, "host", false, "127.0.0.1", "linux", "100", "Enabled", agentState, "Idle", new Date());
+        return new PluginNotificationMessage<>(pluginId, NotificationExtension.AGENT_STATUS_CHANGE_NOTIFICATION, data);
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.persistence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModificationSearchIndexTest {
+    private ModificationSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ModificationSearchIndex(3, 1000);
+        index.add(1L, "40c95a3c41f54b5fb3107982cf2acd08783f102a", "pavan", "fixed the build", null);
+        index.add(2L, "c30c471137f31a4bf735f653f888e799f6deec04", "turn_her", "Added Search", "upstream-1.2");
+        index.markReady();
+    }
+
+    @Test
+    void shouldNotNarrowAnythingDownUntilItIsReady() {
+        index.clear();
+
+        assertThat(index.candidatesFor("pavan")).isNull();
+    }
+
+    @Test
+    void shouldFindModificationsWithATermContainingTheSearchString() {
+        assertThat(index.candidatesFor("ava")).containsExactly(1L);
+        assertThat(index.candidatesFor("SEARCH")).containsExactly(2L);
+        assertThat(index.candidatesFor("40c95a")).containsExactly(1L);
+        assertThat(index.candidatesFor("-1.2")).containsExactly(2L);
+    }
+
+    @Test
+    void shouldRequireEveryPieceOfTheSearchStringToBeFound() {
+        assertThat(index.candidatesFor("her add")).containsExactly(2L);
+        assertThat(index.candidatesFor("pavan search")).isEmpty();
+    }
+
+    @Test
+    void shouldTreatWildcardsAndEscapesAsSeparators() {
+        assertThat(index.candidatesFor("turn_her")).containsExactly(2L);
+        assertThat(index.candidatesFor("fix%build")).containsExactly(1L);
+        assertThat(index.candidatesFor("turn\\_her")).containsExactly(2L);
+    }
+
+    @Test
+    void shouldListTheMostRecentModificationsFirst() {
+        index.add(3L, "rev-3", "someone", "fixed it again", null);
+
+        assertThat(index.candidatesFor("fixed")).containsExactly(3L, 1L);
+    }
+
+    @Test
+    void shouldNotNarrowDownSearchStringsMatchingTooManyModificationsOrTooShortToBeIndexed() {
+        for (long id = 3; id <= 6; id++) {
+            index.add(id, "rev-" + id, "someone", "comment", null);
+        }
+
+        assertThat(index.candidatesFor("rev")).isNull();
+        assertThat(index.candidatesFor("rev-4")).containsExactly(4L);
+        assertThat(index.candidatesFor("e")).isNull();
+        assertThat(index.candidatesFor("e build")).containsExactly(1L);
+        assertThat(index.candidatesFor("")).isNull();
+    }
+
+    @Test
+    void shouldStopNarrowingSearchesDownOnceItHoldsTooManyEntriesUntilItIsRebuilt() {
+        ModificationSearchIndex small = new ModificationSearchIndex(3, 10);
+        small.add(1L, "pavan");
+        small.markReady();
+        assertThat(small.candidatesFor("pavan")).containsExactly(1L);
+
+        small.add(2L, "a much longer comment");
+        small.markReady();
+        assertThat(small.isReady()).isFalse();
+        assertThat(small.candidatesFor("pavan")).isNull();
+
+        small.clear();
+        small.add(1L, "pavan");
+        small.markReady();
+        assertThat(small.candidatesFor("pavan")).containsExactly(1L);
+    }
+}
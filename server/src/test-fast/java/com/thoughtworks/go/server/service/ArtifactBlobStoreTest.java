@@ -0,0 +1,203 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.TestingClock;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@EnableRuleMigrationSupport
+class ArtifactBlobStoreTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ArtifactBlobStore blobStore;
+    private File artifactsDir;
+    private TestingClock clock;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        temporaryFolder.create();
+        artifactsDir = temporaryFolder.newFolder("artifacts");
+        ArtifactsDirHolder artifactsDirHolder = mock(ArtifactsDirHolder.class);
+        when(artifactsDirHolder.getArtifactsDir()).thenReturn(artifactsDir);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SystemEnvironment.GO_ARTIFACTS_BLOB_LINK_GRACE_PERIOD_MILLIS)).thenReturn(60_000L);
+        clock = new TestingClock();
+        blobStore = new ArtifactBlobStore(artifactsDirHolder, systemEnvironment, clock);
+    }
+
+    @Test
+    void shouldReportOnlyTheHashesItDoesNotHave() throws IOException {
+        String stored = DigestUtils.sha256Hex("stored");
+        String notStored = DigestUtils.sha256Hex("not-stored");
+        blobStore.store(stored, stream("stored"));
+
+        assertThat(blobStore.missing(Arrays.asList(stored, notStored, "../not-a-hash"))).containsExactly(notStored, "../not-a-hash");
+    }
+
+    @Test
+    void shouldRejectContentWhichDoesNotMatchItsHash() throws IOException {
+        String hash = DigestUtils.sha256Hex("expected");
+
+        assertThat(blobStore.store(hash, stream("actual"))).isFalse();
+        assertThat(blobStore.missing(Arrays.asList(hash))).containsExactly(hash);
+        assertThat(FileUtils.listFiles(new File(artifactsDir, ArtifactBlobStore.BLOBS_DIR), null, true)).isEmpty();
+    }
+
+    @Test
+    void shouldLinkBlobsIntoJobArtifacts() throws IOException {
+        String hash = DigestUtils.sha256Hex("content");
+        blobStore.store(hash, stream("content"));
+
+        File first = new File(artifactsDir, "pipelines/first/dist/app.jar");
+        File second = new File(artifactsDir, "pipelines/second/dist/app.jar");
+        blobStore.link(hash, first);
+        blobStore.link(hash, second);
+
+        assertThat(FileUtils.readFileToString(first, UTF_8)).isEqualTo("content");
+        assertThat(FileUtils.readFileToString(second, UTF_8)).isEqualTo("content");
+    }
+
+    @Test
+    void shouldReplaceAnArtifactWhichIsAlreadyThereWithTheBlob() throws IOException {
+        String hash = DigestUtils.sha256Hex("content");
+        blobStore.store(hash, stream("content"));
+        File artifact = new File(artifactsDir, "pipelines/first/dist/app.jar");
+        FileUtils.writeStringToFile(artifact, "old content", UTF_8);
+
+        blobStore.link(hash, artifact);
+
+        assertThat(FileUtils.readFileToString(artifact, UTF_8)).isEqualTo("content");
+        assertThat(artifact.getParentFile().list()).containsExactly("app.jar");
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void shouldMakeBlobsReadOnly() throws IOException {
+        String hash = DigestUtils.sha256Hex("content");
+        blobStore.store(hash, stream("content"));
+        File artifact = new File(artifactsDir, "pipelines/first/content.txt");
+        blobStore.link(hash, artifact);
+
+        assertThat(Files.getPosixFilePermissions(artifact.toPath())).doesNotContain(PosixFilePermission.OWNER_WRITE);
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void shouldCopyAnArtifactWhichIsLinkedToABlobBeforeItIsWrittenTo() throws IOException {
+        String hash = DigestUtils.sha256Hex("content");
+        blobStore.store(hash, stream("content"));
+        File first = new File(artifactsDir, "pipelines/first/content.txt");
+        File second = new File(artifactsDir, "pipelines/second/content.txt");
+        blobStore.link(hash, first);
+        blobStore.link(hash, second);
+
+        ArtifactBlobStore.copyIfShared(first);
+        FileUtils.writeStringToFile(first, " and more", UTF_8, true);
+
+        assertThat(FileUtils.readFileToString(first, UTF_8)).isEqualTo("content and more");
+        assertThat(FileUtils.readFileToString(second, UTF_8)).isEqualTo("content");
+        File third = new File(artifactsDir, "pipelines/third/content.txt");
+        blobStore.link(hash, third);
+        assertThat(FileUtils.readFileToString(third, UTF_8)).isEqualTo("content");
+    }
+
+    @Test
+    void shouldNotCopyAnArtifactWhichIsNotShared() throws IOException {
+        File artifact = new File(artifactsDir, "pipelines/first/content.txt");
+        FileUtils.writeStringToFile(artifact, "content", UTF_8);
+        Object fileKey = Files.readAttributes(artifact.toPath(), BasicFileAttributes.class).fileKey();
+
+        ArtifactBlobStore.copyIfShared(artifact);
+
+        assertThat(Files.readAttributes(artifact.toPath(), BasicFileAttributes.class).fileKey()).isEqualTo(fileKey);
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void shouldReleaseOnlyBlobsWhichAreNoLongerLinkedFromAnyJob() throws IOException {
+        String used = DigestUtils.sha256Hex("used");
+        String unused = DigestUtils.sha256Hex("unused");
+        blobStore.store(used, stream("used"));
+        blobStore.store(unused, stream("unused"));
+        File artifact = new File(artifactsDir, "pipelines/first/used.txt");
+        blobStore.link(used, artifact);
+        blobStore.link(unused, new File(artifactsDir, "pipelines/first/unused.txt"));
+        FileUtils.deleteQuietly(new File(artifactsDir, "pipelines/first/unused.txt"));
+
+        assertThat(blobStore.releaseUnreferenced()).isEqualTo(1);
+
+        assertThat(blobStore.missing(Arrays.asList(used, unused))).containsExactly(unused);
+        assertThat(FileUtils.readFileToString(artifact, UTF_8)).isEqualTo("used");
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void shouldKeepBlobsWhichAgentsAreAboutToLinkUntilTheGracePeriodEnds() throws IOException {
+        String stored = DigestUtils.sha256Hex("stored");
+        String reported = DigestUtils.sha256Hex("reported");
+        blobStore.store(stored, stream("stored"));
+        blobStore.store(reported, stream("reported"));
+        blobStore.link(reported, new File(artifactsDir, "pipelines/first/reported.txt"));
+        FileUtils.deleteQuietly(new File(artifactsDir, "pipelines/first/reported.txt"));
+        assertThat(blobStore.missing(Arrays.asList(reported))).isEmpty();
+
+        assertThat(blobStore.releaseUnreferenced()).isEqualTo(0);
+
+        clock.addMillis(60_001);
+        assertThat(blobStore.releaseUnreferenced()).isEqualTo(2);
+        assertThat(blobStore.missing(Arrays.asList(stored, reported))).containsExactly(stored, reported);
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void shouldNotKeepABlobOnceItHasBeenLinked() throws IOException {
+        String hash = DigestUtils.sha256Hex("content");
+        blobStore.store(hash, stream("content"));
+        File artifact = new File(artifactsDir, "pipelines/first/content.txt");
+        blobStore.link(hash, artifact);
+        FileUtils.deleteQuietly(artifact);
+
+        assertThat(blobStore.releaseUnreferenced()).isEqualTo(1);
+    }
+
+    private ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(UTF_8));
+    }
+}
@@ -18,7 +18,10 @@ package com.thoughtworks.go.server.service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.thoughtworks.go.config.ServerConfig;
 import com.thoughtworks.go.domain.Stage;
@@ -41,6 +44,7 @@ import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -56,12 +60,14 @@ public class ArtifactsDiskCleanerTest {
     private ServerConfig serverConfig;
     private StageService stageService;
     private ArtifactsService artifactService;
+    private ArtifactBlobStore artifactBlobStore;
     private ConfigDbStateRepository configDbStateRepository;
     private ServerHealthService serverHealthService;
 
     @Before
     public void setUp() throws Exception {
         sysEnv = mock(SystemEnvironment.class);
+        when(sysEnv.get(SystemEnvironment.GO_ARTIFACTS_PURGE_THREADS)).thenReturn(4);
 
         serverConfig = new ServerConfig();
         goConfigService = mock(GoConfigService.class);
@@ -71,12 +77,13 @@ public class ArtifactsDiskCleanerTest {
         when(goConfigService.serverConfig()).thenReturn(serverConfig);
 
         artifactService = mock(ArtifactsService.class);
+        artifactBlobStore = mock(ArtifactBlobStore.class);
 
         diskSpaceChecker = mock(SystemDiskSpaceChecker.class);
 
         configDbStateRepository = mock(ConfigDbStateRepository.class);
 
-        artifactsDiskCleaner = new ArtifactsDiskCleaner(sysEnv, goConfigService, diskSpaceChecker, artifactService, stageService, configDbStateRepository);
+        artifactsDiskCleaner = new ArtifactsDiskCleaner(sysEnv, goConfigService, diskSpaceChecker, artifactService, artifactBlobStore, stageService, configDbStateRepository);
     }
 
     @Test
@@ -96,7 +103,7 @@ public class ArtifactsDiskCleanerTest {
         final Thread[] artifactDeleterThread = {null};
         final Semaphore sem = new Semaphore(1);
         sem.acquire();
-        artifactsDiskCleaner = new ArtifactsDiskCleaner(sysEnv, goConfigService, diskSpaceChecker, artifactService, stageService, configDbStateRepository) {
+        artifactsDiskCleaner = new ArtifactsDiskCleaner(sysEnv, goConfigService, diskSpaceChecker, artifactService, artifactBlobStore, stageService, configDbStateRepository) {
             @Override void deleteOldArtifacts() {
                 artifactDeleterThread[0] = Thread.currentThread();
                 artifactsDeletionTriggered[0] = true;
@@ -148,6 +155,34 @@ public class ArtifactsDiskCleanerTest {
         verifyNoMoreInteractions(artifactService);
     }
 
+    @Test
+    public void shouldPurgeStagesTogetherUntilTheirRecordedSizesAreExpectedToFreeEnoughDisk() {
+        serverConfig.setPurgeLimits(5.0, 9.0);
+        Stage stageOne = StageMother.passedStageInstance("stage", "build", "pipeline");
+        Stage stageTwo = StageMother.passedStageInstance("another", "job", "with-pipeline");
+        Stage stageThree = StageMother.passedStageInstance("yet-another", "job1", "foo-pipeline");
+        for (Stage stage : Arrays.asList(stageOne, stageTwo, stageThree)) {
+            stage.setArtifactsSize(3 * GoConstants.GIGA_BYTE);
+        }
+        when(stageService.oldestStagesWithDeletableArtifacts()).thenReturn(Arrays.asList(stageOne, stageTwo, stageThree));
+
+        AtomicLong usableSpace = new AtomicLong(4 * GoConstants.GIGA_BYTE);
+        Set<Thread> purgingThreads = ConcurrentHashMap.newKeySet();
+        when(diskSpaceChecker.getUsableSpace(goConfigService.artifactsDir())).thenAnswer(invocation -> usableSpace.get());
+        doAnswer(invocation -> {
+            purgingThreads.add(Thread.currentThread());
+            usableSpace.addAndGet(3 * GoConstants.GIGA_BYTE);
+            return null;
+        }).when(artifactService).purgeArtifactsForStage(any(Stage.class));
+
+        artifactsDiskCleaner.deleteOldArtifacts();
+
+        verify(artifactService).purgeArtifactsForStage(stageOne);
+        verify(artifactService).purgeArtifactsForStage(stageTwo);
+        verifyNoMoreInteractions(artifactService);
+        assertThat(purgingThreads.contains(Thread.currentThread()), is(false));
+    }
+
     @Test
     public void shouldDeleteMultiplePagesOfOldestStagesHavingArtifacts() {
         serverConfig.setPurgeLimits(5.0, 9.0);
@@ -195,6 +230,30 @@ public class ArtifactsDiskCleanerTest {
         verifyNoMoreInteractions(stageService);
     }
 
+    @Test
+    public void shouldReleaseUnreferencedBlobsAfterPurgingEachPageOfStages() {
+        serverConfig.setPurgeLimits(5.0, 9.0);
+        final Stage stageOne = StageMother.passedStageInstance("stage", "build", "pipeline");
+        final Stage stageTwo = StageMother.passedStageInstance("another", "job", "with-pipeline");
+
+        when(stageService.oldestStagesWithDeletableArtifacts()).thenReturn(Arrays.asList(stageOne));
+        when(diskSpaceChecker.getUsableSpace(goConfigService.artifactsDir())).thenReturn(4 * GoConstants.GIGA_BYTE);
+        doAnswer(invocation -> {
+            when(stageService.oldestStagesWithDeletableArtifacts()).thenReturn(Arrays.asList(stageTwo));
+            return null;
+        }).when(artifactService).purgeArtifactsForStage(stageOne);
+        doAnswer(invocation -> {
+            when(diskSpaceChecker.getUsableSpace(goConfigService.artifactsDir())).thenReturn(10 * GoConstants.GIGA_BYTE);
+            return 1;
+        }).when(artifactBlobStore).releaseUnreferenced();
+
+        artifactsDiskCleaner.deleteOldArtifacts();
+
+        verify(artifactService).purgeArtifactsForStage(stageOne);
+        verify(artifactBlobStore).releaseUnreferenced();
+        verifyNoMoreInteractions(artifactService);
+    }
+
     @Test
     public void shouldUseA_NonServerHealthAware_result() {
         serverHealthService = mock(ServerHealthService.class);
@@ -40,14 +40,15 @@ import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
-import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import static com.thoughtworks.go.server.service.ArtifactsService.LOG_XML_NAME;
 import static com.thoughtworks.go.util.GoConstants.PUBLISH_MAX_RETRIES;
@@ -408,6 +409,53 @@ public class ArtifactsServiceTest {
         verify(stageService).markArtifactsDeletedFor(stage);
     }
 
+    @Test
+    void shouldMoveAStreamedZipIntoTheDestinationAlongsideFilesAlreadyThere() throws IOException {
+        File dest = new File(fakeRoot, "dest");
+        FileUtils.writeStringToFile(new File(dest, "dir/existing.txt"), "existing", UTF_8);
+        byte[] zip = zipOf("dir/uploaded.txt", "uploaded".getBytes(UTF_8));
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, new ZipUtil(), systemService);
+
+        assertThat(artifactsService.saveStreamedZip(dest, new ByteArrayInputStream(zip), 1, (entry, stream) -> {
+        })).isTrue();
+
+        assertThat(FileUtils.readFileToString(new File(dest, "dir/existing.txt"), UTF_8)).isEqualTo("existing");
+        assertThat(FileUtils.readFileToString(new File(dest, "dir/uploaded.txt"), UTF_8)).isEqualTo("uploaded");
+        assertThat(fakeRoot.list()).containsExactly("dest");
+    }
+
+    @Test
+    void shouldNotLeavePartlyExtractedFilesBehindWhenAStreamedZipBreaksOff() throws IOException {
+        File dest = new File(fakeRoot, "dest");
+        byte[] content = new byte[64 * 1024];
+        new Random(42).nextBytes(content);
+        byte[] zip = zipOf("first.bin", content, "second.bin", content);
+        InputStream brokenOff = new SequenceInputStream(new ByteArrayInputStream(zip, 0, zip.length - content.length / 2), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, new ZipUtil(), systemService);
+
+        assertThat(artifactsService.saveStreamedZip(dest, brokenOff, 1, (entry, stream) -> {
+        })).isFalse();
+
+        assertThat(fakeRoot.list()).isEmpty();
+    }
+
+    private byte[] zipOf(Object... namesAndContents) throws IOException {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                out.putNextEntry(new ZipEntry((String) namesAndContents[i]));
+                out.write((byte[]) namesAndContents[i + 1]);
+                out.closeEntry();
+            }
+        }
+        return zip.toByteArray();
+    }
+
     private void assumeArtifactsRoot(final File artifactsRoot) {
         Mockito.when(artifactsDirHolder.getArtifactsDir()).thenReturn(artifactsRoot);
     }
@@ -47,6 +47,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.UUID;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
@@ -119,7 +120,7 @@ class BuildAssignmentServiceTest {
         profiles.put(elasticProfile1.getId(), elasticProfile1);
         profiles.put(elasticProfile2.getId(), elasticProfile2);
         schedulingContext = new DefaultSchedulingContext("me", new Agents(elasticAgent), profiles);
-        when(jobInstanceService.orderedScheduledBuilds()).thenReturn(jobPlans);
+        when(jobInstanceService.queuedScheduledBuilds()).thenReturn(jobPlans);
         when(environmentConfigService.filterJobsByAgent(ArgumentMatchers.eq(jobPlans), any(String.class))).thenReturn(jobPlans);
         when(environmentConfigService.envForPipeline(any(String.class))).thenReturn("");
         when(maintenanceModeService.isMaintenanceMode()).thenReturn(false);
@@ -130,23 +131,23 @@ class BuildAssignmentServiceTest {
         PipelineConfig pipelineWithElasticJob = PipelineConfigMother.pipelineWithElasticJob(elasticProfileId1);
         JobPlan jobPlan = new InstanceFactory().createJobPlan(pipelineWithElasticJob.first().getJobs().first(), schedulingContext);
         jobPlans.add(jobPlan);
-        when(elasticAgentPluginService.shouldAssignWork(elasticAgentInstance.elasticAgentMetadata(), null, jobPlan.getElasticProfile(), jobPlan.getIdentifier())).thenReturn(true);
+        when(elasticAgentPluginService.filterJobsAssignableTo(elasticAgentInstance.elasticAgentMetadata(), jobPlans)).thenReturn(singletonList(jobPlan));
         buildAssignmentService.onTimer();
 
-        JobPlan matchingJob = buildAssignmentService.findMatchingJob(elasticAgentInstance);
+        JobPlan matchingJob = buildAssignmentService.findMatchingElasticJob(buildAssignmentService.elasticJobsAssignableTo(elasticAgentInstance));
         assertThat(matchingJob).isEqualTo(jobPlan);
         assertThat(buildAssignmentService.jobPlans().size()).isEqualTo(0);
     }
 
     @Test
-    void shouldNotMatchAnElasticJobToAnElasticAgentOnlyIfThePluginIdMatches() {
+    void shouldNotMatchAnElasticJobToAnElasticAgentWhenThePluginDoesNotAgreeToAnyAssignment() {
         PipelineConfig pipelineWithElasticJob = PipelineConfigMother.pipelineWithElasticJob(elasticProfileId1);
         JobPlan jobPlan1 = new InstanceFactory().createJobPlan(pipelineWithElasticJob.first().getJobs().first(), schedulingContext);
         jobPlans.add(jobPlan1);
-        when(elasticAgentPluginService.shouldAssignWork(elasticAgentInstance.elasticAgentMetadata(), null, jobPlan1.getElasticProfile(), null)).thenReturn(false);
+        when(elasticAgentPluginService.filterJobsAssignableTo(elasticAgentInstance.elasticAgentMetadata(), jobPlans)).thenReturn(emptyList());
         buildAssignmentService.onTimer();
 
-        JobPlan matchingJob = buildAssignmentService.findMatchingJob(elasticAgentInstance);
+        JobPlan matchingJob = buildAssignmentService.findMatchingElasticJob(buildAssignmentService.elasticJobsAssignableTo(elasticAgentInstance));
         assertThat(matchingJob).isNull();
         assertThat(buildAssignmentService.jobPlans().size()).isEqualTo(1);
     }
@@ -158,16 +159,29 @@ class BuildAssignmentServiceTest {
         JobPlan jobPlan2 = new InstanceFactory().createJobPlan(pipelineWith2ElasticJobs.first().getJobs().last(), schedulingContext);
         jobPlans.add(jobPlan1);
         jobPlans.add(jobPlan2);
-        when(elasticAgentPluginService.shouldAssignWork(elasticAgentInstance.elasticAgentMetadata(), null, jobPlan1.getElasticProfile(), jobPlan1.getIdentifier())).thenReturn(false);
-        when(elasticAgentPluginService.shouldAssignWork(elasticAgentInstance.elasticAgentMetadata(), null, jobPlan2.getElasticProfile(), jobPlan2.getIdentifier())).thenReturn(true);
+        when(elasticAgentPluginService.filterJobsAssignableTo(elasticAgentInstance.elasticAgentMetadata(), jobPlans)).thenReturn(singletonList(jobPlan2));
         buildAssignmentService.onTimer();
 
-
-        JobPlan matchingJob = buildAssignmentService.findMatchingJob(elasticAgentInstance);
+        JobPlan matchingJob = buildAssignmentService.findMatchingElasticJob(buildAssignmentService.elasticJobsAssignableTo(elasticAgentInstance));
         assertThat(matchingJob).isEqualTo(jobPlan2);
         assertThat(buildAssignmentService.jobPlans().size()).isEqualTo(1);
     }
 
+    @Test
+    void shouldNotAssignAnElasticJobWhichWasTakenByAnotherAgentWhileThePluginWasBeingAsked() {
+        PipelineConfig pipelineWithElasticJob = PipelineConfigMother.pipelineWithElasticJob(elasticProfileId1);
+        JobPlan jobPlan = new InstanceFactory().createJobPlan(pipelineWithElasticJob.first().getJobs().first(), schedulingContext);
+        jobPlans.add(jobPlan);
+        buildAssignmentService.onTimer();
+        when(elasticAgentPluginService.filterJobsAssignableTo(eq(elasticAgentInstance.elasticAgentMetadata()), any())).thenAnswer(invocation -> {
+            buildAssignmentService.jobPlans().remove(jobPlan);
+            return singletonList(jobPlan);
+        });
+
+        assertThat(buildAssignmentService.assignWorkToAgent(elasticAgentInstance)).isSameAs(BuildAssignmentService.NO_WORK);
+        verify(elasticAgentPluginService, never()).shouldAssignWork(any(), any(), any(), any());
+    }
+
     @Test
     void shouldMatchNonElasticJobToNonElasticAgentIfResourcesMatch() {
         PipelineConfig pipeline = PipelineConfigMother.pipelineConfig(UUID.randomUUID().toString());
@@ -22,6 +22,7 @@ import com.thoughtworks.go.config.elastic.ClusterProfile;
 import com.thoughtworks.go.config.elastic.ClusterProfiles;
 import com.thoughtworks.go.config.elastic.ElasticProfile;
 import com.thoughtworks.go.domain.*;
+import com.thoughtworks.go.domain.packagerepository.ConfigurationPropertyMother;
 import com.thoughtworks.go.helper.AgentInstanceMother;
 import com.thoughtworks.go.helper.GoConfigMother;
 import com.thoughtworks.go.helper.JobInstanceMother;
@@ -155,7 +156,11 @@ class ElasticAgentPluginServiceTest {
         ArgumentCaptor<CreateAgentMessage> createAgentMessageArgumentCaptor = ArgumentCaptor.forClass(CreateAgentMessage.class);
         ArgumentCaptor<Long> ttl = ArgumentCaptor.forClass(Long.class);
         when(environmentConfigService.envForPipeline("pipeline-2")).thenReturn("env-2");
-        service.createAgentsFor(Arrays.asList(plan1), Arrays.asList(plan1, plan2));
+        service.jobScheduled(plan1);
+        service.createAgentsFor();
+        reset(createAgentQueue);
+        service.jobScheduled(plan2);
+        service.createAgentsFor();
 
         verify(createAgentQueue).post(createAgentMessageArgumentCaptor.capture(), ttl.capture());
         CreateAgentMessage createAgentMessage = createAgentMessageArgumentCaptor.getValue();
@@ -177,7 +182,8 @@ class ElasticAgentPluginServiceTest {
         ArgumentCaptor<CreateAgentMessage> createAgentMessageArgumentCaptor = ArgumentCaptor.forClass(CreateAgentMessage.class);
         ArgumentCaptor<Long> ttl = ArgumentCaptor.forClass(Long.class);
         when(environmentConfigService.envForPipeline("pipeline-2")).thenReturn("env-2");
-        service.createAgentsFor(Arrays.asList(plan1), Arrays.asList(plan1, plan2));
+        service.jobScheduled(plan2);
+        service.createAgentsFor();
 
         verify(createAgentQueue).post(createAgentMessageArgumentCaptor.capture(), ttl.capture());
         assertThat(ttl.getValue()).isEqualTo(10000L);
@@ -192,8 +198,9 @@ class ElasticAgentPluginServiceTest {
         when(clusterProfilesService.findProfile(plan1.getElasticProfile().getClusterProfileId())).thenReturn(clusterProfile);
         ArgumentCaptor<CreateAgentMessage> captor = ArgumentCaptor.forClass(CreateAgentMessage.class);
         ArgumentCaptor<Long> ttl = ArgumentCaptor.forClass(Long.class);
-        service.createAgentsFor(new ArrayList<>(), Arrays.asList(plan1));
-        service.createAgentsFor(Arrays.asList(plan1), Arrays.asList(plan1));//invoke create again
+        service.jobScheduled(plan1);
+        service.createAgentsFor();
+        service.createAgentsFor();//invoke create again
 
         verify(createAgentQueue, times(2)).post(captor.capture(), ttl.capture());
         verifyNoMoreInteractions(createAgentQueue);
@@ -204,11 +211,67 @@ class ElasticAgentPluginServiceTest {
         assertThat(createAgentMessage.configuration()).isEqualTo(plan1.getElasticProfile().getConfigurationAsMap(true));
     }
 
+    @Test
+    void shouldNotRetryCreateAgentForJobWhichIsNotStarving() {
+        JobPlan plan1 = plan(1, "docker");
+        when(goConfigService.elasticJobStarvationThreshold()).thenReturn(60000L);
+
+        service.jobScheduled(plan1);
+        service.createAgentsFor();
+        service.createAgentsFor();
+
+        verify(createAgentQueue, times(1)).post(any(), anyLong());
+    }
+
+    @Test
+    void shouldStopRequestingAgentsForJobsOnceTheyAreNoLongerScheduled() {
+        JobPlan plan1 = plan(1, "docker");
+        JobPlan plan2 = plan(2, "docker");
+        when(goConfigService.elasticJobStarvationThreshold()).thenReturn(0L);
+
+        service.jobScheduled(plan1);
+        service.jobScheduled(plan2);
+        service.createAgentsFor();
+        service.jobUnscheduled(1L);
+        reset(createAgentQueue);
+        service.createAgentsFor();
+
+        ArgumentCaptor<CreateAgentMessage> captor = ArgumentCaptor.forClass(CreateAgentMessage.class);
+        verify(createAgentQueue).post(captor.capture(), anyLong());
+        assertThat(captor.getValue().jobIdentifier()).isEqualTo(plan2.getIdentifier());
+    }
+
+    @Test
+    void shouldNotRequestAnAgentForAJobThatLeftTheScheduledStateBeforeOneWasRequested() {
+        service.jobScheduled(plan(1, "docker"));
+        service.jobUnscheduled(1L);
+        service.createAgentsFor();
+
+        verifyZeroInteractions(createAgentQueue);
+    }
+
+    @Test
+    void shouldNotRequestAgentsForJobsThatDoNotRequireElasticAgents() {
+        JobPlan plan = mock(JobPlan.class);
+        when(plan.requiresElasticAgent()).thenReturn(false);
+
+        service.jobScheduled(plan);
+        service.createAgentsFor();
+
+        verifyZeroInteractions(createAgentQueue);
+    }
+
+    @Test
+    void shouldListenForJobsJoiningAndLeavingTheScheduledJobQueue() {
+        verify(jobInstanceSqlMapDao).addScheduledJobListener(service);
+    }
+
     @Test
     void shouldReportMissingElasticPlugin() {
         JobPlan plan1 = plan(1, "missing");
         ArgumentCaptor<ServerHealthState> captorForHealthState = ArgumentCaptor.forClass(ServerHealthState.class);
-        service.createAgentsFor(new ArrayList<>(), Arrays.asList(plan1));
+        service.jobScheduled(plan1);
+        service.createAgentsFor();
 
         verify(serverHealthService).update(captorForHealthState.capture());
         verifyZeroInteractions(createAgentQueue);
@@ -228,7 +291,8 @@ class ElasticAgentPluginServiceTest {
         ArgumentCaptor<HealthStateScope> captor = ArgumentCaptor.forClass(HealthStateScope.class);
         ArgumentCaptor<Long> ttl = ArgumentCaptor.forClass(Long.class);
 
-        service.createAgentsFor(new ArrayList<>(), Arrays.asList(plan1));
+        service.jobScheduled(plan1);
+        service.createAgentsFor();
 
         verify(createAgentQueue, times(1)).post(any(), ttl.capture());
         verify(serverHealthService).removeByScope(captor.capture());
@@ -240,8 +304,9 @@ class ElasticAgentPluginServiceTest {
     void shouldRetryCreateAgentForJobForWhichAssociatedPluginIsMissing() {
         when(goConfigService.elasticJobStarvationThreshold()).thenReturn(0L);
         JobPlan plan1 = plan(1, "missing");
-        service.createAgentsFor(new ArrayList<>(), Arrays.asList(plan1));
-        service.createAgentsFor(Arrays.asList(plan1), Arrays.asList(plan1));//invoke create again
+        service.jobScheduled(plan1);
+        service.createAgentsFor();
+        service.createAgentsFor();//invoke create again
 
         verifyZeroInteractions(createAgentQueue);
         ArgumentCaptor<ServerHealthState> captorForHealthState = ArgumentCaptor.forClass(ServerHealthState.class);
@@ -285,6 +350,62 @@ class ElasticAgentPluginServiceTest {
         verifyNoMoreInteractions(registry);
     }
 
+    @Test
+    void shouldStopAskingThePluginAboutJobsOnceTheAgentCanTakeOne() {
+        String uuid = UUID.randomUUID().toString();
+        ElasticAgentMetadata agentMetadata = new ElasticAgentMetadata(uuid, uuid, "docker", AgentRuntimeStatus.Idle, AgentConfigStatus.Enabled);
+        JobPlan plan1 = plan(1, "docker");
+        JobPlan plan2 = plan(2, "docker");
+        JobPlan plan3 = plan(3, "docker");
+        when(registry.shouldAssignWork(any(), any(), any(), any(), any(), eq(plan1.getIdentifier()))).thenReturn(false);
+        when(registry.shouldAssignWork(any(), any(), any(), any(), any(), eq(plan2.getIdentifier()))).thenReturn(true);
+
+        assertThat(service.filterJobsAssignableTo(agentMetadata, Arrays.asList(plan1, plan2, plan3))).containsExactly(plan2);
+        verify(registry, never()).shouldAssignWork(any(), any(), any(), any(), any(), eq(plan3.getIdentifier()));
+    }
+
+    @Test
+    void shouldReuseAssignmentDecisionsUntilTheAgentChanges() {
+        service.setAssignmentDecisionTimeToLive(60000L);
+        String uuid = UUID.randomUUID().toString();
+        ElasticAgentMetadata agentMetadata = new ElasticAgentMetadata(uuid, uuid, "docker", AgentRuntimeStatus.Idle, AgentConfigStatus.Enabled);
+        JobPlan plan1 = plan(1, "docker");
+        when(registry.shouldAssignWork(any(), any(), any(), any(), any(), any())).thenReturn(false);
+
+        assertThat(service.filterJobsAssignableTo(agentMetadata, Arrays.asList(plan1))).isEmpty();
+        assertThat(service.filterJobsAssignableTo(agentMetadata, Arrays.asList(plan1))).isEmpty();
+        verify(registry, times(1)).shouldAssignWork(any(), any(), any(), any(), any(), any());
+
+        ElasticAgentMetadata changedAgentMetadata = new ElasticAgentMetadata(uuid, uuid, "docker", AgentRuntimeStatus.Idle, AgentConfigStatus.Disabled);
+        service.filterJobsAssignableTo(changedAgentMetadata, Arrays.asList(plan1));
+        verify(registry, times(2)).shouldAssignWork(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldAskThePluginAgainWhenASecureValueOfTheElasticProfileChanges() {
+        service.setAssignmentDecisionTimeToLive(60000L);
+        String uuid = UUID.randomUUID().toString();
+        ElasticAgentMetadata agentMetadata = new ElasticAgentMetadata(uuid, uuid, "docker", AgentRuntimeStatus.Idle, AgentConfigStatus.Enabled);
+        when(registry.shouldAssignWork(any(), any(), any(), any(), any(), any())).thenReturn(false);
+
+        JobPlan plan = planWithSecret(1, "docker", "secret");
+        service.filterJobsAssignableTo(agentMetadata, Arrays.asList(plan));
+        service.filterJobsAssignableTo(agentMetadata, Arrays.asList(plan));
+        verify(registry, times(1)).shouldAssignWork(any(), any(), any(), any(), any(), any());
+
+        service.filterJobsAssignableTo(agentMetadata, Arrays.asList(planWithSecret(1, "docker", "changed")));
+        verify(registry, times(2)).shouldAssignWork(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldNotAskThePluginAboutJobsOfAnotherElasticPlugin() {
+        String uuid = UUID.randomUUID().toString();
+        ElasticAgentMetadata agentMetadata = new ElasticAgentMetadata(uuid, uuid, "docker", AgentRuntimeStatus.Idle, AgentConfigStatus.Enabled);
+
+        assertThat(service.filterJobsAssignableTo(agentMetadata, Arrays.asList(plan(1, "p1")))).isEmpty();
+        verify(registry, never()).shouldAssignWork(any(), any(), any(), any(), any(), any());
+    }
+
     @Test
     void shouldGetAPluginStatusReportWhenPluginSupportsStatusReport() {
         final Capabilities capabilities = new Capabilities(true);
@@ -435,6 +556,12 @@ class ElasticAgentPluginServiceTest {
         }
     }
 
+    private JobPlan planWithSecret(int jobId, String pluginId, String secret) {
+        ElasticProfile elasticProfile = new ElasticProfile("id", pluginId, "clusterProfileId", ConfigurationPropertyMother.create("password", true, secret));
+        JobIdentifier identifier = new JobIdentifier("pipeline-" + jobId, 1, "1", "stage", "1", "job");
+        return new DefaultJobPlan(null, new ArrayList<>(), null, jobId, identifier, null, new EnvironmentVariables(), new EnvironmentVariables(), elasticProfile, null);
+    }
+
     private JobPlan plan(int jobId, String pluginId) {
         ElasticProfile elasticProfile = new ElasticProfile("id", pluginId, "clusterProfileId");
         JobIdentifier identifier = new JobIdentifier("pipeline-" + jobId, 1, "1", "stage", "1", "job");
@@ -352,6 +352,56 @@ public class JobInstanceServiceTest {
         assertThat(result.canContinue(), is(false));
     }
 
+    @Test
+    public void shouldDelegateToDAO_findJobHistoryPageBeforeId() {
+        when(cruiseConfig.hasPipelineNamed(new CaseInsensitiveString("pipeline"))).thenReturn(true);
+        when(goConfigService.currentCruiseConfig()).thenReturn(cruiseConfig);
+        when(securityService.hasViewPermissionForPipeline(Username.valueOf("looser"), "pipeline")).thenReturn(true);
+
+        final JobInstanceService jobService = new JobInstanceService(jobInstanceDao, buildPropertiesService, topic, jobStatusCache,
+                transactionTemplate, transactionSynchronizationManager, null, null, goConfigService, securityService, pluginManager, serverHealthService);
+
+        HttpOperationResult result = new HttpOperationResult();
+        jobService.findJobHistoryPageBeforeId("pipeline", "stage", "job", 42L, 10, "looser", result);
+
+        verify(jobInstanceDao).findJobHistoryPageBeforeId("pipeline", "stage", "job", 42L, 10);
+        assertThat(result.canContinue(), is(true));
+    }
+
+    @Test
+    public void shouldPopulateErrorWhenPipelineNotFound_findJobHistoryPageBeforeId() {
+        when(cruiseConfig.hasPipelineNamed(new CaseInsensitiveString("pipeline"))).thenReturn(false);
+        when(goConfigService.currentCruiseConfig()).thenReturn(cruiseConfig);
+        when(securityService.hasViewPermissionForPipeline(Username.valueOf("looser"), "pipeline")).thenReturn(true);
+
+        final JobInstanceService jobService = new JobInstanceService(jobInstanceDao, buildPropertiesService, topic, jobStatusCache,
+                transactionTemplate, transactionSynchronizationManager, null, null, goConfigService, securityService, pluginManager, serverHealthService);
+
+        HttpOperationResult result = new HttpOperationResult();
+        JobInstances jobHistoryPage = jobService.findJobHistoryPageBeforeId("pipeline", "stage", "job", 42L, 10, "looser", result);
+
+        assertThat(jobHistoryPage, is(nullValue()));
+        assertThat(result.httpCode(), is(404));
+        verify(jobInstanceDao, never()).findJobHistoryPageBeforeId(anyString(), anyString(), anyString(), anyLong(), anyInt());
+    }
+
+    @Test
+    public void shouldPopulateErrorWhenUnauthorized_findJobHistoryPageBeforeId() {
+        when(cruiseConfig.hasPipelineNamed(new CaseInsensitiveString("pipeline"))).thenReturn(true);
+        when(goConfigService.currentCruiseConfig()).thenReturn(cruiseConfig);
+        when(securityService.hasViewPermissionForPipeline(Username.valueOf("looser"), "pipeline")).thenReturn(false);
+
+        final JobInstanceService jobService = new JobInstanceService(jobInstanceDao, buildPropertiesService, topic, jobStatusCache,
+                transactionTemplate, transactionSynchronizationManager, null, null, goConfigService, securityService, pluginManager, serverHealthService);
+
+        HttpOperationResult result = new HttpOperationResult();
+        JobInstances jobHistoryPage = jobService.findJobHistoryPageBeforeId("pipeline", "stage", "job", 42L, 10, "looser", result);
+
+        assertThat(jobHistoryPage, is(nullValue()));
+        assertThat(result.httpCode(), is(403));
+        verify(jobInstanceDao, never()).findJobHistoryPageBeforeId(anyString(), anyString(), anyString(), anyLong(), anyInt());
+    }
+
     @Test
     public void shouldLoadOriginalJobPlan() {
         JobResolverService resolver = mock(JobResolverService.class);
@@ -134,6 +134,27 @@ public class MaterialServiceTest {
         assertThat(materialService.searchRevisions("pipeline", "sha", "23", pavan, operationResult), is(expected));
     }
 
+    @Test
+    public void shouldAcceptARebuildOfTheSearchIndexWhenItIsTurnedOn() {
+        LocalizedOperationResult operationResult = mock(LocalizedOperationResult.class);
+        when(materialRepository.scheduleSearchIndexRebuild()).thenReturn(true);
+
+        materialService.rebuildSearchIndex(operationResult);
+
+        verify(operationResult).accepted("Rebuilding the modification search index.");
+    }
+
+    @Test
+    public void shouldNotRebuildTheSearchIndexWhenItIsTurnedOff() {
+        LocalizedOperationResult operationResult = mock(LocalizedOperationResult.class);
+        when(materialRepository.scheduleSearchIndexRebuild()).thenReturn(false);
+
+        materialService.rebuildSearchIndex(operationResult);
+
+        verify(operationResult).unprocessableEntity(anyString());
+        verify(operationResult, never()).accepted(anyString());
+    }
+
     @Test
     public void shouldReturnNotFoundIfTheMaterialDoesNotBelongToTheGivenPipeline() {
         Username pavan = Username.valueOf("pavan");
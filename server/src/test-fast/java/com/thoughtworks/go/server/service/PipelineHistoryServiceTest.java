@@ -729,6 +729,50 @@ public class PipelineHistoryServiceTest {
         assertThat(result.canContinue(), is(true));
     }
 
+    @Test
+    public void shouldPopulateResultAsNotFoundWhenPipelineNotFound_loadMinimalDataBeforeCounter() {
+        String pipelineName = "unknown-pipeline";
+        CruiseConfig cruiseConfig = mock(BasicCruiseConfig.class);
+        when(cruiseConfig.hasPipelineNamed(new CaseInsensitiveString(pipelineName))).thenReturn(false);
+        when(goConfigService.currentCruiseConfig()).thenReturn(cruiseConfig);
+
+        HttpOperationResult result = new HttpOperationResult();
+        PipelineInstanceModels pipelineInstanceModels = pipelineHistoryService.loadMinimalDataBeforeCounter(pipelineName, 5, 10, new Username(new CaseInsensitiveString("looser")), result);
+
+        assertThat(pipelineInstanceModels, is(nullValue()));
+        assertThat(result.httpCode(), is(404));
+        assertThat(result.detailedMessage(), is("Not Found { Pipeline " + pipelineName + " not found }\n"));
+        verify(pipelineDao, never()).loadHistoryBeforeCounter(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void shouldPopulateResultAsUnauthorizedWhenUserNotAllowedToViewPipeline_loadMinimalDataBeforeCounter() {
+        Username noAccessUserName = new Username(new CaseInsensitiveString("foo"));
+        Username withAccessUserName = new Username(new CaseInsensitiveString("admin"));
+        String pipelineName = "no-access-pipeline";
+        CruiseConfig cruiseConfig = mock(BasicCruiseConfig.class);
+        when(cruiseConfig.hasPipelineNamed(new CaseInsensitiveString(pipelineName))).thenReturn(true);
+        when(goConfigService.currentCruiseConfig()).thenReturn(cruiseConfig);
+
+        when(securityService.hasViewPermissionForPipeline(noAccessUserName, pipelineName)).thenReturn(false);
+        when(securityService.hasViewPermissionForPipeline(withAccessUserName, pipelineName)).thenReturn(true);
+
+        when(pipelineDao.loadHistoryBeforeCounter(pipelineName, 5, 10)).thenReturn(PipelineInstanceModels.createPipelineInstanceModels());
+
+        HttpOperationResult result = new HttpOperationResult();
+        PipelineInstanceModels pipelineInstanceModels = pipelineHistoryService.loadMinimalDataBeforeCounter(pipelineName, 5, 10, noAccessUserName, result);
+
+        assertThat(pipelineInstanceModels, is(nullValue()));
+        assertThat(result.httpCode(), is(403));
+
+        result = new HttpOperationResult();
+        pipelineInstanceModels = pipelineHistoryService.loadMinimalDataBeforeCounter(pipelineName, 5, 10, withAccessUserName, result);
+
+        assertThat(pipelineInstanceModels, is(not(nullValue())));
+        assertThat(result.canContinue(), is(true));
+        verify(pipelineDao).loadHistoryBeforeCounter(pipelineName, 5, 10);
+    }
+
     @Test
     public void shouldUpdateCommentUsingPipelineDao() {
         CaseInsensitiveString authorizedUser = new CaseInsensitiveString("can-access");
@@ -16,24 +16,34 @@
 
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.config.SecretConfig;
 import com.thoughtworks.go.config.SecretParam;
 import com.thoughtworks.go.config.SecretParams;
 import com.thoughtworks.go.helper.GoConfigMother;
+import com.thoughtworks.go.listener.ConfigChangedListener;
+import com.thoughtworks.go.listener.EntityConfigChangedListener;
+import com.thoughtworks.go.plugin.access.exceptions.SecretResolutionFailureException;
 import com.thoughtworks.go.plugin.access.secrets.SecretsExtension;
 import com.thoughtworks.go.plugin.domain.secrets.Secret;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
 import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.verifyZeroInteractions;
-import static org.mockito.Mockito.when;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 class SecretParamResolverTest {
@@ -41,13 +51,17 @@ class SecretParamResolverTest {
     private SecretsExtension secretsExtension;
     @Mock
     private GoConfigService goConfigService;
+    @Mock
+    private SystemEnvironment systemEnvironment;
     private SecretParamResolver secretParamResolver;
 
     @BeforeEach
     void setUp() {
         initMocks(this);
 
-        secretParamResolver = new SecretParamResolver(secretsExtension, goConfigService);
+        when(systemEnvironment.get(SystemEnvironment.GO_SECRETS_CACHE_TTL_MILLIS)).thenReturn(0L);
+        when(systemEnvironment.get(SystemEnvironment.GO_SECRETS_LOOKUP_THREADS)).thenReturn(4);
+        secretParamResolver = new SecretParamResolver(secretsExtension, goConfigService, systemEnvironment);
     }
 
     @Test
@@ -116,4 +130,154 @@ class SecretParamResolverTest {
         assertThat(allSecretParams.get(0).getValue()).isEqualTo("some-username");
         assertThat(allSecretParams.get(1).getValue()).isEqualTo("some-username");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldLookupSecretsOfDifferentSecretConfigsInParallel() throws InterruptedException {
+        final SecretParams allSecretParams = new SecretParams(
+                new SecretParam("secret_config_id_1", "username"),
+                new SecretParam("secret_config_id_2", "access_key")
+        );
+        final SecretConfig fileBasedSecretConfig = new SecretConfig("secret_config_id_1", "cd.go.file");
+        final SecretConfig awsBasedSecretConfig = new SecretConfig("secret_config_id_2", "cd.go.aws");
+        final CountDownLatch bothLookupsStarted = new CountDownLatch(2);
+        when(goConfigService.cruiseConfig()).thenReturn(GoConfigMother.configWithSecretConfig(fileBasedSecretConfig, awsBasedSecretConfig));
+        when(secretsExtension.lookupSecrets(fileBasedSecretConfig.getPluginId(), fileBasedSecretConfig, singleton("username")))
+                .thenAnswer(invocation -> {
+                    bothLookupsStarted.countDown();
+                    bothLookupsStarted.await();
+                    return singletonList(new Secret("username", "some-username"));
+                });
+        when(secretsExtension.lookupSecrets(awsBasedSecretConfig.getPluginId(), awsBasedSecretConfig, singleton("access_key")))
+                .thenAnswer(invocation -> {
+                    bothLookupsStarted.countDown();
+                    bothLookupsStarted.await();
+                    return singletonList(new Secret("access_key", "ABCDEFGHIJ1D"));
+                });
+
+        secretParamResolver.resolve(allSecretParams);
+
+        assertThat(bothLookupsStarted.getCount()).isEqualTo(0);
+        assertThat(allSecretParams.get(0).getValue()).isEqualTo("some-username");
+        assertThat(allSecretParams.get(1).getValue()).isEqualTo("ABCDEFGHIJ1D");
+    }
+
+    @Test
+    void shouldNotCacheResolvedSecretsByDefault() {
+        final SecretConfig fileBasedSecretConfig = new SecretConfig("secret_config_id_1", "cd.go.file");
+        when(goConfigService.cruiseConfig()).thenReturn(GoConfigMother.configWithSecretConfig(fileBasedSecretConfig));
+        when(secretsExtension.lookupSecrets(fileBasedSecretConfig.getPluginId(), fileBasedSecretConfig, singleton("username")))
+                .thenReturn(singletonList(new Secret("username", "some-username")));
+
+        secretParamResolver.resolve(new SecretParams(new SecretParam("secret_config_id_1", "username")));
+        secretParamResolver.resolve(new SecretParams(new SecretParam("secret_config_id_1", "username")));
+
+        verify(secretsExtension, times(2)).lookupSecrets(fileBasedSecretConfig.getPluginId(), fileBasedSecretConfig, singleton("username"));
+    }
+
+    @Test
+    void shouldFailWhenTheSecretConfigDoesNotExistAndResolveOnceItIsAdded() {
+        final SecretConfig fileBasedSecretConfig = new SecretConfig("secret_config_id_1", "cd.go.file");
+        when(goConfigService.cruiseConfig()).thenReturn(GoConfigMother.configWithSecretConfig());
+
+        assertThatThrownBy(() -> secretParamResolver.resolve(new SecretParams(new SecretParam("secret_config_id_1", "username"))))
+                .isInstanceOf(SecretResolutionFailureException.class)
+                .hasMessage("Secret config with id `secret_config_id_1` does not exist.");
+        verifyZeroInteractions(secretsExtension);
+
+        when(goConfigService.cruiseConfig()).thenReturn(GoConfigMother.configWithSecretConfig(fileBasedSecretConfig));
+        when(secretsExtension.lookupSecrets(fileBasedSecretConfig.getPluginId(), fileBasedSecretConfig, singleton("username")))
+                .thenReturn(singletonList(new Secret("username", "some-username")));
+        final SecretParams secretParams = new SecretParams(new SecretParam("secret_config_id_1", "username"));
+
+        secretParamResolver.resolve(secretParams);
+
+        assertThat(secretParams.get(0).getValue()).isEqualTo("some-username");
+    }
+
+    @Test
+    void shouldLookupAgainAfterALookupFails() {
+        final SecretConfig fileBasedSecretConfig = new SecretConfig("secret_config_id_1", "cd.go.file");
+        when(goConfigService.cruiseConfig()).thenReturn(GoConfigMother.configWithSecretConfig(fileBasedSecretConfig));
+        when(secretsExtension.lookupSecrets(fileBasedSecretConfig.getPluginId(), fileBasedSecretConfig, singleton("username")))
+                .thenThrow(new SecretResolutionFailureException("plugin is down"))
+                .thenReturn(singletonList(new Secret("username", "some-username")));
+
+        assertThatThrownBy(() -> secretParamResolver.resolve(new SecretParams(new SecretParam("secret_config_id_1", "username"))))
+                .isInstanceOf(SecretResolutionFailureException.class)
+                .hasMessage("plugin is down");
+
+        final SecretParams secretParams = new SecretParams(new SecretParam("secret_config_id_1", "username"));
+        secretParamResolver.resolve(secretParams);
+
+        assertThat(secretParams.get(0).getValue()).isEqualTo("some-username");
+    }
+
+    @Nested
+    class WithCacheEnabled {
+        private SecretConfig fileBasedSecretConfig;
+
+        @BeforeEach
+        void setUp() {
+            when(systemEnvironment.get(SystemEnvironment.GO_SECRETS_CACHE_TTL_MILLIS)).thenReturn(60_000L);
+            secretParamResolver = new SecretParamResolver(secretsExtension, goConfigService, systemEnvironment);
+
+            fileBasedSecretConfig = new SecretConfig("secret_config_id_1", "cd.go.file");
+            when(goConfigService.cruiseConfig()).thenReturn(GoConfigMother.configWithSecretConfig(fileBasedSecretConfig));
+            when(secretsExtension.lookupSecrets(eq(fileBasedSecretConfig.getPluginId()), eq(fileBasedSecretConfig), any()))
+                    .thenReturn(asList(new Secret("username", "some-username"), new Secret("password", "some-password")));
+        }
+
+        @Test
+        void shouldResolveSecretsFromCacheUntilTheyExpire() {
+            secretParamResolver.resolve(new SecretParams(new SecretParam("secret_config_id_1", "username")));
+
+            final SecretParams secretParams = new SecretParams(new SecretParam("secret_config_id_1", "username"));
+            secretParamResolver.resolve(secretParams);
+
+            assertThat(secretParams.get(0).getValue()).isEqualTo("some-username");
+            verify(secretsExtension, times(1)).lookupSecrets(fileBasedSecretConfig.getPluginId(), fileBasedSecretConfig, singleton("username"));
+        }
+
+        @Test
+        void shouldLookupOnlySecretsWhichAreNotCached() {
+            secretParamResolver.resolve(new SecretParams(new SecretParam("secret_config_id_1", "username")));
+
+            final SecretParams secretParams = new SecretParams(
+                    new SecretParam("secret_config_id_1", "username"),
+                    new SecretParam("secret_config_id_1", "password")
+            );
+            secretParamResolver.resolve(secretParams);
+
+            assertThat(secretParams.get(0).getValue()).isEqualTo("some-username");
+            assertThat(secretParams.get(1).getValue()).isEqualTo("some-password");
+            verify(secretsExtension).lookupSecrets(fileBasedSecretConfig.getPluginId(), fileBasedSecretConfig, singleton("password"));
+        }
+
+        @Test
+        void shouldInvalidateCachedSecretsWhenConfigChanges() {
+            final ArgumentCaptor<ConfigChangedListener> listener = ArgumentCaptor.forClass(ConfigChangedListener.class);
+            secretParamResolver.initialize();
+            verify(goConfigService, times(2)).register(listener.capture());
+
+            secretParamResolver.resolve(new SecretParams(new SecretParam("secret_config_id_1", "username")));
+            listener.getAllValues().get(0).onConfigChange(mock(CruiseConfig.class));
+            secretParamResolver.resolve(new SecretParams(new SecretParam("secret_config_id_1", "username")));
+
+            verify(secretsExtension, times(2)).lookupSecrets(fileBasedSecretConfig.getPluginId(), fileBasedSecretConfig, singleton("username"));
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void shouldInvalidateCachedSecretsOfASecretConfigWhenItChanges() {
+            final ArgumentCaptor<ConfigChangedListener> listener = ArgumentCaptor.forClass(ConfigChangedListener.class);
+            secretParamResolver.initialize();
+            verify(goConfigService, times(2)).register(listener.capture());
+
+            secretParamResolver.resolve(new SecretParams(new SecretParam("secret_config_id_1", "username")));
+            ((EntityConfigChangedListener<SecretConfig>) listener.getAllValues().get(1)).onEntityConfigChange(fileBasedSecretConfig);
+            secretParamResolver.resolve(new SecretParams(new SecretParam("secret_config_id_1", "username")));
+
+            verify(secretsExtension, times(2)).lookupSecrets(fileBasedSecretConfig.getPluginId(), fileBasedSecretConfig, singleton("username"));
+        }
+    }
+}
@@ -143,6 +143,57 @@ public class ValueStreamMapServiceTest {
         assertNode(0, secondLevel.get(0), pipelineName, pipelineName, 0);
     }
 
+    @Test
+    public void shouldReuseThePipelineToDownstreamMapUntilTheConfigChanges() {
+        String pipelineName = "p1";
+        BuildCause buildCause = PipelineMother.pipeline(pipelineName, new Stage()).getBuildCause();
+        MaterialConfig materialConfig = buildCause.getMaterialRevisions().getMaterialRevision(0).getMaterial().config();
+        PipelineConfig p1Config = PipelineConfigMother.pipelineConfig(pipelineName, new MaterialConfigs(materialConfig));
+        CruiseConfig cruiseConfig = spy(new BasicCruiseConfig(new BasicPipelineConfigs(p1Config)));
+        CruiseConfig changedCruiseConfig = spy(new BasicCruiseConfig(new BasicPipelineConfigs(p1Config)));
+
+        when(pipelineService.buildCauseFor(pipelineName, 1)).thenReturn(buildCause);
+        when(pipelineService.findPipelineByNameAndCounter(pipelineName, 1)).thenReturn(new Pipeline(pipelineName, "p1-label", buildCause, new EnvironmentVariables()));
+        when(goConfigService.currentCruiseConfig()).thenReturn(cruiseConfig, cruiseConfig, changedCruiseConfig);
+
+        valueStreamMapService.getValueStreamMap(new CaseInsensitiveString(pipelineName), 1, user, result);
+        valueStreamMapService.getValueStreamMap(new CaseInsensitiveString(pipelineName), 1, user, result);
+        valueStreamMapService.getValueStreamMap(new CaseInsensitiveString(pipelineName), 1, user, result);
+
+        verify(cruiseConfig, times(1)).generatePipelineVsDownstreamMap();
+        verify(changedCruiseConfig, times(1)).generatePipelineVsDownstreamMap();
+    }
+
+    @Test
+    public void shouldCacheBuildCausesOfEachUpstreamLevelBeforeTraversingUpstream() {
+        /*
+         * g---->p1---->p2 ---> p3
+         *        |             ^
+         *        -------------+
+         * */
+        GitMaterial git = new GitMaterial("git");
+        MaterialConfig gitConfig = git.config();
+        BuildCause p3buildCause = createBuildCause(asList("p1", "p2"), new ArrayList<>());
+        BuildCause p2buildCause = createBuildCause(asList("p1"), asList(git));
+        BuildCause p1buildCause = createBuildCause(new ArrayList<>(), asList(git));
+
+        when(pipelineService.buildCauseFor("p3", 1)).thenReturn(p3buildCause);
+        when(pipelineService.buildCauseFor("p2", 1)).thenReturn(p2buildCause);
+        when(pipelineService.buildCauseFor("p1", 1)).thenReturn(p1buildCause);
+
+        PipelineConfig p1Config = PipelineConfigMother.pipelineConfig("p1", new MaterialConfigs(gitConfig));
+        PipelineConfig p2Config = PipelineConfigMother.pipelineConfig("p2", new MaterialConfigs(gitConfig, new DependencyMaterialConfig(p1Config.name(), p1Config.getFirstStageConfig().name())));
+        PipelineConfig p3Config = PipelineConfigMother.pipelineConfig("p3",
+                new MaterialConfigs(new DependencyMaterialConfig(p1Config.name(), p1Config.getFirstStageConfig().name()), new DependencyMaterialConfig(p2Config.name(), p2Config.getFirstStageConfig().name())));
+        when(goConfigService.currentCruiseConfig()).thenReturn(new BasicCruiseConfig(new BasicPipelineConfigs(p1Config, p2Config, p3Config)));
+        when(pipelineService.findPipelineByNameAndCounter("p3", 1)).thenReturn(new Pipeline("p3", "p3-label", p3buildCause, new EnvironmentVariables()));
+
+        valueStreamMapService.getValueStreamMap(new CaseInsensitiveString("p3"), 1, user, result);
+
+        verify(pipelineService).cacheBuildCausesFor(asList(new PipelineIdentifier("p1", 1), new PipelineIdentifier("p2", 1)));
+        verify(pipelineService, times(1)).cacheBuildCausesFor(anyList());
+    }
+
     @Test
     public void shouldGetAllDownstreamPipelinesForVSMOfUpstreamPipelineIfDownstreamPipelineRefersToUpstreamDependencyUsingADifferentCase() {
         /*
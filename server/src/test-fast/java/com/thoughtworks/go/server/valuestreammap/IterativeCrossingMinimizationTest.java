@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.valuestreammap;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.domain.MaterialRevision;
+import com.thoughtworks.go.domain.valuestreammap.Node;
+import com.thoughtworks.go.domain.valuestreammap.NodeLevelMap;
+import com.thoughtworks.go.domain.valuestreammap.PipelineDependencyNode;
+import com.thoughtworks.go.domain.valuestreammap.SCMDependencyNode;
+import com.thoughtworks.go.domain.valuestreammap.ValueStreamMap;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class IterativeCrossingMinimizationTest {
+    private final CaseInsensitiveString p1 = new CaseInsensitiveString("P1");
+    private final CaseInsensitiveString p2 = new CaseInsensitiveString("P2");
+    private final CaseInsensitiveString p3 = new CaseInsensitiveString("P3");
+    private final CaseInsensitiveString g1 = new CaseInsensitiveString("g1");
+    private final CaseInsensitiveString g2 = new CaseInsensitiveString("g2");
+
+    @Test
+    public void shouldReorderNodesToRemoveCrossings() {
+        ValueStreamMap graph = graphWithACrossing();
+        NodeLevelMap levelToNodesMap = new LevelAssignment().apply(graph);
+        IterativeCrossingMinimization crossingMinimization = new IterativeCrossingMinimization(10, 0);
+
+        crossingMinimization.apply(levelToNodesMap);
+
+        assertThat(levelToNodesMap.get(0), is(Arrays.asList(graph.findNode(p3))));
+        assertThat(levelToNodesMap.get(-1), is(Arrays.asList(graph.findNode(p2), graph.findNode(p1))));
+        assertThat(levelToNodesMap.get(-2), is(Arrays.asList(graph.findNode(g1), graph.findNode(g2))));
+        assertThat(crossingMinimization.crossings(levelToNodesMap), is(0L));
+
+        assertThat(graph.findNode(g1).getDepth(), is(1));
+        assertThat(graph.findNode(g2).getDepth(), is(2));
+        assertThat(graph.findNode(p1).getDepth(), is(2));
+        assertThat(graph.findNode(p2).getDepth(), is(1));
+        assertThat(graph.findNode(p3).getDepth(), is(1));
+    }
+
+    @Test
+    public void shouldKeepTheInitialOrderingWhenNoSweepsAreAllowed() {
+        ValueStreamMap graph = graphWithACrossing();
+        NodeLevelMap levelToNodesMap = new LevelAssignment().apply(graph);
+        IterativeCrossingMinimization crossingMinimization = new IterativeCrossingMinimization(0, 0);
+
+        crossingMinimization.apply(levelToNodesMap);
+
+        assertThat(levelToNodesMap.get(-1), is(Arrays.asList(graph.findNode(p1), graph.findNode(p2))));
+        assertThat(crossingMinimization.crossings(levelToNodesMap), is(1L));
+    }
+
+    @Test
+    public void shouldNotBeWorseThanASingleBaryCenterPass() {
+        ValueStreamMap graph = graphWithACrossing();
+        NodeLevelMap levelToNodesMap = new LevelAssignment().apply(graph);
+        new CrossingMinimization().apply(levelToNodesMap);
+        long crossingsAfterSinglePass = new IterativeCrossingMinimization(0, 0).crossings(levelToNodesMap);
+
+        ValueStreamMap sameGraph = graphWithACrossing();
+        NodeLevelMap sameLevelToNodesMap = new LevelAssignment().apply(sameGraph);
+        IterativeCrossingMinimization crossingMinimization = new IterativeCrossingMinimization(10, 0);
+        crossingMinimization.apply(sameLevelToNodesMap);
+
+        assertThat(crossingMinimization.crossings(sameLevelToNodesMap) <= crossingsAfterSinglePass, is(true));
+    }
+
+    @Test
+    public void shouldNotHaveMoreCrossingsThanASingleBaryCenterPassOnLargerGraphs() {
+        assertNotWorseThanASinglePass(2, 5, 1);
+        assertNotWorseThanASinglePass(3, 8, 2);
+        assertNotWorseThanASinglePass(4, 12, 3);
+    }
+
+    private void assertNotWorseThanASinglePass(int levelsOnEachSide, int nodesPerLevel, long seed) {
+        IterativeCrossingMinimization crossingMinimization = new IterativeCrossingMinimization(24, 0);
+
+        NodeLevelMap singlePass = generate(levelsOnEachSide, nodesPerLevel, seed);
+        new CrossingMinimization().apply(singlePass);
+
+        NodeLevelMap iterative = generate(levelsOnEachSide, nodesPerLevel, seed);
+        crossingMinimization.apply(iterative);
+
+        assertThat(crossingMinimization.crossings(iterative), lessThanOrEqualTo(crossingMinimization.crossings(singlePass)));
+    }
+
+    /*
+     * Builds a graph around a single current pipeline at level 0, where every upstream node feeds into one to three
+     * nodes on the level to its right and every downstream node depends on one to three nodes on the level to its left.
+     */
+    private NodeLevelMap generate(int levelsOnEachSide, int nodesPerLevel, long seed) {
+        Random random = new Random(seed);
+        NodeLevelMap nodeLevelMap = new NodeLevelMap();
+        List<Node> currentLevel = new ArrayList<>();
+        currentLevel.add(node("current", 0, nodeLevelMap));
+
+        List<Node> previousLevel = currentLevel;
+        for (int level = -1; level >= -levelsOnEachSide; level--) {
+            List<Node> nodesAtLevel = new ArrayList<>();
+            for (int i = 0; i < nodesPerLevel; i++) {
+                Node node = node("up_" + level + "_" + i, level, nodeLevelMap);
+                int edges = 1 + random.nextInt(3);
+                for (int edge = 0; edge < edges; edge++) {
+                    node.addEdge(previousLevel.get(random.nextInt(previousLevel.size())));
+                }
+                nodesAtLevel.add(node);
+            }
+            previousLevel = nodesAtLevel;
+        }
+
+        previousLevel = currentLevel;
+        for (int level = 1; level <= levelsOnEachSide; level++) {
+            List<Node> nodesAtLevel = new ArrayList<>();
+            for (int i = 0; i < nodesPerLevel; i++) {
+                Node node = node("down_" + level + "_" + i, level, nodeLevelMap);
+                int edges = 1 + random.nextInt(3);
+                for (int edge = 0; edge < edges; edge++) {
+                    previousLevel.get(random.nextInt(previousLevel.size())).addEdge(node);
+                }
+                nodesAtLevel.add(node);
+            }
+            previousLevel = nodesAtLevel;
+        }
+        return nodeLevelMap;
+    }
+
+    private Node node(String name, int level, NodeLevelMap nodeLevelMap) {
+        Node node = new PipelineDependencyNode(new CaseInsensitiveString(name), name);
+        node.setLevel(level);
+        nodeLevelMap.add(node);
+        return node;
+    }
+
+    private ValueStreamMap graphWithACrossing() {
+        /*
+            g1 --> P1--->P3
+               \/      /
+               /\    /
+            g2    P2
+         */
+        ValueStreamMap graph = new ValueStreamMap(p3, null);
+        graph.addUpstreamNode(new PipelineDependencyNode(p1, p1.toString()), null, p3);
+        graph.addUpstreamMaterialNode(new SCMDependencyNode(g1.toString(), g1.toString(), "git"), null, p1, new MaterialRevision(null));
+        graph.addUpstreamMaterialNode(new SCMDependencyNode(g2.toString(), g2.toString(), "git"), null, p1, new MaterialRevision(null));
+        graph.addUpstreamNode(new PipelineDependencyNode(p2, p2.toString()), null, p3);
+        graph.addUpstreamMaterialNode(new SCMDependencyNode(g1.toString(), g1.toString(), "git"), null, p2, new MaterialRevision(null));
+        return graph;
+    }
+}
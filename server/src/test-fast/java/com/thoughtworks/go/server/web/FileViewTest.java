@@ -140,6 +140,76 @@ public class FileViewTest {
         assertEquals("UTF-8", mockResponse.getCharacterEncoding());
     }
 
+    @Test
+    public void shouldServeTheRequestedRangeOfTheFile() throws Exception {
+        Map<String, Object> model = new HashMap<>();
+        model.put("targetFile", file);
+        mockRequest.addHeader("Range", "bytes=1-3");
+
+        view.render(model, mockRequest, mockResponse);
+
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, mockResponse.getStatus());
+        assertEquals("bytes 1-3/5", mockResponse.getHeader("Content-Range"));
+        assertEquals(3, getContentLength(mockResponse));
+        assertEquals("ell", mockResponse.getContentAsString());
+    }
+
+    @Test
+    public void shouldServeTheRestOfTheFileFromAnOffsetAndTheSuffixOfTheFile() throws Exception {
+        Map<String, Object> model = new HashMap<>();
+        model.put("targetFile", file);
+        mockRequest.addHeader("Range", "bytes=2-");
+        view.render(model, mockRequest, mockResponse);
+        assertEquals("llo", mockResponse.getContentAsString());
+
+        MockHttpServletRequest suffixRequest = new MockHttpServletRequest();
+        suffixRequest.addHeader("Range", "bytes=-2");
+        MockHttpServletResponse suffixResponse = new MockHttpServletResponse();
+        view.render(model, suffixRequest, suffixResponse);
+        assertEquals("bytes 3-4/5", suffixResponse.getHeader("Content-Range"));
+        assertEquals("lo", suffixResponse.getContentAsString());
+    }
+
+    @Test
+    public void shouldRejectRangesBeyondTheEndOfTheFile() throws Exception {
+        Map<String, Object> model = new HashMap<>();
+        model.put("targetFile", file);
+        mockRequest.addHeader("Range", "bytes=5-");
+
+        view.render(model, mockRequest, mockResponse);
+
+        assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, mockResponse.getStatus());
+        assertEquals("bytes */5", mockResponse.getHeader("Content-Range"));
+    }
+
+    @Test
+    public void shouldServeTheWholeFileWhenItChangedSinceThePartialDownloadStarted() throws Exception {
+        Map<String, Object> model = new HashMap<>();
+        model.put("targetFile", file);
+        mockRequest.addHeader("Range", "bytes=2-");
+        mockRequest.addHeader("If-Range", "\"some-other-version\"");
+
+        view.render(model, mockRequest, mockResponse);
+
+        assertEquals(HttpServletResponse.SC_OK, mockResponse.getStatus());
+        assertEquals("hello", mockResponse.getContentAsString());
+        assertEquals(FileView.etag(file), mockResponse.getHeader("ETag"));
+        assertEquals("bytes", mockResponse.getHeader("Accept-Ranges"));
+    }
+
+    @Test
+    public void shouldServeTheRangeWhenTheFileIsUnchanged() throws Exception {
+        Map<String, Object> model = new HashMap<>();
+        model.put("targetFile", file);
+        mockRequest.addHeader("Range", "bytes=2-");
+        mockRequest.addHeader("If-Range", FileView.etag(file));
+
+        view.render(model, mockRequest, mockResponse);
+
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, mockResponse.getStatus());
+        assertEquals("llo", mockResponse.getContentAsString());
+    }
+
     private long getContentLength(MockHttpServletResponse mockResponse) {
         return Long.parseLong(mockResponse.getHeader("Content-Length"));
     }
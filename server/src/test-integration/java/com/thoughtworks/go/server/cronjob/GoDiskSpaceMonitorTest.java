@@ -65,7 +65,7 @@ public class GoDiskSpaceMonitorTest {
         mockDiskSpaceChecker = Mockito.mock(SystemDiskSpaceChecker.class);
         stageService = mock(StageService.class);
         configDbStateRepository = mock(ConfigDbStateRepository.class);
-        goDiskSpaceMonitor = new GoDiskSpaceMonitor(goConfigService, systemEnvironment, serverHealthService, emailSender, mockDiskSpaceChecker, mock(ArtifactsService.class),
+        goDiskSpaceMonitor = new GoDiskSpaceMonitor(goConfigService, systemEnvironment, serverHealthService, emailSender, mockDiskSpaceChecker, mock(ArtifactsService.class), mock(ArtifactBlobStore.class),
                 stageService, configDbStateRepository);
         goDiskSpaceMonitor.initialize();
         diskSpaceCacheRefresherInterval = systemEnvironment.getDiskSpaceCacheRefresherInterval();
@@ -640,6 +640,30 @@ public class JobInstanceSqlMapDaoIntegrationTest {
         assertJobHistoryCorrectness(instances, JOB_NAME);
     }
 
+    @Test
+    public void shouldFindJobHistoryPagesBeforeAGivenJobId() throws Exception {
+        long stageId = createSomeJobs(JOB_NAME, 2);
+        createCopiedJobs(stageId, JOB_NAME, 2);
+        jobInstanceDao.save(stageId, JobInstanceMother.completed("shouldnotload", JobResult.Passed));
+        jobInstanceDao.save(stageId, JobInstanceMother.building(JOB_NAME));
+
+        JobInstances allInstances = jobInstanceDao.findJobHistoryPage(PIPELINE_NAME, STAGE_NAME, JOB_NAME, 10, 0);
+        assertThat(allInstances.size(), is(6));
+
+        JobInstances firstPage = jobInstanceDao.findJobHistoryPageBeforeId(PIPELINE_NAME, STAGE_NAME, JOB_NAME, null, 4);
+        assertThat(firstPage.size(), is(4));
+        for (int i = 0; i < 4; i++) {
+            assertThat(firstPage.get(i).getId(), is(allInstances.get(i).getId()));
+        }
+        assertJobHistoryCorrectness(firstPage, JOB_NAME);
+
+        JobInstances secondPage = jobInstanceDao.findJobHistoryPageBeforeId(PIPELINE_NAME, STAGE_NAME, JOB_NAME, firstPage.last().getId(), 4);
+        assertThat(secondPage.size(), is(2));
+        assertThat(secondPage.get(0).getId(), is(allInstances.get(4).getId()));
+        assertThat(secondPage.get(1).getId(), is(allInstances.get(5).getId()));
+        assertJobHistoryCorrectness(secondPage, JOB_NAME);
+    }
+
     private void assertJobHistoryCorrectness(JobInstances instances, String jobName) {
         for (JobInstance instance : instances) {
             assertThat(instance.getIdentifier().getBuildName(), is(jobName));
@@ -613,6 +613,30 @@ public class PipelineSqlMapDaoIntegrationTest {
         assertThat(pipelineHistories.size(), is(3));
     }
 
+    @Test
+    public void shouldLoadPipelineHistoryPagesBeforeAGivenCounter() throws Exception {
+        PipelineConfig mingleConfig = PipelineMother.twoBuildPlansWithResourcesAndMaterials("mingle", "dev");
+        PipelineConfig otherConfig = PipelineMother.twoBuildPlansWithResourcesAndMaterials("other", "dev");
+
+        Pipeline first = schedulePipelineWithStages(mingleConfig);
+        schedulePipelineWithStages(otherConfig);
+        Pipeline second = schedulePipelineWithStages(mingleConfig);
+        Pipeline third = schedulePipelineWithStages(mingleConfig);
+
+        PipelineInstanceModels latest = pipelineDao.loadHistoryBeforeCounter("mingle", null, 2);
+        assertThat(latest.size(), is(2));
+        assertThat(latest.get(0).getCounter(), is(third.getCounter()));
+        assertThat(latest.get(1).getCounter(), is(second.getCounter()));
+        assertThat(latest.get(0).getStageHistory().size(), is(1));
+
+        PipelineInstanceModels older = pipelineDao.loadHistoryBeforeCounter("mingle", latest.last().getCounter(), 2);
+        assertThat(older.size(), is(1));
+        assertThat(older.get(0).getCounter(), is(first.getCounter()));
+        assertThat(older.get(0).getName(), is("mingle"));
+
+        assertThat(pipelineDao.loadHistoryBeforeCounter("mingle", first.getCounter(), 2).size(), is(0));
+    }
+
     @Test
     public void shouldSupportPipelinesWithoutCounterWhenLoadHistory() {
         PipelineConfig mingleConfig = PipelineMother.twoBuildPlansWithResourcesAndMaterials("mingle", "dev");
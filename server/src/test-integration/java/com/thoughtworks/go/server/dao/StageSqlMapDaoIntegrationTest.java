@@ -29,6 +29,7 @@ import com.thoughtworks.go.presentation.pipelinehistory.StageHistoryEntry;
 import com.thoughtworks.go.presentation.pipelinehistory.StageHistoryPage;
 import com.thoughtworks.go.presentation.pipelinehistory.StageInstanceModels;
 import com.thoughtworks.go.server.cache.GoCache;
+import com.thoughtworks.go.server.domain.StageIdentity;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
 import com.thoughtworks.go.server.service.InstanceFactory;
 import com.thoughtworks.go.server.service.ScheduleService;
@@ -959,6 +960,21 @@ public class StageSqlMapDaoIntegrationTest {
         assertThat(savedStage.getIdentifier(), is(new StageIdentifier(pipeline, savedStage)));
     }
 
+    @Test
+    public void shouldTrackTheLatestInstanceOfAStageAsItIsRerun() throws Exception {
+        String pipelineName = CaseInsensitiveString.str(mingleConfig.name());
+        String stageName = CaseInsensitiveString.str(mingleConfig.getFirstStageConfig().name());
+        Pipeline pipeline = dbHelper.schedulePipeline(mingleConfig, new TimeProvider());
+        dbHelper.pass(pipeline);
+        Stage rerun = instanceFactory.createStageInstance(mingleConfig.getFirstStageConfig(), new DefaultSchedulingContext("anyone"), md5, new TimeProvider());
+        rerun.building();
+
+        Stage savedStage = stageDao.save(pipeline, rerun);
+
+        assertThat(stageDao.mostRecentId(pipelineName.toUpperCase(), stageName), is(savedStage.getId()));
+        assertThat(stageDao.findLatestStageInstances(), hasItem(new StageIdentity(pipelineName, stageName, savedStage.getId())));
+    }
+
     @Test
     public void shouldSet_StageContainsRerunJobs_FlagAsInferred() throws Exception {
         Pipeline pipeline = dbHelper.schedulePipeline(mingleConfig, new TimeProvider());
@@ -1439,6 +1455,21 @@ public class StageSqlMapDaoIntegrationTest {
         assertThat(stages.size(), is(1));
     }
 
+    @Test
+    public void shouldLoadTheRecordedArtifactsSizeOfOldestStagesHavingArtifacts() {
+        Pipeline pipeline = dbHelper.schedulePipeline(PipelineConfigMother.createPipelineConfig("foo", "stage1", "job1", "job2"), new TimeProvider());
+        dbHelper.pass(pipeline);
+        JobInstances jobs = pipeline.getFirstStage().getJobInstances();
+
+        stageDao.addArtifactsSizeForJob(jobs.get(0).getId(), 1024);
+        stageDao.addArtifactsSizeForJob(jobs.get(1).getId(), 2048);
+        stageDao.addArtifactsSizeForJob(jobs.get(0).getId(), 100);
+
+        List<Stage> stages = stageDao.oldestStagesHavingArtifacts();
+        assertThat(stages.size(), is(1));
+        assertThat(stages.get(0).getArtifactsSize(), is(3172L));
+    }
+
     @Test
     public void shouldUpdateConfigVersionWhenStageIsSaved() throws Exception {
         Stage stage = StageMother.scheduledStage("foo-pipeline", 1, "dev", 1, "java");
@@ -1674,6 +1705,35 @@ public class StageSqlMapDaoIntegrationTest {
 		assertJobDetails(stageInstanceModels.get(0).getBuildHistory());
 	}
 
+	@Test
+	public void shouldGetDetailedStageHistoryBeforeAGivenStageId() throws Exception {
+		HgMaterial hg = new HgMaterial("url", null);
+		String[] hg_revs = {"h1", "h2", "h3"};
+		scheduleUtil.checkinInOrder(hg, hg_revs);
+
+		String pipelineName = "p1";
+		String stageName = "stage_name";
+
+		ScheduleTestUtil.AddedPipeline p1 = scheduleUtil.saveConfigWith(pipelineName, stageName, scheduleUtil.m(hg), new String[]{"job1", "job2"});
+		scheduleUtil.runAndPass(p1, "h1");
+		scheduleUtil.runAndPass(p1, "h2");
+		scheduleUtil.runAndPass(p1, "h3");
+
+		StageInstanceModels stageInstanceModels = stageDao.findDetailedStageHistoryBeforeId(pipelineName, stageName, null, 2);
+
+		assertThat(stageInstanceModels.size(), is(2));
+		assertThat(stageInstanceModels.get(0).getIdentifier().getPipelineCounter(), is(3));
+		assertThat(stageInstanceModels.get(1).getIdentifier().getPipelineCounter(), is(2));
+		assertJobDetails(stageInstanceModels.get(0).getBuildHistory());
+
+		stageInstanceModels = stageDao.findDetailedStageHistoryBeforeId(pipelineName, stageName, stageInstanceModels.last().getId(), 2);
+
+		assertThat(stageInstanceModels.size(), is(1));
+		assertThat(stageInstanceModels.get(0).getIdentifier().getPipelineCounter(), is(1));
+		assertThat(stageInstanceModels.get(0).getIdentifier().getStageName(), is(stageName));
+		assertJobDetails(stageInstanceModels.get(0).getBuildHistory());
+	}
+
 	private void assertJobDetails(JobHistory buildHistory) {
 		assertThat(buildHistory.size(), is(2));
 		Set<String> jobNames = new HashSet<>(Arrays.asList(buildHistory.get(0).getName(), buildHistory.get(1).getName()));
@@ -125,7 +125,7 @@ public class ConfigMaterialUpdateListenerIntegrationTest {
         StageService stageService = mock(StageService.class);
         ConfigDbStateRepository configDbStateRepository = mock(ConfigDbStateRepository.class);
         GoDiskSpaceMonitor goDiskSpaceMonitor = new GoDiskSpaceMonitor(goConfigService, systemEnvironment,
-                serverHealthService, emailSender, mockDiskSpaceChecker, mock(ArtifactsService.class),
+                serverHealthService, emailSender, mockDiskSpaceChecker, mock(ArtifactsService.class), mock(ArtifactBlobStore.class),
                 stageService, configDbStateRepository);
         goDiskSpaceMonitor.initialize();
 
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging;
+
+import com.thoughtworks.go.server.messaging.activemq.ActiveMqMessagingService;
+import com.thoughtworks.go.server.messaging.inmemory.InMemoryMessagingService;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MessagingServiceDeliveryTest {
+    private static final int MESSAGES = 1000;
+    private static final int LISTENERS = 4;
+
+    @Test
+    public void shouldDeliverAllMessagesThroughBothImplementations() throws Exception {
+        SystemEnvironment systemEnvironment = new SystemEnvironment();
+        ActiveMqMessagingService activeMq = new ActiveMqMessagingService(new DaemonThreadStatsCollector(), systemEnvironment, new ServerHealthService());
+        try {
+            assertAllMessagesAreDelivered(activeMq);
+        } finally {
+            activeMq.stop();
+        }
+
+        InMemoryMessagingService inMemory = new InMemoryMessagingService(new DaemonThreadStatsCollector(), systemEnvironment, new ServerHealthService());
+        try {
+            assertAllMessagesAreDelivered(inMemory);
+        } finally {
+            inMemory.stop();
+        }
+    }
+
+    private void assertAllMessagesAreDelivered(MessagingService messaging) throws InterruptedException {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "delivery");
+        CountDownLatch delivered = new CountDownLatch(MESSAGES);
+        for (int i = 0; i < LISTENERS; i++) {
+            queue.addListener(message -> delivered.countDown());
+        }
+
+        for (int i = 0; i < MESSAGES; i++) {
+            queue.post(new GoTextMessage("message-" + i));
+        }
+        assertThat(delivered.await(1, TimeUnit.MINUTES), is(true));
+        queue.stop();
+    }
+}
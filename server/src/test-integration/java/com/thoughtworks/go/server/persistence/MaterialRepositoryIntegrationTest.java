@@ -57,6 +57,7 @@ import com.thoughtworks.go.server.service.MaterialExpansionService;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.server.util.Pagination;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TestUtils;
 import com.thoughtworks.go.util.TimeProvider;
 import com.thoughtworks.go.util.json.JsonHelper;
@@ -207,7 +208,7 @@ public class MaterialRepositoryIntegrationTest {
         MaterialRevision second = saveOneScmModification(material, "user2", "file2");
 
         goCache.clear();
-        repo = new MaterialRepository(sessionFactory, goCache, 1, transactionSynchronizationManager, materialConfigConverter, materialExpansionService, databaseStrategy);
+        repo = new MaterialRepository(sessionFactory, goCache, 1, transactionSynchronizationManager, materialConfigConverter, materialExpansionService, databaseStrategy, new SystemEnvironment());
 
         repo.findModificationsSince(material, first);
         assertThat(repo.cachedModifications(repo.findMaterialInstance(material)), is(nullValue()));
@@ -232,7 +233,7 @@ public class MaterialRepositoryIntegrationTest {
                 TestUtils.sleepQuietly(200); // sleep so we can have multiple threads enter the critical section
                 return value;
             }
-        }, 200, transactionSynchronizationManager, materialConfigConverter, materialExpansionService, databaseStrategy);
+        }, 200, transactionSynchronizationManager, materialConfigConverter, materialExpansionService, databaseStrategy, new SystemEnvironment());
 
         Thread thread1 = new Thread(new Runnable() {
             public void run() {
@@ -344,7 +345,7 @@ public class MaterialRepositoryIntegrationTest {
         final Material svn = MaterialsMother.svnMaterial("url", null, "username", "password", false, null);
 
         HibernateTemplate mockTemplate = mock(HibernateTemplate.class);
-        repo = new MaterialRepository(repo.getSessionFactory(), goCache, 200, transactionSynchronizationManager, materialConfigConverter, materialExpansionService, databaseStrategy) {
+        repo = new MaterialRepository(repo.getSessionFactory(), goCache, 200, transactionSynchronizationManager, materialConfigConverter, materialExpansionService, databaseStrategy, new SystemEnvironment()) {
             @Override
             public MaterialInstance findMaterialInstance(Material material) {
                 MaterialInstance result = super.findMaterialInstance(material);
@@ -629,7 +630,7 @@ public class MaterialRepositoryIntegrationTest {
         GoCache spyGoCache = spy(goCache);
         when(spyGoCache.get(any(String.class))).thenCallRealMethod();
         Mockito.doCallRealMethod().when(spyGoCache).put(any(String.class), any(Object.class));
-        repo = new MaterialRepository(sessionFactory, spyGoCache, 2, transactionSynchronizationManager, materialConfigConverter, materialExpansionService, databaseStrategy);
+        repo = new MaterialRepository(sessionFactory, spyGoCache, 2, transactionSynchronizationManager, materialConfigConverter, materialExpansionService, databaseStrategy, new SystemEnvironment());
 
         pipelineSqlMapDao.save(pipeline);
 
@@ -915,6 +916,37 @@ public class MaterialRepositoryIntegrationTest {
         assertThat(revisions.size(), is(0));
     }
 
+    @Test
+    public void shouldNarrowDownSearchesUsingTheSearchIndexKeptUpToDateWithSavedModifications() throws Exception {
+        ScmMaterial material = material();
+        repo.saveOrUpdate(material.createMaterialInstance());
+        MaterialRevision first = saveOneScmModification("40c95a3c41f54b5fb3107982cf2acd08783f102a", material, "pavan", "meet_you_in_hell.txt", "comment");
+        System.setProperty(SystemEnvironment.GO_MODIFICATIONS_SEARCH_INDEX.propertyName(), "true");
+        try {
+            repo.rebuildSearchIndex();
+            MaterialRevision second = saveOneScmModification("c30c471137f31a4bf735f653f888e799f6deec04", material, "turn_her", "of_course_he_will_be_there_first.txt", "comment");
+
+            assertThat(repo.findModificationIdsPossiblyMatching("pavan co"), is(asList(first.getLatestModification().getId())));
+            assertThat(repo.findModificationIdsPossiblyMatching("her co"), is(asList(second.getLatestModification().getId())));
+
+            List<MatchedRevision> revisions = repo.findRevisionsMatching(material.config(), "her co");
+            assertThat(revisions.size(), is(1));
+            assertMatchedRevision(revisions.get(0), second.getLatestShortRevision(), second.getLatestRevisionString(), "turn_her", second.getDateOfLatestModification(), "comment");
+        } finally {
+            System.clearProperty(SystemEnvironment.GO_MODIFICATIONS_SEARCH_INDEX.propertyName());
+        }
+    }
+
+    @Test
+    public void shouldNotUseTheSearchIndexUnlessItIsTurnedOn() throws Exception {
+        ScmMaterial material = material();
+        repo.saveOrUpdate(material.createMaterialInstance());
+        saveOneScmModification("40c95a3c41f54b5fb3107982cf2acd08783f102a", material, "pavan", "meet_you_in_hell.txt", "comment");
+        repo.rebuildSearchIndex();
+
+        assertThat(repo.findModificationIdsPossiblyMatching("pavan"), is(nullValue()));
+    }
+
     @Test
     public void shouldMatchSearchStringInDecreasingOrder() throws Exception {
         ScmMaterial material = material();
@@ -1294,6 +1326,45 @@ public class MaterialRepositoryIntegrationTest {
         assertThat(repo.getTotalModificationsFor(materialInstance), is(new Long(count+1)));
     }
 
+    @Test
+    public void shouldBatchInsertModificationsWithTheirModifiedFiles() {
+        final MaterialInstance materialInstance = repo.findOrCreateFrom(new GitMaterial(UUID.randomUUID().toString(), "branch"));
+        final ArrayList<Modification> modifications = getModificationsWithFiles(5, 3);
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                repo.saveModifications(materialInstance, modifications);
+            }
+        });
+
+        assertThat(repo.getTotalModificationsFor(materialInstance), is(5L));
+        Set<Long> fileIds = new HashSet<>();
+        for (Modification modification : modifications) {
+            assertThat(modification.hasId(), is(true));
+            for (ModifiedFile file : modification.getModifiedFiles()) {
+                fileIds.add(file.getId());
+            }
+        }
+        assertThat(fileIds.size(), is(15));
+        assertThat(fileIds.contains(PersistentObject.NOT_PERSISTED), is(false));
+        Modification latest = repo.findLatestModification(materialInstance);
+        assertThat(latest.getRevision(), is("r0"));
+        assertThat(latest.getModifiedFiles().size(), is(3));
+        assertThat(latest.getModifiedFiles().get(0).getFileName(), is("file-0-0"));
+        assertThat(latest.getModifiedFiles().get(0).getFolderName(), is("folder-0"));
+        assertThat(latest.getModifiedFiles().get(0).getAction(), is(ModifiedAction.modified));
+    }
+
+    private ArrayList<Modification> getModificationsWithFiles(int count, int filesPerModification) {
+        final ArrayList<Modification> modifications = getModifications(count);
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < filesPerModification; j++) {
+                modifications.get(i).createModifiedFile("file-" + i + "-" + j, "folder-" + i, ModifiedAction.modified);
+            }
+        }
+        return modifications;
+    }
+
     private ArrayList<Modification> getModifications(int count) {
         final ArrayList<Modification> modifications = new ArrayList<>();
         for (int i = 0; i < count; i++) {
@@ -385,7 +385,7 @@ public class BuildAssignmentServiceIntegrationTest {
         final Pipeline pipeline1 = pipeline;
         final Semaphore sem = new Semaphore(1);
         sem.acquire();
-        when(mockJobInstanceService.orderedScheduledBuilds()).thenReturn(jobInstanceService.orderedScheduledBuilds());
+        when(mockJobInstanceService.queuedScheduledBuilds()).thenReturn(jobInstanceService.queuedScheduledBuilds());
         when(mockJobInstanceService.buildByIdWithTransitions(job.getId())).thenReturn(jobInstanceService.buildByIdWithTransitions(job.getId()));
 
         ScheduledPipelineLoader scheduledPipelineLoader = new ScheduledPipelineLoader(null, null, null, null, null, null, null, null) {
@@ -393,7 +393,7 @@ public class BuildAssignmentServiceIntegrationTest {
             public Pipeline pipelineWithPasswordAwareBuildCauseByBuildId(long buildId) {
                 sem.release();
                 sleepQuietly(1000);
-                verify(mockJobInstanceService, times(1)).orderedScheduledBuilds();
+                verify(mockJobInstanceService, times(1)).queuedScheduledBuilds();
                 return pipeline1;
             }
         };
@@ -146,7 +146,7 @@ public class BuildCauseProducerServiceConfigRepoIntegrationTest {
         StageService stageService = mock(StageService.class);
         ConfigDbStateRepository configDbStateRepository = mock(ConfigDbStateRepository.class);
         goDiskSpaceMonitor = new GoDiskSpaceMonitor(goConfigService, systemEnvironment,
-                serverHealthService, emailSender, mockDiskSpaceChecker, mock(ArtifactsService.class),
+                serverHealthService, emailSender, mockDiskSpaceChecker, mock(ArtifactsService.class), mock(ArtifactBlobStore.class),
                 stageService, configDbStateRepository);
         goDiskSpaceMonitor.initialize();
 
@@ -177,6 +177,8 @@ public class DatabaseAccessHelper extends HibernateDaoSupport {
         dataSet.addTable(new DefaultTable("artifactPropertiesGenerator"));
         dataSet.addTable(new DefaultTable("stages"));
         dataSet.addTable(new DefaultTable("pipelineLabelCounts"));
+        dataSet.addTable(new DefaultTable("latestPipelineInstances"));
+        dataSet.addTable(new DefaultTable("latestStageInstances"));
         dataSet.addTable(new DefaultTable("environmentVariables"));
         dataSet.addTable(new DefaultTable("properties"));
         dataSet.addTable(new DefaultTable("artifactPlans"));
@@ -40,6 +40,8 @@ class Api::JobsController < Api::ApiController
   end
 
   def history
+    return history_before(params[:before].to_i) if params[:before].present?
+
     pipeline_name = params[:pipeline_name]
     stage_name = params[:stage_name]
     job_name = params[:job_name]
@@ -58,4 +60,23 @@ class Api::JobsController < Api::ApiController
       render_error_response(result.detailedMessage(), result.httpCode(), true)
     end
   end
+
+  private
+
+  def history_before(before_job_id)
+    pipeline_name = params[:pipeline_name]
+    stage_name = params[:stage_name]
+    job_name = params[:job_name]
+    page_size = 10
+    result = HttpOperationResult.new
+
+    job_history = job_instance_service.findJobHistoryPageBeforeId(pipeline_name, stage_name, job_name, before_job_id, page_size, CaseInsensitiveString.str(current_user.getUsername()), result)
+
+    if result.canContinue()
+      next_before = job_history.size() == page_size ? job_history.last().getId() : nil
+      render json: JobHistoryAPIModel.new(nil, job_history, next_before)
+    else
+      render_error_response(result.detailedMessage(), result.httpCode(), true)
+    end
+  end
 end
@@ -21,6 +21,8 @@ class Api::PipelinesController < Api::ApiController
   helper_method :url, :resource_url, :page_url
 
   def history
+    return history_before(params[:before].to_i) if params[:before].present?
+
     pipeline_name = params[:pipeline_name]
     offset = params[:offset].to_i
     page_size = 10
@@ -93,6 +95,21 @@ class Api::PipelinesController < Api::ApiController
   end
 
   private
+  def history_before(before_counter)
+    pipeline_name = params[:pipeline_name]
+    page_size = 10
+    result = HttpOperationResult.new
+
+    pipeline_history = pipeline_history_service.loadMinimalDataBeforeCounter(pipeline_name, before_counter, page_size, current_user, result)
+
+    if result.canContinue()
+      next_before = pipeline_history.size() == page_size ? pipeline_history.last().getCounter() : nil
+      render json: PipelineHistoryAPIModel.new(nil, pipeline_history, next_before)
+    else
+      render_error_response(result.detailedMessage(), result.httpCode(), true)
+    end
+  end
+
   def merge_revisions(pipeline_name, new_revisions_using_name, original_fingerprint, new_revisions_with_fingerprint)
     new_revisions_using_name.delete_if { |key, value| value.blank? }.each do |material_name, revision|
       material_config = go_config_service.findMaterialWithName(CaseInsensitiveString.new(pipeline_name), CaseInsensitiveString.new(material_name))
@@ -51,6 +51,8 @@ class Api::StagesController < Api::ApiController
   end
 
   def history
+    return history_before(params[:before].to_i) if params[:before].present?
+
     pipeline_name = params[:pipeline_name]
     stage_name = params[:stage_name]
     offset = params[:offset].to_i
@@ -87,6 +89,22 @@ class Api::StagesController < Api::ApiController
   end
 
   private
+  def history_before(before_stage_id)
+    pipeline_name = params[:pipeline_name]
+    stage_name = params[:stage_name]
+    page_size = 10
+    result = HttpOperationResult.new
+
+    stage_history = stage_service.findDetailedStageHistoryBeforeId(pipeline_name, stage_name, before_stage_id, page_size, CaseInsensitiveString.str(current_user.getUsername()), result)
+
+    if result.canContinue()
+      next_before = stage_history.size() == page_size ? stage_history.last().getId() : nil
+      render json: StageHistoryAPIModel.new(nil, stage_history, next_before)
+    else
+      render_error_response(result.detailedMessage(), result.httpCode(), true)
+    end
+  end
+
   def render_not_found()
     render plain: "Not Found!", status: 404
   end
@@ -15,10 +15,11 @@
 ##########################GO-LICENSE-END##################################
 
 class JobHistoryAPIModel
-  attr_reader :pagination, :jobs
+  attr_reader :pagination, :jobs, :next_before
 
-  def initialize(pagination, job_instances)
-    @pagination = PaginationAPIModel.new(pagination)
+  def initialize(pagination, job_instances, next_before = nil)
+    @pagination = PaginationAPIModel.new(pagination) unless pagination.nil?
+    @next_before = next_before unless next_before.nil?
 
     @jobs = job_instances.collect do |job_instance|
       JobInstanceAPIModel.new(job_instance)
@@ -15,10 +15,11 @@
 ##########################GO-LICENSE-END##################################
 
 class PipelineHistoryAPIModel
-  attr_reader :pagination, :pipelines
+  attr_reader :pagination, :pipelines, :next_before
 
-  def initialize(pagination, pipeline_history)
-    @pagination = PaginationAPIModel.new(pagination)
+  def initialize(pagination, pipeline_history, next_before = nil)
+    @pagination = PaginationAPIModel.new(pagination) unless pagination.nil?
+    @next_before = next_before unless next_before.nil?
     @pipelines = pipeline_history.collect do |pipeline_instance_model|
       PipelineInstanceAPIModel.new(pipeline_instance_model)
     end
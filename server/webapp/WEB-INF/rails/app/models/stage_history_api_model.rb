@@ -15,10 +15,11 @@
 ##########################GO-LICENSE-END##################################
 
 class StageHistoryAPIModel
-  attr_reader :pagination, :stages
+  attr_reader :pagination, :stages, :next_before
 
-  def initialize(pagination, stage_instances)
-    @pagination = PaginationAPIModel.new(pagination)
+  def initialize(pagination, stage_instances, next_before = nil)
+    @pagination = PaginationAPIModel.new(pagination) unless pagination.nil?
+    @next_before = next_before unless next_before.nil?
 
     @stages = stage_instances.collect do |stage_instance|
       StageInstanceAPIModel.new(stage_instance)
@@ -112,6 +112,43 @@ describe Api::JobsController do
       expect(response.body).to eq("Not Acceptable\n")
     end
 
+    it "should render the page of history before a job without offset pagination" do
+      loser = Username.new(CaseInsensitiveString.new("loser"))
+      expect(controller).to receive(:current_user).and_return(loser)
+      expect(@job_instance_service).not_to receive(:getJobHistoryCount)
+      expect(@job_instance_service).to receive(:findJobHistoryPageBeforeId).with('pipeline', 'stage', 'job', 600, 10, "loser", anything).and_return([create_job_model])
+
+      get :history, params:{:pipeline_name => 'pipeline', :stage_name => 'stage', :job_name => 'job', :before => '600', :no_layout => true}
+
+      expect(response.body).to eq(JobHistoryAPIModel.new(nil, [create_job_model]).to_json)
+      expect(JSON.parse(response.body)).not_to have_key('next_before')
+      expect(JSON.parse(response.body)).not_to have_key('pagination')
+    end
+
+    it "should render next_before as the id of the last job when the page is full" do
+      loser = Username.new(CaseInsensitiveString.new("loser"))
+      expect(controller).to receive(:current_user).and_return(loser)
+      job_history = [create_job_model] * 10
+      expect(@job_instance_service).to receive(:findJobHistoryPageBeforeId).with('pipeline', 'stage', 'job', 600, 10, "loser", anything).and_return(job_history)
+
+      get :history, params:{:pipeline_name => 'pipeline', :stage_name => 'stage', :job_name => 'job', :before => '600', :no_layout => true}
+
+      expect(response.body).to eq(JobHistoryAPIModel.new(nil, job_history, 543).to_json)
+      expect(JSON.parse(response.body)['next_before']).to eq(543)
+    end
+
+    it "should render error correctly for the page of history before a job" do
+      loser = Username.new(CaseInsensitiveString.new("loser"))
+      expect(controller).to receive(:current_user).and_return(loser)
+      expect(@job_instance_service).to receive(:findJobHistoryPageBeforeId).with('pipeline', 'stage', 'job', 600, 10, "loser", anything) do |pipeline_name, stage_name, job_name, before, page_size, username, result|
+        result.notFound("Not Found", "Pipeline not found", HealthStateType.general(HealthStateScope::GLOBAL))
+      end
+
+      get :history, params:{:pipeline_name => 'pipeline', :stage_name => 'stage', :job_name => 'job', :before => '600', :no_layout => true}
+
+      expect(response.status).to eq(404)
+    end
+
     describe "route" do
       it "should route to history" do
         expect(:get => "/api/jobs/pipeline/stage/job/history").to route_to(:controller => 'api/jobs', :action => "history", :pipeline_name => "pipeline", :stage_name => "stage", :job_name => "job", :offset => "0", :no_layout => true)
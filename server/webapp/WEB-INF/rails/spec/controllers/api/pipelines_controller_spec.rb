@@ -77,6 +77,46 @@ describe Api::PipelinesController do
       expect(response.body).to eq("Not Acceptable\n")
     end
 
+    it "should render the page of history before a counter without offset pagination" do
+      loser = Username.new(CaseInsensitiveString.new("loser"))
+      expect(controller).to receive(:current_user).and_return(loser)
+      expect(@pipeline_history_service).not_to receive(:totalCount)
+      expect(@pipeline_history_service).to receive(:loadMinimalDataBeforeCounter).with('up42', 200, 10, loser, @status).and_return(create_pipeline_history_model)
+
+      get :history, params:{:pipeline_name => 'up42', :before => '200', :no_layout => true}
+
+      expect(response.body).to eq(PipelineHistoryAPIModel.new(nil, create_pipeline_history_model).to_json)
+      expect(JSON.parse(response.body)).not_to have_key('next_before')
+      expect(JSON.parse(response.body)).not_to have_key('pagination')
+    end
+
+    it "should render next_before as the counter of the last pipeline when the page is full" do
+      loser = Username.new(CaseInsensitiveString.new("loser"))
+      expect(controller).to receive(:current_user).and_return(loser)
+      pipeline_history = [create_pipeline_model] * 10
+      expect(@pipeline_history_service).to receive(:loadMinimalDataBeforeCounter).with('up42', 200, 10, loser, @status).and_return(pipeline_history)
+
+      get :history, params:{:pipeline_name => 'up42', :before => '200', :no_layout => true}
+
+      expect(response.body).to eq(PipelineHistoryAPIModel.new(nil, pipeline_history, 123).to_json)
+      expect(JSON.parse(response.body)['next_before']).to eq(123)
+    end
+
+    it "should render error correctly for the page of history before a counter" do
+      expect(@status).to receive(:canContinue).and_return(false)
+      expect(@status).to receive(:detailedMessage).and_return("Pipeline up42 not found")
+      expect(@status).to receive(:httpCode).and_return(404)
+
+      loser = Username.new(CaseInsensitiveString.new("loser"))
+      expect(controller).to receive(:current_user).and_return(loser)
+      expect(@pipeline_history_service).to receive(:loadMinimalDataBeforeCounter).with('up42', 200, 10, loser, @status)
+
+      get :history, params:{:pipeline_name => 'up42', :before => '200', :no_layout => true}
+
+      expect(response.status).to eq(404)
+      expect(response.body).to eq("Pipeline up42 not found\n")
+    end
+
     describe "route" do
       it "should route to history" do
         expect(:get => '/api/pipelines/up42/history').to route_to(:controller => "api/pipelines", :action => "history", :pipeline_name => 'up42', :offset => '0', :no_layout => true)
@@ -194,6 +194,43 @@ describe Api::StagesController do
       expect(response.body).to eq("Not Acceptable\n")
     end
 
+    it "should render the page of history before a stage without offset pagination" do
+      loser = Username.new(CaseInsensitiveString.new("loser"))
+      expect(controller).to receive(:current_user).and_return(loser)
+      expect(@stage_service).not_to receive(:getCount)
+      expect(@stage_service).to receive(:findDetailedStageHistoryBeforeId).with('pipeline', 'stage', 500, 10, "loser", anything).and_return([create_stage_model])
+
+      get :history, params:{:pipeline_name => 'pipeline', :stage_name => 'stage', :before => '500', :no_layout => true}
+
+      expect(response.body).to eq(StageHistoryAPIModel.new(nil, [create_stage_model]).to_json)
+      expect(JSON.parse(response.body)).not_to have_key('next_before')
+      expect(JSON.parse(response.body)).not_to have_key('pagination')
+    end
+
+    it "should render next_before as the id of the last stage when the page is full" do
+      loser = Username.new(CaseInsensitiveString.new("loser"))
+      expect(controller).to receive(:current_user).and_return(loser)
+      stage_history = [create_stage_model] * 10
+      expect(@stage_service).to receive(:findDetailedStageHistoryBeforeId).with('pipeline', 'stage', 500, 10, "loser", anything).and_return(stage_history)
+
+      get :history, params:{:pipeline_name => 'pipeline', :stage_name => 'stage', :before => '500', :no_layout => true}
+
+      expect(response.body).to eq(StageHistoryAPIModel.new(nil, stage_history, 456).to_json)
+      expect(JSON.parse(response.body)['next_before']).to eq(456)
+    end
+
+    it "should render error correctly for the page of history before a stage" do
+      loser = Username.new(CaseInsensitiveString.new("loser"))
+      expect(controller).to receive(:current_user).and_return(loser)
+      expect(@stage_service).to receive(:findDetailedStageHistoryBeforeId).with('pipeline', 'stage', 500, 10, "loser", anything) do |pipeline_name, stage_name, before, page_size, username, result|
+        result.forbidden("Unauthorized", "Not authorized", HealthStateType.general(HealthStateScope::GLOBAL))
+      end
+
+      get :history, params:{:pipeline_name => 'pipeline', :stage_name => 'stage', :before => '500', :no_layout => true}
+
+      expect(response.status).to eq(403)
+    end
+
     describe "route" do
       it "should route to history" do
         expect(:get => "/api/stages/pipeline/stage/history").to route_to(:controller => 'api/stages', :action => "history", :pipeline_name => "pipeline", :stage_name => "stage", :offset => "0", :no_layout => true)
@@ -412,6 +412,7 @@ public class Routes {
 
     public class MaterialSearch {
         public static final String BASE = "/api/internal/material_search";
+        public static final String INDEX_BASE = "/api/admin/internal/material_search/index";
     }
 
     public class RolesSPA {